@@ -1,13 +1,21 @@
 package com.example.demo.controllers;
 
 import com.example.demo.dto.request.ExcursionRequestDTO;
+import com.example.demo.dto.response.AvailabilityBatchResultDTO;
 import com.example.demo.dto.response.ExcursionResponseDTO;
+import com.example.demo.dto.response.WorkshopHeatmapDTO;
+import com.example.demo.exceptions.WorkshopSlotUnavailableException;
 import com.example.demo.models.ExcursionStatus;
 import com.example.demo.services.ExcursionService;
+import com.example.demo.services.WorkshopHeatmapService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -19,11 +27,34 @@ public class ExcursionController {
     @Autowired
     private ExcursionService excursionService;
 
+    @Autowired
+    private WorkshopHeatmapService heatmapService;
+
     @GetMapping
     public ResponseEntity<List<ExcursionResponseDTO>> getAllExcursions() {
         return ResponseEntity.ok(excursionService.getAllExcursions());
     }
 
+    /**
+     * Keyset-пагинация экскурсий (ранние первыми) с фильтром по диапазону времени начала [from, to);
+     * nextCursor из ответа передается в следующий запрос
+     */
+    @GetMapping("/cursor")
+    public ResponseEntity<?> getExcursionsByCursor(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long guideId,
+            @RequestParam(required = false) ExcursionStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        try {
+            return ResponseEntity.ok(excursionService.getExcursionsByCursor(from, to, guideId, status, cursor, size, withTotal));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ExcursionResponseDTO> getExcursionById(@PathVariable Long id) {
         return excursionService.getExcursionById(id)
@@ -36,6 +67,24 @@ public class ExcursionController {
         return ResponseEntity.ok(excursionService.getExcursionsByGuideId(guideId));
     }
 
+    /**
+     * Тепловая карта загрузки цехов: пиковая занятость и остаток вместимости по интервалам
+     * за дни [from, to) (не более 31 дня); workshopIds не задан - все цеха
+     */
+    @GetMapping("/heatmap")
+    public ResponseEntity<?> getWorkshopHeatmap(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) List<Long> workshopIds,
+            @RequestParam(defaultValue = "30") int bucketMinutes) {
+        try {
+            WorkshopHeatmapDTO heatmap = heatmapService.getHeatmap(from, to, workshopIds, bucketMinutes);
+            return ResponseEntity.ok(heatmap);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/statuses")
     public ResponseEntity<List<ExcursionStatus>> getAllStatuses() {
         return ResponseEntity.ok(excursionService.getAllStatuses());
@@ -46,6 +95,8 @@ public class ExcursionController {
         try {
             ExcursionResponseDTO excursion = excursionService.createExcursion(dto);
             return ResponseEntity.ok(excursion);
+        } catch (WorkshopSlotUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -56,6 +107,8 @@ public class ExcursionController {
         try {
             ExcursionResponseDTO excursion = excursionService.updateExcursion(id, dto);
             return ResponseEntity.ok(excursion);
+        } catch (WorkshopSlotUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -76,5 +129,15 @@ public class ExcursionController {
         Map<String, Object> result = excursionService.checkRouteAvailability(dto);
         return ResponseEntity.ok(result);
     }
+
+    @PostMapping("/check-availability/batch")
+    public ResponseEntity<?> checkRouteAvailabilityBatch(@RequestBody List<ExcursionRequestDTO> candidates) {
+        try {
+            AvailabilityBatchResultDTO result = excursionService.checkRouteAvailabilityBatch(candidates);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
 }
 
@@ -3,8 +3,11 @@ package com.example.demo.controllers;
 import com.example.demo.dto.request.BookTicketRequestDTO;
 import com.example.demo.dto.request.GenerateTicketsRequestDTO;
 import com.example.demo.dto.response.GoldenTicketResponseDTO;
+import com.example.demo.dto.response.TicketMintingJobDTO;
 import com.example.demo.services.GoldenTicketService;
+import com.example.demo.services.TicketMintingService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -19,6 +22,9 @@ public class GoldenTicketController {
     @Autowired
     private GoldenTicketService ticketService;
 
+    @Autowired
+    private TicketMintingService mintingService;
+
     /**
      * Генерация золотых билетов (только для админов)
      */
@@ -32,6 +38,29 @@ public class GoldenTicketController {
         }
     }
 
+    /**
+     * Массовый выпуск билетов фоновым заданием (только для админов); ответ - задание для отслеживания прогресса
+     */
+    @PostMapping("/mint")
+    public ResponseEntity<?> startMinting(@RequestBody GenerateTicketsRequestDTO request) {
+        try {
+            TicketMintingJobDTO job = mintingService.startJob(request);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Прогресс задания выпуска билетов (только для админов)
+     */
+    @GetMapping("/mint/{jobId}")
+    public ResponseEntity<TicketMintingJobDTO> getMintingJob(@PathVariable Long jobId) {
+        return mintingService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     /**
      * Получить все билеты
      */
@@ -2,32 +2,62 @@ package com.example.demo.controllers;
 
 import com.example.demo.dto.request.TaskFilterRequestDTO;
 import com.example.demo.dto.request.TaskRequestDTO;
+import com.example.demo.dto.response.TaskResponseDTO;
 import com.example.demo.models.Task;
 import com.example.demo.models.TaskStatus;
+import com.example.demo.services.TaskExportService;
+import com.example.demo.services.TaskImportService;
 import com.example.demo.services.TaskService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/tasks")
 public class TaskController {
+    private static final String TEXT_CSV = "text/csv";
+
     private final TaskService taskService;
+    private final TaskExportService taskExportService;
+    private final TaskImportService taskImportService;
 
-    public TaskController(TaskService taskService) {
+    public TaskController(TaskService taskService, TaskExportService taskExportService,
+            TaskImportService taskImportService) {
         this.taskService = taskService;
+        this.taskExportService = taskExportService;
+        this.taskImportService = taskImportService;
     }
 
     @GetMapping
-    public Iterable<Task> getAllTasks() {
+    public List<TaskResponseDTO> getAllTasks() {
         return taskService.getAllTasks();
     }
 
+    /**
+     * Потоковая выгрузка всех задач в NDJSON (Accept: application/x-ndjson)
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAllTasksNdjson() {
+        return ndjson(out -> taskExportService.exportNdjson(null, out));
+    }
+
+    /**
+     * Потоковая выгрузка всех задач в CSV (Accept: text/csv)
+     */
+    @GetMapping(produces = TEXT_CSV)
+    public ResponseEntity<StreamingResponseBody> exportAllTasksCsv() {
+        return csv(out -> taskExportService.exportCsv(null, out));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Task> getTaskById(@PathVariable Long id) {
         return taskService.getTaskById(id)
@@ -39,7 +69,7 @@ public class TaskController {
     public ResponseEntity<?> getAllTasksPaged(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
-        Page<Task> tasksPage = taskService.getAllTasksPaged(page, size);
+        Page<TaskResponseDTO> tasksPage = taskService.getAllTasksPaged(page, size);
         return ResponseEntity.ok(tasksPage);
     }
 
@@ -51,11 +81,49 @@ public class TaskController {
         return ResponseEntity.ok(taskService.filterTasksPaged(dto, page, size));
     }
 
+    /**
+     * Keyset-пагинация задач (новые первыми); nextCursor из ответа передается в следующий запрос
+     */
+    @GetMapping("/cursor")
+    public ResponseEntity<?> getTasksByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        try {
+            return ResponseEntity.ok(taskService.getTasksByCursor(cursor, size, withTotal));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/filter-cursor")
+    public ResponseEntity<?> filterTasksByCursor(
+            @RequestBody TaskFilterRequestDTO dto,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        try {
+            return ResponseEntity.ok(taskService.filterTasksByCursor(dto, cursor, size, withTotal));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PostMapping("/filter")
-    public List<Task> filterTasks(@RequestBody TaskFilterRequestDTO dto) {
+    public List<TaskResponseDTO> filterTasks(@RequestBody TaskFilterRequestDTO dto) {
         return taskService.filterTasks(dto);
     }
 
+    @PostMapping(value = "/filter", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportFilteredTasksNdjson(@RequestBody TaskFilterRequestDTO dto) {
+        return ndjson(out -> taskExportService.exportNdjson(dto, out));
+    }
+
+    @PostMapping(value = "/filter", produces = TEXT_CSV)
+    public ResponseEntity<StreamingResponseBody> exportFilteredTasksCsv(@RequestBody TaskFilterRequestDTO dto) {
+        return csv(out -> taskExportService.exportCsv(dto, out));
+    }
+
     @PostMapping
     public ResponseEntity<?> createTask(@RequestBody TaskRequestDTO dto) {
         try {
@@ -102,12 +170,33 @@ public class TaskController {
      */
     @PostMapping("/{id}/assign-to-me")
     public ResponseEntity<?> assignTaskToMe(@PathVariable Long id, @RequestParam Long userId) {
+        // TaskAlreadyClaimedException и WorkerOverloadedException -> 409 (GlobalExceptionHandler)
+        return taskService.assignTaskToMe(id, userId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Массовый импорт задач из JSON-массива (формат как у POST /api/tasks)
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> importTasksJson(InputStream body) {
         try {
-            return taskService.assignTaskToMe(id, userId)
-                    .map(ResponseEntity::ok)
-                    .orElse(ResponseEntity.notFound().build());
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
+            return ResponseEntity.ok(taskImportService.importJson(body));
+        } catch (IllegalArgumentException | IOException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Массовый импорт задач из CSV с заголовком (name, description, userId, force)
+     */
+    @PostMapping(value = "/import", consumes = TEXT_CSV)
+    public ResponseEntity<?> importTasksCsv(InputStream body) {
+        try {
+            return ResponseEntity.ok(taskImportService.importCsv(body));
+        } catch (IllegalArgumentException | IOException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
 
@@ -164,13 +253,9 @@ public class TaskController {
      * Получить все нераспределенные задачи
      */
     @GetMapping("/unassigned")
-    public ResponseEntity<List<Task>> getUnassignedTasks() {
+    public ResponseEntity<List<TaskResponseDTO>> getUnassignedTasks() {
         try {
-            Iterable<Task> allTasks = taskService.getAllTasks();
-            List<Task> result = StreamSupport.stream(allTasks.spliterator(), false)
-                .filter(task -> task.getUser() == null && task.getStatus() == TaskStatus.NOT_ASSIGNED)
-                .collect(Collectors.toList());
-            return ResponseEntity.ok(result);
+            return ResponseEntity.ok(taskService.getUnassignedTasks());
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -184,4 +269,17 @@ public class TaskController {
         long count = taskService.countTasks();
         return ResponseEntity.ok(Map.of("count", count));
     }
+
+    private static ResponseEntity<StreamingResponseBody> ndjson(StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> csv(StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(TEXT_CSV + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"tasks.csv\"")
+                .body(body);
+    }
 }
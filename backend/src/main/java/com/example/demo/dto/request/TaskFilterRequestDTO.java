@@ -12,6 +12,7 @@ public class TaskFilterRequestDTO {
     private LocalDateTime completedBefore;
     private Long userId;
     private TaskStatus status;
+    private String search;
 
     public TaskFilterRequestDTO(String name, LocalDateTime createdAfter, LocalDateTime createdBefore,
             LocalDateTime completedAfter, LocalDateTime completedBefore, Long userId, TaskStatus status) {
@@ -79,4 +80,12 @@ public class TaskFilterRequestDTO {
     public void setStatus(TaskStatus status) {
         this.status = status;
     }
+
+    public String getSearch() {
+        return search;
+    }
+
+    public void setSearch(String search) {
+        this.search = search;
+    }
 }
@@ -0,0 +1,72 @@
+package com.example.demo.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AvailabilityBatchResultDTO {
+    private List<CandidateResult> results = new ArrayList<>();
+    private int availableCount;
+    private CandidateResult earliestAvailable;
+
+    public List<CandidateResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<CandidateResult> results) {
+        this.results = results;
+    }
+
+    public int getAvailableCount() {
+        return availableCount;
+    }
+
+    public void setAvailableCount(int availableCount) {
+        this.availableCount = availableCount;
+    }
+
+    public CandidateResult getEarliestAvailable() {
+        return earliestAvailable;
+    }
+
+    public void setEarliestAvailable(CandidateResult earliestAvailable) {
+        this.earliestAvailable = earliestAvailable;
+    }
+
+    public void addResult(CandidateResult result) {
+        results.add(result);
+        if (result.isAvailable()) {
+            availableCount++;
+            if (earliestAvailable == null || result.getStartTime().isBefore(earliestAvailable.getStartTime())) {
+                earliestAvailable = result;
+            }
+        }
+    }
+
+    // Результат проверки одного варианта: индекс в запросе, время и найденные конфликты
+    public static class CandidateResult {
+        private int index;
+        private LocalDateTime startTime;
+        private LocalDateTime endTime;
+        private Long guideId;
+        private List<String> conflicts = new ArrayList<>();
+
+        public CandidateResult(int index, LocalDateTime startTime, LocalDateTime endTime, Long guideId) {
+            this.index = index;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.guideId = guideId;
+        }
+
+        public void addConflict(String conflict) {
+            conflicts.add(conflict);
+        }
+
+        public boolean isAvailable() { return conflicts.isEmpty(); }
+        public int getIndex() { return index; }
+        public LocalDateTime getStartTime() { return startTime; }
+        public LocalDateTime getEndTime() { return endTime; }
+        public Long getGuideId() { return guideId; }
+        public List<String> getConflicts() { return conflicts; }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.dto.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TaskImportResultDTO {
+    private int totalRows;
+    private int importedCount;
+    private int failedCount;
+    private List<RowError> errors = new ArrayList<>();
+
+    public int getTotalRows() {
+        return totalRows;
+    }
+
+    public void setTotalRows(int totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    public int getImportedCount() {
+        return importedCount;
+    }
+
+    public void setImportedCount(int importedCount) {
+        this.importedCount = importedCount;
+    }
+
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    public void setFailedCount(int failedCount) {
+        this.failedCount = failedCount;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<RowError> errors) {
+        this.errors = errors;
+    }
+
+    public void addError(int row, String message) {
+        errors.add(new RowError(row, message));
+        failedCount++;
+    }
+
+    // Ошибка строки импорта: номер строки данных (с 1) и причина
+    public static class RowError {
+        private int row;
+        private String message;
+
+        public RowError(int row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+
+        public int getRow() { return row; }
+        public String getMessage() { return message; }
+    }
+}
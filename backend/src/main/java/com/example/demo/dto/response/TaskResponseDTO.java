@@ -0,0 +1,95 @@
+package com.example.demo.dto.response;
+
+import com.example.demo.dto.short_db.UserShortDTO;
+import com.example.demo.models.Role;
+import com.example.demo.models.TaskStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Модель чтения задачи для списков: только отображаемые поля и краткие данные исполнителя.
+ * Заполняется одним запросом с LEFT JOIN на пользователя (TaskRepositoryCustom).
+ */
+public class TaskResponseDTO {
+    private Long id;
+    private String name;
+    private String description;
+    private TaskStatus status;
+    private UserShortDTO user;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+
+    public TaskResponseDTO() {
+    }
+
+    /**
+     * Конструктор для проекции запроса: поля исполнителя приходят плоско и равны null, если задача не назначена
+     */
+    public TaskResponseDTO(Long id, String name, String description, TaskStatus status,
+                           LocalDateTime createdAt, LocalDateTime completedAt,
+                           Long userId, String username, Role userRole, Boolean userIsBanned) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.status = status;
+        this.createdAt = createdAt;
+        this.completedAt = completedAt;
+        this.user = userId != null ? new UserShortDTO(userId, username, userRole, userIsBanned) : null;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public TaskStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(TaskStatus status) {
+        this.status = status;
+    }
+
+    public UserShortDTO getUser() {
+        return user;
+    }
+
+    public void setUser(UserShortDTO user) {
+        this.user = user;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.demo.dto.response;
+
+import com.example.demo.models.TicketMintingJobStatus;
+import java.time.LocalDateTime;
+
+public class TicketMintingJobDTO {
+    private Long id;
+    private TicketMintingJobStatus status;
+    private long requested;
+    private long generated;
+    private double progressPercent;
+    private LocalDateTime expiresAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+    private String error;
+
+    public TicketMintingJobDTO() {
+    }
+
+    public TicketMintingJobDTO(Long id, TicketMintingJobStatus status, long requested, long generated,
+                               LocalDateTime expiresAt, LocalDateTime createdAt, LocalDateTime updatedAt,
+                               LocalDateTime completedAt, String error) {
+        this.id = id;
+        this.status = status;
+        this.requested = requested;
+        this.generated = generated;
+        this.progressPercent = requested > 0 ? Math.floor(generated * 1000.0 / requested) / 10 : 100;
+        this.expiresAt = expiresAt;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.completedAt = completedAt;
+        this.error = error;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public TicketMintingJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(TicketMintingJobStatus status) {
+        this.status = status;
+    }
+
+    public long getRequested() {
+        return requested;
+    }
+
+    public void setRequested(long requested) {
+        this.requested = requested;
+    }
+
+    public long getGenerated() {
+        return generated;
+    }
+
+    public void setGenerated(long generated) {
+        this.generated = generated;
+    }
+
+    public double getProgressPercent() {
+        return progressPercent;
+    }
+
+    public void setProgressPercent(double progressPercent) {
+        this.progressPercent = progressPercent;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
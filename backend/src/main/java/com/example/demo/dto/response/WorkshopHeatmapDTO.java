@@ -0,0 +1,111 @@
+package com.example.demo.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Тепловая карта загрузки цехов: для каждого цеха пиковая занятость и остаток вместимости
+ * в каждом интервале [from + i * bucketMinutes, from + (i + 1) * bucketMinutes)
+ */
+public class WorkshopHeatmapDTO {
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private int bucketMinutes;
+    private List<WorkshopRow> workshops = new ArrayList<>();
+
+    public WorkshopHeatmapDTO(LocalDateTime from, LocalDateTime to, int bucketMinutes) {
+        this.from = from;
+        this.to = to;
+        this.bucketMinutes = bucketMinutes;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+
+    public int getBucketMinutes() {
+        return bucketMinutes;
+    }
+
+    public void setBucketMinutes(int bucketMinutes) {
+        this.bucketMinutes = bucketMinutes;
+    }
+
+    public List<WorkshopRow> getWorkshops() {
+        return workshops;
+    }
+
+    public void setWorkshops(List<WorkshopRow> workshops) {
+        this.workshops = workshops;
+    }
+
+    // Строка карты: цех и значения по интервалам; remaining = null для цеха без ограничения вместимости
+    public static class WorkshopRow {
+        private Long workshopId;
+        private String workshopName;
+        private Integer capacity;
+        private int[] occupied;
+        private int[] remaining;
+
+        public WorkshopRow(Long workshopId, String workshopName, Integer capacity, int[] occupied, int[] remaining) {
+            this.workshopId = workshopId;
+            this.workshopName = workshopName;
+            this.capacity = capacity;
+            this.occupied = occupied;
+            this.remaining = remaining;
+        }
+
+        public Long getWorkshopId() {
+            return workshopId;
+        }
+
+        public void setWorkshopId(Long workshopId) {
+            this.workshopId = workshopId;
+        }
+
+        public String getWorkshopName() {
+            return workshopName;
+        }
+
+        public void setWorkshopName(String workshopName) {
+            this.workshopName = workshopName;
+        }
+
+        public Integer getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(Integer capacity) {
+            this.capacity = capacity;
+        }
+
+        public int[] getOccupied() {
+            return occupied;
+        }
+
+        public void setOccupied(int[] occupied) {
+            this.occupied = occupied;
+        }
+
+        public int[] getRemaining() {
+            return remaining;
+        }
+
+        public void setRemaining(int[] remaining) {
+            this.remaining = remaining;
+        }
+    }
+}
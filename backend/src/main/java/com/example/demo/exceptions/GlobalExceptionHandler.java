@@ -17,6 +17,13 @@ public class GlobalExceptionHandler {
                 "options", new String[] { "ASSIGN_TO_OTHER", "FORCE_ASSIGN" }));
     }
 
+    @ExceptionHandler(TaskAlreadyClaimedException.class)
+    public ResponseEntity<?> handleTaskAlreadyClaimed(TaskAlreadyClaimedException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                "error", "TASK_ALREADY_CLAIMED",
+                "message", ex.getMessage()));
+    }
+
     @ExceptionHandler(UsernameAlreadyExistsException.class)
     public ResponseEntity<String> handleUsernameExists(UsernameAlreadyExistsException ex) {
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
@@ -0,0 +1,7 @@
+package com.example.demo.exceptions;
+
+public class TaskAlreadyClaimedException extends RuntimeException {
+    public TaskAlreadyClaimedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.demo.exceptions;
+
+public class WorkshopSlotUnavailableException extends RuntimeException {
+    public WorkshopSlotUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -7,11 +7,17 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "excursions")
+@Table(name = "excursions", indexes = {
+        @Index(name = "idx_excursions_status_start_time", columnList = "status, start_time"),
+        @Index(name = "idx_excursions_status_end_time", columnList = "status, end_time"),
+        @Index(name = "idx_excursions_start_time_id", columnList = "start_time, id"),
+        @Index(name = "idx_excursions_guide_start_time", columnList = "guide_id, start_time, id")
+})
 public class Excursion {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "excursions_seq")
+    @SequenceGenerator(name = "excursions_seq", sequenceName = "excursions_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -34,6 +40,11 @@ public class Excursion {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    // Время окончания последней точки маршрута: вычисляется при вставке, дальше ExcursionService
+    // пересчитывает его там, где меняются время начала или маршрут
+    @Column(name = "end_time")
+    private LocalDateTime endTime;
+
     @OneToMany(mappedBy = "excursion", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<ExcursionRoute> routes = new ArrayList<>();
 
@@ -43,6 +54,22 @@ public class Excursion {
         if (status == null) {
             status = ExcursionStatus.DRAFT;
         }
+        // У новой экскурсии маршрут в памяти, обход не загружает коллекцию
+        refreshEndTime();
+    }
+
+    /**
+     * Пересчитывает время окончания по маршруту.
+     * Если маршрута нет, считаем что экскурсия длится 2 часа.
+     */
+    public void refreshEndTime() {
+        if (startTime == null) {
+            return;
+        }
+        endTime = routes.stream()
+            .map(route -> route.getStartTime().plusMinutes(route.getDurationMinutes()))
+            .max(LocalDateTime::compareTo)
+            .orElse(startTime.plusHours(2));
     }
 
     // Constructors
@@ -114,6 +141,14 @@ public class Excursion {
         this.createdAt = createdAt;
     }
 
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalDateTime endTime) {
+        this.endTime = endTime;
+    }
+
     public List<ExcursionRoute> getRoutes() {
         return routes;
     }
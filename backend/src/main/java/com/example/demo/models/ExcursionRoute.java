@@ -6,11 +6,15 @@ import java.time.LocalDateTime;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
-@Table(name = "excursion_routes")
+@Table(name = "excursion_routes", indexes = {
+        @Index(name = "idx_excursion_routes_workshop_time", columnList = "workshop_id, start_time, end_time"),
+        @Index(name = "idx_excursion_routes_excursion_time", columnList = "excursion_id, start_time, end_time")
+})
 public class ExcursionRoute {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "excursion_routes_seq")
+    @SequenceGenerator(name = "excursion_routes_seq", sequenceName = "excursion_routes_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -32,6 +36,11 @@ public class ExcursionRoute {
     @Column(name = "duration_minutes", nullable = false)
     private Integer durationMinutes;
 
+    // start_time + duration_minutes; хранится, чтобы проверки пересечений были диапазонными условиями по индексу.
+    // NOT NULL выставляется в db/schema-upgrade.sql после заполнения существующих строк.
+    @Column(name = "end_time")
+    private LocalDateTime endTime;
+
     // Constructors
     public ExcursionRoute() {
     }
@@ -42,6 +51,13 @@ public class ExcursionRoute {
         this.orderNumber = orderNumber;
         this.startTime = startTime;
         this.durationMinutes = durationMinutes;
+        refreshEndTime();
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void refreshEndTime() {
+        endTime = startTime != null && durationMinutes != null ? startTime.plusMinutes(durationMinutes) : null;
     }
 
     // Getters and Setters
@@ -83,6 +99,7 @@ public class ExcursionRoute {
 
     public void setStartTime(LocalDateTime startTime) {
         this.startTime = startTime;
+        refreshEndTime();
     }
 
     public Integer getDurationMinutes() {
@@ -91,6 +108,11 @@ public class ExcursionRoute {
 
     public void setDurationMinutes(Integer durationMinutes) {
         this.durationMinutes = durationMinutes;
+        refreshEndTime();
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
     }
 }
 
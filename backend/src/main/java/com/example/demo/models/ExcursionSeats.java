@@ -0,0 +1,50 @@
+package com.example.demo.models;
+
+import jakarta.persistence.*;
+
+/**
+ * Счетчик мест экскурсии, занятых золотыми билетами (статус BOOKED).
+ * Свободно мест: excursions.participants_count - booked. Изменяется только условными UPDATE
+ * в ExcursionSeatsRepository, поэтому параллельные бронирования не могут превысить вместимость.
+ */
+@Entity
+@Table(name = "excursion_seats")
+public class ExcursionSeats {
+
+    @Id
+    @Column(name = "excursion_id")
+    private Long excursionId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "excursion_id")
+    @org.hibernate.annotations.OnDelete(action = org.hibernate.annotations.OnDeleteAction.CASCADE)
+    private Excursion excursion;
+
+    @Column(nullable = false)
+    private Integer booked = 0;
+
+    public Long getExcursionId() {
+        return excursionId;
+    }
+
+    public void setExcursionId(Long excursionId) {
+        this.excursionId = excursionId;
+    }
+
+    public Excursion getExcursion() {
+        return excursion;
+    }
+
+    public void setExcursion(Excursion excursion) {
+        this.excursion = excursion;
+    }
+
+    public Integer getBooked() {
+        return booked;
+    }
+
+    public void setBooked(Integer booked) {
+        this.booked = booked;
+    }
+}
@@ -1,20 +1,29 @@
 package com.example.demo.models;
 
 import com.example.demo.utils.DateTimeUtils;
+import com.example.demo.utils.TicketNumberCodec;
 import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "golden_tickets")
+@Table(name = "golden_tickets", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_golden_tickets_ticket_code", columnNames = {"ticket_code"})
+}, indexes = {
+        @Index(name = "idx_golden_tickets_status_expires_at", columnList = "status, expires_at")
+})
 public class GoldenTicket {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "golden_tickets_seq")
+    @SequenceGenerator(name = "golden_tickets_seq", sequenceName = "golden_tickets_seq", allocationSize = 50)
     private Long id;
 
-    @Column(name = "ticket_number", nullable = false, unique = true, length = 10)
-    private String ticketNumber; // Уникальный короткий номер билета (например: GW4A7K2M)
+    // Номер билета в числовом виде (TicketNumberCodec) - ключ уникальности и поиска; строковый номер
+    // для отображения (например: GW4A7K2M) выводится из него. Для таблиц прежних версий колонка добавляется
+    // и заполняется в db/schema-upgrade.sql.
+    @Column(name = "ticket_code", nullable = false)
+    private Long ticketCode;
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
@@ -60,7 +69,7 @@ public class GoldenTicket {
     }
 
     public GoldenTicket(String ticketNumber) {
-        this.ticketNumber = ticketNumber;
+        setTicketNumber(ticketNumber);
         this.status = TicketStatus.ACTIVE;
     }
 
@@ -74,11 +83,18 @@ public class GoldenTicket {
     }
 
     public String getTicketNumber() {
-        return ticketNumber;
+        return ticketCode != null ? TicketNumberCodec.decode(ticketCode) : null;
     }
 
+    /**
+     * @throws IllegalArgumentException если номер не кодируется TicketNumberCodec
+     */
     public void setTicketNumber(String ticketNumber) {
-        this.ticketNumber = ticketNumber;
+        this.ticketCode = TicketNumberCodec.encode(ticketNumber);
+    }
+
+    public Long getTicketCode() {
+        return ticketCode;
     }
 
     public TicketStatus getStatus() {
@@ -0,0 +1,148 @@
+package com.example.demo.models;
+
+import com.example.demo.utils.DateTimeUtils;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Задание массового выпуска золотых билетов (TicketMintingService).
+ * generated увеличивается в одной транзакции со вставкой очередной пачки билетов, поэтому после
+ * перезапуска задание продолжается ровно с того места, где остановилось.
+ * owner - узел, выполняющий задание; updatedAt служит отметкой жизни для перехвата зависших заданий.
+ */
+@Entity
+@Table(name = "ticket_minting_jobs")
+public class TicketMintingJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ticket_minting_jobs_seq")
+    @SequenceGenerator(name = "ticket_minting_jobs_seq", sequenceName = "ticket_minting_jobs_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long requested; // Сколько билетов нужно выпустить
+
+    @Column(nullable = false)
+    private Long generated = 0L; // Сколько уже выпущено
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TicketMintingJobStatus status;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt; // Срок действия выпускаемых билетов (опционально)
+
+    @Column(length = 64)
+    private String owner;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = DateTimeUtils.nowUTC();
+        updatedAt = createdAt;
+        if (status == null) {
+            status = TicketMintingJobStatus.RUNNING;
+        }
+    }
+
+    public TicketMintingJob() {
+    }
+
+    public TicketMintingJob(long requested, LocalDateTime expiresAt, String owner) {
+        this.requested = requested;
+        this.expiresAt = expiresAt;
+        this.owner = owner;
+        this.status = TicketMintingJobStatus.RUNNING;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getRequested() {
+        return requested;
+    }
+
+    public void setRequested(Long requested) {
+        this.requested = requested;
+    }
+
+    public Long getGenerated() {
+        return generated;
+    }
+
+    public void setGenerated(Long generated) {
+        this.generated = generated;
+    }
+
+    public TicketMintingJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(TicketMintingJobStatus status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
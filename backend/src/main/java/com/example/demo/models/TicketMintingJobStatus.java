@@ -0,0 +1,7 @@
+package com.example.demo.models;
+
+public enum TicketMintingJobStatus {
+    RUNNING,     // Выполняется (или ждет продолжения после перезапуска)
+    COMPLETED,   // Все билеты выпущены
+    FAILED       // Остановлено из-за ошибки
+}
@@ -10,7 +10,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 public class Workshop {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "workshops_seq")
+    @SequenceGenerator(name = "workshops_seq", sequenceName = "workshops_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -0,0 +1,64 @@
+package com.example.demo.models;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Строка журнала резервирования: суммарное количество участников активных экскурсий
+ * в цехе в интервале [slotStart, slotStart + WorkshopSlotLedger.SLOT_MINUTES).
+ * Изменяется только условными UPDATE в WorkshopSlotRepository.
+ */
+@Entity
+@Table(name = "workshop_slots", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_workshop_slots_workshop_slot", columnNames = {"workshop_id", "slot_start"})
+})
+public class WorkshopSlot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "workshop_slots_seq")
+    @SequenceGenerator(name = "workshop_slots_seq", sequenceName = "workshop_slots_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "workshop_id", nullable = false)
+    @org.hibernate.annotations.OnDelete(action = org.hibernate.annotations.OnDeleteAction.CASCADE)
+    private Workshop workshop;
+
+    @Column(name = "slot_start", nullable = false)
+    private LocalDateTime slotStart;
+
+    @Column(nullable = false)
+    private Integer occupied = 0;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Workshop getWorkshop() {
+        return workshop;
+    }
+
+    public void setWorkshop(Workshop workshop) {
+        this.workshop = workshop;
+    }
+
+    public LocalDateTime getSlotStart() {
+        return slotStart;
+    }
+
+    public void setSlotStart(LocalDateTime slotStart) {
+        this.slotStart = slotStart;
+    }
+
+    public Integer getOccupied() {
+        return occupied;
+    }
+
+    public void setOccupied(Integer occupied) {
+        this.occupied = occupied;
+    }
+}
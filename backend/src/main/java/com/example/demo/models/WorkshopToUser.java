@@ -10,7 +10,8 @@ import jakarta.persistence.*;
 @Table(name = "workshop_user")
 public class WorkshopToUser {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "workshop_user_seq")
+    @SequenceGenerator(name = "workshop_user_seq", sequenceName = "workshop_user_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,56 @@
+package com.example.demo.models.specifications;
+
+import com.example.demo.models.Excursion;
+import com.example.demo.models.ExcursionStatus;
+
+import jakarta.persistence.criteria.*;
+import org.springframework.data.jpa.domain.Specification;
+import com.example.demo.models.Excursion_;
+import com.example.demo.models.User_;
+
+import java.time.LocalDateTime;
+
+public class ExcursionSpecification {
+
+    /**
+     * Фильтр списка экскурсий: начало в диапазоне [from, to), гид и статус; null-параметры не учитываются
+     */
+    public static Specification<Excursion> withFilters(
+            LocalDateTime from,
+            LocalDateTime to,
+            Long guideId,
+            ExcursionStatus status) {
+        return (Root<Excursion> root, CriteriaQuery<?> query, CriteriaBuilder cb) -> {
+            Predicate predicate = cb.conjunction();
+
+            if (from != null) {
+                predicate = cb.and(predicate, cb.greaterThanOrEqualTo(root.get(Excursion_.startTime), from));
+            }
+
+            if (to != null) {
+                predicate = cb.and(predicate, cb.lessThan(root.get(Excursion_.startTime), to));
+            }
+
+            if (guideId != null) {
+                predicate = cb.and(predicate, cb.equal(root.get(Excursion_.guide).get(User_.id), guideId));
+            }
+
+            if (status != null) {
+                predicate = cb.and(predicate, cb.equal(root.get(Excursion_.status), status));
+            }
+
+            return predicate;
+        };
+    }
+
+    /**
+     * Keyset-условие для сортировки (start_time ASC, id ASC): элементы строго после курсора
+     */
+    public static Specification<Excursion> afterCursor(LocalDateTime startTime, Long id) {
+        return (Root<Excursion> root, CriteriaQuery<?> query, CriteriaBuilder cb) -> cb.or(
+                cb.greaterThan(root.get(Excursion_.startTime), startTime),
+                cb.and(
+                        cb.equal(root.get(Excursion_.startTime), startTime),
+                        cb.greaterThan(root.get(Excursion_.id), id)));
+    }
+}
@@ -11,6 +11,8 @@ import com.example.demo.models.User_;
 import java.time.LocalDateTime;
 
 public class TaskSpecification {
+    private static final char ESCAPE = '\\';
+
     public static Specification<Task> withFilters(
             String name,
             LocalDateTime createdAfter,
@@ -23,7 +25,7 @@ public class TaskSpecification {
             Predicate predicate = cb.conjunction();
 
             if (name != null && !name.isEmpty()) {
-                predicate = cb.and(predicate, cb.like(cb.lower(root.get(Task_.name)), "%" + name.toLowerCase() + "%"));
+                predicate = cb.and(predicate, cb.like(cb.lower(root.get(Task_.name)), containsPattern(name), ESCAPE));
             }
 
             if (createdAfter != null) {
@@ -53,4 +55,49 @@ public class TaskSpecification {
             return predicate;
         };
     }
+
+    /**
+     * Свободные задачи: без исполнителя и в статусе NOT_ASSIGNED
+     */
+    public static Specification<Task> unassigned() {
+        return (Root<Task> root, CriteriaQuery<?> query, CriteriaBuilder cb) -> cb.and(
+                cb.isNull(root.get(Task_.user)),
+                cb.equal(root.get(Task_.status), TaskStatus.NOT_ASSIGNED));
+    }
+
+    /**
+     * Поиск подстроки в названии или описании задачи (без учета регистра).
+     * Выражения lower(name) и lower(description) покрыты триграммными GIN-индексами
+     * idx_tasks_name_trgm и idx_tasks_description_trgm (db/schema-upgrade.sql)
+     */
+    public static Specification<Task> search(String term) {
+        return (Root<Task> root, CriteriaQuery<?> query, CriteriaBuilder cb) -> {
+            String pattern = containsPattern(term);
+            return cb.or(
+                    cb.like(cb.lower(root.get(Task_.name)), pattern, ESCAPE),
+                    cb.like(cb.lower(root.get(Task_.description)), pattern, ESCAPE));
+        };
+    }
+
+    /**
+     * Keyset-условие для сортировки (created_at DESC, id DESC): элементы строго после курсора
+     */
+    public static Specification<Task> afterCursor(LocalDateTime createdAt, Long id) {
+        return (Root<Task> root, CriteriaQuery<?> query, CriteriaBuilder cb) -> cb.or(
+                cb.lessThan(root.get(Task_.createdAt), createdAt),
+                cb.and(
+                        cb.equal(root.get(Task_.createdAt), createdAt),
+                        cb.lessThan(root.get(Task_.id), id)));
+    }
+
+    /**
+     * Шаблон LIKE "содержит подстроку"; символы % и _ из ввода пользователя экранируются
+     */
+    private static String containsPattern(String term) {
+        String escaped = term.toLowerCase()
+                .replace(String.valueOf(ESCAPE), String.valueOf(ESCAPE) + ESCAPE)
+                .replace("%", ESCAPE + "%")
+                .replace("_", ESCAPE + "_");
+        return "%" + escaped + "%";
+    }
 }
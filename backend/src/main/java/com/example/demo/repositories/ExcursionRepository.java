@@ -2,19 +2,48 @@ package com.example.demo.repositories;
 
 import com.example.demo.models.Excursion;
 import com.example.demo.models.ExcursionStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ExcursionRepository extends JpaRepository<Excursion, Long> {
+public interface ExcursionRepository extends JpaRepository<Excursion, Long>, JpaSpecificationExecutor<Excursion>,
+        ExcursionRepositoryCustom {
     
     List<Excursion> findByGuideId(Long guideId);
     
+    // Блокировка строки до конца транзакции: параллельные изменения одной экскурсии читают
+    // ее прежние слоты журнала по очереди и не освобождают их дважды
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM Excursion e WHERE e.id = :id")
+    Optional<Excursion> findByIdForUpdate(@Param("id") Long id);
+    
+    // Экскурсии вместе с маршрутом, цехами и гидом одним запросом (для списков и toDTO без N+1)
+    @Query("SELECT DISTINCT e FROM Excursion e JOIN FETCH e.guide " +
+           "LEFT JOIN FETCH e.routes r LEFT JOIN FETCH r.workshop " +
+           "ORDER BY e.startTime, e.id")
+    List<Excursion> findAllWithRoutes();
+    
+    @Query("SELECT DISTINCT e FROM Excursion e JOIN FETCH e.guide " +
+           "LEFT JOIN FETCH e.routes r LEFT JOIN FETCH r.workshop " +
+           "WHERE e.guide.id = :guideId ORDER BY e.startTime, e.id")
+    List<Excursion> findAllWithRoutesByGuideId(@Param("guideId") Long guideId);
+    
+    @Query("SELECT DISTINCT e FROM Excursion e JOIN FETCH e.guide " +
+           "LEFT JOIN FETCH e.routes r LEFT JOIN FETCH r.workshop " +
+           "WHERE e.id IN :ids")
+    List<Excursion> findAllWithRoutesByIdIn(@Param("ids") Collection<Long> ids);
+    
     List<Excursion> findByStatus(ExcursionStatus status);
     
     List<Excursion> findByStartTimeBetween(LocalDateTime start, LocalDateTime end);
@@ -22,15 +51,34 @@ public interface ExcursionRepository extends JpaRepository<Excursion, Long> {
     List<Excursion> findByStatusAndStartTimeAfter(ExcursionStatus status, LocalDateTime startTime);
     
     // Проверка занятости гида в определенный период времени
+    // (экскурсии гида по индексу guide_id, их маршруты - по индексу (excursion_id, start_time, end_time))
     @Query("SELECT e FROM Excursion e WHERE e.guide.id = :guideId " +
            "AND e.status IN ('CONFIRMED', 'IN_PROGRESS') " +
            "AND EXISTS (SELECT r FROM ExcursionRoute r WHERE r.excursion.id = e.id " +
            "AND r.startTime < :endTime " +
-           "AND FUNCTION('TIMESTAMPADD', MINUTE, r.durationMinutes, r.startTime) > :startTime)")
+           "AND r.endTime > :startTime)")
     List<Excursion> findGuideConflicts(
         @Param("guideId") Long guideId,
         @Param("startTime") LocalDateTime startTime,
         @Param("endTime") LocalDateTime endTime
     );
+    
+    // Перевод экскурсий, время начала которых наступило (индекс status, start_time)
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Excursion e SET e.status = :newStatus WHERE e.status = :status AND e.startTime <= :now")
+    int updateStatusWhereStartedBefore(
+        @Param("status") ExcursionStatus status,
+        @Param("newStatus") ExcursionStatus newStatus,
+        @Param("now") LocalDateTime now
+    );
+    
+    // Ближайшие начала подтвержденных экскурсий (сроки для DeadlineTransitionScheduler)
+    @Query("SELECT DISTINCT e.startTime FROM Excursion e WHERE e.status = 'CONFIRMED' " +
+           "AND e.startTime > :from AND e.startTime <= :to")
+    List<LocalDateTime> findStartTimesBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    
+    // Ближайшие окончания подтвержденных и идущих экскурсий
+    @Query("SELECT DISTINCT e.endTime FROM Excursion e WHERE e.status IN ('CONFIRMED', 'IN_PROGRESS') " +
+           "AND e.endTime > :from AND e.endTime <= :to")
+    List<LocalDateTime> findEndTimesBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 }
-
@@ -0,0 +1,31 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.Excursion;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Постраничная выборка экскурсий: сначала ID страницы, затем сами экскурсии одним fetch join
+ * (ExcursionRepository.findAllWithRoutesByIdIn), чтобы LIMIT применялся к экскурсиям, а не к строкам маршрута.
+ * Завершение закончившихся экскурсий порциями вместе с освобождением их слотов журнала.
+ */
+public interface ExcursionRepositoryCustom {
+
+    /**
+     * ID экскурсий, удовлетворяющих спецификации
+     * @param limit максимальное количество строк или 0 без ограничения
+     */
+    List<Long> findIds(Specification<Excursion> spec, Sort sort, int limit);
+
+    /**
+     * Переводит в COMPLETED не больше limit экскурсий IN_PROGRESS с наступившим временем окончания
+     * и в том же запросе освобождает слоты журнала WorkshopSlotLedger, которые занимали их маршруты
+     * @param slotMinutes длина слота журнала
+     * @return ID завершенных экскурсий
+     */
+    List<Long> completeEndedChunk(LocalDateTime now, int limit, int slotMinutes);
+}
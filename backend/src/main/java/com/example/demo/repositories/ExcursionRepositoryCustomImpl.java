@@ -0,0 +1,84 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.Excursion;
+import com.example.demo.models.Excursion_;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class ExcursionRepositoryCustomImpl implements ExcursionRepositoryCustom {
+
+    // Порция закончившихся экскурсий (индекс idx_excursions_status_end_time). Строки, заблокированные
+    // редактированием экскурсии, пропускаются и достаются следующей порции или запуску.
+    // Слоты считаются так же, как WorkshopSlotLedger.claimsOf: интервал точки маршрута расширяется
+    // до границ слотов, слот цеха учитывается один раз на экскурсию. Время окончания экскурсии -
+    // окончание последней точки маршрута, поэтому освобождаются только прошедшие слоты.
+    private static final String COMPLETE_ENDED_CHUNK_SQL =
+            "WITH ended AS (" +
+            "UPDATE excursions SET status = 'COMPLETED' WHERE id IN (" +
+            "SELECT id FROM excursions WHERE status = 'IN_PROGRESS' AND end_time <= :now LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, participants_count), " +
+            "claimed AS (" +
+            "SELECT DISTINCT e.id, r.workshop_id, slot, e.participants_count FROM ended e " +
+            "JOIN excursion_routes r ON r.excursion_id = e.id " +
+            "CROSS JOIN LATERAL generate_series(" +
+            "date_bin(make_interval(mins => :slotMinutes), r.start_time, TIMESTAMP '2000-01-01'), " +
+            "r.start_time + make_interval(mins => r.duration_minutes) - INTERVAL '1 microsecond', " +
+            "make_interval(mins => :slotMinutes)) AS slot " +
+            "WHERE e.participants_count > 0), " +
+            "released AS (" +
+            "UPDATE workshop_slots s SET occupied = GREATEST(s.occupied - c.participants, 0) " +
+            "FROM (SELECT workshop_id, slot, SUM(participants_count) AS participants FROM claimed GROUP BY workshop_id, slot) c " +
+            "WHERE s.workshop_id = c.workshop_id AND s.slot_start = c.slot) " +
+            "SELECT id FROM ended";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Long> findIds(Specification<Excursion> spec, Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Excursion> root = query.from(Excursion.class);
+        query.select(root.get(Excursion_.id));
+
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+
+        TypedQuery<Long> typedQuery = entityManager.createQuery(query);
+        if (limit > 0) {
+            typedQuery.setMaxResults(limit);
+        }
+        return typedQuery.getResultList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Long> completeEndedChunk(LocalDateTime now, int limit, int slotMinutes) {
+        // UPDATE ... RETURNING читается как результат запроса, поэтому getResultList, а не executeUpdate
+        return entityManager.createNativeQuery(COMPLETE_ENDED_CHUNK_SQL, Long.class)
+                .setParameter("now", now)
+                .setParameter("limit", limit)
+                .setParameter("slotMinutes", slotMinutes)
+                .getResultList();
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -17,10 +18,11 @@ public interface ExcursionRouteRepository extends JpaRepository<ExcursionRoute,
     List<ExcursionRoute> findByWorkshopId(Long workshopId);
     
     // Найти все маршруты для конкретного цеха в заданный период времени
+    // Пересечение - диапазонные условия по индексу (workshop_id, start_time, end_time)
     @Query("SELECT r FROM ExcursionRoute r WHERE r.workshop.id = :workshopId " +
            "AND r.excursion.status IN ('CONFIRMED', 'IN_PROGRESS') " +
            "AND r.startTime < :endTime " +
-           "AND FUNCTION('TIMESTAMPADD', MINUTE, r.durationMinutes, r.startTime) > :startTime")
+           "AND r.endTime > :startTime")
     List<ExcursionRoute> findConflictingRoutes(
         @Param("workshopId") Long workshopId,
         @Param("startTime") LocalDateTime startTime,
@@ -32,11 +34,41 @@ public interface ExcursionRouteRepository extends JpaRepository<ExcursionRoute,
            "WHERE r.workshop.id = :workshopId " +
            "AND r.excursion.status IN ('CONFIRMED', 'IN_PROGRESS') " +
            "AND r.startTime < :endTime " +
-           "AND FUNCTION('TIMESTAMPADD', MINUTE, r.durationMinutes, r.startTime) > :startTime")
+           "AND r.endTime > :startTime")
     Integer getTotalParticipantsInWorkshop(
         @Param("workshopId") Long workshopId,
         @Param("startTime") LocalDateTime startTime,
         @Param("endTime") LocalDateTime endTime
     );
+    
+    // Интервалы маршрутов активных экскурсий для индекса занятости цехов:
+    // [workshopId, excursionId, startTime, durationMinutes, participantsCount]
+    @Query("SELECT r.workshop.id, r.excursion.id, r.startTime, r.durationMinutes, r.excursion.participantsCount " +
+           "FROM ExcursionRoute r WHERE r.excursion.status IN ('CONFIRMED', 'IN_PROGRESS')")
+    List<Object[]> findActiveRouteIntervals();
+    
+    // Интервалы маршрутов активных экскурсий в указанных цехах, пересекающиеся с окном планирования
+    @Query("SELECT r.workshop.id, r.excursion.id, r.startTime, r.durationMinutes, r.excursion.participantsCount " +
+           "FROM ExcursionRoute r WHERE r.workshop.id IN :workshopIds " +
+           "AND r.excursion.status IN ('CONFIRMED', 'IN_PROGRESS') " +
+           "AND r.startTime < :endTime " +
+           "AND r.endTime > :startTime")
+    List<Object[]> findActiveRouteIntervals(
+        @Param("workshopIds") Collection<Long> workshopIds,
+        @Param("startTime") LocalDateTime startTime,
+        @Param("endTime") LocalDateTime endTime
+    );
+    
+    // Маршруты активных экскурсий указанных гидов в окне, в формате снимка занятости (ключ - ID гида):
+    // [guideId, excursionId, startTime, durationMinutes, 1]
+    @Query("SELECT r.excursion.guide.id, r.excursion.id, r.startTime, r.durationMinutes, 1 " +
+           "FROM ExcursionRoute r WHERE r.excursion.guide.id IN :guideIds " +
+           "AND r.excursion.status IN ('CONFIRMED', 'IN_PROGRESS') " +
+           "AND r.startTime < :endTime " +
+           "AND r.endTime > :startTime")
+    List<Object[]> findGuideRouteIntervals(
+        @Param("guideIds") Collection<Long> guideIds,
+        @Param("startTime") LocalDateTime startTime,
+        @Param("endTime") LocalDateTime endTime
+    );
 }
-
@@ -0,0 +1,36 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.ExcursionSeats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Счетчики занятых мест экскурсий. Все изменения - нативные INSERT/UPDATE без загрузки сущностей.
+ */
+@Repository
+public interface ExcursionSeatsRepository extends JpaRepository<ExcursionSeats, Long> {
+
+    // Атомарно занимает место, если оно есть. Строка счетчика блокируется до конца транзакции,
+    // конкурирующий UPDATE перепроверяет условие после коммита. 0 - мест нет или счетчика еще нет.
+    @Modifying
+    @Query(value = "UPDATE excursion_seats s SET booked = s.booked + 1 FROM excursions e " +
+                   "WHERE s.excursion_id = :excursionId AND e.id = s.excursion_id " +
+                   "AND s.booked < e.participants_count", nativeQuery = true)
+    int tryTake(@Param("excursionId") Long excursionId);
+
+    @Modifying
+    @Query(value = "UPDATE excursion_seats SET booked = GREATEST(booked - 1, 0) " +
+                   "WHERE excursion_id = :excursionId", nativeQuery = true)
+    int release(@Param("excursionId") Long excursionId);
+
+    // Создает счетчик экскурсии по фактическому числу забронированных билетов (если его еще нет)
+    @Modifying
+    @Query(value = "INSERT INTO excursion_seats (excursion_id, booked) " +
+                   "SELECT :excursionId, COUNT(*) FROM golden_tickets " +
+                   "WHERE excursion_id = :excursionId AND status = 'BOOKED' " +
+                   "ON CONFLICT (excursion_id) DO NOTHING", nativeQuery = true)
+    int ensureCounter(@Param("excursionId") Long excursionId);
+}
@@ -0,0 +1,94 @@
+package com.example.demo.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Пакетные (JDBC) операции над золотыми билетами
+ */
+@Repository
+public class GoldenTicketBatchRepository {
+
+    // Пачка передается массивом кодов: один запрос и точное число вставленных строк
+    private static final String INSERT_SQL =
+            "INSERT INTO golden_tickets (ticket_code, status, generated_at, expires_at) " +
+            "SELECT c, 'ACTIVE', ?, ? FROM unnest(?::bigint[]) AS b(c) " +
+            "ON CONFLICT (ticket_code) DO NOTHING";
+
+    // Порция истекших активных билетов (индекс idx_golden_tickets_status_expires_at). Строки, заблокированные
+    // бронированием или отменой, пропускаются и достаются следующему запуску
+    private static final String EXPIRE_CHUNK_SQL =
+            "UPDATE golden_tickets SET status = 'EXPIRED' WHERE id IN (" +
+            "SELECT id FROM golden_tickets WHERE status = 'ACTIVE' AND expires_at < ? LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING ticket_code";
+
+    // Порция забронированных билетов на начавшиеся экскурсии
+    private static final String USE_STARTED_CHUNK_SQL =
+            "UPDATE golden_tickets SET status = 'USED', used_at = ? WHERE id IN (" +
+            "SELECT t.id FROM golden_tickets t JOIN excursions e ON e.id = t.excursion_id " +
+            "WHERE t.status = 'BOOKED' AND e.start_time < ? LIMIT ? FOR UPDATE OF t SKIP LOCKED) " +
+            "RETURNING ticket_code";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public GoldenTicketBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Вставляет активные билеты по кодам TicketNumberCodec; коды, уже занятые в БД
+     * (в том числе параллельной генерацией), пропускаются уникальным индексом
+     * @return сколько билетов действительно вставлено
+     */
+    public int insertIfAbsent(long[] ticketCodes, LocalDateTime generatedAt, LocalDateTime expiresAt) {
+        Long[] codes = new Long[ticketCodes.length];
+        for (int i = 0; i < ticketCodes.length; i++) {
+            codes[i] = ticketCodes[i];
+        }
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_SQL);
+            ps.setTimestamp(1, Timestamp.valueOf(generatedAt));
+            ps.setTimestamp(2, expiresAt != null ? Timestamp.valueOf(expiresAt) : null);
+            ps.setArray(3, connection.createArrayOf("bigint", codes));
+            return ps;
+        });
+    }
+
+    /**
+     * Переводит в EXPIRED не больше limit активных билетов с истекшим сроком
+     * @return коды измененных билетов (для сброса TicketCache)
+     */
+    public List<Long> expireChunk(LocalDateTime now, int limit) {
+        return jdbcTemplate.queryForList(EXPIRE_CHUNK_SQL, Long.class, Timestamp.valueOf(now), limit);
+    }
+
+    /**
+     * Переводит в USED не больше limit забронированных билетов на экскурсии, начавшиеся до now
+     * @return коды измененных билетов (для сброса TicketCache)
+     */
+    public List<Long> useStartedChunk(LocalDateTime now, int limit) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        return jdbcTemplate.queryForList(USE_STARTED_CHUNK_SQL, Long.class, timestamp, timestamp, limit);
+    }
+
+    /**
+     * Потоковое чтение кодов всех билетов серверным курсором (вызывать внутри транзакции,
+     * иначе драйвер PostgreSQL игнорирует fetch size и читает результат целиком)
+     */
+    public void forEachTicketCode(int fetchSize, RowCallbackHandler handler) {
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(fetchSize);
+        streaming.query("SELECT ticket_code FROM golden_tickets", handler);
+    }
+
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM golden_tickets", Long.class);
+        return count != null ? count : 0;
+    }
+}
@@ -2,37 +2,49 @@ package com.example.demo.repositories;
 
 import com.example.demo.models.GoldenTicket;
 import com.example.demo.models.TicketStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface GoldenTicketRepository extends JpaRepository<GoldenTicket, Long> {
     
-    Optional<GoldenTicket> findByTicketNumber(String ticketNumber);
+    // Поиск по числовому коду номера (TicketNumberCodec), индекс uk_golden_tickets_ticket_code
+    Optional<GoldenTicket> findByTicketCode(Long ticketCode);
+
+    // То же с блокировкой строки до конца транзакции: параллельные бронирование и отмена
+    // одного билета выполняются по очереди и не расходятся со счетчиком мест
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM GoldenTicket t WHERE t.ticketCode = :ticketCode")
+    Optional<GoldenTicket> findByTicketCodeForUpdate(@Param("ticketCode") Long ticketCode);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM GoldenTicket t WHERE t.id = :id")
+    Optional<GoldenTicket> findByIdForUpdate(@Param("id") Long id);
     
     List<GoldenTicket> findByStatus(TicketStatus status);
     
     List<GoldenTicket> findByExcursionId(Long excursionId);
     
-    boolean existsByTicketNumber(String ticketNumber);
+    // Какие из кодов уже заняты (проверка пачки сгенерированных номеров одним запросом)
+    @Query("SELECT t.ticketCode FROM GoldenTicket t WHERE t.ticketCode IN :codes")
+    List<Long> findExistingCodes(@Param("codes") Collection<Long> codes);
     
-    // Найти все билеты, у которых истек срок действия
-    @Query("SELECT t FROM GoldenTicket t WHERE t.status = 'ACTIVE' " +
-           "AND t.expiresAt IS NOT NULL AND t.expiresAt < :now")
-    List<GoldenTicket> findExpiredTickets(@Param("now") LocalDateTime now);
+    // Ближайшие сроки истечения активных билетов (сроки для DeadlineTransitionScheduler)
+    @Query("SELECT DISTINCT t.expiresAt FROM GoldenTicket t WHERE t.status = 'ACTIVE' " +
+           "AND t.expiresAt > :from AND t.expiresAt <= :to")
+    List<LocalDateTime> findExpiryTimesBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
     
-    // Найти все забронированные билеты на экскурсии, которые уже начались
-    @Query("SELECT t FROM GoldenTicket t WHERE t.status = 'BOOKED' " +
-           "AND t.excursion IS NOT NULL AND t.excursion.startTime < :now")
-    List<GoldenTicket> findTicketsForStartedExcursions(@Param("now") LocalDateTime now);
-    
-    // Подсчитать количество забронированных билетов на конкретную экскурсию
-    long countByExcursionIdAndStatus(Long excursionId, TicketStatus status);
+    // Ближайшие начала экскурсий, на которые есть забронированные билеты
+    @Query("SELECT DISTINCT t.excursion.startTime FROM GoldenTicket t WHERE t.status = 'BOOKED' " +
+           "AND t.excursion.startTime > :from AND t.excursion.startTime <= :to")
+    List<LocalDateTime> findBookedExcursionStartTimesBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 }
-
@@ -0,0 +1,53 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.Notification;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Пакетная (JDBC batch) вставка уведомлений
+ */
+@Repository
+public class NotificationBatchRepository {
+    public static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO notifications (user_id, title, message, type, is_read, created_at, " +
+            "related_entity_id, related_entity_type) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public NotificationBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Вставляет уведомления пачками по BATCH_SIZE.
+     * created_at должен быть заполнен заранее (@PrePersist здесь не вызывается).
+     * id берется из значения по умолчанию колонки - nextval('notifications_seq') (db/schema-upgrade.sql).
+     */
+    public void insertAll(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, notifications, BATCH_SIZE, (ps, notification) -> {
+            ps.setLong(1, notification.getUser().getId());
+            ps.setString(2, notification.getTitle());
+            ps.setString(3, notification.getMessage());
+            ps.setString(4, notification.getType().name());
+            ps.setBoolean(5, Boolean.TRUE.equals(notification.getIsRead()));
+            ps.setTimestamp(6, Timestamp.valueOf(notification.getCreatedAt()));
+            if (notification.getRelatedEntityId() != null) {
+                ps.setLong(7, notification.getRelatedEntityId());
+            } else {
+                ps.setNull(7, Types.BIGINT);
+            }
+            ps.setString(8, notification.getRelatedEntityType());
+        });
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.TaskStatus;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Пакетные (JDBC batch) операции над задачами
+ */
+@Repository
+public class TaskBatchRepository {
+    public static final int BATCH_SIZE = 500;
+
+    private static final String ASSIGN_SQL =
+            "UPDATE tasks SET user_id = ?, status = ? WHERE id = ? AND user_id IS NULL";
+
+    private static final String ASSIGNEES_SQL =
+            "SELECT id, user_id FROM tasks WHERE id = ANY(?::bigint[])";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TaskBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Назначает задачи исполнителям пачками по BATCH_SIZE.
+     * Задача назначается только если она всё ещё свободна (user_id IS NULL),
+     * поэтому параллельно занятые задачи не перезаписываются.
+     *
+     * @param taskToUser taskId -> userId
+     * @return ID задач, которые действительно были назначены
+     */
+    public Set<Long> assignIfUnassigned(Map<Long, Long> taskToUser) {
+        List<Map.Entry<Long, Long>> entries = new ArrayList<>(taskToUser.entrySet());
+        int[][] counts = jdbcTemplate.batchUpdate(ASSIGN_SQL, entries, BATCH_SIZE, (ps, entry) -> {
+            ps.setLong(1, entry.getValue());
+            ps.setString(2, TaskStatus.ASSIGNED.name());
+            ps.setLong(3, entry.getKey());
+        });
+
+        Set<Long> assigned = new HashSet<>();
+        Map<Long, Long> unknown = new HashMap<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                Map.Entry<Long, Long> entry = entries.get(index++);
+                if (count == 1) {
+                    assigned.add(entry.getKey());
+                } else if (count == Statement.SUCCESS_NO_INFO) {
+                    unknown.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        if (!unknown.isEmpty()) {
+            assigned.addAll(confirmAssignees(unknown));
+        }
+        return assigned;
+    }
+
+    /**
+     * Драйвер не сообщил число строк (SUCCESS_NO_INFO): перечитываем исполнителей в этой же транзакции.
+     * Задача назначена нами, если в ней стоит наш исполнитель - параллельный захват поставил бы другого.
+     */
+    private Set<Long> confirmAssignees(Map<Long, Long> taskToUser) {
+        Set<Long> confirmed = new HashSet<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(ASSIGNEES_SQL);
+            ps.setArray(1, connection.createArrayOf("bigint", taskToUser.keySet().toArray()));
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            long taskId = rs.getLong(1);
+            long userId = rs.getLong(2);
+            if (!rs.wasNull() && taskToUser.get(taskId) == userId) {
+                confirmed.add(taskId);
+            }
+        });
+        return confirmed;
+    }
+}
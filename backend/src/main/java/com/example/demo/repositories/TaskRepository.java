@@ -4,16 +4,67 @@ import com.example.demo.models.Task;
 import com.example.demo.models.TaskStatus;
 import com.example.demo.models.User;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
-public interface TaskRepository extends JpaRepository<Task, Long>, JpaSpecificationExecutor<Task> {
+public interface TaskRepository extends JpaRepository<Task, Long>, JpaSpecificationExecutor<Task>, TaskRepositoryCustom {
     long countByUserIdAndStatusNot(long id, TaskStatus taskStatus);
     
     /**
      * Найти все задачи пользователя с определенным статусом
      */
     List<Task> findByUserAndStatus(User user, TaskStatus status);
+
+    /**
+     * Количество задач по каждому пользователю одним запросом (GROUP BY)
+     * Каждый элемент: [userId (Long), count (Long)]
+     */
+    @Query("SELECT t.user.id, COUNT(t) FROM Task t " +
+           "WHERE t.user IS NOT NULL AND t.status <> :status " +
+           "GROUP BY t.user.id")
+    List<Object[]> countTasksPerUserByStatusNot(@Param("status") TaskStatus status);
+
+    /**
+     * То же для заданного набора пользователей
+     * Каждый элемент: [userId (Long), count (Long)]
+     */
+    @Query("SELECT t.user.id, COUNT(t) FROM Task t " +
+           "WHERE t.user.id IN :userIds AND t.status <> :status " +
+           "GROUP BY t.user.id")
+    List<Object[]> countTasksPerUserByStatusNot(@Param("userIds") Collection<Long> userIds,
+            @Param("status") TaskStatus status);
+
+    /**
+     * ID свободных задач с указанным статусом после afterId (keyset-пагинация по id)
+     * Использует индекс idx_tasks_status_id, размер страницы задается через pageable
+     */
+    @Query("SELECT t.id FROM Task t " +
+           "WHERE t.status = :status AND t.user IS NULL AND t.id > :afterId " +
+           "ORDER BY t.id")
+    List<Long> findUnassignedIdsAfter(@Param("status") TaskStatus status, @Param("afterId") long afterId,
+            Pageable pageable);
+
+    /**
+     * Атомарный захват задачи пользователем одним условным UPDATE:
+     * срабатывает, только пока задача свободна (без исполнителя и в статусе unassigned) и у пользователя
+     * меньше limit незавершенных задач. При одновременных захватах одной задачи строка блокируется,
+     * и повторная проверка условий у проигравших транзакций дает 0 обновленных строк.
+     * Подзапрос COUNT видит только закоммиченные захваты; параллельные захваты того же пользователя
+     * ограничивает резерв в TaskLoadRegistry.
+     * @return 1 - задача захвачена, 0 - задача уже занята, завершена или достигнут лимит
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Task t SET t.user = :user, t.status = :assigned " +
+           "WHERE t.id = :taskId AND t.user IS NULL AND t.status = :unassigned " +
+           "AND (SELECT COUNT(a) FROM Task a WHERE a.user = :user AND a.status <> :completed) < :limit")
+    int claimIfUnassigned(@Param("taskId") Long taskId, @Param("user") User user,
+            @Param("unassigned") TaskStatus unassigned, @Param("assigned") TaskStatus assigned,
+            @Param("completed") TaskStatus completed, @Param("limit") long limit);
 }
@@ -0,0 +1,35 @@
+package com.example.demo.repositories;
+
+import com.example.demo.dto.response.TaskResponseDTO;
+import com.example.demo.models.Task;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Запросы моделей чтения задач (TaskResponseDTO): одна выборка нужных колонок с LEFT JOIN на исполнителя
+ */
+public interface TaskRepositoryCustom {
+
+    /**
+     * Все задачи, удовлетворяющие спецификации
+     * @param limit максимальное количество строк или 0 без ограничения
+     */
+    List<TaskResponseDTO> findResponses(Specification<Task> spec, Sort sort, int limit);
+
+    /**
+     * Страница задач; COUNT выполняется, только если по первой странице нельзя определить общее количество
+     */
+    Page<TaskResponseDTO> findResponses(Specification<Task> spec, Pageable pageable);
+
+    /**
+     * Задачи, удовлетворяющие спецификации, серверным курсором: строки читаются порциями по fetchSize.
+     * Поток нужно закрыть; вызывать внутри транзакции.
+     */
+    Stream<TaskResponseDTO> streamResponses(Specification<Task> spec, Sort sort, int fetchSize);
+}
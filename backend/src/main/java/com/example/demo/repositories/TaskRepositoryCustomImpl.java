@@ -0,0 +1,106 @@
+package com.example.demo.repositories;
+
+import com.example.demo.dto.response.TaskResponseDTO;
+import com.example.demo.models.Task;
+import com.example.demo.models.Task_;
+import com.example.demo.models.User;
+import com.example.demo.models.User_;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public class TaskRepositoryCustomImpl implements TaskRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<TaskResponseDTO> findResponses(Specification<Task> spec, Sort sort, int limit) {
+        TypedQuery<TaskResponseDTO> query = entityManager.createQuery(selectResponses(spec, sort));
+        if (limit > 0) {
+            query.setMaxResults(limit);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public Page<TaskResponseDTO> findResponses(Specification<Task> spec, Pageable pageable) {
+        TypedQuery<TaskResponseDTO> query = entityManager.createQuery(selectResponses(spec, pageable.getSort()));
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        List<TaskResponseDTO> content = query.getResultList();
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(spec));
+    }
+
+    @Override
+    public Stream<TaskResponseDTO> streamResponses(Specification<Task> spec, Sort sort, int fetchSize) {
+        return entityManager.createQuery(selectResponses(spec, sort))
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream();
+    }
+
+    private CriteriaQuery<TaskResponseDTO> selectResponses(Specification<Task> spec, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TaskResponseDTO> query = cb.createQuery(TaskResponseDTO.class);
+        Root<Task> root = query.from(Task.class);
+        Join<Task, User> user = root.join(Task_.user, JoinType.LEFT);
+
+        query.select(cb.construct(TaskResponseDTO.class,
+                root.get(Task_.id),
+                root.get(Task_.name),
+                root.get(Task_.description),
+                root.get(Task_.status),
+                root.get(Task_.createdAt),
+                root.get(Task_.completedAt),
+                user.get(User_.id),
+                user.get(User_.username),
+                user.get(User_.role),
+                user.get(User_.isBanned)));
+
+        applySpecification(spec, root, query, cb);
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+        return query;
+    }
+
+    private long count(Specification<Task> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Task> root = query.from(Task.class);
+        query.select(cb.count(root));
+        applySpecification(spec, root, query, cb);
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static void applySpecification(Specification<Task> spec, Root<Task> root, CriteriaQuery<?> query,
+            CriteriaBuilder cb) {
+        if (spec == null) {
+            return;
+        }
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.TicketMintingJob;
+import com.example.demo.models.TicketMintingJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Задания выпуска билетов. Все изменения - условные UPDATE по владельцу задания: узел, у которого
+ * задание перехватили, получает 0 строк и прекращает работу.
+ */
+@Repository
+public interface TicketMintingJobRepository extends JpaRepository<TicketMintingJob, Long> {
+
+    // Выполняющиеся задания, давно не обновлявшиеся (узел-владелец остановлен или перезапущен)
+    @Query("SELECT j.id FROM TicketMintingJob j WHERE j.status = 'RUNNING' AND j.updatedAt < :staleBefore ORDER BY j.id")
+    List<Long> findStaleRunningIds(@Param("staleBefore") LocalDateTime staleBefore);
+
+    // Перехват задания: удается, только если оно еще выполняется и не обновлялось с staleBefore
+    @Modifying
+    @Query("UPDATE TicketMintingJob j SET j.owner = :owner, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.status = 'RUNNING' AND j.updatedAt < :staleBefore")
+    int claim(
+        @Param("id") Long id,
+        @Param("owner") String owner,
+        @Param("staleBefore") LocalDateTime staleBefore,
+        @Param("now") LocalDateTime now
+    );
+
+    // Фиксация прогресса в транзакции пачки; 0 - задание перехвачено или остановлено
+    @Modifying
+    @Query("UPDATE TicketMintingJob j SET j.generated = j.generated + :inserted, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.owner = :owner AND j.status = 'RUNNING'")
+    int addProgress(
+        @Param("id") Long id,
+        @Param("owner") String owner,
+        @Param("inserted") long inserted,
+        @Param("now") LocalDateTime now
+    );
+
+    @Modifying
+    @Query("UPDATE TicketMintingJob j SET j.status = :status, j.error = :error, j.updatedAt = :now, j.completedAt = :now " +
+           "WHERE j.id = :id AND j.owner = :owner AND j.status = 'RUNNING'")
+    int finish(
+        @Param("id") Long id,
+        @Param("owner") String owner,
+        @Param("status") TicketMintingJobStatus status,
+        @Param("error") String error,
+        @Param("now") LocalDateTime now
+    );
+}
@@ -0,0 +1,68 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.WorkshopSlot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Журнал резервирования слотов цехов. Все изменения - нативные INSERT/UPDATE без загрузки сущностей,
+ * поэтому контекст персистентности не очищается (clearAutomatically не нужен).
+ */
+@Repository
+public interface WorkshopSlotRepository extends JpaRepository<WorkshopSlot, Long> {
+
+    // Создает недостающие слоты [from, to) с нулевой занятостью
+    @Modifying
+    @Query(value = "INSERT INTO workshop_slots (workshop_id, slot_start, occupied) " +
+                   "SELECT :workshopId, slot, 0 FROM generate_series(CAST(:from AS timestamp), " +
+                   "CAST(:to AS timestamp) - make_interval(mins => :slotMinutes), make_interval(mins => :slotMinutes)) slot " +
+                   "ON CONFLICT (workshop_id, slot_start) DO NOTHING", nativeQuery = true)
+    int ensureSlots(
+        @Param("workshopId") Long workshopId,
+        @Param("from") LocalDateTime from,
+        @Param("to") LocalDateTime to,
+        @Param("slotMinutes") int slotMinutes
+    );
+
+    // Атомарное резервирование: увеличивает только слоты, где группа помещается.
+    // Строки блокируются до конца транзакции, конкурирующий UPDATE перепроверяет условие после коммита.
+    // Результат меньше числа слотов - хотя бы один слот переполнен.
+    @Modifying
+    @Query(value = "UPDATE workshop_slots SET occupied = occupied + :participants " +
+                   "WHERE workshop_id = :workshopId AND slot_start >= :from AND slot_start < :to " +
+                   "AND occupied + :participants <= :capacity", nativeQuery = true)
+    int tryReserve(
+        @Param("workshopId") Long workshopId,
+        @Param("from") LocalDateTime from,
+        @Param("to") LocalDateTime to,
+        @Param("participants") int participants,
+        @Param("capacity") int capacity
+    );
+
+    @Modifying
+    @Query(value = "UPDATE workshop_slots SET occupied = GREATEST(occupied - :participants, 0) " +
+                   "WHERE workshop_id = :workshopId AND slot_start >= :from AND slot_start < :to", nativeQuery = true)
+    int release(
+        @Param("workshopId") Long workshopId,
+        @Param("from") LocalDateTime from,
+        @Param("to") LocalDateTime to,
+        @Param("participants") int participants
+    );
+
+    @Modifying
+    @Query(value = "DELETE FROM workshop_slots WHERE slot_start < :before", nativeQuery = true)
+    int deleteBefore(@Param("before") LocalDateTime before);
+
+    @Query(value = "SELECT COALESCE(MAX(occupied), 0) FROM workshop_slots " +
+                   "WHERE workshop_id = :workshopId AND slot_start >= :from AND slot_start < :to", nativeQuery = true)
+    int findPeakOccupancy(
+        @Param("workshopId") Long workshopId,
+        @Param("from") LocalDateTime from,
+        @Param("to") LocalDateTime to
+    );
+}
@@ -0,0 +1,151 @@
+package com.example.demo.scheduled;
+
+import com.example.demo.repositories.ExcursionRepository;
+import com.example.demo.repositories.GoldenTicketRepository;
+import com.example.demo.services.ExcursionService;
+import com.example.demo.services.GoldenTicketService;
+import com.example.demo.services.TransitionDeadlines;
+import com.example.demo.services.TransitionDeadlines.Deadline;
+import com.example.demo.services.TransitionDeadlines.Kind;
+import com.example.demo.utils.DateTimeUtils;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Map;
+
+/**
+ * Выполнение автоматических переходов в момент наступления срока, а не по опросу.
+ *
+ * Отдельный поток ждет ближайший срок в TransitionDeadlines (DelayQueue) и запускает
+ * соответствующий пакетный переход; одновременно наступившие сроки одного типа схлопываются
+ * в один запуск. При старте и затем раз в deadlines.reload-interval-ms сроки на два интервала
+ * вперед подгружаются из БД. ExcursionStatusScheduler и TicketDeactivationScheduler остаются
+ * редкой страховочной проверкой.
+ */
+@Component
+public class DeadlineTransitionScheduler {
+
+    @Autowired
+    private TransitionDeadlines deadlines;
+
+    @Autowired
+    private ExcursionService excursionService;
+
+    @Autowired
+    private GoldenTicketService ticketService;
+
+    @Autowired
+    private ExcursionRepository excursionRepository;
+
+    @Autowired
+    private GoldenTicketRepository ticketRepository;
+
+    @Value("${deadlines.enabled:true}")
+    private boolean enabled;
+
+    @Value("${deadlines.reload-interval-ms:3600000}")
+    private long reloadIntervalMs;
+
+    private volatile Thread worker;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        reload();
+
+        worker = new Thread(this::run, "deadline-transitions");
+        worker.setDaemon(true);
+        worker.start();
+        System.out.println("[Deadline Scheduler] Запущен, сроков в очереди: " + deadlines.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * Подгрузка сроков из БД на два интервала вперед
+     */
+    @Scheduled(fixedDelayString = "${deadlines.reload-interval-ms:3600000}",
+               initialDelayString = "${deadlines.reload-interval-ms:3600000}")
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime now = DateTimeUtils.nowUTC();
+            LocalDateTime horizon = now.plus(Duration.ofMillis(reloadIntervalMs * 2));
+            deadlines.extendHorizon(horizon);
+
+            excursionRepository.findStartTimesBetween(now, horizon).forEach(time -> {
+                deadlines.add(Kind.EXCURSION_STATUS, time);
+                deadlines.add(Kind.STARTED_EXCURSION_TICKETS, time);
+            });
+            excursionRepository.findEndTimesBetween(now, horizon)
+                .forEach(time -> deadlines.add(Kind.EXCURSION_STATUS, time));
+            ticketRepository.findBookedExcursionStartTimesBetween(now, horizon)
+                .forEach(time -> deadlines.add(Kind.STARTED_EXCURSION_TICKETS, time));
+            ticketRepository.findExpiryTimesBetween(now, horizon)
+                .forEach(time -> deadlines.add(Kind.EXPIRED_TICKETS, time));
+        } catch (Exception e) {
+            System.err.println("[Deadline Scheduler Error] " + e.getMessage());
+        }
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Deadline deadline = deadlines.take();
+                EnumSet<Kind> due = EnumSet.of(deadline.getKind());
+                for (Deadline next = deadlines.pollDue(); next != null; next = deadlines.pollDue()) {
+                    due.add(next.getKind());
+                }
+                due.forEach(this::fire);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void fire(Kind kind) {
+        try {
+            switch (kind) {
+                case EXCURSION_STATUS -> {
+                    Map<String, Integer> result = excursionService.updateExcursionStatuses();
+                    int started = result.getOrDefault("started", 0);
+                    int completed = result.getOrDefault("completed", 0);
+                    if (started > 0 || completed > 0) {
+                        System.out.println("[Deadline Scheduler] Экскурсии: " + started + " начато, " + completed + " завершено");
+                    }
+                }
+                case STARTED_EXCURSION_TICKETS -> {
+                    int deactivated = ticketService.deactivateTicketsForStartedExcursions();
+                    if (deactivated > 0) {
+                        System.out.println("[Deadline Scheduler] Деактивировано " + deactivated + " билетов для начавшихся экскурсий");
+                    }
+                }
+                case EXPIRED_TICKETS -> {
+                    int deactivated = ticketService.deactivateExpiredTickets();
+                    if (deactivated > 0) {
+                        System.out.println("[Deadline Scheduler] Деактивировано " + deactivated + " истекших билетов");
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("[Deadline Scheduler Error] " + kind + ": " + e.getMessage());
+        }
+    }
+}
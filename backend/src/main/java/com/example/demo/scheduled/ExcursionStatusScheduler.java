@@ -17,9 +17,10 @@ public class ExcursionStatusScheduler {
     private ExcursionService excursionService;
 
     /**
-     * Проверяет и обновляет статусы экскурсий каждую минуту
+     * Страховочная проверка статусов экскурсий (по умолчанию раз в 15 минут).
+     * В срок переходы выполняет DeadlineTransitionScheduler.
      */
-    @Scheduled(fixedRate = 60000) // Каждую минуту (60000 миллисекунд)
+    @Scheduled(fixedRateString = "${excursions.status-sweep-interval-ms:900000}")
     public void updateExcursionStatuses() {
         try {
             Map<String, Integer> result = excursionService.updateExcursionStatuses();
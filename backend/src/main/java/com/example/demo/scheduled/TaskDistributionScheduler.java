@@ -1,16 +1,13 @@
 package com.example.demo.scheduled;
 
-import com.example.demo.models.Task;
-import com.example.demo.models.TaskStatus;
 import com.example.demo.services.TaskService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 /**
  * Планировщик автоматического распределения задач
@@ -22,46 +19,93 @@ public class TaskDistributionScheduler {
     @Autowired
     private TaskService taskService;
 
+    /**
+     * Размер порции задач: каждая порция распределяется в отдельной короткой транзакции
+     */
+    @Value("${tasks.distribution.chunk-size:500}")
+    private int chunkSize;
+
     /**
      * Автоматическое распределение задач
      * Запускается каждый день в 6:00 утра (начало рабочего дня)
      * Cron: секунды минуты часы день месяц день_недели
+     *
+     * Нераспределенные задачи читаются порциями по индексу (status, id) с keyset-пагинацией,
+     * поэтому расход памяти не зависит от объема истории задач.
+     * Загруженность рабочих считается одним GROUP BY на весь запуск и обновляется после каждой порции.
+     * Ошибка в одной порции не откатывает уже распределенные порции.
      */
     @Scheduled(cron = "0 0 6 * * MON-FRI") // Каждый будний день в 6:00
     public void distributeTasksAutomatically() {
         System.out.println("🔄 Запуск автоматического распределения задач...");
         
-        try {
-            // Получаем все нераспределенные задачи
-            Iterable<Task> allTasks = taskService.getAllTasks();
-            List<Long> unassignedTaskIds = StreamSupport.stream(allTasks.spliterator(), false)
-                .filter(task -> task.getUser() == null && task.getStatus() == TaskStatus.NOT_ASSIGNED)
-                .map(Task::getId)
-                .collect(Collectors.toList());
-            
-            if (unassignedTaskIds.isEmpty()) {
-                System.out.println("ℹ️ Нет нераспределенных задач");
-                return;
+        long lastTaskId = 0;
+        int foundCount = 0;
+        int distributedCount = 0;
+        int skippedCount = 0;
+        int failedChunks = 0;
+        Map<Long, Long> activeTasksByUser = null;
+        
+        while (true) {
+            List<Long> chunk;
+            try {
+                chunk = taskService.findUnassignedTaskIdsAfter(lastTaskId, chunkSize);
+            } catch (Exception e) {
+                System.err.println("❌ Ошибка при чтении нераспределенных задач: " + e.getMessage());
+                e.printStackTrace();
+                break;
             }
             
-            System.out.println("📋 Найдено нераспределенных задач: " + unassignedTaskIds.size());
+            if (chunk.isEmpty()) {
+                break;
+            }
             
-            // Распределяем задачи без принудительного режима
-            Map<String, Object> result = taskService.distributeTasksAutomatically(unassignedTaskIds, false);
+            lastTaskId = chunk.get(chunk.size() - 1);
+            foundCount += chunk.size();
             
-            if (result.get("success").equals(true)) {
-                System.out.println("✅ Распределение завершено успешно");
-                System.out.println("   Распределено: " + result.get("distributedCount"));
-                System.out.println("   Пропущено: " + result.get("skippedCount"));
-            } else {
-                System.out.println("⚠️ Распределение завершено с предупреждениями");
-                System.out.println("   " + result.get("message"));
+            try {
+                if (activeTasksByUser == null) {
+                    activeTasksByUser = taskService.countActiveTasksPerUser();
+                }
+                // Каждая порция - отдельная транзакция (distributeTasksAutomatically помечен @Transactional)
+                Map<String, Object> result = taskService.distributeTasksAutomatically(chunk, false, activeTasksByUser);
+                distributedCount += ((Number) result.getOrDefault("distributedCount", 0)).intValue();
+                skippedCount += ((Number) result.getOrDefault("skippedCount", 0)).intValue();
+                
+                // Пропуски в порции могут означать и задачи, взятые параллельно, поэтому останавливаемся
+                // только когда по загруженности все рабочие на лимите
+                if (Boolean.TRUE.equals(result.get("workersAtLimit"))) {
+                    System.out.println("⚠️ Все рабочие перегружены, распределение остановлено");
+                    break;
+                }
+            } catch (Exception e) {
+                failedChunks++;
+                // Порция откатилась: ее назначения уже учтены в загруженности, пересчитываем по БД
+                activeTasksByUser = null;
+                System.err.println("❌ Ошибка при распределении порции задач (ID " + chunk.get(0) + "-" +
+                        lastTaskId + "): " + e.getMessage());
+                e.printStackTrace();
             }
             
-        } catch (Exception e) {
-            System.err.println("❌ Ошибка при автоматическом распределении задач: " + e.getMessage());
-            e.printStackTrace();
+            if (chunk.size() < chunkSize) {
+                break;
+            }
         }
+        
+        if (foundCount == 0) {
+            System.out.println("ℹ️ Нет нераспределенных задач");
+            return;
+        }
+        
+        System.out.println("📋 Найдено нераспределенных задач: " + foundCount);
+        
+        if (failedChunks == 0) {
+            System.out.println("✅ Распределение завершено успешно");
+        } else {
+            System.out.println("⚠️ Распределение завершено с ошибками в " + failedChunks + " порциях");
+        }
+        System.out.println("   Распределено: " + distributedCount);
+        System.out.println("   Пропущено: " + skippedCount);
     }
 
     /**
@@ -74,4 +118,3 @@ public class TaskDistributionScheduler {
         distributeTasksAutomatically(); // Используем ту же логику
     }
 }
-
@@ -12,9 +12,10 @@ public class TicketDeactivationScheduler {
     private GoldenTicketService ticketService;
 
     /**
-     * Каждые 5 минут проверяем и деактивируем билеты для начавшихся экскурсий
+     * Страховочная деактивация билетов для начавшихся экскурсий (по умолчанию раз в 30 минут).
+     * В срок билеты деактивирует DeadlineTransitionScheduler.
      */
-    @Scheduled(fixedRate = 300000) // 5 минут = 300000 мс
+    @Scheduled(fixedRateString = "${tickets.deactivation.started-sweep-interval-ms:1800000}")
     public void deactivateTicketsForStartedExcursions() {
         try {
             int deactivated = ticketService.deactivateTicketsForStartedExcursions();
@@ -27,9 +28,10 @@ public class TicketDeactivationScheduler {
     }
 
     /**
-     * Каждый час проверяем и деактивируем истекшие билеты
+     * Страховочная деактивация истекших билетов (по умолчанию раз в 6 часов).
+     * В срок билеты деактивирует DeadlineTransitionScheduler.
      */
-    @Scheduled(fixedRate = 3600000) // 1 час = 3600000 мс
+    @Scheduled(fixedRateString = "${tickets.deactivation.expired-sweep-interval-ms:21600000}")
     public void deactivateExpiredTickets() {
         try {
             int deactivated = ticketService.deactivateExpiredTickets();
@@ -74,6 +74,7 @@ public class SecurityConfig {
                         
                         // Золотые билеты - только ADMIN может генерировать и удалять
                         .requestMatchers(HttpMethod.POST, "/api/tickets/generate").hasRole("ADMIN")
+                        .requestMatchers("/api/tickets/mint/**", "/api/tickets/mint").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/api/tickets/{id:[0-9]+}").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/api/tickets/**").hasAnyRole("ADMIN", "GUIDE")
                         
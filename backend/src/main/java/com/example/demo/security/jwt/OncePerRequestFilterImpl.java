@@ -28,6 +28,15 @@ public class OncePerRequestFilterImpl extends OncePerRequestFilter {
         this.jwtUtils = jwtUtils;
     }
 
+    /**
+     * Потоковые выгрузки (StreamingResponseBody) дописываются на асинхронной отправке того же запроса;
+     * авторизация проверяется и на ней, поэтому аутентификация восстанавливается из того же заголовка
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
             @NonNull HttpServletResponse response, @NonNull FilterChain filterChain)
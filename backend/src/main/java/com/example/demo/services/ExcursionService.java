@@ -1,18 +1,32 @@
 package com.example.demo.services;
 
 import com.example.demo.dto.request.ExcursionRequestDTO;
+import com.example.demo.dto.response.AvailabilityBatchResultDTO;
+import com.example.demo.dto.response.CursorPageDTO;
 import com.example.demo.dto.response.ExcursionResponseDTO;
 import com.example.demo.dto.response.ExcursionRouteDTO;
 import com.example.demo.models.*;
+import com.example.demo.models.specifications.ExcursionSpecification;
 import com.example.demo.repositories.ExcursionRepository;
 import com.example.demo.repositories.ExcursionRouteRepository;
 import com.example.demo.repositories.GoldenTicketRepository;
 import com.example.demo.repositories.UserRepository;
 import com.example.demo.repositories.WorkshopRepository;
+import com.example.demo.services.routing.PlannedStop;
+import com.example.demo.services.routing.RouteCandidate;
+import com.example.demo.services.routing.RoutePlan;
+import com.example.demo.services.routing.RoutePlanner;
+import com.example.demo.services.routing.RoutePlanningRequest;
 import com.example.demo.utils.DateTimeUtils;
+import com.example.demo.utils.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -20,6 +34,10 @@ import java.util.stream.Collectors;
 
 @Service
 public class ExcursionService {
+    // Максимум вариантов в одной пакетной проверке доступности
+    public static final int MAX_AVAILABILITY_CANDIDATES = 200;
+    // Максимальный размер страницы курсорной пагинации
+    public static final int MAX_PAGE_SIZE = 200;
 
     @Autowired
     private GoldenTicketRepository ticketRepository;
@@ -36,8 +54,32 @@ public class ExcursionService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private WorkshopOccupancyIndex occupancyIndex;
+
+    @Autowired
+    private RoutePlanner routePlanner;
+
+    @Autowired
+    private TransitionDeadlines transitionDeadlines;
+
+    @Autowired
+    private TicketCache ticketCache;
+
+    @Autowired
+    private WorkshopHeatmapService heatmapService;
+
+    @Autowired
+    private WorkshopSlotLedger slotLedger;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${excursions.completion.chunk-size:500}")
+    private int completionChunkSize;
+
     public List<ExcursionResponseDTO> getAllExcursions() {
-        return excursionRepository.findAll().stream()
+        return excursionRepository.findAllWithRoutes().stream()
                 .map(this::toDTO)
                 .collect(Collectors.toList());
     }
@@ -48,17 +90,71 @@ public class ExcursionService {
     }
 
     public List<ExcursionResponseDTO> getExcursionsByGuideId(Long guideId) {
-        return excursionRepository.findByGuideId(guideId).stream()
+        return excursionRepository.findAllWithRoutesByGuideId(guideId).stream()
                 .map(this::toDTO)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Keyset-пагинация экскурсий по времени начала (ранние первыми) с фильтром по диапазону дат.
+     * Страница загружается двумя запросами: ID страницы по индексу (start_time, id)
+     * и экскурсии вместе с маршрутом, цехами и гидом одним fetch join.
+     * @param from начало диапазона (включительно) или null
+     * @param to конец диапазона (не включительно) или null
+     * @param cursor курсор предыдущей страницы или null для первой страницы
+     * @param withTotal нужен ли COUNT(*) по всей выборке
+     */
+    public CursorPageDTO<ExcursionResponseDTO> getExcursionsByCursor(LocalDateTime from, LocalDateTime to, Long guideId,
+            ExcursionStatus status, String cursor, int size, boolean withTotal) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("Начало диапазона должно быть раньше конца");
+        }
+        Specification<Excursion> filters = ExcursionSpecification.withFilters(from, to, guideId, status);
+        Specification<Excursion> spec = filters;
+        if (cursor != null && !cursor.isEmpty()) {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            spec = spec.and(ExcursionSpecification.afterCursor(position.getTime(), position.getId()));
+        }
+
+        // Запрашиваем на один элемент больше, чтобы узнать, есть ли следующая страница
+        Sort sort = Sort.by(Sort.Order.asc("startTime"), Sort.Order.asc("id"));
+        List<Long> ids = excursionRepository.findIds(spec, sort, size + 1);
+
+        boolean hasNext = ids.size() > size;
+        List<Long> pageIds = hasNext ? ids.subList(0, size) : ids;
+
+        List<ExcursionResponseDTO> content = new ArrayList<>(pageIds.size());
+        if (!pageIds.isEmpty()) {
+            Map<Long, Excursion> excursionsById = excursionRepository.findAllWithRoutesByIdIn(pageIds).stream()
+                    .collect(Collectors.toMap(Excursion::getId, e -> e));
+            for (Long id : pageIds) {
+                Excursion excursion = excursionsById.get(id);
+                if (excursion != null) {
+                    content.add(toDTO(excursion));
+                }
+            }
+        }
+
+        String nextCursor = null;
+        if (hasNext && !content.isEmpty()) {
+            ExcursionResponseDTO last = content.get(content.size() - 1);
+            nextCursor = new KeysetCursor(last.getStartTime(), last.getId()).encode();
+        }
+
+        Long total = withTotal ? excursionRepository.count(filters) : null;
+        return new CursorPageDTO<>(content, nextCursor, hasNext, size, total);
+    }
+
     public List<ExcursionStatus> getAllStatuses() {
         return Arrays.asList(ExcursionStatus.values());
     }
 
     @Transactional
     public ExcursionResponseDTO createExcursion(ExcursionRequestDTO dto) {
+        requireSlotAlignedStart(dto);
         User guide = userRepository.findById(dto.getGuideId())
                 .orElseThrow(() -> new RuntimeException("Экскурсовод не найден"));
 
@@ -122,14 +218,26 @@ public class ExcursionService {
             excursion.getRoutes().addAll(routes);
         }
 
+        // Атомарное резервирование слотов цехов (журнал workshop_slots)
+        slotLedger.reserve(slotLedger.claimsOf(excursion));
+
+        excursion.refreshEndTime();
         excursion = excursionRepository.save(excursion);
+        occupancyIndex.refreshExcursion(excursion);
+        heatmapService.invalidateRoutes(excursion.getRoutes());
+        scheduleTransitions(excursion);
         return toDTO(excursion);
     }
 
     @Transactional
     public ExcursionResponseDTO updateExcursion(Long id, ExcursionRequestDTO dto) {
-        Excursion excursion = excursionRepository.findById(id)
+        requireSlotAlignedStart(dto);
+        Excursion excursion = excursionRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new RuntimeException("Экскурсия не найдена"));
+        // Дни старого маршрута на тепловой карте (ключи фиксируются до изменения маршрута)
+        heatmapService.invalidateRoutes(excursion.getRoutes());
+        // Слоты, зарезервированные экскурсией в текущем состоянии
+        List<WorkshopSlotLedger.Claim> previousClaims = slotLedger.claimsOf(excursion);
         
         final Long excursionId = excursion.getId(); // Для использования в лямбдах
 
@@ -161,8 +269,9 @@ public class ExcursionService {
             } else if (dto.getRoutes() != null && !dto.getRoutes().isEmpty()) {
                 // Рассчитываем время окончания на основе нового маршрута
                 LocalDateTime tempTime = checkStartTime;
+                Map<Long, Workshop> workshopsById = loadRouteWorkshops(dto.getRoutes());
                 for (ExcursionRequestDTO.RoutePointDTO point : dto.getRoutes()) {
-                    Workshop workshop = workshopRepository.findById(point.getWorkshopId()).orElse(null);
+                    Workshop workshop = workshopsById.get(point.getWorkshopId());
                     int duration = point.getDurationMinutes() != null ? point.getDurationMinutes() : 
                                   (workshop != null && workshop.getVisitDurationMinutes() != null ? 
                                    workshop.getVisitDurationMinutes() : 15);
@@ -195,6 +304,7 @@ public class ExcursionService {
         }
 
         // Обновление маршрута при необходимости
+        boolean routeChanged = true;
         if (dto.getAutoGenerateRoute() != null && dto.getAutoGenerateRoute()) {
             // Удаляем старый маршрут и создаем новый
             excursion.getRoutes().clear();
@@ -211,9 +321,21 @@ public class ExcursionService {
             excursion.getRoutes().clear();
             List<ExcursionRoute> routes = createManualRoute(excursion, dto.getRoutes());
             excursion.getRoutes().addAll(routes);
+        } else {
+            routeChanged = false;
         }
 
+        // Перенос резерва слотов: освобождаем прежний маршрут и резервируем новый
+        slotLedger.rebook(previousClaims, slotLedger.claimsOf(excursion));
+
+        // Время окончания зависит только от маршрута и времени начала
+        if (routeChanged || dto.getStartTime() != null) {
+            excursion.refreshEndTime();
+        }
         excursion = excursionRepository.save(excursion);
+        occupancyIndex.refreshExcursion(excursion);
+        heatmapService.invalidateRoutes(excursion.getRoutes());
+        scheduleTransitions(excursion);
         return toDTO(excursion);
     }
 
@@ -229,13 +351,37 @@ public class ExcursionService {
             ticket.setHolderEmail(null);
             ticket.setHolderPhone(null);
             ticketRepository.save(ticket);
+            ticketCache.invalidate(ticket.getTicketCode());
         }
 
+        excursionRepository.findById(id).ifPresent(excursion -> {
+            heatmapService.invalidateRoutes(excursion.getRoutes());
+            slotLedger.release(slotLedger.claimsOf(excursion));
+        });
         excursionRepository.deleteById(id);
+        occupancyIndex.removeExcursion(id);
+    }
+
+    // Начало экскурсии - на границе слота WorkshopSlotLedger; время клиента не подменяется, невыровненное отклоняется (400)
+    private static void requireSlotAlignedStart(ExcursionRequestDTO dto) {
+        if (dto.getStartTime() != null && !WorkshopSlotLedger.isSlotAligned(dto.getStartTime())) {
+            throw new IllegalArgumentException("Время начала экскурсии должно быть кратно " +
+                WorkshopSlotLedger.SLOT_MINUTES + " минутам без секунд: " + dto.getStartTime());
+        }
+    }
+
+    // Сроки автоматических переходов экскурсии: начало подтвержденной и окончание активной
+    private void scheduleTransitions(Excursion excursion) {
+        if (excursion.getStatus() == ExcursionStatus.CONFIRMED) {
+            transitionDeadlines.scheduleExcursionStart(excursion.getStartTime());
+        }
+        if (excursion.getStatus() == ExcursionStatus.CONFIRMED || excursion.getStatus() == ExcursionStatus.IN_PROGRESS) {
+            transitionDeadlines.scheduleExcursionEnd(excursion.getEndTime());
+        }
     }
 
     // Автоматическое построение маршрута с учетом занятости цехов
-    // УЛУЧШЕННЫЙ АЛГОРИТМ: сначала ищем доступный цех в текущее время, только потом сдвигаем время
+    // Порядок посещения строит RoutePlanner по снимку занятости, жадный алгоритм - запасной вариант
     private List<ExcursionRoute> generateAutomaticRoute(Excursion excursion, Integer requestedMinWorkshops) {
         List<Workshop> allWorkshops = workshopRepository.findAll();
         
@@ -266,63 +412,34 @@ public class ExcursionService {
             minRequiredWorkshops = requestedMinWorkshops;
         }
         
-        Set<Long> visitedWorkshops = new HashSet<>(); // Отслеживаем посещенные цеха
-        List<ExcursionRoute> routes = new ArrayList<>();
+        LocalDateTime startTime = excursion.getStartTime();
+        LocalDateTime maxTime = startTime.plusHours(8); // Максимум 8 часов на экскурсию
         
-        LocalDateTime currentTime = excursion.getStartTime();
-        LocalDateTime maxTime = currentTime.plusHours(8); // Максимум 8 часов на экскурсию
-        int orderNumber = 1;
-        int noProgressCounter = 0; // Счетчик попыток без прогресса
+        // Один снимок занятости подходящих цехов на всё окно планирования
+        WorkshopOccupancySnapshot snapshot = loadOccupancySnapshot(suitableWorkshops, startTime, maxTime);
         
-        // Продолжаем, пока не посетим все ПОДХОДЯЩИЕ цеха или не достигнем максимального времени
-        while (visitedWorkshops.size() < suitableWorkshops.size() && currentTime.isBefore(maxTime)) {
-            Workshop selectedWorkshop = null;
-            int selectedDuration = 15;
-            
-            // Ищем ЛЮБОЙ доступный цех в текущее время
-            for (Workshop workshop : suitableWorkshops) {
-                // Пропускаем уже посещенные цеха
-                if (visitedWorkshops.contains(workshop.getId())) {
-                    continue;
-                }
-                
-                int duration = workshop.getVisitDurationMinutes() != null ? 
-                              workshop.getVisitDurationMinutes() : 15;
-                
-                // Проверяем доступность цеха в текущее время
-                if (isWorkshopAvailableAtTime(workshop, currentTime, duration, 
-                                             excursion.getId(), excursion.getParticipantsCount())) {
-                    selectedWorkshop = workshop;
-                    selectedDuration = duration;
-                    break; // Нашли доступный цех - берем его
-                }
-            }
-            
-            if (selectedWorkshop != null) {
-                // Нашли доступный цех - добавляем в маршрут
-                ExcursionRoute route = new ExcursionRoute();
-                route.setExcursion(excursion);
-                route.setWorkshop(selectedWorkshop);
-                route.setOrderNumber(orderNumber++);
-                route.setStartTime(currentTime);
-                route.setDurationMinutes(selectedDuration);
-                
-                route = routeRepository.save(route);
-                routes.add(route);
-                
-                visitedWorkshops.add(selectedWorkshop.getId());
-                currentTime = currentTime.plusMinutes(selectedDuration);
-                noProgressCounter = 0; // Сбрасываем счетчик
-            } else {
-                // Все подходящие цеха заняты в текущее время - сдвигаем время на 15 минут
-                currentTime = currentTime.plusMinutes(15);
-                noProgressCounter++;
-                
-                // Если слишком долго не можем найти цех - прерываем
-                if (noProgressCounter > 20) { // 20 * 15 минут = 5 часов без прогресса
-                    break;
-                }
-            }
+        Map<Long, Workshop> workshopsById = new HashMap<>();
+        List<RouteCandidate> candidates = new ArrayList<>();
+        for (Workshop workshop : suitableWorkshops) {
+            int duration = workshop.getVisitDurationMinutes() != null ? workshop.getVisitDurationMinutes() : 15;
+            candidates.add(new RouteCandidate(workshop.getId(), workshop.getCapacity(), duration));
+            workshopsById.put(workshop.getId(), workshop);
+        }
+        
+        // Порядок посещения выбирает настроенный алгоритм (excursions.route-solver.type)
+        RoutePlan plan = routePlanner.plan(new RoutePlanningRequest(
+            startTime, maxTime, excursion.getParticipantsCount(), excursion.getId(), candidates, snapshot));
+        
+        List<ExcursionRoute> routes = new ArrayList<>();
+        int orderNumber = 1;
+        for (PlannedStop stop : plan.getStops()) {
+            ExcursionRoute route = new ExcursionRoute();
+            route.setExcursion(excursion);
+            route.setWorkshop(workshopsById.get(stop.getWorkshopId()));
+            route.setOrderNumber(orderNumber++);
+            route.setStartTime(stop.getStartTime());
+            route.setDurationMinutes(stop.getDurationMinutes());
+            routes.add(route);
         }
         
         // Проверяем, удалось ли посетить требуемое количество цехов
@@ -332,34 +449,61 @@ public class ExcursionService {
             return new ArrayList<>();
         }
 
+        // Сохраняем маршрут одним пакетом и перепроверяем занятость в той же транзакции
+        routes = routeRepository.saveAll(routes);
+        validateRoutesCapacity(excursion, routes);
+
         return routes;
     }
     
-    // Проверка доступности цеха в конкретное время
-    private boolean isWorkshopAvailableAtTime(Workshop workshop, LocalDateTime startTime, 
-                                              int duration, Long excursionId, Integer participantsCount) {
+    // Загрузка занятости цехов одним запросом; окно расширяется на самое длинное посещение,
+    // так как последняя точка маршрута может закончиться позже maxTime
+    private WorkshopOccupancySnapshot loadOccupancySnapshot(List<Workshop> workshops, 
+                                                            LocalDateTime startTime, LocalDateTime maxTime) {
+        int maxDuration = workshops.stream()
+            .mapToInt(w -> w.getVisitDurationMinutes() != null ? w.getVisitDurationMinutes() : 15)
+            .max()
+            .orElse(15);
+        List<Long> workshopIds = workshops.stream().map(Workshop::getId).collect(Collectors.toList());
+        return WorkshopOccupancySnapshot.of(
+            routeRepository.findActiveRouteIntervals(workshopIds, startTime, maxTime.plusMinutes(maxDuration)));
+    }
+    
+    // Финальная проверка построенного маршрута по актуальным данным БД (одним запросом)
+    private void validateRoutesCapacity(Excursion excursion, List<ExcursionRoute> routes) {
+        if (routes.isEmpty()) {
+            return;
+        }
+        routeRepository.flush();
+        
+        List<Long> workshopIds = routes.stream().map(r -> r.getWorkshop().getId()).collect(Collectors.toList());
+        LocalDateTime windowStart = routes.stream().map(ExcursionRoute::getStartTime)
+            .min(LocalDateTime::compareTo).get();
+        LocalDateTime windowEnd = routes.stream().map(r -> r.getStartTime().plusMinutes(r.getDurationMinutes()))
+            .max(LocalDateTime::compareTo).get();
+        WorkshopOccupancySnapshot actual = WorkshopOccupancySnapshot.of(
+            routeRepository.findActiveRouteIntervals(workshopIds, windowStart, windowEnd));
+        
+        for (ExcursionRoute route : routes) {
+            Workshop workshop = route.getWorkshop();
+            if (!isWorkshopAvailableAtTime(actual, workshop, route.getStartTime(), route.getDurationMinutes(),
+                                           excursion.getId(), excursion.getParticipantsCount())) {
+                throw new RuntimeException("Цех '" + workshop.getName() + "' был занят другой экскурсией во время " +
+                    "построения маршрута (" + route.getStartTime() + "). Повторите попытку.");
+            }
+        }
+    }
+    
+    // Проверка доступности цеха в конкретное время по снимку занятости
+    private boolean isWorkshopAvailableAtTime(WorkshopOccupancySnapshot snapshot, Workshop workshop, 
+                                              LocalDateTime startTime, int duration, 
+                                              Long excursionId, Integer participantsCount) {
         LocalDateTime endTime = startTime.plusMinutes(duration);
         
         // Проверяем вместимость цеха
         if (workshop.getCapacity() != null) {
-            Integer currentOccupancy = routeRepository.getTotalParticipantsInWorkshop(
-                workshop.getId(), 
-                startTime, 
-                endTime
-            );
-            
-            // Если редактируем экскурсию, вычитаем её участников
-            if (excursionId != null) {
-                List<ExcursionRoute> currentExcursionRoutes = routeRepository.findConflictingRoutes(
-                    workshop.getId(), startTime, endTime
-                ).stream()
-                    .filter(r -> r.getExcursion().getId().equals(excursionId))
-                    .collect(Collectors.toList());
-                
-                if (!currentExcursionRoutes.isEmpty()) {
-                    currentOccupancy -= currentExcursionRoutes.get(0).getExcursion().getParticipantsCount();
-                }
-            }
+            // Занятость из снимка, без участников редактируемой экскурсии
+            int currentOccupancy = snapshot.getOccupancy(workshop.getId(), startTime, endTime, excursionId);
             
             int totalWithNewGroup = currentOccupancy + participantsCount;
             
@@ -380,41 +524,43 @@ public class ExcursionService {
 
         // Сортируем точки маршрута по порядковому номеру
         routePoints.sort(Comparator.comparing(ExcursionRequestDTO.RoutePointDTO::getOrderNumber));
+        // Все цеха маршрута одним запросом
+        Map<Long, Workshop> workshopsById = loadRouteWorkshops(routePoints);
 
         for (ExcursionRequestDTO.RoutePointDTO point : routePoints) {
-            Workshop workshop = workshopRepository.findById(point.getWorkshopId())
-                    .orElseThrow(() -> new RuntimeException("Цех не найден: " + point.getWorkshopId()));
+            Workshop workshop = workshopsById.get(point.getWorkshopId());
+            if (workshop == null) {
+                throw new RuntimeException("Цех не найден: " + point.getWorkshopId());
+            }
 
             int duration = point.getDurationMinutes() != null ? point.getDurationMinutes() : 
                           (workshop.getVisitDurationMinutes() != null ? workshop.getVisitDurationMinutes() : 15);
 
-            LocalDateTime endTime = currentTime.plusMinutes(duration);
+            ExcursionRoute route = new ExcursionRoute();
+            route.setExcursion(excursion);
+            route.setWorkshop(workshop);
+            route.setOrderNumber(point.getOrderNumber());
+            route.setStartTime(currentTime);
+            route.setDurationMinutes(duration);
+            routes.add(route);
 
+            currentTime = currentTime.plusMinutes(duration);
+        }
+
+        for (ExcursionRoute route : routes) {
+            Workshop workshop = route.getWorkshop();
             // Проверяем суммарную вместимость цеха
             if (workshop.getCapacity() != null) {  // null = бесконечная вместимость
-                Integer currentOccupancy = routeRepository.getTotalParticipantsInWorkshop(
-                    workshop.getId(), 
-                    currentTime, 
-                    endTime
-                );
-                
-                // Если редактируем экскурсию, вычитаем её участников из текущей занятости
-                if (excursion.getId() != null) {
-                    List<ExcursionRoute> currentExcursionRoutes = routeRepository.findConflictingRoutes(
-                        workshop.getId(), currentTime, endTime
-                    ).stream()
-                        .filter(r -> r.getExcursion().getId().equals(excursion.getId()))
-                        .collect(Collectors.toList());
-                    
-                    if (!currentExcursionRoutes.isEmpty()) {
-                        currentOccupancy -= currentExcursionRoutes.get(0).getExcursion().getParticipantsCount();
-                    }
-                }
+                LocalDateTime startTime = route.getStartTime();
+                LocalDateTime endTime = startTime.plusMinutes(route.getDurationMinutes());
+                // Занятость из индекса, без участников редактируемой экскурсии
+                int currentOccupancy = occupancyIndex.getOccupancy(
+                    workshop.getId(), startTime, endTime, excursion.getId());
                 
                 int totalWithNewGroup = currentOccupancy + excursion.getParticipantsCount();
                 
                 if (totalWithNewGroup > workshop.getCapacity()) {
-                    String message = "Цех '" + workshop.getName() + "' перегружен в период с " + currentTime + " по " + endTime + ": ";
+                    String message = "Цех '" + workshop.getName() + "' перегружен в период с " + startTime + " по " + endTime + ": ";
                     if (currentOccupancy == 0) {
                         message += "ваша группа из " + excursion.getParticipantsCount() + " человек не помещается (вместимость цеха: " + workshop.getCapacity() + " чел.)";
                     } else {
@@ -423,21 +569,9 @@ public class ExcursionService {
                     throw new RuntimeException(message);
                 }
             }
-
-            ExcursionRoute route = new ExcursionRoute();
-            route.setExcursion(excursion);
-            route.setWorkshop(workshop);
-            route.setOrderNumber(point.getOrderNumber());
-            route.setStartTime(currentTime);
-            route.setDurationMinutes(duration);
-            
-            route = routeRepository.save(route);
-            routes.add(route);
-
-            currentTime = endTime;
         }
 
-        return routes;
+        return routeRepository.saveAll(routes);
     }
 
 
@@ -453,10 +587,12 @@ public class ExcursionService {
             return result;
         }
 
+        Map<Long, Workshop> workshopsById = loadRouteWorkshops(Collections.singletonList(dto));
+
         // Проверяем занятость гида на всё время экскурсии
         if (dto.getGuideId() != null) {
             LocalDateTime excursionStart = dto.getStartTime();
-            LocalDateTime excursionEnd = calculateExcursionEndTime(dto);
+            LocalDateTime excursionEnd = calculateExcursionEndTime(dto, workshopsById);
             
             List<Excursion> guideConflicts = excursionRepository.findGuideConflicts(
                 dto.getGuideId(), 
@@ -478,14 +614,119 @@ public class ExcursionService {
             }
         }
 
+        // Занятость цехов из индекса, без участников редактируемой экскурсии
+        List<String> routeConflicts = collectRouteConflicts(dto, workshopsById, occupancyIndex::getOccupancy);
+        if (!routeConflicts.isEmpty()) {
+            conflicts.addAll(routeConflicts);
+            isAvailable = false;
+        }
+
+        result.put("available", isAvailable);
+        result.put("conflicts", conflicts);
+        result.put("message", isAvailable ? "Маршрут доступен" : "Маршрут недоступен");
+        
+        return result;
+    }
+
+    /**
+     * Пакетная проверка вариантов экскурсии (разное время начала, гиды, порядок цехов).
+     * Занятость цехов берется из индекса, занятость гидов - из одного снимка на весь пакет:
+     * цеха и маршруты гидов загружаются двумя запросами.
+     */
+    public AvailabilityBatchResultDTO checkRouteAvailabilityBatch(List<ExcursionRequestDTO> candidates) {
+        if (candidates == null || candidates.isEmpty()) {
+            throw new IllegalArgumentException("Не указаны варианты для проверки");
+        }
+        if (candidates.size() > MAX_AVAILABILITY_CANDIDATES) {
+            throw new IllegalArgumentException("Слишком много вариантов: " + candidates.size() + 
+                " (максимум " + MAX_AVAILABILITY_CANDIDATES + ")");
+        }
+
+        Map<Long, Workshop> workshopsById = loadRouteWorkshops(candidates);
+
+        // Общее окно всех вариантов для загрузки снимка занятости
+        Map<Integer, LocalDateTime> endTimes = new HashMap<>();
+        Set<Long> guideIds = new HashSet<>();
+        LocalDateTime windowStart = null;
+        LocalDateTime windowEnd = null;
+        for (int i = 0; i < candidates.size(); i++) {
+            ExcursionRequestDTO candidate = candidates.get(i);
+            if (!hasRoute(candidate)) {
+                continue;
+            }
+            LocalDateTime endTime = calculateExcursionEndTime(candidate, workshopsById);
+            endTimes.put(i, endTime);
+            windowStart = windowStart == null || candidate.getStartTime().isBefore(windowStart) ? candidate.getStartTime() : windowStart;
+            windowEnd = windowEnd == null || endTime.isAfter(windowEnd) ? endTime : windowEnd;
+            if (candidate.getGuideId() != null) {
+                guideIds.add(candidate.getGuideId());
+            }
+        }
+
+        // Снимок в формате занятости цехов, но по ID гида: ненулевая "занятость" - пересечение с другой экскурсией гида
+        WorkshopOccupancySnapshot guideOccupancy = WorkshopOccupancySnapshot.of(
+            windowStart == null || guideIds.isEmpty() ? Collections.emptyList()
+                : routeRepository.findGuideRouteIntervals(guideIds, windowStart, windowEnd));
+
+        AvailabilityBatchResultDTO result = new AvailabilityBatchResultDTO();
+        for (int i = 0; i < candidates.size(); i++) {
+            ExcursionRequestDTO candidate = candidates.get(i);
+            AvailabilityBatchResultDTO.CandidateResult verdict = new AvailabilityBatchResultDTO.CandidateResult(
+                i, candidate.getStartTime(), endTimes.get(i), candidate.getGuideId());
+
+            if (!hasRoute(candidate)) {
+                verdict.addConflict("Маршрут не указан");
+            } else {
+                if (candidate.getGuideId() != null && guideOccupancy.getOccupancy(candidate.getGuideId(),
+                        candidate.getStartTime(), endTimes.get(i), candidate.getExcursionId()) > 0) {
+                    verdict.addConflict("Гид уже занят в это время другой экскурсией");
+                }
+                collectRouteConflicts(candidate, workshopsById, occupancyIndex::getOccupancy)
+                    .forEach(verdict::addConflict);
+            }
+            result.addResult(verdict);
+        }
+
+        return result;
+    }
+
+    private static boolean hasRoute(ExcursionRequestDTO dto) {
+        return dto.getStartTime() != null && dto.getRoutes() != null && !dto.getRoutes().isEmpty();
+    }
+
+    // Загрузка всех цехов маршрутов одним запросом
+    private Map<Long, Workshop> loadRouteWorkshops(List<ExcursionRequestDTO> dtos) {
+        return loadRouteWorkshops(dtos.stream()
+            .filter(dto -> dto.getRoutes() != null)
+            .flatMap(dto -> dto.getRoutes().stream())
+            .collect(Collectors.toList()));
+    }
+
+    private Map<Long, Workshop> loadRouteWorkshops(Collection<ExcursionRequestDTO.RoutePointDTO> routePoints) {
+        Set<Long> workshopIds = routePoints.stream()
+            .map(ExcursionRequestDTO.RoutePointDTO::getWorkshopId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+        return workshopRepository.findAllById(workshopIds).stream()
+            .collect(Collectors.toMap(Workshop::getId, w -> w));
+    }
+
+    // Источник занятости цеха: индекс или снимок
+    private interface OccupancyLookup {
+        int getOccupancy(Long workshopId, LocalDateTime startTime, LocalDateTime endTime, Long excludeExcursionId);
+    }
+
+    // Проверка суммарной вместимости цехов по точкам маршрута
+    private List<String> collectRouteConflicts(ExcursionRequestDTO dto, Map<Long, Workshop> workshopsById,
+                                               OccupancyLookup occupancy) {
+        List<String> conflicts = new ArrayList<>();
         LocalDateTime currentTime = dto.getStartTime();
         
         for (ExcursionRequestDTO.RoutePointDTO point : dto.getRoutes()) {
-            Workshop workshop = workshopRepository.findById(point.getWorkshopId()).orElse(null);
+            Workshop workshop = workshopsById.get(point.getWorkshopId());
             
             if (workshop == null) {
                 conflicts.add("Цех с ID " + point.getWorkshopId() + " не найден");
-                isAvailable = false;
                 continue;
             }
 
@@ -496,24 +737,8 @@ public class ExcursionService {
 
             // Проверка суммарной вместимости цеха
             if (workshop.getCapacity() != null) {  // null = бесконечная вместимость
-                Integer currentOccupancy = routeRepository.getTotalParticipantsInWorkshop(
-                    workshop.getId(), 
-                    currentTime, 
-                    endTime
-                );
-                
-                // Если редактируем экскурсию, вычитаем её участников из текущей занятости
-                if (dto.getExcursionId() != null) {
-                    List<ExcursionRoute> currentExcursionRoutes = routeRepository.findConflictingRoutes(
-                        workshop.getId(), currentTime, endTime
-                    ).stream()
-                        .filter(r -> r.getExcursion().getId().equals(dto.getExcursionId()))
-                        .collect(Collectors.toList());
-                    
-                    if (!currentExcursionRoutes.isEmpty()) {
-                        currentOccupancy -= currentExcursionRoutes.get(0).getExcursion().getParticipantsCount();
-                    }
-                }
+                int currentOccupancy = occupancy.getOccupancy(
+                    workshop.getId(), currentTime, endTime, dto.getExcursionId());
                 
                 int totalWithNewGroup = currentOccupancy + dto.getParticipantsCount();
                 
@@ -528,25 +753,24 @@ public class ExcursionService {
                             workshop.getCapacity() + " чел. (не хватает " + (totalWithNewGroup - workshop.getCapacity()) + " мест)";
                     }
                     conflicts.add(conflictMessage);
-                    isAvailable = false;
                 }
             }
 
             currentTime = endTime;
         }
-
-        result.put("available", isAvailable);
-        result.put("conflicts", conflicts);
-        result.put("message", isAvailable ? "Маршрут доступен" : "Маршрут недоступен");
         
-        return result;
+        return conflicts;
     }
     
     // Вспомогательный метод для расчета времени окончания экскурсии
     private LocalDateTime calculateExcursionEndTime(ExcursionRequestDTO dto) {
+        return calculateExcursionEndTime(dto, loadRouteWorkshops(Collections.singletonList(dto)));
+    }
+
+    private LocalDateTime calculateExcursionEndTime(ExcursionRequestDTO dto, Map<Long, Workshop> workshopsById) {
         LocalDateTime currentTime = dto.getStartTime();
         for (ExcursionRequestDTO.RoutePointDTO point : dto.getRoutes()) {
-            Workshop workshop = workshopRepository.findById(point.getWorkshopId()).orElse(null);
+            Workshop workshop = workshopsById.get(point.getWorkshopId());
             int duration = point.getDurationMinutes() != null ? point.getDurationMinutes() : 
                           (workshop != null && workshop.getVisitDurationMinutes() != null ? 
                            workshop.getVisitDurationMinutes() : 15);
@@ -569,17 +793,12 @@ public class ExcursionService {
                 ))
                 .collect(Collectors.toList());
 
-        // Рассчитываем время окончания экскурсии на основе маршрута
-        LocalDateTime endTime = excursion.getRoutes().stream()
-                .map(route -> route.getStartTime().plusMinutes(route.getDurationMinutes()))
-                .max(LocalDateTime::compareTo)
-                .orElse(excursion.getStartTime()); // Если маршрут пустой, используем время начала
-
+        // Сохраненное время окончания - по нему же планировщик завершает экскурсию
         return new ExcursionResponseDTO(
             excursion.getId(),
             excursion.getName(),
             excursion.getStartTime(),
-            endTime,
+            excursion.getEndTime(),
             excursion.getParticipantsCount(),
             excursion.getGuide().getId(),
             excursion.getGuide().getUsername(),
@@ -591,14 +810,34 @@ public class ExcursionService {
     
     /**
      * Автоматическое обновление статусов экскурсий (для планировщика)
-     * Изменяет статусы на IN_PROGRESS или COMPLETED в зависимости от времени
+     * Изменяет статусы на IN_PROGRESS или COMPLETED в зависимости от времени.
+     * UPDATE по индексам (status, start_time) и (status, end_time), без загрузки экскурсий.
+     * Завершение идет порциями по completionChunkSize в отдельных транзакциях: каждая порция -
+     * один UPDATE ... RETURNING, который освобождает и слоты журнала WorkshopSlotLedger.
      */
-    @Transactional
     public Map<String, Integer> updateExcursionStatuses() {
         LocalDateTime now = DateTimeUtils.nowUTC();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        
+        int startedCount = transactionTemplate.execute(status -> excursionRepository.updateStatusWhereStartedBefore(
+            ExcursionStatus.CONFIRMED, ExcursionStatus.IN_PROGRESS, now));
         
-        int startedCount = startExcursions(now);
-        int completedCount = completeExcursions(now);
+        int completedCount = 0;
+        while (true) {
+            List<Long> endedIds = transactionTemplate.execute(status -> {
+                List<Long> completed = excursionRepository.completeEndedChunk(
+                    now, completionChunkSize, WorkshopSlotLedger.SLOT_MINUTES);
+                if (!completed.isEmpty()) {
+                    occupancyIndex.removeExcursions(completed);
+                    heatmapService.invalidateUpTo(now.toLocalDate());
+                }
+                return completed;
+            });
+            completedCount += endedIds.size();
+            if (endedIds.size() < completionChunkSize) {
+                break;
+            }
+        }
         
         Map<String, Integer> result = new HashMap<>();
         result.put("started", startedCount);
@@ -606,64 +845,4 @@ public class ExcursionService {
         
         return result;
     }
-    
-    /**
-     * Изменяет статус экскурсий на IN_PROGRESS, если наступило время начала
-     */
-    private int startExcursions(LocalDateTime now) {
-        List<Excursion> excursionsToStart = excursionRepository.findAll().stream()
-            .filter(e -> e.getStatus() == ExcursionStatus.CONFIRMED) // Только подтвержденные
-            .filter(e -> e.getStartTime() != null)
-            .filter(e -> !e.getStartTime().isAfter(now)) // Время начала <= текущего времени (UTC)
-            .collect(Collectors.toList());
-        
-        for (Excursion excursion : excursionsToStart) {
-            excursion.setStatus(ExcursionStatus.IN_PROGRESS);
-            excursionRepository.save(excursion);
-            System.out.println("[Excursion UTC] Начата: #" + excursion.getId() + " '" + 
-                             excursion.getName() + "' (время начала UTC: " + excursion.getStartTime() + ")");
-        }
-        
-        return excursionsToStart.size();
-    }
-    
-    /**
-     * Изменяет статус экскурсий на COMPLETED, если наступило время окончания
-     */
-    private int completeExcursions(LocalDateTime now) {
-        List<Excursion> excursionsToComplete = excursionRepository.findAll().stream()
-            .filter(e -> e.getStatus() == ExcursionStatus.IN_PROGRESS) // Только в процессе
-            .filter(e -> {
-                // Рассчитываем время окончания экскурсии
-                LocalDateTime endTime = calculateExcursionEndTime(e);
-                return endTime != null && !endTime.isAfter(now); // Время окончания <= текущего времени
-            })
-            .collect(Collectors.toList());
-        
-        for (Excursion excursion : excursionsToComplete) {
-            excursion.setStatus(ExcursionStatus.COMPLETED);
-            excursionRepository.save(excursion);
-            System.out.println("[Excursion UTC] Завершена: #" + excursion.getId() + " '" + 
-                             excursion.getName() + "'");
-        }
-        
-        return excursionsToComplete.size();
-    }
-    
-    /**
-     * Вычисляет время окончания экскурсии на основе маршрута
-     */
-    private LocalDateTime calculateExcursionEndTime(Excursion excursion) {
-        if (excursion.getRoutes() == null || excursion.getRoutes().isEmpty()) {
-            // Если нет маршрута, считаем что экскурсия длится 2 часа
-            return excursion.getStartTime().plusHours(2);
-        }
-        
-        // Находим максимальное время окончания последней точки маршрута
-        return excursion.getRoutes().stream()
-            .map(route -> route.getStartTime().plusMinutes(route.getDurationMinutes()))
-            .max(LocalDateTime::compareTo)
-            .orElse(excursion.getStartTime().plusHours(2));
-    }
 }
-
@@ -7,11 +7,20 @@ import com.example.demo.models.Excursion;
 import com.example.demo.models.GoldenTicket;
 import com.example.demo.models.TicketStatus;
 import com.example.demo.repositories.ExcursionRepository;
+import com.example.demo.repositories.ExcursionSeatsRepository;
+import com.example.demo.repositories.GoldenTicketBatchRepository;
 import com.example.demo.repositories.GoldenTicketRepository;
 import com.example.demo.utils.DateTimeUtils;
+import com.example.demo.utils.LongHashSet;
+import com.example.demo.utils.TicketNumberCodec;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
@@ -19,6 +28,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,8 +44,31 @@ public class GoldenTicketService {
     @Autowired
     private ExcursionRepository excursionRepository;
 
-    private static final String CHARACTERS = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789"; // Без O, I, 0, 1 (путаница)
-    private static final int TICKET_LENGTH = 8; // Длина номера билета
+    @Autowired
+    private ExcursionSeatsRepository seatsRepository;
+
+    @Autowired
+    private TransitionDeadlines transitionDeadlines;
+
+    @Autowired
+    private TicketCache ticketCache;
+
+    @Autowired
+    private GoldenTicketBatchRepository batchRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tickets.deactivation.chunk-size:5000}")
+    private int deactivationChunkSize;
+
+    // job -> строк в секунду за последний запуск (значение метрики tickets.deactivation.rate)
+    private final Map<String, AtomicLong> deactivationRates = new ConcurrentHashMap<>();
+
+    private static final int MAX_GENERATION_ROUNDS = 100;
     private static final SecureRandom RANDOM = new SecureRandom();
 
     /**
@@ -54,14 +91,14 @@ public class GoldenTicketService {
             expiresAt = DateTimeUtils.nowUTC().plusDays(request.getExpiresInDays());
         }
 
-        for (int i = 0; i < request.getCount(); i++) {
-            String ticketNumber = generateUniqueTicketNumber();
-            GoldenTicket ticket = new GoldenTicket(ticketNumber);
+        for (long ticketCode : generateUniqueTicketCodes(request.getCount()).toArray()) {
+            GoldenTicket ticket = new GoldenTicket(TicketNumberCodec.decode(ticketCode));
             ticket.setExpiresAt(expiresAt);
             generatedTickets.add(ticket);
         }
 
         List<GoldenTicket> savedTickets = ticketRepository.saveAll(generatedTickets);
+        transitionDeadlines.schedule(TransitionDeadlines.Kind.EXPIRED_TICKETS, expiresAt);
 
         Map<String, Object> result = new HashMap<>();
         result.put("totalGenerated", savedTickets.size());
@@ -74,34 +111,53 @@ public class GoldenTicketService {
     }
 
     /**
-     * Генерация уникального номера билета
+     * Генерация count уникальных кодов билетов: кандидаты собираются в примитивное множество
+     * и проверяются в БД одним запросом на раунд; занятые коды заменяются в следующем раунде
      */
-    private String generateUniqueTicketNumber() {
-        String ticketNumber;
-        int attempts = 0;
-        int maxAttempts = 100;
-
-        do {
-            ticketNumber = generateRandomCode();
-            attempts++;
-            
-            if (attempts > maxAttempts) {
-                throw new RuntimeException("Не удалось сгенерировать уникальный номер билета после " + maxAttempts + " попыток");
+    private LongHashSet generateUniqueTicketCodes(int count) {
+        LongHashSet codes = new LongHashSet(count);
+        for (int round = 0; codes.size() < count; round++) {
+            if (round == MAX_GENERATION_ROUNDS) {
+                throw new RuntimeException("Не удалось сгенерировать уникальные номера билетов после " + MAX_GENERATION_ROUNDS + " попыток");
+            }
+            int missing = count - codes.size();
+            LongHashSet roundCodes = new LongHashSet(missing);
+            while (roundCodes.size() < missing) {
+                long code = generateRandomCode();
+                if (!codes.contains(code)) {
+                    roundCodes.add(code);
+                }
+            }
+
+            long[] candidates = roundCodes.toArray();
+            List<Long> boxed = new ArrayList<>(candidates.length);
+            for (long code : candidates) {
+                boxed.add(code);
+            }
+            LongHashSet taken = new LongHashSet(16);
+            ticketRepository.findExistingCodes(boxed).forEach(taken::add);
+            for (long code : candidates) {
+                if (!taken.contains(code)) {
+                    codes.add(code);
+                }
             }
-        } while (ticketRepository.existsByTicketNumber(ticketNumber));
+        }
+        return codes;
+    }
 
-        return ticketNumber;
+    /**
+     * Случайный канонический код билета (40 случайных бит, см. TicketNumberCodec)
+     */
+    static long generateRandomCode() {
+        return TicketNumberCodec.fromRandomBits(RANDOM.nextLong());
     }
 
     /**
-     * Генерация случайного кода
+     * Поиск по номеру из запроса с блокировкой строки: номер переводится в код, строка, не являющаяся номером, не найдена
      */
-    private String generateRandomCode() {
-        StringBuilder code = new StringBuilder(TICKET_LENGTH);
-        for (int i = 0; i < TICKET_LENGTH; i++) {
-            code.append(CHARACTERS.charAt(RANDOM.nextInt(CHARACTERS.length())));
-        }
-        return code.toString();
+    private Optional<GoldenTicket> findByNumberForUpdate(String ticketNumber) {
+        long ticketCode = TicketNumberCodec.tryEncode(ticketNumber);
+        return ticketCode == TicketNumberCodec.INVALID ? Optional.empty() : ticketRepository.findByTicketCodeForUpdate(ticketCode);
     }
 
     /**
@@ -117,9 +173,11 @@ public class GoldenTicketService {
      * Получить билет по номеру
      */
     public GoldenTicketResponseDTO getTicketByNumber(String ticketNumber) {
-        GoldenTicket ticket = ticketRepository.findByTicketNumber(ticketNumber)
-                .orElseThrow(() -> new RuntimeException("Билет с номером " + ticketNumber + " не найден"));
-        return toDTO(ticket);
+        GoldenTicketResponseDTO ticket = findCached(ticketNumber);
+        if (ticket == null) {
+            throw new RuntimeException("Билет с номером " + ticketNumber + " не найден");
+        }
+        return ticket;
     }
 
     /**
@@ -128,7 +186,7 @@ public class GoldenTicketService {
     public Map<String, Object> validateTicket(String ticketNumber) {
         Map<String, Object> result = new HashMap<>();
         
-        GoldenTicket ticket = ticketRepository.findByTicketNumber(ticketNumber).orElse(null);
+        GoldenTicketResponseDTO ticket = findCached(ticketNumber);
         
         if (ticket == null) {
             result.put("valid", false);
@@ -136,15 +194,14 @@ public class GoldenTicketService {
         }
 
         // Возвращаем информацию о билете в любом случае
-        GoldenTicketResponseDTO ticketDTO = toDTO(ticket);
-        result.put("ticket", ticketDTO);
+        result.put("ticket", ticket);
 
         // Билет валиден, если он ACTIVE или BOOKED (для перезаписи)
         // USED, EXPIRED, CANCELLED - невалидные статусы
         boolean isValid = ticket.getStatus() == TicketStatus.ACTIVE || 
                          ticket.getStatus() == TicketStatus.BOOKED;
         
-        // Проверяем срок действия (если указан)
+        // Проверяем срок действия (если указан); сравнение с текущим временем, а не со временем кеширования
         if (ticket.getExpiresAt() != null && ticket.getExpiresAt().isBefore(DateTimeUtils.nowUTC())) {
             isValid = false;
         }
@@ -153,14 +210,35 @@ public class GoldenTicketService {
         return result;
     }
 
+    /**
+     * Билет по номеру через ближний кеш (TicketCache); null - не найден
+     */
+    private GoldenTicketResponseDTO findCached(String ticketNumber) {
+        long ticketCode = TicketNumberCodec.tryEncode(ticketNumber);
+        if (ticketCode == TicketNumberCodec.INVALID) {
+            return null;
+        }
+        GoldenTicketResponseDTO cached = ticketCache.get(ticketCode);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = ticketCache.generation(ticketCode);
+        GoldenTicketResponseDTO ticket = ticketRepository.findByTicketCode(ticketCode).map(this::toDTO).orElse(null);
+        if (ticket != null) {
+            ticketCache.put(ticketCode, ticket, generation);
+        }
+        return ticket;
+    }
+
     /**
      * Забронировать билет на экскурсию (или перезаписаться)
      */
     @Transactional
     public GoldenTicketResponseDTO bookTicket(BookTicketRequestDTO request) {
-        // Проверяем билет
-        GoldenTicket ticket = ticketRepository.findByTicketNumber(request.getTicketNumber())
+        // Проверяем билет (строка блокируется до конца транзакции)
+        GoldenTicket ticket = findByNumberForUpdate(request.getTicketNumber())
                 .orElseThrow(() -> new RuntimeException("Билет с номером " + request.getTicketNumber() + " не найден"));
+        ticketCache.invalidate(ticket.getTicketCode());
 
         // Разрешаем бронирование для ACTIVE и BOOKED (перезапись)
         if (ticket.getStatus() != TicketStatus.ACTIVE && ticket.getStatus() != TicketStatus.BOOKED) {
@@ -187,17 +265,11 @@ public class GoldenTicketService {
             throw new RuntimeException("Экскурсия уже началась. Запись невозможна.");
         }
 
-        // Проверяем количество свободных мест
-        long bookedCount = ticketRepository.countByExcursionIdAndStatus(excursion.getId(), TicketStatus.BOOKED);
-        
-        // Если это перезапись на ту же экскурсию, не учитываем текущий билет
-        if (ticket.getExcursion() != null && ticket.getExcursion().getId() != null && 
-            ticket.getExcursion().getId().equals(excursion.getId())) {
-            bookedCount--; // Вычитаем текущий билет
-        }
-        
-        if (excursion.getParticipantsCount() != null && bookedCount >= excursion.getParticipantsCount()) {
-            throw new RuntimeException("На экскурсии нет свободных мест");
+        // Занимаем место; перезапись на ту же экскурсию мест не меняет
+        Long previousExcursionId = ticket.getStatus() == TicketStatus.BOOKED && ticket.getExcursion() != null
+                ? ticket.getExcursion().getId() : null;
+        if (!excursion.getId().equals(previousExcursionId)) {
+            moveSeat(previousExcursionId, excursion.getId());
         }
 
         // Бронируем билет (или перезаписываем)
@@ -209,17 +281,40 @@ public class GoldenTicketService {
         ticket.setHolderPhone(request.getHolderPhone());
 
         ticket = ticketRepository.save(ticket);
+        transitionDeadlines.schedule(TransitionDeadlines.Kind.STARTED_EXCURSION_TICKETS, excursion.getStartTime());
 
         return toDTO(ticket);
     }
 
+    /**
+     * Переносит место билета с экскурсии from (null - билет не был забронирован) на экскурсию to.
+     * Счетчики обновляются в порядке ID экскурсий, чтобы встречные перезаписи не взаимоблокировались;
+     * при нехватке мест освобождение откатывается вместе с транзакцией.
+     */
+    private void moveSeat(Long from, Long to) {
+        if (from != null && from < to) {
+            seatsRepository.release(from);
+        }
+        if (seatsRepository.tryTake(to) == 0) {
+            // Счетчика могло еще не быть: создаем по фактическим бронированиям и пробуем еще раз
+            seatsRepository.ensureCounter(to);
+            if (seatsRepository.tryTake(to) == 0) {
+                throw new RuntimeException("На экскурсии нет свободных мест");
+            }
+        }
+        if (from != null && from > to) {
+            seatsRepository.release(from);
+        }
+    }
+
     /**
      * Отменить бронирование билета
      */
     @Transactional
     public GoldenTicketResponseDTO cancelBooking(String ticketNumber) {
-        GoldenTicket ticket = ticketRepository.findByTicketNumber(ticketNumber)
+        GoldenTicket ticket = findByNumberForUpdate(ticketNumber)
                 .orElseThrow(() -> new RuntimeException("Билет не найден"));
+        ticketCache.invalidate(ticket.getTicketCode());
 
         if (ticket.getStatus() != TicketStatus.BOOKED) {
             throw new RuntimeException("Билет не забронирован");
@@ -230,6 +325,10 @@ public class GoldenTicketService {
             throw new RuntimeException("Экскурсия уже началась. Отмена невозможна.");
         }
 
+        if (ticket.getExcursion() != null) {
+            seatsRepository.release(ticket.getExcursion().getId());
+        }
+
         // Возвращаем билет в статус ACTIVE
         ticket.setExcursion(null);
         ticket.setStatus(TicketStatus.ACTIVE);
@@ -248,49 +347,71 @@ public class GoldenTicketService {
      */
     @Transactional
     public void deleteTicket(Long id) {
-        GoldenTicket ticket = ticketRepository.findById(id)
+        GoldenTicket ticket = ticketRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new RuntimeException("Билет не найден"));
-        
+        ticketCache.invalidate(ticket.getTicketCode());
+
+        if (ticket.getStatus() == TicketStatus.BOOKED && ticket.getExcursion() != null) {
+            seatsRepository.release(ticket.getExcursion().getId());
+        }
         ticketRepository.delete(ticket);
     }
 
     /**
      * Деактивировать билеты для начавшихся экскурсий (фоновая задача)
      */
-    @Transactional
     public int deactivateTicketsForStartedExcursions() {
         LocalDateTime now = DateTimeUtils.nowUTC();
-        List<GoldenTicket> ticketsToDeactivate = ticketRepository.findTicketsForStartedExcursions(now);
-
-        for (GoldenTicket ticket : ticketsToDeactivate) {
-            ticket.setStatus(TicketStatus.USED);
-            ticket.setUsedAt(now);
-        }
-
-        if (!ticketsToDeactivate.isEmpty()) {
-            ticketRepository.saveAll(ticketsToDeactivate);
-        }
-
-        return ticketsToDeactivate.size();
+        return deactivateInChunks("started", limit -> batchRepository.useStartedChunk(now, limit));
     }
 
     /**
      * Деактивировать истекшие билеты (фоновая задача)
      */
-    @Transactional
     public int deactivateExpiredTickets() {
         LocalDateTime now = DateTimeUtils.nowUTC();
-        List<GoldenTicket> expiredTickets = ticketRepository.findExpiredTickets(now);
-
-        for (GoldenTicket ticket : expiredTickets) {
-            ticket.setStatus(TicketStatus.EXPIRED);
-        }
+        return deactivateInChunks("expired", limit -> batchRepository.expireChunk(now, limit));
+    }
 
-        if (!expiredTickets.isEmpty()) {
-            ticketRepository.saveAll(expiredTickets);
+    /**
+     * Массовая смена статуса порциями: каждая порция - один UPDATE не больше чем на deactivationChunkSize
+     * строк в отдельной транзакции, без загрузки билетов в контекст персистентности. Коды измененных
+     * билетов сбрасываются в TicketCache. Итог публикуется метриками tickets.deactivation.rows
+     * (счетчик строк, скорость - rate()), tickets.deactivation.duration и tickets.deactivation.rate
+     * (строк в секунду за последний запуск, 0 - если запуск ничего не изменил) с тегом job.
+     */
+    private int deactivateInChunks(String job, IntFunction<List<Long>> chunk) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long startedAt = System.nanoTime();
+        int total = 0;
+        while (true) {
+            List<Long> codes = transactionTemplate.execute(status -> {
+                List<Long> changed = chunk.apply(deactivationChunkSize);
+                ticketCache.invalidate(changed);
+                return changed;
+            });
+            total += codes.size();
+            if (codes.size() < deactivationChunkSize) {
+                break;
+            }
         }
+        recordDeactivation(job, total, System.nanoTime() - startedAt);
+        return total;
+    }
 
-        return expiredTickets.size();
+    private void recordDeactivation(String job, int rows, long nanos) {
+        meterRegistry.counter("tickets.deactivation.rows", "job", job).increment(rows);
+        meterRegistry.timer("tickets.deactivation.duration", "job", job).record(nanos, TimeUnit.NANOSECONDS);
+        AtomicLong rate = deactivationRates.computeIfAbsent(job, key -> {
+            AtomicLong holder = new AtomicLong();
+            Gauge.builder("tickets.deactivation.rate", holder, AtomicLong::get)
+                    .tag("job", key)
+                    .description("Строк в секунду за последний запуск деактивации билетов")
+                    .register(meterRegistry);
+            return holder;
+        });
+        // Запуск без изменений обнуляет скорость, иначе метрика показывала бы давний запуск
+        rate.set(rows > 0 ? Math.round(rows / Math.max(nanos / 1_000_000_000.0, 0.001)) : 0);
     }
 
     /**
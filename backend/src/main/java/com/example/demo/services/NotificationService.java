@@ -4,16 +4,21 @@ import com.example.demo.dto.request.NotificationRequestDTO;
 import com.example.demo.dto.response.NotificationResponseDTO;
 import com.example.demo.models.Notification;
 import com.example.demo.models.NotificationType;
+import com.example.demo.models.Task;
 import com.example.demo.models.User;
+import com.example.demo.repositories.NotificationBatchRepository;
 import com.example.demo.repositories.NotificationRepository;
 import com.example.demo.repositories.UserRepository;
+import com.example.demo.utils.DateTimeUtils;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -21,10 +26,13 @@ import java.util.stream.Collectors;
 public class NotificationService {
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
+    private final NotificationBatchRepository notificationBatchRepository;
 
-    public NotificationService(NotificationRepository notificationRepository, UserRepository userRepository) {
+    public NotificationService(NotificationRepository notificationRepository, UserRepository userRepository,
+            NotificationBatchRepository notificationBatchRepository) {
         this.notificationRepository = notificationRepository;
         this.userRepository = userRepository;
+        this.notificationBatchRepository = notificationBatchRepository;
     }
 
     private NotificationResponseDTO toDTO(Notification notification) {
@@ -106,6 +114,26 @@ public class NotificationService {
 
     // Метод для создания уведомления о новой задаче
     public void createTaskAssignedNotification(User user, Long taskId, String taskName) {
+        notificationRepository.save(buildTaskAssignedNotification(user, taskId, taskName));
+    }
+
+    /**
+     * Пакетное создание уведомлений о назначении задач (JDBC batch вместо save на каждую задачу)
+     * @param assignments задача (ID, название) -> назначенный пользователь
+     */
+    public void createTaskAssignedNotifications(Map<Task, User> assignments) {
+        List<Notification> notifications = new ArrayList<>(assignments.size());
+        for (Map.Entry<Task, User> entry : assignments.entrySet()) {
+            Notification notification = buildTaskAssignedNotification(
+                    entry.getValue(), entry.getKey().getId(), entry.getKey().getName());
+            notification.setIsRead(false);
+            notification.setCreatedAt(DateTimeUtils.nowUTC());
+            notifications.add(notification);
+        }
+        notificationBatchRepository.insertAll(notifications);
+    }
+
+    private Notification buildTaskAssignedNotification(User user, Long taskId, String taskName) {
         Notification notification = new Notification();
         notification.setUser(user);
         notification.setTitle("Новая задача назначена");
@@ -113,7 +141,7 @@ public class NotificationService {
         notification.setType(NotificationType.TASK_ASSIGNED);
         notification.setRelatedEntityId(taskId);
         notification.setRelatedEntityType("TASK");
-        notificationRepository.save(notification);
+        return notification;
     }
 
     // Метод для создания уведомления об обновлении задачи
@@ -0,0 +1,99 @@
+package com.example.demo.services;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Интервалы занятости одного цеха (или гида), отсортированные по времени начала.
+ *
+ * Вместе с интервалами хранится максимальная длительность: пересекающиеся с [start, end) интервалы
+ * начинаются не раньше start - maxDuration, поэтому запрос занятости - поиск по диапазону ключей
+ * за O(log n + k). Общая структура для индекса занятости (WorkshopOccupancyIndex) и снимка
+ * окна планирования (WorkshopOccupancySnapshot); безопасна для параллельного чтения и изменения.
+ */
+class OccupancyTimeline {
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final ConcurrentSkipListSet<Interval> intervals = new ConcurrentSkipListSet<>(Interval.ORDER);
+    private volatile int maxDurationMinutes;
+
+    void add(Interval interval) {
+        intervals.add(interval);
+        int duration = (int) Duration.between(interval.start, interval.end).toMinutes();
+        // Максимум только растет: после удаления длинного интервала поиск захватывает чуть больше ключей
+        synchronized (this) {
+            if (duration > maxDurationMinutes) {
+                maxDurationMinutes = duration;
+            }
+        }
+    }
+
+    void remove(Interval interval) {
+        intervals.remove(interval);
+    }
+
+    /**
+     * Суммарное количество участников интервалов, пересекающихся с периодом [start, end)
+     * @param excludeExcursionId экскурсия, которую не учитываем (при редактировании), может быть null
+     */
+    int occupancy(LocalDateTime start, LocalDateTime end, Long excludeExcursionId) {
+        Interval from = Interval.probe(start.minusMinutes(maxDurationMinutes));
+        Interval to = Interval.probe(end);
+
+        int total = 0;
+        for (Interval interval : intervals.subSet(from, true, to, false)) {
+            if (interval.end.isAfter(start) && !Objects.equals(interval.excursionId, excludeExcursionId)) {
+                total += interval.participants;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Интервал посещения: ключ (цех или гид), экскурсия, [start, end) и количество участников.
+     * Порядковый номер различает интервалы с одинаковым временем начала.
+     */
+    static final class Interval {
+        static final Comparator<Interval> ORDER = Comparator
+                .comparing((Interval interval) -> interval.start)
+                .thenComparingLong(interval -> interval.seq);
+
+        final Long key;
+        final Long excursionId;
+        final LocalDateTime start;
+        final LocalDateTime end;
+        final int participants;
+        private final long seq;
+
+        Interval(Long key, Long excursionId, LocalDateTime start, LocalDateTime end, int participants) {
+            this(key, excursionId, start, end, participants, SEQUENCE.incrementAndGet());
+        }
+
+        private Interval(Long key, Long excursionId, LocalDateTime start, LocalDateTime end, int participants, long seq) {
+            this.key = key;
+            this.excursionId = excursionId;
+            this.start = start;
+            this.end = end;
+            this.participants = participants;
+            this.seq = seq;
+        }
+
+        /**
+         * @param row строка [key, excursionId, startTime, durationMinutes, participantsCount]
+         */
+        static Interval fromRow(Object[] row) {
+            LocalDateTime start = (LocalDateTime) row[2];
+            return new Interval((Long) row[0], (Long) row[1], start, start.plusMinutes((Integer) row[3]),
+                    row[4] != null ? (Integer) row[4] : 0);
+        }
+
+        // Граница поиска: меньше любого реального интервала с тем же временем начала
+        static Interval probe(LocalDateTime time) {
+            return new Interval(null, null, time, time, 0, Long.MIN_VALUE);
+        }
+    }
+}
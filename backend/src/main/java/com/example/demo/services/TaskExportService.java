@@ -0,0 +1,132 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.request.TaskFilterRequestDTO;
+import com.example.demo.dto.response.TaskResponseDTO;
+import com.example.demo.dto.short_db.UserShortDTO;
+import com.example.demo.models.Task;
+import com.example.demo.repositories.TaskRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Потоковая выгрузка задач (NDJSON / CSV) с постоянным расходом памяти.
+ * Результат читается серверным курсором (fetch size) сразу в модели чтения TaskResponseDTO
+ * (без сущностей в контексте персистентности), строки пишутся в ответ по мере чтения.
+ */
+@Service
+public class TaskExportService {
+    private static final String CSV_HEADER = "id,name,description,status,userId,username,createdAt,completedAt";
+
+    private final TaskRepository taskRepository;
+    private final TaskService taskService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int fetchSize;
+
+    public TaskExportService(TaskRepository taskRepository, TaskService taskService, ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${tasks.export.fetch-size:500}") int fetchSize) {
+        this.taskRepository = taskRepository;
+        this.taskService = taskService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Выгрузка в формате NDJSON: одна задача (в том же виде, что и GET /api/tasks) на строку
+     * @param filter фильтры или null для всех задач
+     */
+    public void exportNdjson(TaskFilterRequestDTO filter, OutputStream out) {
+        ObjectWriter writer = objectMapper.writerFor(TaskResponseDTO.class);
+        streamTasks(filter, task -> {
+            out.write(writer.writeValueAsBytes(task));
+            out.write('\n');
+        });
+    }
+
+    /**
+     * Выгрузка в формате CSV (RFC 4180)
+     * @param filter фильтры или null для всех задач
+     */
+    public void exportCsv(TaskFilterRequestDTO filter, OutputStream out) {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+
+        try {
+            writer.write(CSV_HEADER);
+            writer.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        streamTasks(filter, task -> {
+            UserShortDTO user = task.getUser();
+            writer.write(String.join(",",
+                    csv(task.getId()),
+                    csv(task.getName()),
+                    csv(task.getDescription()),
+                    csv(task.getStatus()),
+                    csv(user != null ? user.getId() : null),
+                    csv(user != null ? user.getUsername() : null),
+                    csv(task.getCreatedAt()),
+                    csv(task.getCompletedAt())));
+            writer.write("\r\n");
+        });
+
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Читает задачи (вместе с исполнителем, одним запросом) в порядке id и передает их по одной
+     */
+    private void streamTasks(TaskFilterRequestDTO filter, TaskWriter taskWriter) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Specification<Task> spec = filter != null ? taskService.toSpecification(filter) : null;
+            try (Stream<TaskResponseDTO> tasks = taskRepository.streamResponses(spec, Sort.by("id"), fetchSize)) {
+                Iterator<TaskResponseDTO> iterator = tasks.iterator();
+                while (iterator.hasNext()) {
+                    taskWriter.write(iterator.next());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
+    @FunctionalInterface
+    private interface TaskWriter {
+        void write(TaskResponseDTO task) throws IOException;
+    }
+}
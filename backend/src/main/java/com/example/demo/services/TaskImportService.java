@@ -0,0 +1,306 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.request.TaskRequestDTO;
+import com.example.demo.dto.response.TaskImportResultDTO;
+import com.example.demo.models.Task;
+import com.example.demo.models.TaskStatus;
+import com.example.demo.models.User;
+import com.example.demo.repositories.TaskRepository;
+import com.example.demo.repositories.UserRepository;
+import com.example.demo.utils.CsvReader;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Массовый импорт задач из JSON-массива или CSV.
+ *
+ * Вход читается потоково и обрабатывается пачками по chunkSize строк: пользователи пачки загружаются
+ * одним запросом, их загруженность - одним GROUP BY запросом, лимит MAX_ALLOWED_TASKS проверяется в памяти,
+ * задачи и уведомления пишутся JDBC-пачками. Каждая пачка - отдельная транзакция; ошибки собираются
+ * по строкам и не прерывают импорт.
+ */
+@Service
+public class TaskImportService {
+    private static final List<String> CSV_COLUMNS = List.of("name", "description", "userId", "force");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TaskRepository taskRepository;
+    private final UserRepository userRepository;
+    private final NotificationService notificationService;
+    private final TaskLoadRegistry taskLoadRegistry;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public TaskImportService(TaskRepository taskRepository, UserRepository userRepository,
+            NotificationService notificationService, TaskLoadRegistry taskLoadRegistry, ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${tasks.import.chunk-size:1000}") int chunkSize) {
+        this.taskRepository = taskRepository;
+        this.userRepository = userRepository;
+        this.notificationService = notificationService;
+        this.taskLoadRegistry = taskLoadRegistry;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Импорт JSON-массива объектов в формате TaskRequestDTO
+     * @throws IllegalArgumentException если тело не является JSON-массивом
+     */
+    public TaskImportResultDTO importJson(InputStream in) throws IOException {
+        ImportSession session = new ImportSession();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Ожидается JSON-массив задач");
+            }
+            int row = 0;
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == null) {
+                        throw new JsonParseException(parser, "Неожиданный конец JSON-массива");
+                    }
+                    row++;
+                    JsonNode node = parser.readValueAsTree();
+                    try {
+                        session.add(row, objectMapper.treeToValue(node, TaskRequestDTO.class));
+                    } catch (JsonProcessingException e) {
+                        session.reject(row, "Некорректная запись: " + e.getOriginalMessage());
+                    } catch (IllegalArgumentException e) {
+                        session.reject(row, "Некорректная запись: " + e.getMessage());
+                    }
+                }
+            } catch (JsonParseException e) {
+                // Дальше читать нельзя: уже обработанные строки остаются импортированными
+                session.reject(row + 1, "Некорректный JSON: " + e.getOriginalMessage());
+            }
+        }
+
+        return session.finish();
+    }
+
+    /**
+     * Импорт CSV с заголовком; поддерживаемые колонки: name, description, userId, force
+     * @throws IllegalArgumentException если нет заголовка или колонки name
+     */
+    public TaskImportResultDTO importCsv(InputStream in) throws IOException {
+        ImportSession session = new ImportSession();
+        CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+
+        List<String> header = reader.readRecord();
+        if (header == null || !header.contains("name")) {
+            throw new IllegalArgumentException("CSV должен начинаться с заголовка с колонкой name");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String column = header.get(i).trim();
+            if (CSV_COLUMNS.contains(column)) {
+                columns.put(column, i);
+            }
+        }
+
+        int row = 0;
+        List<String> record;
+        while ((record = reader.readRecord()) != null) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            row++;
+            try {
+                session.add(row, toRequest(record, columns));
+            } catch (IllegalArgumentException e) {
+                session.reject(row, e.getMessage());
+            }
+        }
+
+        return session.finish();
+    }
+
+    private static TaskRequestDTO toRequest(List<String> record, Map<String, Integer> columns) {
+        TaskRequestDTO dto = new TaskRequestDTO();
+        dto.setName(column(record, columns, "name"));
+        dto.setDescription(column(record, columns, "description"));
+
+        String userId = column(record, columns, "userId");
+        if (userId != null) {
+            try {
+                dto.setUserId(Long.parseLong(userId));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Некорректный userId: " + userId);
+            }
+        }
+        dto.setForce(Boolean.parseBoolean(column(record, columns, "force")));
+        return dto;
+    }
+
+    private static String column(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Состояние одного импорта: текущая пачка строк, известные пользователи и их загруженность
+     */
+    private class ImportSession {
+        private final TaskImportResultDTO result = new TaskImportResultDTO();
+        private final Map<Integer, TaskRequestDTO> chunk = new LinkedHashMap<>();
+        private final Map<Long, User> users = new HashMap<>();
+        private final Set<Long> missingUsers = new HashSet<>();
+        private final Map<Long, Long> activeTasks = new HashMap<>();
+
+        void add(int row, TaskRequestDTO dto) {
+            result.setTotalRows(row);
+            chunk.put(row, dto);
+            if (chunk.size() >= chunkSize) {
+                flushChunk();
+            }
+        }
+
+        void reject(int row, String message) {
+            result.setTotalRows(row);
+            result.addError(row, message);
+        }
+
+        TaskImportResultDTO finish() {
+            flushChunk();
+            result.getErrors().sort(Comparator.comparingInt(TaskImportResultDTO.RowError::getRow));
+            return result;
+        }
+
+        private void flushChunk() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            Map<Integer, TaskRequestDTO> rows = new LinkedHashMap<>(chunk);
+            chunk.clear();
+
+            Map<Long, Long> loadsBefore = new HashMap<>(activeTasks);
+            try {
+                List<TaskImportResultDTO.RowError> rowErrors = new ArrayList<>();
+                int imported = transactionTemplate.execute(status -> importChunk(rows, rowErrors));
+                result.setImportedCount(result.getImportedCount() + imported);
+                rowErrors.forEach(error -> result.addError(error.getRow(), error.getMessage()));
+            } catch (RuntimeException e) {
+                // Пачка откатилась целиком: возвращаем счетчики загруженности и помечаем все ее строки;
+                // пользователи, загруженные в этой пачке, будут перечитаны вместе с загруженностью
+                activeTasks.clear();
+                activeTasks.putAll(loadsBefore);
+                users.keySet().removeIf(userId -> !loadsBefore.containsKey(userId));
+                System.err.println("[TaskImport Error] " + e.getMessage());
+                rows.keySet().forEach(row -> result.addError(row, "Ошибка сохранения пачки: " + e.getMessage()));
+            }
+        }
+
+        private int importChunk(Map<Integer, TaskRequestDTO> rows, List<TaskImportResultDTO.RowError> rowErrors) {
+            loadUsers(rows.values());
+
+            Map<Task, User> assignments = new LinkedHashMap<>();
+            Map<Long, Integer> assignmentsPerUser = new HashMap<>();
+            List<Task> tasks = new ArrayList<>(rows.size());
+
+            for (Map.Entry<Integer, TaskRequestDTO> entry : rows.entrySet()) {
+                TaskRequestDTO dto = entry.getValue();
+                if (dto.getName() == null || dto.getName().isBlank()) {
+                    rowErrors.add(new TaskImportResultDTO.RowError(entry.getKey(), "Не указано название задачи"));
+                    continue;
+                }
+
+                User user = null;
+                if (dto.getUserId() != null) {
+                    user = users.get(dto.getUserId());
+                    if (user == null) {
+                        rowErrors.add(new TaskImportResultDTO.RowError(entry.getKey(),
+                                "Пользователь " + dto.getUserId() + " не найден"));
+                        continue;
+                    }
+                    long load = activeTasks.getOrDefault(user.getId(), 0L);
+                    if (!dto.isForce() && load >= TaskService.MAX_ALLOWED_TASKS) {
+                        rowErrors.add(new TaskImportResultDTO.RowError(entry.getKey(),
+                                "Пользователь " + user.getUsername() + " достиг лимита задач (" +
+                                TaskService.MAX_ALLOWED_TASKS + ")"));
+                        continue;
+                    }
+                    activeTasks.put(user.getId(), load + 1);
+                }
+
+                // Статус как в TaskService.createTask: зависит от наличия исполнителя
+                Task task = new Task();
+                task.setName(dto.getName());
+                task.setDescription(dto.getDescription());
+                task.setStatus(user != null ? TaskStatus.ASSIGNED : TaskStatus.NOT_ASSIGNED);
+                task.setUser(user);
+                tasks.add(task);
+
+                if (user != null) {
+                    assignments.put(task, user);
+                    assignmentsPerUser.merge(user.getId(), 1, Integer::sum);
+                }
+            }
+
+            taskRepository.saveAll(tasks);
+            entityManager.flush();
+
+            notificationService.createTaskAssignedNotifications(assignments);
+            taskLoadRegistry.recordAssignments(assignmentsPerUser);
+
+            entityManager.clear();
+            return tasks.size();
+        }
+
+        /**
+         * Загружает пользователей пачки, которых еще не видели, и их загруженность - по одному запросу
+         */
+        private void loadUsers(Collection<TaskRequestDTO> rows) {
+            Set<Long> newIds = new HashSet<>();
+            for (TaskRequestDTO dto : rows) {
+                Long userId = dto.getUserId();
+                if (userId != null && !users.containsKey(userId) && !missingUsers.contains(userId)) {
+                    newIds.add(userId);
+                }
+            }
+            if (newIds.isEmpty()) {
+                return;
+            }
+
+            for (User user : userRepository.findAllById(newIds)) {
+                users.put(user.getId(), user);
+            }
+            for (Long userId : newIds) {
+                if (!users.containsKey(userId)) {
+                    missingUsers.add(userId);
+                }
+            }
+            for (Object[] row : taskRepository.countTasksPerUserByStatusNot(newIds, TaskStatus.COMPLETED)) {
+                activeTasks.put((Long) row[0], (Long) row[1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.demo.services;
+
+import com.example.demo.models.TaskStatus;
+import com.example.demo.repositories.TaskRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory реестр загруженности рабочих: количество незавершенных задач по ID пользователя.
+ *
+ * Счетчики - AtomicInteger на каждого пользователя в ConcurrentHashMap (блокировки по сегментам
+ * таблицы, без общей блокировки). Реестр прогревается при старте одним GROUP BY запросом,
+ * обновляется TaskService после коммита каждого изменения статуса/исполнителя и периодически
+ * сверяется с БД; расхождение публикуется метрикой tasks.load.registry.drift.
+ *
+ * Проверка лимита отвечает из памяти; к БД обращаемся только когда счетчик уже на лимите,
+ * чтобы не отказать рабочему из-за устаревшего значения.
+ *
+ * Сверка не блокирует коммиты. Каждая сверка начинает новую эпоху; коммит отмечает затронутых
+ * пользователей как коммитящихся (от beforeCommit до afterCompletion) и проставляет им текущую эпоху.
+ * После GROUP BY сверка исправляет только пользователей, у которых нет коммитов в процессе и которых
+ * не трогали с начала ее эпохи, причем через compareAndSet: если счетчик изменился между чтением
+ * и записью, значение из БД отбрасывается. Пропущенные пользователи исправляются следующей сверкой.
+ *
+ * Реестр локален для экземпляра приложения: изменения других экземпляров видны после сверки,
+ * поэтому реестр - подсказка. Взятие задачи рабочим (TaskService.assignTaskToMe) проверяет лимит
+ * в БД условным UPDATE; проверка при создании и изменении задачи администратором может
+ * пропустить превышение, внесенное другим экземпляром до ближайшей сверки.
+ */
+@Component
+public class TaskLoadRegistry {
+    private final TaskRepository taskRepository;
+    private final ConcurrentHashMap<Long, UserLoad> activeTasks = new ConcurrentHashMap<>();
+    private final AtomicLong lastDrift = new AtomicLong();
+    private final AtomicLong epoch = new AtomicLong();
+
+    public TaskLoadRegistry(TaskRepository taskRepository, MeterRegistry meterRegistry) {
+        this.taskRepository = taskRepository;
+
+        Gauge.builder("tasks.load.registry.drift", lastDrift, AtomicLong::get)
+                .description("Суммарное расхождение счетчиков с БД при последней сверке")
+                .register(meterRegistry);
+        Gauge.builder("tasks.load.registry.users", activeTasks, Map::size)
+                .description("Количество пользователей в реестре загруженности")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Прогрев реестра при старте приложения
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        resync();
+        System.out.println("[TaskLoadRegistry] Загружена загруженность " + activeTasks.size() + " пользователей");
+    }
+
+    /**
+     * Периодическая сверка с БД
+     */
+    @Scheduled(fixedDelayString = "${tasks.load-registry.reconcile-interval-ms:300000}",
+               initialDelayString = "${tasks.load-registry.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        try {
+            long drift = resync();
+            if (drift > 0) {
+                System.out.println("[TaskLoadRegistry] Расхождение с БД при сверке: " + drift);
+            }
+        } catch (Exception e) {
+            System.err.println("[TaskLoadRegistry Error] " + e.getMessage());
+        }
+    }
+
+    /**
+     * Заменяет значения счетчиков актуальными данными из БД.
+     * Вызывается вне транзакции; коммиты изменений задач сверку не ждут, а пользователи,
+     * изменившиеся во время сверки, сохраняют свои счетчики до следующей сверки.
+     * @return суммарное расхождение исправленных счетчиков
+     */
+    public synchronized long resync() {
+        long syncEpoch = epoch.incrementAndGet();
+        Map<Long, Long> counts = loadFromDatabase();
+
+        long drift = 0;
+        Set<Long> userIds = new HashSet<>(activeTasks.keySet());
+        userIds.addAll(counts.keySet());
+
+        for (Long userId : userIds) {
+            int actual = counts.getOrDefault(userId, 0L).intValue();
+            UserLoad load = loadOf(userId);
+            int previous = load.active.get();
+            // Порядок чтения важен: коммит снимает отметку committing только после того, как проставил эпоху
+            if (load.committing.get() > 0 || load.touchedEpoch >= syncEpoch) {
+                continue;
+            }
+            if (load.active.compareAndSet(previous, actual)) {
+                drift += Math.abs(previous - actual);
+            }
+        }
+
+        lastDrift.set(drift);
+        return drift;
+    }
+
+    public int getActiveTasks(Long userId) {
+        UserLoad load = activeTasks.get(userId);
+        return load != null ? Math.max(load.active.get(), 0) : 0;
+    }
+
+    /**
+     * Достиг ли пользователь лимита незавершенных задач.
+     * Ниже лимита - ответ из памяти; на лимите значение перепроверяется в БД
+     * (счетчик при этом не меняется - его исправит сверка).
+     */
+    public boolean isAtLimit(Long userId, int limit) {
+        if (getActiveTasks(userId) < limit) {
+            return false;
+        }
+        return taskRepository.countByUserIdAndStatusNot(userId, TaskStatus.COMPLETED) >= limit;
+    }
+
+    /**
+     * Резервирует место под новую задачу пользователя в текущей транзакции без блокировок:
+     * счетчик увеличивается compareAndSet, только пока он ниже limit, поэтому параллельные
+     * захваты одного рабочего на этом экземпляре не превысят лимит. Если счетчик на лимите и других
+     * коммитов пользователя в процессе нет, значение перепроверяется в БД, как в isAtLimit
+     * (незакоммиченные резервы COUNT в БД не видит, поэтому при них отказываем сразу).
+     * Резерв снимается после завершения транзакции, если она откатилась или резерв не подтвержден.
+     * @return резерв или null, если пользователь достиг лимита
+     */
+    public Reservation reserve(Long userId, int limit) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Резервирование места возможно только внутри транзакции");
+        }
+        Set<Long> userIds = Set.of(userId);
+        UserLoad load = loadOf(userId);
+        beginCommit(userIds);
+        boolean reserved = false;
+        try {
+            int current;
+            do {
+                current = load.active.get();
+                if (current >= limit && (load.committing.get() > 1
+                        || taskRepository.countByUserIdAndStatusNot(userId, TaskStatus.COMPLETED) >= limit)) {
+                    return null;
+                }
+            } while (!load.active.compareAndSet(current, current + 1));
+            reserved = true;
+        } finally {
+            if (!reserved) {
+                endCommit(userIds);
+            }
+        }
+
+        Reservation reservation = new Reservation();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED || !reservation.confirmed) {
+                    decrement(userId);
+                }
+                endCommit(userIds);
+            }
+        });
+        return reservation;
+    }
+
+    /**
+     * Учитывает переход задачи (исполнитель/статус) после коммита текущей транзакции
+     */
+    public void recordTransition(Long previousUserId, TaskStatus previousStatus, Long userId, TaskStatus status) {
+        boolean wasActive = isActive(previousUserId, previousStatus);
+        boolean isActive = isActive(userId, status);
+
+        if (wasActive && isActive && Objects.equals(previousUserId, userId)) {
+            return;
+        }
+
+        Set<Long> touched = new HashSet<>();
+        if (wasActive) {
+            touched.add(previousUserId);
+        }
+        if (isActive) {
+            touched.add(userId);
+        }
+        afterCommit(touched, () -> {
+            if (wasActive) {
+                decrement(previousUserId);
+            }
+            if (isActive) {
+                loadOf(userId).active.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Учитывает пакет новых назначений после коммита текущей транзакции
+     * @param assignmentsPerUser userId -> количество назначенных задач
+     */
+    public void recordAssignments(Map<Long, Integer> assignmentsPerUser) {
+        Map<Long, Integer> snapshot = new HashMap<>(assignmentsPerUser);
+        afterCommit(snapshot.keySet(),
+                () -> snapshot.forEach((userId, count) -> loadOf(userId).active.addAndGet(count)));
+    }
+
+    private Map<Long, Long> loadFromDatabase() {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : taskRepository.countTasksPerUserByStatusNot(TaskStatus.COMPLETED)) {
+            counts.put((Long) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    private void decrement(Long userId) {
+        loadOf(userId).active.updateAndGet(value -> value > 0 ? value - 1 : 0);
+    }
+
+    private UserLoad loadOf(Long userId) {
+        return activeTasks.computeIfAbsent(userId, id -> new UserLoad());
+    }
+
+    private static boolean isActive(Long userId, TaskStatus status) {
+        return userId != null && status != TaskStatus.COMPLETED;
+    }
+
+    /**
+     * Применяет изменение счетчиков после коммита. От начала коммита до применения пользователи
+     * помечены как коммитящиеся, после применения им проставляется текущая эпоха, поэтому
+     * идущая сверка не перезапишет их значением, прочитанным до или во время коммита
+     */
+    private void afterCommit(Set<Long> userIds, Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private boolean committing;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    beginCommit(userIds);
+                    committing = true;
+                }
+
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (committing) {
+                        committing = false;
+                        endCommit(userIds);
+                    }
+                }
+            });
+        } else {
+            beginCommit(userIds);
+            try {
+                action.run();
+            } finally {
+                endCommit(userIds);
+            }
+        }
+    }
+
+    private void beginCommit(Set<Long> userIds) {
+        userIds.forEach(userId -> loadOf(userId).committing.incrementAndGet());
+    }
+
+    private void endCommit(Set<Long> userIds) {
+        long current = epoch.get();
+        for (Long userId : userIds) {
+            UserLoad load = loadOf(userId);
+            load.touchedEpoch = current;
+            load.committing.decrementAndGet();
+        }
+    }
+
+    /**
+     * Место, зарезервированное reserve; подтверждается, когда задача действительно назначена
+     */
+    public static final class Reservation {
+        private volatile boolean confirmed;
+
+        public void confirm() {
+            confirmed = true;
+        }
+    }
+
+    /**
+     * Счетчик пользователя: незавершенные задачи, коммиты в процессе и эпоха последнего изменения
+     */
+    private static final class UserLoad {
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger committing = new AtomicInteger();
+        private volatile long touchedEpoch;
+    }
+}
@@ -2,16 +2,25 @@ package com.example.demo.services;
 
 import com.example.demo.dto.request.TaskFilterRequestDTO;
 import com.example.demo.dto.request.TaskRequestDTO;
+import com.example.demo.dto.response.CursorPageDTO;
+import com.example.demo.dto.response.TaskResponseDTO;
+import com.example.demo.exceptions.TaskAlreadyClaimedException;
 import com.example.demo.exceptions.WorkerOverloadedException;
 import com.example.demo.models.*;
 import com.example.demo.models.specifications.TaskSpecification;
+import com.example.demo.repositories.TaskBatchRepository;
 import com.example.demo.repositories.TaskRepository;
 import com.example.demo.repositories.UserRepository;
 import com.example.demo.utils.DateTimeUtils;
+import com.example.demo.utils.KeysetCursor;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,45 +29,110 @@ import java.util.*;
 
 @Service
 public class TaskService {
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private final TaskRepository taskRepository;
     private final UserRepository userRepository;
     private final NotificationService notificationService;
+    private final TaskBatchRepository taskBatchRepository;
+    private final TaskLoadRegistry taskLoadRegistry;
     public static final int MAX_ALLOWED_TASKS = 5;
+    public static final int MAX_PAGE_SIZE = 200;
 
-    public TaskService(TaskRepository taskRepository, UserRepository userRepository, NotificationService notificationService) {
+    public TaskService(TaskRepository taskRepository, UserRepository userRepository, NotificationService notificationService,
+            TaskBatchRepository taskBatchRepository, TaskLoadRegistry taskLoadRegistry) {
         this.taskRepository = taskRepository;
         this.userRepository = userRepository;
         this.notificationService = notificationService;
+        this.taskBatchRepository = taskBatchRepository;
+        this.taskLoadRegistry = taskLoadRegistry;
+    }
+
+    public List<TaskResponseDTO> getAllTasks() {
+        return taskRepository.findResponses(null, Sort.unsorted(), 0);
+    }
+
+    public List<TaskResponseDTO> getUnassignedTasks() {
+        return taskRepository.findResponses(TaskSpecification.unassigned(), Sort.unsorted(), 0);
     }
 
-    public Iterable<Task> getAllTasks() {
-        return taskRepository.findAll();
+    /**
+     * Следующая порция ID нераспределенных задач (keyset-пагинация, без загрузки сущностей)
+     */
+    public List<Long> findUnassignedTaskIdsAfter(long afterId, int limit) {
+        return taskRepository.findUnassignedIdsAfter(TaskStatus.NOT_ASSIGNED, afterId, PageRequest.of(0, limit));
     }
 
     public Optional<Task> getTaskById(Long id) {
         return taskRepository.findById(id);
     }
 
-    public Page<Task> getAllTasksPaged(int page, int size) {
+    public Page<TaskResponseDTO> getAllTasksPaged(int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        return taskRepository.findAll(pageable);
+        return taskRepository.findResponses(null, pageable);
     }
 
-    public Page<Task> filterTasksPaged(TaskFilterRequestDTO dto, int page, int size) {
-        Specification<Task> spec = TaskSpecification.withFilters(
-                dto.getName(),
-                dto.getCreatedAfter(),
-                dto.getCreatedBefore(),
-                dto.getCompletedAfter(),
-                dto.getCompletedBefore(),
-                dto.getUserId(),
-                dto.getStatus());
+    public Page<TaskResponseDTO> filterTasksPaged(TaskFilterRequestDTO dto, int page, int size) {
+        Specification<Task> spec = toSpecification(dto);
 
         Pageable pageable = PageRequest.of(page, size);
-        return taskRepository.findAll(spec, pageable);
+        return taskRepository.findResponses(spec, pageable);
+    }
+
+    /**
+     * Keyset-пагинация всех задач (новые первыми) без OFFSET
+     * @param cursor курсор предыдущей страницы или null для первой страницы
+     * @param withTotal нужен ли COUNT(*) по всей выборке
+     */
+    public CursorPageDTO<TaskResponseDTO> getTasksByCursor(String cursor, int size, boolean withTotal) {
+        return findByCursor((root, query, cb) -> cb.conjunction(), cursor, size, withTotal);
+    }
+
+    /**
+     * Keyset-пагинация задач с фильтрами TaskSpecification.withFilters
+     */
+    public CursorPageDTO<TaskResponseDTO> filterTasksByCursor(TaskFilterRequestDTO dto, String cursor, int size, boolean withTotal) {
+        Specification<Task> spec = toSpecification(dto);
+        return findByCursor(spec, cursor, size, withTotal);
     }
 
-    public List<Task> filterTasks(TaskFilterRequestDTO dto) {
+    private CursorPageDTO<TaskResponseDTO> findByCursor(Specification<Task> filters, String cursor, int size, boolean withTotal) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        Specification<Task> spec = filters;
+        if (cursor != null && !cursor.isEmpty()) {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            spec = spec.and(TaskSpecification.afterCursor(position.getTime(), position.getId()));
+        }
+
+        // Запрашиваем на один элемент больше, чтобы узнать, есть ли следующая страница
+        Sort sort = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+        List<TaskResponseDTO> tasks = taskRepository.findResponses(spec, sort, size + 1);
+
+        boolean hasNext = tasks.size() > size;
+        List<TaskResponseDTO> content = hasNext ? new ArrayList<>(tasks.subList(0, size)) : tasks;
+
+        String nextCursor = null;
+        if (hasNext) {
+            TaskResponseDTO last = content.get(content.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        Long total = withTotal ? taskRepository.count(filters) : null;
+        return new CursorPageDTO<>(content, nextCursor, hasNext, size, total);
+    }
+
+    public List<TaskResponseDTO> filterTasks(TaskFilterRequestDTO dto) {
+        Specification<Task> spec = toSpecification(dto);
+        return taskRepository.findResponses(spec, Sort.unsorted(), 0);
+    }
+
+    /**
+     * Фильтры задач из запроса; поиск подстроки по названию и описанию - через TaskSpecification.search
+     */
+    public Specification<Task> toSpecification(TaskFilterRequestDTO dto) {
         Specification<Task> spec = TaskSpecification.withFilters(
                 dto.getName(),
                 dto.getCreatedAfter(),
@@ -67,9 +141,13 @@ public class TaskService {
                 dto.getCompletedBefore(),
                 dto.getUserId(),
                 dto.getStatus());
-        return taskRepository.findAll(spec);
+        if (dto.getSearch() != null && !dto.getSearch().isBlank()) {
+            spec = spec.and(TaskSpecification.search(dto.getSearch()));
+        }
+        return spec;
     }
 
+    @Transactional
     public Optional<Task> createTask(TaskRequestDTO dto) {
         User user = null;
         if (dto.getUserId() != null) {
@@ -78,8 +156,7 @@ public class TaskService {
                 return Optional.empty();
             user = userOpt.get();
 
-            long activeTasks = taskRepository.countByUserIdAndStatusNot(user.getId(), TaskStatus.COMPLETED);
-            if (activeTasks >= MAX_ALLOWED_TASKS && !dto.isForce()) {
+            if (!dto.isForce() && taskLoadRegistry.isAtLimit(user.getId(), MAX_ALLOWED_TASKS)) {
                 throw new WorkerOverloadedException("User has reached the task limit");
             }
         }
@@ -102,6 +179,7 @@ public class TaskService {
         }
 
         Task savedTask = taskRepository.save(task);
+        taskLoadRegistry.recordTransition(null, null, user != null ? user.getId() : null, savedTask.getStatus());
 
         // Создаем уведомление для пользователя о новой задаче
         if (user != null) {
@@ -111,12 +189,15 @@ public class TaskService {
         return Optional.of(savedTask);
     }
 
+    @Transactional
     public Optional<Task> updateTask(Long id, TaskRequestDTO dto) {
         Optional<Task> taskOpt = taskRepository.findById(id);
         if (taskOpt.isEmpty())
             return Optional.empty();
 
         Task task = taskOpt.get();
+        Long previousUserId = task.getUser() != null ? task.getUser().getId() : null;
+        TaskStatus previousStatus = task.getStatus();
 
         task.setName(dto.getName());
         task.setDescription(dto.getDescription());
@@ -128,9 +209,8 @@ public class TaskService {
                 return Optional.empty();
             user = userOpt.get();
 
-            if (user.getId() != task.getUser().getId()) {
-                long activeTasks = taskRepository.countByUserIdAndStatusNot(user.getId(), TaskStatus.COMPLETED);
-                if (activeTasks >= MAX_ALLOWED_TASKS && !dto.isForce()) {
+            if (!user.getId().equals(previousUserId)) {
+                if (!dto.isForce() && taskLoadRegistry.isAtLimit(user.getId(), MAX_ALLOWED_TASKS)) {
                     throw new WorkerOverloadedException("User has reached the task limit");
                 }
             }
@@ -148,6 +228,8 @@ public class TaskService {
         task.setUser(user);
 
         Task savedTask = taskRepository.save(task);
+        taskLoadRegistry.recordTransition(previousUserId, previousStatus,
+                user != null ? user.getId() : null, savedTask.getStatus());
 
         // Создаем уведомление если задача переназначена на другого пользователя
         if (userChanged && user != null) {
@@ -160,8 +242,13 @@ public class TaskService {
         return Optional.of(savedTask);
     }
 
+    @Transactional
     public void deleteTask(Long id) {
-        taskRepository.deleteById(id);
+        taskRepository.findById(id).ifPresent(task -> {
+            taskRepository.delete(task);
+            taskLoadRegistry.recordTransition(task.getUser() != null ? task.getUser().getId() : null,
+                    task.getStatus(), null, null);
+        });
     }
 
     public long countTasks() {
@@ -170,48 +257,56 @@ public class TaskService {
 
     /**
      * Взять задачу себе (для рабочих)
+     * Захват выполняется одним условным UPDATE без блокировок: при одновременных запросах задачу
+     * получает ровно один рабочий, остальные - TaskAlreadyClaimedException (409).
+     * Параллельные запросы одного рабочего (несколько устройств) не превышают лимит: место
+     * резервируется в TaskLoadRegistry до UPDATE, а подзапрос COUNT в UPDATE проверяет
+     * закоммиченные задачи, в том числе взятые через другие экземпляры приложения.
      */
+    @Transactional
     public Optional<Task> assignTaskToMe(Long taskId, Long userId) {
-        Optional<Task> taskOpt = taskRepository.findById(taskId);
-        if (taskOpt.isEmpty()) {
+        Optional<User> userOpt = userRepository.findById(userId);
+        if (userOpt.isEmpty()) {
             return Optional.empty();
         }
+        User user = userOpt.get();
 
-        Task task = taskOpt.get();
-        
-        // Проверяем, что задача не назначена
-        if (task.getUser() != null) {
-            throw new RuntimeException("Задача уже назначена другому рабочему");
+        // Резерв места в реестре (без обращения к БД ниже лимита); снимается, если задача не назначена
+        TaskLoadRegistry.Reservation reservation = taskLoadRegistry.reserve(userId, MAX_ALLOWED_TASKS);
+        if (reservation == null) {
+            throw new WorkerOverloadedException("Вы достигли лимита активных задач (" + MAX_ALLOWED_TASKS + ")");
         }
 
-        // Находим пользователя
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (userOpt.isEmpty()) {
+        // Атомарно назначаем свободную задачу и меняем статус на ASSIGNED
+        int claimed = taskRepository.claimIfUnassigned(taskId, user, TaskStatus.NOT_ASSIGNED, TaskStatus.ASSIGNED,
+                TaskStatus.COMPLETED, MAX_ALLOWED_TASKS);
+
+        Optional<Task> taskOpt = taskRepository.findById(taskId);
+        if (taskOpt.isEmpty()) {
             return Optional.empty();
         }
-        User user = userOpt.get();
+        Task task = taskOpt.get();
 
-        // Проверяем лимит активных задач
-        long activeTasks = taskRepository.countByUserIdAndStatusNot(userId, TaskStatus.COMPLETED);
-        if (activeTasks >= MAX_ALLOWED_TASKS) {
+        if (claimed == 0) {
+            // Задача занята раньше нас или уже не ждет исполнителя - клиент может попробовать взять другую
+            if (task.getUser() != null || task.getStatus() != TaskStatus.NOT_ASSIGNED) {
+                throw new TaskAlreadyClaimedException("Задача уже назначена другому рабочему или завершена");
+            }
             throw new WorkerOverloadedException("Вы достигли лимита активных задач (" + MAX_ALLOWED_TASKS + ")");
         }
 
-        // Назначаем задачу и меняем статус на ASSIGNED
-        task.setUser(user);
-        task.setStatus(TaskStatus.ASSIGNED);
-
-        Task savedTask = taskRepository.save(task);
+        reservation.confirm();
 
         // Создаем уведомление
-        notificationService.createTaskAssignedNotification(user, savedTask.getId(), savedTask.getName());
+        notificationService.createTaskAssignedNotification(user, task.getId(), task.getName());
 
-        return Optional.of(savedTask);
+        return Optional.of(task);
     }
 
     /**
      * Отказаться от задачи (для рабочих)
      */
+    @Transactional
     public Optional<Task> unassignTask(Long taskId, Long userId) {
         Optional<Task> taskOpt = taskRepository.findById(taskId);
         if (taskOpt.isEmpty()) {
@@ -225,31 +320,55 @@ public class TaskService {
             throw new RuntimeException("Эта задача не назначена на вас");
         }
 
+        TaskStatus previousStatus = task.getStatus();
+
         // Снимаем назначение и меняем статус на NOT_ASSIGNED
         task.setUser(null);
         task.setStatus(TaskStatus.NOT_ASSIGNED);
 
         Task savedTask = taskRepository.save(task);
+        taskLoadRegistry.recordTransition(userId, previousStatus, null, savedTask.getStatus());
 
         return Optional.of(savedTask);
     }
 
     /**
      * Автоматическое распределение задач между рабочими
+     * Задачи загружаются одним запросом, загруженность рабочих - одним GROUP BY запросом,
+     * рабочие хранятся в min-куче по загруженности, назначения и уведомления пишутся JDBC-пачками.
      * @param taskIds список ID задач для распределения
      * @param force принудительное распределение (игнорировать лимит)
      * @return результат распределения
      */
     @Transactional
     public Map<String, Object> distributeTasksAutomatically(List<Long> taskIds, boolean force) {
+        // Текущая загруженность всех рабочих одним запросом
+        Map<Long, Long> activeTasksByUser = countActiveTasksPerUser();
+        return distributeTasksAutomatically(taskIds, force, activeTasksByUser);
+    }
+
+    /**
+     * Распределение порции задач с загруженностью рабочих, посчитанной вызывающим один раз на весь запуск
+     * (планировщик распределяет порциями и не повторяет GROUP BY для каждой порции).
+     * Назначения порции добавляются в activeTasksByUser, поэтому следующая порция видит актуальную загруженность.
+     * В результате workersAtLimit = true, если после порции все рабочие достигли лимита.
+     */
+    @Transactional
+    public Map<String, Object> distributeTasksAutomatically(List<Long> taskIds, boolean force,
+            Map<Long, Long> activeTasksByUser) {
         Map<String, Object> result = new HashMap<>();
         
-        // Получаем задачи для распределения
+        // Получаем задачи для распределения одним запросом, сохраняя порядок из запроса
+        Set<Long> uniqueTaskIds = new LinkedHashSet<>(taskIds);
+        Map<Long, Task> tasksById = new HashMap<>();
+        for (Task task : taskRepository.findAllById(uniqueTaskIds)) {
+            tasksById.put(task.getId(), task);
+        }
         List<Task> tasks = new ArrayList<>();
-        for (Long taskId : taskIds) {
-            Optional<Task> taskOpt = taskRepository.findById(taskId);
-            if (taskOpt.isPresent() && taskOpt.get().getUser() == null) {
-                tasks.add(taskOpt.get());
+        for (Long taskId : uniqueTaskIds) {
+            Task task = tasksById.get(taskId);
+            if (task != null && task.getUser() == null) {
+                tasks.add(task);
             }
         }
         
@@ -272,73 +391,68 @@ public class TaskService {
             return result;
         }
         
-        // Подсчитываем текущую загруженность каждого рабочего
-        Map<Long, Long> workerLoadMap = new HashMap<>();
-        for (User worker : workers) {
-            long activeTasks = taskRepository.countByUserIdAndStatusNot(worker.getId(), TaskStatus.COMPLETED);
-            workerLoadMap.put(worker.getId(), activeTasks);
+        // Min-куча рабочих: наименее загруженный всегда наверху
+        PriorityQueue<WorkerLoad> workerHeap = new PriorityQueue<>(workers.size());
+        for (int i = 0; i < workers.size(); i++) {
+            User worker = workers.get(i);
+            workerHeap.add(new WorkerLoad(worker, activeTasksByUser.getOrDefault(worker.getId(), 0L), i));
         }
         
-        // Сортируем рабочих по загруженности (наименее загруженные первые)
-        workers.sort((w1, w2) -> {
-            long load1 = workerLoadMap.get(w1.getId());
-            long load2 = workerLoadMap.get(w2.getId());
-            return Long.compare(load1, load2);
-        });
-        
-        int distributedCount = 0;
+        Map<Task, User> plannedAssignments = new LinkedHashMap<>();
         int skippedCount = 0;
         List<String> errors = new ArrayList<>();
         
         // Распределяем задачи
         for (Task task : tasks) {
-            boolean assigned = false;
+            WorkerLoad leastLoaded = workerHeap.peek();
             
-            // Пытаемся назначить задачу наименее загруженному рабочему
-            for (User worker : workers) {
-                long currentLoad = workerLoadMap.get(worker.getId());
-                
-                // Проверяем лимит задач
-                if (!force && currentLoad >= MAX_ALLOWED_TASKS) {
-                    continue; // Пропускаем перегруженных рабочих
-                }
-                
-                // Назначаем задачу
-                task.setUser(worker);
-                task.setStatus(TaskStatus.ASSIGNED);
-                taskRepository.save(task);
-                
-                // Обновляем загруженность
-                workerLoadMap.put(worker.getId(), currentLoad + 1);
-                
-                // Отправляем уведомление
-                notificationService.createTaskAssignedNotification(worker, task.getId(), task.getName());
-                
-                distributedCount++;
-                assigned = true;
-                
-                // Пересортировываем рабочих после назначения
-                workers.sort((w1, w2) -> {
-                    long load1 = workerLoadMap.get(w1.getId());
-                    long load2 = workerLoadMap.get(w2.getId());
-                    return Long.compare(load1, load2);
-                });
-                
-                break;
+            // Если даже наименее загруженный рабочий достиг лимита - перегружены все
+            if (!force && leastLoaded.load >= MAX_ALLOWED_TASKS) {
+                skippedCount++;
+                errors.add("Задача '" + task.getName() + "' не распределена: все рабочие перегружены");
+                continue;
             }
             
-            if (!assigned) {
+            workerHeap.poll();
+            leastLoaded.load++;
+            workerHeap.add(leastLoaded);
+            plannedAssignments.put(task, leastLoaded.worker);
+        }
+        
+        // Записываем назначения пачками; задачи, занятые параллельно, пропускаются
+        Map<Long, Long> taskToUser = new LinkedHashMap<>();
+        plannedAssignments.forEach((task, worker) -> taskToUser.put(task.getId(), worker.getId()));
+        Set<Long> assignedTaskIds = taskBatchRepository.assignIfUnassigned(taskToUser);
+        // JDBC-пачка меняет строки в обход Hibernate: загруженные сущности устарели, отсоединяем их,
+        // чтобы последующие чтения в этой транзакции брали исполнителя и статус из БД
+        plannedAssignments.keySet().forEach(entityManager::detach);
+        
+        Map<Task, User> appliedAssignments = new LinkedHashMap<>();
+        Map<Long, Integer> assignmentsPerUser = new HashMap<>();
+        for (Map.Entry<Task, User> entry : plannedAssignments.entrySet()) {
+            if (assignedTaskIds.contains(entry.getKey().getId())) {
+                appliedAssignments.put(entry.getKey(), entry.getValue());
+                assignmentsPerUser.merge(entry.getValue().getId(), 1, Integer::sum);
+            } else {
                 skippedCount++;
-                if (!force) {
-                    errors.add("Задача '" + task.getName() + "' не распределена: все рабочие перегружены");
-                }
+                errors.add("Задача '" + entry.getKey().getName() + "' не распределена: уже назначена другим пользователем");
             }
         }
         
+        taskLoadRegistry.recordAssignments(assignmentsPerUser);
+        assignmentsPerUser.forEach((userId, count) -> activeTasksByUser.merge(userId, count.longValue(), Long::sum));
+        
+        // Отправляем уведомления одной пачкой
+        notificationService.createTaskAssignedNotifications(appliedAssignments);
+        
+        int distributedCount = appliedAssignments.size();
+        
         result.put("success", distributedCount > 0);
         result.put("distributedCount", distributedCount);
         result.put("skippedCount", skippedCount);
         result.put("totalTasks", tasks.size());
+        result.put("workersAtLimit", !force && workers.stream()
+                .allMatch(worker -> activeTasksByUser.getOrDefault(worker.getId(), 0L) >= MAX_ALLOWED_TASKS));
         
         if (distributedCount > 0) {
             result.put("message", "Распределено задач: " + distributedCount + " из " + tasks.size());
@@ -353,4 +467,35 @@ public class TaskService {
         return result;
     }
 
+    /**
+     * Количество незавершенных задач по каждому пользователю (один GROUP BY запрос)
+     */
+    public Map<Long, Long> countActiveTasksPerUser() {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : taskRepository.countTasksPerUserByStatusNot(TaskStatus.COMPLETED)) {
+            counts.put((Long) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    /**
+     * Элемент кучи рабочих: загруженность, при равенстве - исходный порядок
+     */
+    private static final class WorkerLoad implements Comparable<WorkerLoad> {
+        private final User worker;
+        private final int order;
+        private long load;
+
+        private WorkerLoad(User worker, long load, int order) {
+            this.worker = worker;
+            this.load = load;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(WorkerLoad other) {
+            int byLoad = Long.compare(load, other.load);
+            return byLoad != 0 ? byLoad : Integer.compare(order, other.order);
+        }
+    }
 }
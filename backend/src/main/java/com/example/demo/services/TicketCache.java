@@ -0,0 +1,209 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.response.GoldenTicketResponseDTO;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ближний кеш состояния золотых билетов для проверки и поиска по номеру (сканеры на входе,
+ * публичная страница бронирования опрашивают одни и те же билеты).
+ *
+ * Ключ - код номера (TicketNumberCodec), значение - DTO билета и момент истечения записи (ttlMs).
+ * Кеш разбит на SEGMENTS сегментов, каждый - LRU на LinkedHashMap в порядке доступа под своей
+ * блокировкой, поэтому параллельные проверки разных билетов почти не конкурируют.
+ * Кешируются только найденные билеты.
+ *
+ * GoldenTicketService сбрасывает билет сразу при изменении и еще раз после коммита; счетчик поколений
+ * сегмента не дает положить в кеш состояние, прочитанное до изменения. Изменения экскурсии
+ * (название, время) видны в кеше с задержкой не больше ttlMs.
+ * Метрики: tickets.cache.requests (result=hit|miss), tickets.cache.evictions (cause=size|expired), tickets.cache.size.
+ */
+@Component
+public class TicketCache {
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long ttlNanos;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+
+    public TicketCache(MeterRegistry meterRegistry,
+            @Value("${tickets.cache.max-entries:100000}") int maxEntries,
+            @Value("${tickets.cache.ttl-ms:5000}") long ttlMs) {
+        this.ttlNanos = ttlMs * 1_000_000;
+
+        this.hits = Counter.builder("tickets.cache.requests").tag("result", "hit")
+                .description("Запросы к кешу билетов").register(meterRegistry);
+        this.misses = Counter.builder("tickets.cache.requests").tag("result", "miss")
+                .description("Запросы к кешу билетов").register(meterRegistry);
+        this.sizeEvictions = Counter.builder("tickets.cache.evictions").tag("cause", "size")
+                .description("Вытеснения из кеша билетов").register(meterRegistry);
+        this.expiredEvictions = Counter.builder("tickets.cache.evictions").tag("cause", "expired")
+                .description("Вытеснения из кеша билетов").register(meterRegistry);
+        Gauge.builder("tickets.cache.size", this, TicketCache::size)
+                .description("Количество билетов в кеше")
+                .register(meterRegistry);
+
+        int segmentCapacity = Math.max(1, maxEntries / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    /**
+     * Билет из кеша; null - нет в кеше или запись устарела
+     */
+    public GoldenTicketResponseDTO get(long ticketCode) {
+        if (ttlNanos <= 0) {
+            misses.increment();
+            return null;
+        }
+        Segment segment = segmentFor(ticketCode);
+        long now = System.nanoTime();
+        synchronized (segment) {
+            Entry entry = segment.entries.get(ticketCode);
+            if (entry != null && now - entry.expiresAt < 0) {
+                hits.increment();
+                return entry.ticket;
+            }
+            if (entry != null) {
+                segment.entries.remove(ticketCode);
+                expiredEvictions.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Поколение сегмента билета; снимается до чтения из БД и передается в put
+     */
+    public long generation(long ticketCode) {
+        return segmentFor(ticketCode).generation.get();
+    }
+
+    /**
+     * Кладет билет, если с момента снятия loadGeneration сегмент не сбрасывался
+     */
+    public void put(long ticketCode, GoldenTicketResponseDTO ticket, long loadGeneration) {
+        if (ttlNanos <= 0) {
+            return;
+        }
+        Segment segment = segmentFor(ticketCode);
+        synchronized (segment) {
+            if (segment.generation.get() == loadGeneration) {
+                segment.entries.put(ticketCode, new Entry(ticket, System.nanoTime() + ttlNanos));
+            }
+        }
+    }
+
+    /**
+     * Сбрасывает билет сразу и еще раз после коммита текущей транзакции
+     */
+    public void invalidate(long ticketCode) {
+        evict(ticketCode);
+        afterCommit(() -> evict(ticketCode));
+    }
+
+    /**
+     * Сбрасывает билеты сразу и еще раз после коммита (порции массовой смены статусов)
+     */
+    public void invalidate(Collection<Long> ticketCodes) {
+        ticketCodes.forEach(this::evict);
+        afterCommit(() -> ticketCodes.forEach(this::evict));
+    }
+
+    /**
+     * Сбрасывает весь кеш сразу и еще раз после коммита
+     */
+    public void invalidateAll() {
+        clear();
+        afterCommit(this::clear);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    private void evict(long ticketCode) {
+        Segment segment = segmentFor(ticketCode);
+        synchronized (segment) {
+            segment.generation.incrementAndGet();
+            segment.entries.remove(ticketCode);
+        }
+    }
+
+    private void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.generation.incrementAndGet();
+                segment.entries.clear();
+            }
+        }
+    }
+
+    private Segment segmentFor(long ticketCode) {
+        // Младшие биты канонического кода случайны, но у старых номеров - нет: перемешиваем
+        long h = ticketCode * 0x9E3779B97F4A7C15L;
+        return segments[(int) (h >>> 60) & (SEGMENTS - 1)];
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private final class Segment {
+        private final AtomicLong generation = new AtomicLong();
+        private final Map<Long, Entry> entries;
+
+        private Segment(int capacity) {
+            this.entries = new LinkedHashMap<>(Math.min(capacity, 1024), 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                    if (size() > capacity) {
+                        sizeEvictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    private static class Entry {
+        final GoldenTicketResponseDTO ticket;
+        final long expiresAt;
+
+        Entry(GoldenTicketResponseDTO ticket, long expiresAt) {
+            this.ticket = ticket;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.request.GenerateTicketsRequestDTO;
+import com.example.demo.dto.response.TicketMintingJobDTO;
+import com.example.demo.models.TicketMintingJob;
+import com.example.demo.models.TicketMintingJobStatus;
+import com.example.demo.repositories.GoldenTicketBatchRepository;
+import com.example.demo.repositories.TicketMintingJobRepository;
+import com.example.demo.utils.BloomFilter;
+import com.example.demo.utils.DateTimeUtils;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Массовый выпуск золотых билетов (миллионы за одно задание).
+ *
+ * Задание выполняется в фоновом потоке. Перед началом коды всех существующих номеров (TicketNumberCodec)
+ * один раз читаются курсором в фильтр Блума; новые коды проверяются по нему в памяти, без запроса на каждый билет.
+ * Билеты вставляются пачками по batchSize одним INSERT ... ON CONFLICT DO NOTHING: номер, пропущенный
+ * фильтром, но уже занятый в БД (например, параллельной генерацией), просто не вставляется и
+ * добирается следующей пачкой. Ложное срабатывание фильтра лишь отбрасывает свободный номер.
+ *
+ * Каждая пачка - отдельная транзакция, в которой вместе со вставкой увеличивается счетчик задания,
+ * поэтому прогресс в БД всегда точен. Срок истечения билетов ставится в очередь до первой вставки:
+ * билеты прерванного или упавшего задания тоже истекают вовремя. Задание, узел которого остановился, перехватывается после
+ * staleAfterMs без обновлений (при старте и затем раз в adoptIntervalMs) и продолжается с сохраненного счетчика.
+ */
+@Service
+public class TicketMintingService {
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int PROGRESS_LOG_EVERY_BATCHES = 20;
+
+    // Владелец заданий, запущенных этим процессом; после перезапуска - новый
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final TicketMintingJobRepository jobRepository;
+    private final GoldenTicketBatchRepository batchRepository;
+    private final TransitionDeadlines transitionDeadlines;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long maxCount;
+    private final long staleAfterMs;
+    private final int fetchSize;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ticket-minting");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Задания, поставленные в очередь этого узла
+    private final Set<Long> localJobs = ConcurrentHashMap.newKeySet();
+
+    public TicketMintingService(TicketMintingJobRepository jobRepository, GoldenTicketBatchRepository batchRepository,
+            TransitionDeadlines transitionDeadlines, PlatformTransactionManager transactionManager,
+            @Value("${tickets.minting.batch-size:10000}") int batchSize,
+            @Value("${tickets.minting.max-count:10000000}") long maxCount,
+            @Value("${tickets.minting.stale-after-ms:120000}") long staleAfterMs,
+            @Value("${tickets.minting.fetch-size:10000}") int fetchSize) {
+        this.jobRepository = jobRepository;
+        this.batchRepository = batchRepository;
+        this.transitionDeadlines = transitionDeadlines;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxCount = maxCount;
+        this.staleAfterMs = staleAfterMs;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Создает задание и ставит его в очередь; ход выполнения - getJob
+     * @throws IllegalArgumentException если количество не в диапазоне (0, maxCount]
+     */
+    public TicketMintingJobDTO startJob(GenerateTicketsRequestDTO request) {
+        if (request.getCount() == null || request.getCount() <= 0) {
+            throw new IllegalArgumentException("Количество билетов должно быть больше 0");
+        }
+        if (request.getCount() > maxCount) {
+            throw new IllegalArgumentException("Нельзя выпустить больше " + maxCount + " билетов за одно задание");
+        }
+
+        LocalDateTime expiresAt = null;
+        if (request.getExpiresInDays() != null && request.getExpiresInDays() > 0) {
+            expiresAt = DateTimeUtils.nowUTC().plusDays(request.getExpiresInDays());
+        }
+
+        TicketMintingJob job = jobRepository.save(new TicketMintingJob(request.getCount(), expiresAt, nodeId));
+        submit(job.getId());
+        System.out.println("[Ticket Minting] Задание " + job.getId() + " создано: " + job.getRequested() + " билетов");
+        return toDTO(job);
+    }
+
+    public Optional<TicketMintingJobDTO> getJob(Long id) {
+        return jobRepository.findById(id)
+                .map(this::toDTO);
+    }
+
+    /**
+     * Перехват заданий, узел-владелец которых перестал обновлять прогресс (остановлен или перезапущен)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${tickets.minting.adopt-interval-ms:60000}",
+               initialDelayString = "${tickets.minting.adopt-interval-ms:60000}")
+    public void adoptStaleJobs() {
+        try {
+            LocalDateTime now = DateTimeUtils.nowUTC();
+            LocalDateTime staleBefore = now.minus(Duration.ofMillis(staleAfterMs));
+            for (Long jobId : jobRepository.findStaleRunningIds(staleBefore)) {
+                if (localJobs.contains(jobId)) {
+                    continue;
+                }
+                Integer claimed = transactionTemplate.execute(status -> jobRepository.claim(jobId, nodeId, staleBefore, now));
+                if (claimed != null && claimed > 0) {
+                    System.out.println("[Ticket Minting] Задание " + jobId + " продолжено после остановки узла");
+                    submit(jobId);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("[Ticket Minting Error] " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    private void submit(Long jobId) {
+        localJobs.add(jobId);
+        executor.submit(() -> {
+            try {
+                run(jobId);
+            } finally {
+                localJobs.remove(jobId);
+            }
+        });
+    }
+
+    private void run(Long jobId) {
+        TicketMintingJob job = jobRepository.findById(jobId).orElse(null);
+        // Пока задание ждало в очереди, его могли перехватить или завершить
+        if (job == null || job.getStatus() != TicketMintingJobStatus.RUNNING || !heartbeat(jobId)) {
+            return;
+        }
+
+        try {
+            long startedAt = System.nanoTime();
+            long generated = job.getGenerated();
+            long remaining = job.getRequested() - generated;
+            BloomFilter known = loadExistingCodes(remaining);
+            if (!heartbeat(jobId)) {
+                return;
+            }
+            transitionDeadlines.schedule(TransitionDeadlines.Kind.EXPIRED_TICKETS, job.getExpiresAt());
+
+            int batches = 0;
+            while (remaining > 0) {
+                long[] batch = nextBatch(known, (int) Math.min(batchSize, remaining));
+                LocalDateTime now = DateTimeUtils.nowUTC();
+                Integer inserted = transactionTemplate.execute(status -> {
+                    int count = batchRepository.insertIfAbsent(batch, now, job.getExpiresAt());
+                    if (jobRepository.addProgress(jobId, nodeId, count, now) == 0) {
+                        status.setRollbackOnly();
+                        return null;
+                    }
+                    return count;
+                });
+                if (inserted == null) {
+                    System.out.println("[Ticket Minting] Задание " + jobId + " перехвачено другим узлом");
+                    return;
+                }
+                generated += inserted;
+                remaining -= inserted;
+                if (++batches % PROGRESS_LOG_EVERY_BATCHES == 0) {
+                    System.out.println("[Ticket Minting] Задание " + jobId + ": " + generated + " из " + job.getRequested());
+                }
+            }
+
+            transactionTemplate.executeWithoutResult(status ->
+                    jobRepository.finish(jobId, nodeId, TicketMintingJobStatus.COMPLETED, null, DateTimeUtils.nowUTC()));
+            double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+            System.out.println("[Ticket Minting] Задание " + jobId + " завершено: " + generated + " билетов, " +
+                    Math.round((generated - job.getGenerated()) / Math.max(seconds, 0.001)) + " билетов/с");
+        } catch (Exception e) {
+            System.err.println("[Ticket Minting Error] Задание " + jobId + ": " + e.getMessage());
+            String error = e.getMessage() != null && e.getMessage().length() > 1000 ? e.getMessage().substring(0, 1000) : e.getMessage();
+            transactionTemplate.executeWithoutResult(status ->
+                    jobRepository.finish(jobId, nodeId, TicketMintingJobStatus.FAILED, error, DateTimeUtils.nowUTC()));
+        }
+    }
+
+    /**
+     * Коды всех существующих билетов в фильтр Блума, размер которого рассчитан и на выпускаемые билеты.
+     * Точное множество LongHashSet на десятки миллионов кодов заняло бы сотни мегабайт, фильтр - ~1.2 байта на код.
+     */
+    private BloomFilter loadExistingCodes(long remaining) {
+        long existing = batchRepository.count();
+        BloomFilter filter = new BloomFilter(existing + remaining, FALSE_POSITIVE_RATE);
+        transactionTemplate.executeWithoutResult(status ->
+                batchRepository.forEachTicketCode(fetchSize, rs -> filter.put(rs.getLong(1))));
+        return filter;
+    }
+
+    // Коды, которых точно нет ни в БД на момент загрузки фильтра, ни среди уже выпущенных заданием
+    private static long[] nextBatch(BloomFilter known, int size) {
+        long[] batch = new long[size];
+        int filled = 0;
+        long attempts = 0;
+        while (filled < size) {
+            if (++attempts > (long) size * 100) {
+                throw new IllegalStateException("Не удалось подобрать свободные номера билетов: пространство номеров исчерпано");
+            }
+            long ticketCode = GoldenTicketService.generateRandomCode();
+            if (!known.mightContain(ticketCode)) {
+                known.put(ticketCode);
+                batch[filled++] = ticketCode;
+            }
+        }
+        return batch;
+    }
+
+    // Отметка жизни задания; false - задание больше не принадлежит этому узлу
+    private boolean heartbeat(Long jobId) {
+        Integer updated = transactionTemplate.execute(status ->
+                jobRepository.addProgress(jobId, nodeId, 0, DateTimeUtils.nowUTC()));
+        return updated != null && updated > 0;
+    }
+
+    private TicketMintingJobDTO toDTO(TicketMintingJob job) {
+        return new TicketMintingJobDTO(
+            job.getId(),
+            job.getStatus(),
+            job.getRequested(),
+            job.getGenerated(),
+            job.getExpiresAt(),
+            job.getCreatedAt(),
+            job.getUpdatedAt(),
+            job.getCompletedAt(),
+            job.getError()
+        );
+    }
+}
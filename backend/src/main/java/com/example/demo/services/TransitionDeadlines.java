@@ -0,0 +1,178 @@
+package com.example.demo.services;
+
+import com.example.demo.utils.DateTimeUtils;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Очередь сроков автоматических переходов (начало/окончание экскурсий, истечение билетов).
+ *
+ * Срок - это не конкретная сущность, а момент, когда нужно выполнить пакетный переход нужного типа:
+ * сами переходы идемпотентны и выбирают строки по времени, поэтому при переносе или отмене экскурсии
+ * старый срок не удаляется - он просто ничего не найдет. Сроки округляются вверх до секунды
+ * и дедуплицируются, так что тысячи билетов с одним expiresAt дают одну запись.
+ *
+ * Очередь разбирает DeadlineTransitionScheduler; в памяти держим только сроки в пределах горизонта,
+ * дальние подгружаются им периодически из БД.
+ */
+@Component
+public class TransitionDeadlines {
+
+    public enum Kind {
+        // Начало/окончание экскурсий (ExcursionService.updateExcursionStatuses)
+        EXCURSION_STATUS,
+        // Билеты на начавшиеся экскурсии (GoldenTicketService.deactivateTicketsForStartedExcursions)
+        STARTED_EXCURSION_TICKETS,
+        // Истекшие билеты (GoldenTicketService.deactivateExpiredTickets)
+        EXPIRED_TICKETS
+    }
+
+    private final DelayQueue<Deadline> queue = new DelayQueue<>();
+    private final Set<Deadline> pending = ConcurrentHashMap.newKeySet();
+    private volatile LocalDateTime horizon = LocalDateTime.MIN;
+
+    /**
+     * Добавляет срок после коммита текущей транзакции.
+     * Сроки за горизонтом пропускаются (их подберет периодическая подгрузка).
+     */
+    public void schedule(Kind kind, LocalDateTime dueAt) {
+        if (dueAt == null) {
+            return;
+        }
+        afterCommit(() -> add(kind, dueAt));
+    }
+
+    /**
+     * Переход на начало экскурсии: статус и билеты на неё
+     */
+    public void scheduleExcursionStart(LocalDateTime startTime) {
+        schedule(Kind.EXCURSION_STATUS, startTime);
+        schedule(Kind.STARTED_EXCURSION_TICKETS, startTime);
+    }
+
+    /**
+     * Переход на окончание экскурсии: статус
+     */
+    public void scheduleExcursionEnd(LocalDateTime endTime) {
+        schedule(Kind.EXCURSION_STATUS, endTime);
+    }
+
+    /**
+     * Сдвигает горизонт: сроки до него принимаются в очередь
+     */
+    public void extendHorizon(LocalDateTime newHorizon) {
+        if (newHorizon.isAfter(horizon)) {
+            horizon = newHorizon;
+        }
+    }
+
+    public void add(Kind kind, LocalDateTime dueAt) {
+        if (dueAt.isAfter(horizon)) {
+            return;
+        }
+        // Уже наступивший срок выполняется сразу
+        LocalDateTime now = DateTimeUtils.nowUTC();
+        Deadline deadline = new Deadline(kind, ceilToSecond(dueAt.isBefore(now) ? now : dueAt));
+        if (pending.add(deadline)) {
+            queue.add(deadline);
+        }
+    }
+
+    /**
+     * Ожидает ближайший наступивший срок
+     */
+    public Deadline take() throws InterruptedException {
+        Deadline deadline = queue.take();
+        pending.remove(deadline);
+        return deadline;
+    }
+
+    /**
+     * Следующий уже наступивший срок без ожидания или null
+     */
+    public Deadline pollDue() {
+        Deadline deadline = queue.poll();
+        if (deadline != null) {
+            pending.remove(deadline);
+        }
+        return deadline;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    private static LocalDateTime ceilToSecond(LocalDateTime time) {
+        LocalDateTime truncated = time.truncatedTo(ChronoUnit.SECONDS);
+        return truncated.equals(time) ? truncated : truncated.plusSeconds(1);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    public static class Deadline implements Delayed {
+        private final Kind kind;
+        private final LocalDateTime dueAt;
+
+        Deadline(Kind kind, LocalDateTime dueAt) {
+            this.kind = kind;
+            this.dueAt = dueAt;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public LocalDateTime getDueAt() {
+            return dueAt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(DateTimeUtils.nowUTC(), dueAt).toNanos(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other instanceof Deadline) {
+                return dueAt.compareTo(((Deadline) other).dueAt);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Deadline)) return false;
+            Deadline deadline = (Deadline) o;
+            return kind == deadline.kind && dueAt.equals(deadline.dueAt);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, dueAt);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.response.WorkshopHeatmapDTO;
+import com.example.demo.models.ExcursionRoute;
+import com.example.demo.models.Workshop;
+import com.example.demo.repositories.ExcursionRouteRepository;
+import com.example.demo.repositories.WorkshopRepository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Тепловая карта загрузки цехов по интервалам времени.
+ *
+ * Занятость цеха за сутки хранится как ступенчатая функция (DayProfile): моменты изменения
+ * и суммарное число участников после каждого из них. Профили строятся одним проходом
+ * заметающей прямой по интервалам маршрутов активных экскурсий (один запрос на все недостающие
+ * пары (цех, день)) и кешируются по ключу (цех, день) в LRU-кеше. Пиковая занятость интервала
+ * карты - максимум ступеней, пересекающих интервал.
+ *
+ * ExcursionService после коммита сбрасывает дни, которых касаются старые и новые маршруты
+ * измененной экскурсии. Счетчик поколений не дает положить в кеш профиль, построенный
+ * по данным, которые устарели во время его построения.
+ */
+@Service
+public class WorkshopHeatmapService {
+    public static final int MAX_DAYS = 31;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final ExcursionRouteRepository routeRepository;
+    private final WorkshopRepository workshopRepository;
+    private final Map<DayKey, DayProfile> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public WorkshopHeatmapService(ExcursionRouteRepository routeRepository, WorkshopRepository workshopRepository,
+            @Value("${excursions.heatmap.cache-max-entries:20000}") int maxEntries) {
+        this.routeRepository = routeRepository;
+        this.workshopRepository = workshopRepository;
+        this.cache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<DayKey, DayProfile> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Пиковая занятость и остаток вместимости цехов по интервалам за дни [from, to)
+     * @param workshopIds цеха; null или пустой список - все цеха
+     * @param bucketMinutes длина интервала, делитель суток
+     * @throws IllegalArgumentException при некорректном диапазоне или длине интервала
+     */
+    public WorkshopHeatmapDTO getHeatmap(LocalDate from, LocalDate to, List<Long> workshopIds, int bucketMinutes) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("Начало диапазона должно быть раньше конца");
+        }
+        if (from.plusDays(MAX_DAYS).isBefore(to)) {
+            throw new IllegalArgumentException("Диапазон не должен превышать " + MAX_DAYS + " дней");
+        }
+        if (bucketMinutes < 5 || MINUTES_PER_DAY % bucketMinutes != 0) {
+            throw new IllegalArgumentException("Длина интервала должна быть не меньше 5 минут и делить сутки нацело");
+        }
+
+        List<Workshop> workshops = workshopIds == null || workshopIds.isEmpty()
+                ? workshopRepository.findAll()
+                : workshopRepository.findAllById(workshopIds);
+        workshops.sort(Comparator.comparing(Workshop::getId));
+
+        Map<DayKey, DayProfile> profiles = loadProfiles(workshops, from, to);
+
+        int bucketsPerDay = MINUTES_PER_DAY / bucketMinutes;
+        WorkshopHeatmapDTO result = new WorkshopHeatmapDTO(from.atStartOfDay(), to.atStartOfDay(), bucketMinutes);
+        for (Workshop workshop : workshops) {
+            int days = (int) (to.toEpochDay() - from.toEpochDay());
+            int[] occupied = new int[days * bucketsPerDay];
+            int offset = 0;
+            for (LocalDate day = from; day.isBefore(to); day = day.plusDays(1)) {
+                profiles.get(new DayKey(workshop.getId(), day)).peaks(bucketMinutes, occupied, offset);
+                offset += bucketsPerDay;
+            }
+
+            int[] remaining = null;
+            if (workshop.getCapacity() != null) {
+                remaining = new int[occupied.length];
+                for (int i = 0; i < occupied.length; i++) {
+                    remaining[i] = Math.max(0, workshop.getCapacity() - occupied[i]);
+                }
+            }
+            result.getWorkshops().add(new WorkshopHeatmapDTO.WorkshopRow(
+                    workshop.getId(), workshop.getName(), workshop.getCapacity(), occupied, remaining));
+        }
+        return result;
+    }
+
+    /**
+     * Сбрасывает после коммита текущей транзакции дни, которых касаются маршруты.
+     * Ключи вычисляются сразу, поэтому метод можно вызывать со старым маршрутом до его замены.
+     */
+    public void invalidateRoutes(Collection<ExcursionRoute> routes) {
+        if (routes == null || routes.isEmpty()) {
+            return;
+        }
+        Set<DayKey> keys = new HashSet<>();
+        for (ExcursionRoute route : routes) {
+            LocalDateTime end = route.getStartTime().plusMinutes(route.getDurationMinutes());
+            for (LocalDate day = route.getStartTime().toLocalDate(); day.atStartOfDay().isBefore(end); day = day.plusDays(1)) {
+                keys.add(new DayKey(route.getWorkshop().getId(), day));
+            }
+        }
+        afterCommit(() -> invalidate(keys));
+    }
+
+    /**
+     * Сбрасывает после коммита все дни не позже day (пакетное завершение экскурсий)
+     */
+    public void invalidateUpTo(LocalDate day) {
+        afterCommit(() -> {
+            synchronized (cache) {
+                generation.incrementAndGet();
+                cache.keySet().removeIf(key -> !key.day.isAfter(day));
+            }
+        });
+    }
+
+    public int cacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private void invalidate(Set<DayKey> keys) {
+        synchronized (cache) {
+            generation.incrementAndGet();
+            cache.keySet().removeAll(keys);
+        }
+    }
+
+    // Профили из кеша, недостающие - одним запросом и одним проходом заметающей прямой на цех
+    private Map<DayKey, DayProfile> loadProfiles(List<Workshop> workshops, LocalDate from, LocalDate to) {
+        Map<DayKey, DayProfile> profiles = new HashMap<>();
+        Set<Long> missingWorkshops = new HashSet<>();
+        TreeSet<LocalDate> missingDays = new TreeSet<>();
+        long loadGeneration;
+
+        synchronized (cache) {
+            loadGeneration = generation.get();
+            for (Workshop workshop : workshops) {
+                for (LocalDate day = from; day.isBefore(to); day = day.plusDays(1)) {
+                    DayKey key = new DayKey(workshop.getId(), day);
+                    DayProfile profile = cache.get(key);
+                    if (profile != null) {
+                        profiles.put(key, profile);
+                    } else {
+                        missingWorkshops.add(workshop.getId());
+                        missingDays.add(day);
+                    }
+                }
+            }
+        }
+        if (missingWorkshops.isEmpty()) {
+            return profiles;
+        }
+
+        LocalDate firstDay = missingDays.first();
+        LocalDate endDay = missingDays.last().plusDays(1);
+        LocalDateTime rangeStart = firstDay.atStartOfDay();
+        LocalDateTime rangeEnd = endDay.atStartOfDay();
+
+        // [workshopId, excursionId, startTime, durationMinutes, participantsCount]
+        Map<Long, List<Event>> eventsByWorkshop = new HashMap<>();
+        for (Object[] row : routeRepository.findActiveRouteIntervals(missingWorkshops, rangeStart, rangeEnd)) {
+            LocalDateTime start = (LocalDateTime) row[2];
+            LocalDateTime end = start.plusMinutes((Integer) row[3]);
+            int participants = row[4] != null ? (Integer) row[4] : 0;
+            if (participants == 0) {
+                continue;
+            }
+            List<Event> events = eventsByWorkshop.computeIfAbsent((Long) row[0], id -> new ArrayList<>());
+            events.add(new Event(start.isBefore(rangeStart) ? rangeStart : start, participants));
+            if (end.isBefore(rangeEnd)) {
+                events.add(new Event(end, -participants));
+            }
+        }
+
+        Map<DayKey, DayProfile> computed = new HashMap<>();
+        for (Long workshopId : missingWorkshops) {
+            List<Event> events = eventsByWorkshop.getOrDefault(workshopId, new ArrayList<>());
+            sweep(workshopId, events, firstDay, endDay, computed);
+        }
+
+        synchronized (cache) {
+            if (generation.get() == loadGeneration) {
+                cache.putAll(computed);
+            }
+        }
+        for (Map.Entry<DayKey, DayProfile> entry : computed.entrySet()) {
+            profiles.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        return profiles;
+    }
+
+    /**
+     * Заметающая прямая по событиям цеха: профиль каждого дня начинается с уровня,
+     * накопленного к его началу. При равном времени окончания обрабатываются раньше начал
+     * (интервалы полуоткрытые).
+     */
+    private static void sweep(Long workshopId, List<Event> events, LocalDate firstDay, LocalDate endDay,
+            Map<DayKey, DayProfile> into) {
+        events.sort(Comparator.comparing((Event event) -> event.time).thenComparingInt(event -> event.delta));
+
+        int level = 0;
+        int index = 0;
+        for (LocalDate day = firstDay; day.isBefore(endDay); day = day.plusDays(1)) {
+            LocalDateTime dayEnd = day.plusDays(1).atStartOfDay();
+            DayProfile.Builder builder = new DayProfile.Builder(day.atStartOfDay(), level);
+            while (index < events.size() && events.get(index).time.isBefore(dayEnd)) {
+                Event event = events.get(index++);
+                level += event.delta;
+                builder.step(event.time, level);
+            }
+            into.put(new DayKey(workshopId, day), builder.build());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static class Event {
+        final LocalDateTime time;
+        final int delta;
+
+        Event(LocalDateTime time, int delta) {
+            this.time = time;
+            this.delta = delta;
+        }
+    }
+
+    /**
+     * Занятость цеха за сутки: levels[i] действует с minutes[i] до minutes[i + 1] (или до конца суток),
+     * minutes - смещение от начала суток в минутах, minutes[0] = 0
+     */
+    static class DayProfile {
+        private final int[] minutes;
+        private final int[] levels;
+
+        DayProfile(int[] minutes, int[] levels) {
+            this.minutes = minutes;
+            this.levels = levels;
+        }
+
+        /**
+         * Записывает в target, начиная с offset, пиковую занятость каждого интервала суток
+         */
+        void peaks(int bucketMinutes, int[] target, int offset) {
+            int step = 0;
+            for (int bucket = 0; bucket * bucketMinutes < MINUTES_PER_DAY; bucket++) {
+                int bucketStart = bucket * bucketMinutes;
+                int bucketEnd = bucketStart + bucketMinutes;
+                // Ступень, действующая в начале интервала
+                while (step + 1 < minutes.length && minutes[step + 1] <= bucketStart) {
+                    step++;
+                }
+                int peak = levels[step];
+                for (int i = step + 1; i < minutes.length && minutes[i] < bucketEnd; i++) {
+                    peak = Math.max(peak, levels[i]);
+                }
+                target[offset + bucket] = peak;
+            }
+        }
+
+        static class Builder {
+            private final LocalDateTime dayStart;
+            private int[] minutes = new int[8];
+            private int[] levels = new int[8];
+            private int size = 1;
+
+            Builder(LocalDateTime dayStart, int initialLevel) {
+                this.dayStart = dayStart;
+                levels[0] = initialLevel;
+            }
+
+            void step(LocalDateTime time, int level) {
+                int minute = (int) Duration.between(dayStart, time).toMinutes();
+                if (minutes[size - 1] == minute) {
+                    levels[size - 1] = level;
+                    return;
+                }
+                if (size == minutes.length) {
+                    minutes = Arrays.copyOf(minutes, size * 2);
+                    levels = Arrays.copyOf(levels, size * 2);
+                }
+                minutes[size] = minute;
+                levels[size] = level;
+                size++;
+            }
+
+            DayProfile build() {
+                return new DayProfile(Arrays.copyOf(minutes, size), Arrays.copyOf(levels, size));
+            }
+        }
+    }
+
+    private static class DayKey {
+        final Long workshopId;
+        final LocalDate day;
+
+        DayKey(Long workshopId, LocalDate day) {
+            this.workshopId = workshopId;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof DayKey)) return false;
+            DayKey key = (DayKey) o;
+            return workshopId.equals(key.workshopId) && day.equals(key.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(workshopId, day);
+        }
+    }
+}
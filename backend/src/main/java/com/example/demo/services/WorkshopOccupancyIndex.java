@@ -0,0 +1,212 @@
+package com.example.demo.services;
+
+import com.example.demo.models.Excursion;
+import com.example.demo.models.ExcursionRoute;
+import com.example.demo.models.ExcursionStatus;
+import com.example.demo.repositories.ExcursionRouteRepository;
+import com.example.demo.services.OccupancyTimeline.Interval;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory индекс занятости цехов: интервалы маршрутов CONFIRMED/IN_PROGRESS экскурсий по ID цеха.
+ *
+ * Для каждого цеха интервалы хранятся в OccupancyTimeline (поиск по диапазону ключей
+ * за O(log n + k)), поэтому проверки вместимости ручного маршрута и доступности не обращаются к БД.
+ *
+ * Индекс строится при старте одним запросом, обновляется ExcursionService после коммита
+ * создания, изменения, удаления и массового завершения экскурсий и периодически перестраивается из БД.
+ * Индекс - быстрая предварительная проверка: вместимость при записи гарантирует журнал WorkshopSlotLedger.
+ *
+ * Перестройка не блокирует обновления на время запроса к БД: экскурсии, обновленные во время загрузки,
+ * переносятся в новый индекс из текущего, а не из прочитанных строк.
+ */
+@Component
+public class WorkshopOccupancyIndex {
+    private final ExcursionRouteRepository routeRepository;
+
+    private volatile ConcurrentHashMap<Long, OccupancyTimeline> timelines = new ConcurrentHashMap<>();
+    private volatile ConcurrentHashMap<Long, List<Interval>> intervalsByExcursion = new ConcurrentHashMap<>();
+    // Экскурсии, обновленные во время идущей перестройки (null - перестройка не идет)
+    private Set<Long> updatedDuringRebuild;
+
+    public WorkshopOccupancyIndex(ExcursionRouteRepository routeRepository, MeterRegistry meterRegistry) {
+        this.routeRepository = routeRepository;
+
+        Gauge.builder("excursions.occupancy.index.intervals", this, WorkshopOccupancyIndex::size)
+                .description("Количество интервалов в индексе занятости цехов")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Построение индекса при старте приложения
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+        System.out.println("[WorkshopOccupancyIndex] Загружено интервалов: " + size());
+    }
+
+    /**
+     * Периодическая перестройка индекса из БД
+     */
+    @Scheduled(fixedDelayString = "${excursions.occupancy-index.rebuild-interval-ms:600000}",
+               initialDelayString = "${excursions.occupancy-index.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            System.err.println("[WorkshopOccupancyIndex Error] " + e.getMessage());
+        }
+    }
+
+    /**
+     * Полностью перестраивает индекс по маршрутам активных экскурсий.
+     * Запрос к БД выполняется без блокировки; под блокировкой только подмена индекса.
+     */
+    public void rebuild() {
+        synchronized (this) {
+            updatedDuringRebuild = ConcurrentHashMap.newKeySet();
+        }
+        ConcurrentHashMap<Long, OccupancyTimeline> newTimelines = new ConcurrentHashMap<>();
+        ConcurrentHashMap<Long, List<Interval>> newByExcursion = new ConcurrentHashMap<>();
+        try {
+            for (Object[] row : routeRepository.findActiveRouteIntervals()) {
+                Interval interval = Interval.fromRow(row);
+                newByExcursion.computeIfAbsent(interval.excursionId, id -> new ArrayList<>()).add(interval);
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                updatedDuringRebuild = null;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            // Строки этих экскурсий могли быть прочитаны до их коммита - берем значения из текущего индекса
+            for (Long excursionId : updatedDuringRebuild) {
+                List<Interval> current = intervalsByExcursion.get(excursionId);
+                if (current != null) {
+                    newByExcursion.put(excursionId, current);
+                } else {
+                    newByExcursion.remove(excursionId);
+                }
+            }
+            for (List<Interval> intervals : newByExcursion.values()) {
+                for (Interval interval : intervals) {
+                    newTimelines.computeIfAbsent(interval.key, id -> new OccupancyTimeline()).add(interval);
+                }
+            }
+            timelines = newTimelines;
+            intervalsByExcursion = newByExcursion;
+            updatedDuringRebuild = null;
+        }
+    }
+
+    /**
+     * Суммарное количество участников экскурсий, маршруты которых пересекаются с периодом [start, end)
+     * @param excludeExcursionId экскурсия, которую не учитываем (при редактировании), может быть null
+     */
+    public int getOccupancy(Long workshopId, LocalDateTime start, LocalDateTime end, Long excludeExcursionId) {
+        OccupancyTimeline timeline = timelines.get(workshopId);
+        return timeline != null ? timeline.occupancy(start, end, excludeExcursionId) : 0;
+    }
+
+    /**
+     * Заменяет интервалы экскурсии после коммита текущей транзакции.
+     * Маршруты неактивной экскурсии (DRAFT, COMPLETED, CANCELLED) из индекса удаляются.
+     */
+    public void refreshExcursion(Excursion excursion) {
+        Long excursionId = excursion.getId();
+        List<Interval> intervals = new ArrayList<>();
+
+        if (isActive(excursion.getStatus()) && excursion.getRoutes() != null) {
+            int participants = excursion.getParticipantsCount() != null ? excursion.getParticipantsCount() : 0;
+            for (ExcursionRoute route : excursion.getRoutes()) {
+                intervals.add(new Interval(
+                    route.getWorkshop().getId(),
+                    excursionId,
+                    route.getStartTime(),
+                    route.getStartTime().plusMinutes(route.getDurationMinutes()),
+                    participants
+                ));
+            }
+        }
+
+        afterCommit(() -> replace(excursionId, intervals));
+    }
+
+    /**
+     * Удаляет интервалы экскурсии после коммита текущей транзакции
+     */
+    public void removeExcursion(Long excursionId) {
+        removeExcursions(Collections.singletonList(excursionId));
+    }
+
+    /**
+     * Удаляет интервалы экскурсий после коммита текущей транзакции
+     * (завершенные пакетным UPDATE без загрузки сущностей)
+     */
+    public void removeExcursions(Collection<Long> excursionIds) {
+        List<Long> ids = new ArrayList<>(excursionIds);
+        afterCommit(() -> ids.forEach(excursionId -> replace(excursionId, Collections.emptyList())));
+    }
+
+    public int size() {
+        return intervalsByExcursion.values().stream().mapToInt(List::size).sum();
+    }
+
+    private synchronized void replace(Long excursionId, List<Interval> intervals) {
+        if (updatedDuringRebuild != null) {
+            updatedDuringRebuild.add(excursionId);
+        }
+        List<Interval> previous = intervals.isEmpty()
+                ? intervalsByExcursion.remove(excursionId)
+                : intervalsByExcursion.put(excursionId, intervals);
+
+        if (previous != null) {
+            for (Interval interval : previous) {
+                OccupancyTimeline timeline = timelines.get(interval.key);
+                if (timeline != null) {
+                    timeline.remove(interval);
+                }
+            }
+        }
+        for (Interval interval : intervals) {
+            timelines.computeIfAbsent(interval.key, id -> new OccupancyTimeline()).add(interval);
+        }
+    }
+
+    private static boolean isActive(ExcursionStatus status) {
+        return status == ExcursionStatus.CONFIRMED || status == ExcursionStatus.IN_PROGRESS;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.demo.services;
+
+import com.example.demo.services.OccupancyTimeline.Interval;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Снимок занятости цехов в окне планирования, загруженный одним запросом.
+ *
+ * Интервалы каждого цеха хранятся в OccupancyTimeline - той же структуре, что и в индексе
+ * занятости; запрос просматривает только интервалы, которые могут пересечься с периодом.
+ * Планировщик маршрута работает только со снимком и не обращается к БД на каждый 15-минутный сдвиг.
+ */
+public class WorkshopOccupancySnapshot {
+    private final Map<Long, OccupancyTimeline> timelines = new HashMap<>();
+
+    /**
+     * @param rows строки [workshopId, excursionId, startTime, durationMinutes, participantsCount]
+     */
+    public static WorkshopOccupancySnapshot of(List<Object[]> rows) {
+        WorkshopOccupancySnapshot snapshot = new WorkshopOccupancySnapshot();
+        for (Object[] row : rows) {
+            Interval interval = Interval.fromRow(row);
+            snapshot.timelines.computeIfAbsent(interval.key, id -> new OccupancyTimeline()).add(interval);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Суммарное количество участников экскурсий, маршруты которых пересекаются с периодом [start, end)
+     * @param excludeExcursionId экскурсия, которую не учитываем (при редактировании), может быть null
+     */
+    public int getOccupancy(Long workshopId, LocalDateTime start, LocalDateTime end, Long excludeExcursionId) {
+        OccupancyTimeline timeline = timelines.get(workshopId);
+        return timeline != null ? timeline.occupancy(start, end, excludeExcursionId) : 0;
+    }
+}
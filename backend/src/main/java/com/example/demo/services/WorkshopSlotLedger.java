@@ -0,0 +1,230 @@
+package com.example.demo.services;
+
+import com.example.demo.exceptions.WorkshopSlotUnavailableException;
+import com.example.demo.models.Excursion;
+import com.example.demo.models.ExcursionRoute;
+import com.example.demo.models.ExcursionStatus;
+import com.example.demo.repositories.WorkshopSlotRepository;
+import com.example.demo.utils.DateTimeUtils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Журнал резервирования цехов: занятость по слотам фиксированной длины (таблица workshop_slots).
+ *
+ * Точка маршрута активной экскурсии занимает все слоты, пересекающиеся с её интервалом.
+ * Резервирование - условный UPDATE "occupied + n <= capacity" по диапазону слотов: строки
+ * блокируются до конца транзакции, поэтому две экскурсии, одновременно претендующие на один слот,
+ * не могут обе пройти проверку, а экскурсии в разных цехах или в разное время друг друга не ждут.
+ * Слоты цехов обновляются в порядке (цех, время), чтобы встречные транзакции не взаимоблокировались.
+ *
+ * Слот - 15 минут: строки создаются только для занятых слотов и удаляются после прохождения, поэтому
+ * размер таблицы ограничен бронированиями ближайших дней. ExcursionService принимает только начало
+ * экскурсии на границе слота; при длительностях точек, кратных слоту, журнал учитывает точные интервалы
+ * и группы, сменяющие друг друга, одновременными не считаются. Интервал с другими границами занимает
+ * все слоты, которые задевает (резерв с запасом, но без перебронирования).
+ */
+@Component
+public class WorkshopSlotLedger {
+    public static final int SLOT_MINUTES = 15;
+
+    private final WorkshopSlotRepository slotRepository;
+    private final int retentionDays;
+
+    public WorkshopSlotLedger(WorkshopSlotRepository slotRepository,
+            @Value("${excursions.slot-ledger.retention-days:2}") int retentionDays) {
+        this.slotRepository = slotRepository;
+        this.retentionDays = retentionDays;
+    }
+
+    /**
+     * Слоты, которые занимает экскурсия в текущем состоянии (пусто для неактивной экскурсии)
+     */
+    public List<Claim> claimsOf(Excursion excursion) {
+        List<Claim> claims = new ArrayList<>();
+        if (!isActive(excursion.getStatus()) || excursion.getRoutes() == null) {
+            return claims;
+        }
+        int participants = excursion.getParticipantsCount() != null ? excursion.getParticipantsCount() : 0;
+        if (participants == 0) {
+            return claims;
+        }
+
+        for (ExcursionRoute route : excursion.getRoutes()) {
+            claims.add(claim(route.getWorkshop().getId(), route.getWorkshop().getCapacity(),
+                    route.getStartTime(), route.getDurationMinutes(), participants));
+        }
+        return merge(claims);
+    }
+
+    private static Claim claim(Long workshopId, Integer capacity, LocalDateTime start, int durationMinutes, int participants) {
+        return new Claim(workshopId, capacity, floorToSlot(start), ceilToSlot(start.plusMinutes(durationMinutes)), participants);
+    }
+
+    // Объединяет пересекающиеся интервалы одного цеха одной экскурсии, чтобы слот не резервировался дважды
+    private static List<Claim> merge(List<Claim> claims) {
+        List<Claim> sorted = new ArrayList<>(claims);
+        sorted.sort(Comparator.comparing((Claim claim) -> claim.workshopId).thenComparing(claim -> claim.from));
+        List<Claim> merged = new ArrayList<>();
+        for (Claim claim : sorted) {
+            Claim last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && last.workshopId.equals(claim.workshopId) && !claim.from.isAfter(last.to)) {
+                if (claim.to.isAfter(last.to)) {
+                    merged.set(merged.size() - 1, new Claim(last.workshopId, last.capacity, last.from, claim.to, last.participants));
+                }
+            } else {
+                merged.add(claim);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Резервирует слоты в текущей транзакции
+     * @throws WorkshopSlotUnavailableException если в каком-либо слоте не хватает мест;
+     *         уже выполненные увеличения откатываются вместе с транзакцией
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(List<Claim> claims) {
+        rebook(new ArrayList<>(), claims);
+    }
+
+    /**
+     * Переносит резерв экскурсии: по каждому цеху (в порядке ID) сначала освобождает прежние слоты,
+     * затем резервирует новые, чтобы собственная прежняя занятость не мешала новому маршруту
+     * @throws WorkshopSlotUnavailableException если в каком-либо слоте не хватает мест
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void rebook(List<Claim> previous, List<Claim> next) {
+        TreeMap<Long, List<Claim>> releases = groupByWorkshop(previous);
+        TreeMap<Long, List<Claim>> reservations = groupByWorkshop(next);
+        TreeSet<Long> workshopIds = new TreeSet<>(releases.keySet());
+        workshopIds.addAll(reservations.keySet());
+
+        for (Long workshopId : workshopIds) {
+            for (Claim claim : releases.getOrDefault(workshopId, List.of())) {
+                slotRepository.release(claim.workshopId, claim.from, claim.to, claim.participants);
+            }
+            for (Claim claim : reservations.getOrDefault(workshopId, List.of())) {
+                tryReserve(claim);
+            }
+        }
+    }
+
+    /**
+     * Освобождает ранее зарезервированные слоты в текущей транзакции
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(List<Claim> claims) {
+        rebook(claims, new ArrayList<>());
+    }
+
+    private void tryReserve(Claim claim) {
+        slotRepository.ensureSlots(claim.workshopId, claim.from, claim.to, SLOT_MINUTES);
+        int capacity = claim.capacity != null ? claim.capacity : Integer.MAX_VALUE - claim.participants;
+        int reserved = slotRepository.tryReserve(claim.workshopId, claim.from, claim.to, claim.participants, capacity);
+        if (reserved < claim.slotCount()) {
+            throw new WorkshopSlotUnavailableException("Недостаточно мест в цехе (ID: " + claim.workshopId +
+                ") в интервале " + claim.from + " - " + claim.to + " для группы из " + claim.participants +
+                " человек: слот уже занят другой экскурсией. Выберите другое время.");
+        }
+    }
+
+    private static TreeMap<Long, List<Claim>> groupByWorkshop(List<Claim> claims) {
+        TreeMap<Long, List<Claim>> grouped = new TreeMap<>();
+        for (Claim claim : claims) {
+            grouped.computeIfAbsent(claim.workshopId, id -> new ArrayList<>()).add(claim);
+        }
+        return grouped;
+    }
+
+    /**
+     * Удаление прошедших слотов
+     */
+    @Scheduled(fixedDelayString = "${excursions.slot-ledger.purge-interval-ms:86400000}",
+               initialDelayString = "${excursions.slot-ledger.purge-interval-ms:86400000}")
+    @Transactional
+    public void purgePastSlots() {
+        try {
+            int deleted = slotRepository.deleteBefore(DateTimeUtils.nowUTC().minusDays(retentionDays));
+            if (deleted > 0) {
+                System.out.println("[WorkshopSlotLedger] Удалено прошедших слотов: " + deleted);
+            }
+        } catch (Exception e) {
+            System.err.println("[WorkshopSlotLedger Error] " + e.getMessage());
+        }
+    }
+
+    static LocalDateTime floorToSlot(LocalDateTime time) {
+        LocalDateTime hour = time.truncatedTo(ChronoUnit.HOURS);
+        long minutes = ChronoUnit.MINUTES.between(hour, time);
+        return hour.plusMinutes(minutes - minutes % SLOT_MINUTES);
+    }
+
+    static LocalDateTime ceilToSlot(LocalDateTime time) {
+        LocalDateTime floor = floorToSlot(time);
+        return floor.equals(time) ? floor : floor.plusMinutes(SLOT_MINUTES);
+    }
+
+    /**
+     * Совпадает ли время с границей слота
+     */
+    public static boolean isSlotAligned(LocalDateTime time) {
+        return floorToSlot(time).equals(time);
+    }
+
+    private static boolean isActive(ExcursionStatus status) {
+        return status == ExcursionStatus.CONFIRMED || status == ExcursionStatus.IN_PROGRESS;
+    }
+
+    /**
+     * Занятость participants участниками слотов цеха в [from, to); from и to выровнены по слотам
+     */
+    public static class Claim {
+        private final Long workshopId;
+        private final Integer capacity;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final int participants;
+
+        Claim(Long workshopId, Integer capacity, LocalDateTime from, LocalDateTime to, int participants) {
+            this.workshopId = workshopId;
+            this.capacity = capacity;
+            this.from = from;
+            this.to = to;
+            this.participants = participants;
+        }
+
+        public Long getWorkshopId() {
+            return workshopId;
+        }
+
+        public LocalDateTime getFrom() {
+            return from;
+        }
+
+        public LocalDateTime getTo() {
+            return to;
+        }
+
+        public int getParticipants() {
+            return participants;
+        }
+
+        int slotCount() {
+            return (int) (ChronoUnit.MINUTES.between(from, to) / SLOT_MINUTES);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.demo.services.routing;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Поиск с ветвлением и отсечением по порядкам посещения цехов.
+ *
+ * Каждая ветка - следующий непосещенный цех в ближайший доступный момент (с шагом 15 минут,
+ * не более 20 сдвигов подряд, как у жадного алгоритма). Ветка отсекается, если даже при
+ * посещении оставшихся цехов в порядке возрастания длительности без ожидания она не превзойдет
+ * лучший найденный маршрут. Начальное решение - результат жадного алгоритма, поэтому
+ * найденный маршрут никогда не хуже него.
+ *
+ * Верхние уровни дерева разбираются параллельно в ForkJoinPool, глубже - последовательный
+ * обход с возвратом. Поиск ограничен по времени excursions.route-solver.time-budget-ms;
+ * по истечении бюджета возвращается лучший маршрут, найденный к этому моменту.
+ */
+@Component
+public class BranchAndBoundRouteSolver implements RouteSolver {
+    public static final String NAME = "branch-and-bound";
+    // Глубина дерева, до которой ветки запускаются отдельными задачами ForkJoinPool
+    private static final int PARALLEL_DEPTH = 2;
+
+    private final GreedyRouteSolver greedySolver;
+    private final ForkJoinPool pool;
+    private final long timeBudgetMs;
+
+    public BranchAndBoundRouteSolver(GreedyRouteSolver greedySolver,
+                                     @Value("${excursions.route-solver.time-budget-ms:200}") long timeBudgetMs,
+                                     @Value("${excursions.route-solver.parallelism:0}") int parallelism) {
+        this.greedySolver = greedySolver;
+        this.timeBudgetMs = timeBudgetMs;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public RoutePlan solve(RoutePlanningRequest request) {
+        RoutePlan seed = greedySolver.solve(request);
+        if (seed.getVisitedCount() == request.getCandidates().size() && seed.getIdleMinutes() == 0) {
+            return seed; // Лучше жадного решения быть не может
+        }
+
+        Search search = new Search(request, seed, System.nanoTime() + timeBudgetMs * 1_000_000);
+        pool.invoke(new Branch(search, request.getStartTime(), new BitSet(), new ArrayList<>(), 0, 0));
+        return search.best.get();
+    }
+
+    /**
+     * Общее состояние поиска: лучший маршрут и ограничения
+     */
+    private static class Search {
+        final RoutePlanningRequest request;
+        final List<RouteCandidate> candidates;
+        final int[] indicesByDuration;
+        final long deadlineNanos;
+        final AtomicReference<RoutePlan> best;
+
+        Search(RoutePlanningRequest request, RoutePlan seed, long deadlineNanos) {
+            this.request = request;
+            this.candidates = request.getCandidates();
+            this.deadlineNanos = deadlineNanos;
+            this.best = new AtomicReference<>(seed);
+
+            List<Integer> indices = new ArrayList<>();
+            for (int i = 0; i < candidates.size(); i++) {
+                indices.add(i);
+            }
+            indices.sort(Comparator.comparingInt(i -> candidates.get(i).getDurationMinutes()));
+            this.indicesByDuration = indices.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        boolean timedOut() {
+            return System.nanoTime() - deadlineNanos > 0;
+        }
+
+        /**
+         * Учитывает текущий частичный маршрут и решает, нужно ли прекратить спуск по ветке
+         */
+        boolean shouldStop(LocalDateTime time, BitSet visited, List<PlannedStop> stops, long idle) {
+            if (timedOut()) {
+                return true;
+            }
+            if (!stops.isEmpty()) {
+                offer(stops, idle);
+            }
+
+            RoutePlan currentBest = best.get();
+            int bound = stops.size() + optimisticRemaining(time, visited);
+            if (bound < currentBest.getVisitedCount()) {
+                return true;
+            }
+            return bound == currentBest.getVisitedCount() && idle >= currentBest.getIdleMinutes();
+        }
+
+        void dfs(LocalDateTime time, BitSet visited, List<PlannedStop> stops, long idle) {
+            if (shouldStop(time, visited, stops, idle)) {
+                return;
+            }
+            for (Child child : expand(time, visited)) {
+                visited.set(child.index);
+                stops.add(child.stop);
+                dfs(child.stop.getEndTime(), visited, stops, idle + child.waitMinutes);
+                stops.remove(stops.size() - 1);
+                visited.clear(child.index);
+
+                if (timedOut()) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Следующие цеха маршрута: каждый непосещенный цех в ближайшее время, когда он доступен
+         */
+        List<Child> expand(LocalDateTime time, BitSet visited) {
+            List<Child> children = new ArrayList<>();
+            for (int i = 0; i < candidates.size(); i++) {
+                if (visited.get(i)) {
+                    continue;
+                }
+                RouteCandidate candidate = candidates.get(i);
+                for (int shift = 0; shift <= RoutePlanningRequest.MAX_IDLE_SHIFTS; shift++) {
+                    LocalDateTime start = time.plusMinutes((long) shift * RoutePlanningRequest.SHIFT_MINUTES);
+                    if (!start.isBefore(request.getMaxTime())) {
+                        break;
+                    }
+                    if (request.isAvailable(candidate, start)) {
+                        children.add(new Child(i, new PlannedStop(candidate, start),
+                                (long) shift * RoutePlanningRequest.SHIFT_MINUTES));
+                        break;
+                    }
+                }
+            }
+            // Сначала ветки без ожидания и с короткими посещениями - быстрее находят хорошие маршруты
+            children.sort(Comparator.comparingLong((Child child) -> child.waitMinutes)
+                    .thenComparingInt(child -> child.stop.getDurationMinutes()));
+            return children;
+        }
+
+        /**
+         * Верхняя оценка числа цехов, которые еще можно посетить: самые короткие посещения без ожидания
+         */
+        private int optimisticRemaining(LocalDateTime time, BitSet visited) {
+            int count = 0;
+            LocalDateTime current = time;
+            for (int index : indicesByDuration) {
+                if (visited.get(index)) {
+                    continue;
+                }
+                if (!current.isBefore(request.getMaxTime())) {
+                    break;
+                }
+                current = current.plusMinutes(candidates.get(index).getDurationMinutes());
+                count++;
+            }
+            return count;
+        }
+
+        private void offer(List<PlannedStop> stops, long idle) {
+            LocalDateTime end = stops.get(stops.size() - 1).getEndTime();
+            long total = Duration.between(request.getStartTime(), end).toMinutes();
+            if (RoutePlan.compare(stops.size(), idle, total, best.get()) <= 0) {
+                return;
+            }
+
+            RoutePlan plan = new RoutePlan(request.getStartTime(), stops);
+            while (true) {
+                RoutePlan current = best.get();
+                if (!plan.isBetterThan(current) || best.compareAndSet(current, plan)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class Child {
+        final int index;
+        final PlannedStop stop;
+        final long waitMinutes;
+
+        Child(int index, PlannedStop stop, long waitMinutes) {
+            this.index = index;
+            this.stop = stop;
+            this.waitMinutes = waitMinutes;
+        }
+    }
+
+    /**
+     * Задача ForkJoinPool для верхних уровней дерева поиска
+     */
+    private static class Branch extends RecursiveAction {
+        private final Search search;
+        private final LocalDateTime time;
+        private final BitSet visited;
+        private final List<PlannedStop> stops;
+        private final long idle;
+        private final int depth;
+
+        Branch(Search search, LocalDateTime time, BitSet visited, List<PlannedStop> stops, long idle, int depth) {
+            this.search = search;
+            this.time = time;
+            this.visited = visited;
+            this.stops = stops;
+            this.idle = idle;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (depth >= PARALLEL_DEPTH) {
+                search.dfs(time, visited, stops, idle);
+                return;
+            }
+            if (search.shouldStop(time, visited, stops, idle)) {
+                return;
+            }
+
+            List<Branch> branches = new ArrayList<>();
+            for (Child child : search.expand(time, visited)) {
+                BitSet childVisited = (BitSet) visited.clone();
+                childVisited.set(child.index);
+                List<PlannedStop> childStops = new ArrayList<>(stops);
+                childStops.add(child.stop);
+                branches.add(new Branch(search, child.stop.getEndTime(), childVisited, childStops,
+                        idle + child.waitMinutes, depth + 1));
+            }
+            invokeAll(branches);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.demo.services.routing;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Жадный планировщик: берет первый доступный цех в текущее время,
+ * если все заняты - сдвигает время на 15 минут (не более 20 раз подряд)
+ */
+@Component
+public class GreedyRouteSolver implements RouteSolver {
+    public static final String NAME = "greedy";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public RoutePlan solve(RoutePlanningRequest request) {
+        List<RouteCandidate> candidates = request.getCandidates();
+        Set<Long> visitedWorkshops = new HashSet<>();
+        List<PlannedStop> stops = new ArrayList<>();
+
+        LocalDateTime currentTime = request.getStartTime();
+        int noProgressCounter = 0;
+
+        while (visitedWorkshops.size() < candidates.size() && currentTime.isBefore(request.getMaxTime())) {
+            RouteCandidate selected = null;
+
+            for (RouteCandidate candidate : candidates) {
+                if (!visitedWorkshops.contains(candidate.getWorkshopId())
+                        && request.isAvailable(candidate, currentTime)) {
+                    selected = candidate;
+                    break;
+                }
+            }
+
+            if (selected != null) {
+                PlannedStop stop = new PlannedStop(selected, currentTime);
+                stops.add(stop);
+                visitedWorkshops.add(selected.getWorkshopId());
+                currentTime = stop.getEndTime();
+                noProgressCounter = 0;
+            } else {
+                currentTime = currentTime.plusMinutes(RoutePlanningRequest.SHIFT_MINUTES);
+                noProgressCounter++;
+                if (noProgressCounter > RoutePlanningRequest.MAX_IDLE_SHIFTS) {
+                    break;
+                }
+            }
+        }
+
+        return new RoutePlan(request.getStartTime(), stops);
+    }
+}
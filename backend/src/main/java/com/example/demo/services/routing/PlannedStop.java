@@ -0,0 +1,36 @@
+package com.example.demo.services.routing;
+
+import java.time.LocalDateTime;
+
+/**
+ * Точка построенного маршрута: цех и время посещения
+ */
+public class PlannedStop {
+    private final RouteCandidate candidate;
+    private final LocalDateTime startTime;
+
+    public PlannedStop(RouteCandidate candidate, LocalDateTime startTime) {
+        this.candidate = candidate;
+        this.startTime = startTime;
+    }
+
+    public RouteCandidate getCandidate() {
+        return candidate;
+    }
+
+    public Long getWorkshopId() {
+        return candidate.getWorkshopId();
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public int getDurationMinutes() {
+        return candidate.getDurationMinutes();
+    }
+
+    public LocalDateTime getEndTime() {
+        return startTime.plusMinutes(candidate.getDurationMinutes());
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.demo.services.routing;
+
+/**
+ * Цех-кандидат для маршрута экскурсии
+ */
+public class RouteCandidate {
+    private final Long workshopId;
+    private final Integer capacity;
+    private final int durationMinutes;
+
+    /**
+     * @param capacity вместимость цеха, null - без ограничения
+     */
+    public RouteCandidate(Long workshopId, Integer capacity, int durationMinutes) {
+        this.workshopId = workshopId;
+        this.capacity = capacity;
+        this.durationMinutes = durationMinutes;
+    }
+
+    public Long getWorkshopId() {
+        return workshopId;
+    }
+
+    public Integer getCapacity() {
+        return capacity;
+    }
+
+    public int getDurationMinutes() {
+        return durationMinutes;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.demo.services.routing;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Результат планирования маршрута.
+ * Качество: больше посещенных цехов, затем меньше простоя, затем меньше общая длительность.
+ */
+public class RoutePlan {
+    private final List<PlannedStop> stops;
+    private final long idleMinutes;
+    private final long totalMinutes;
+
+    public RoutePlan(LocalDateTime excursionStart, List<PlannedStop> stops) {
+        this.stops = Collections.unmodifiableList(new ArrayList<>(stops));
+
+        long busyMinutes = stops.stream().mapToLong(PlannedStop::getDurationMinutes).sum();
+        this.totalMinutes = stops.isEmpty() ? 0
+                : Duration.between(excursionStart, stops.get(stops.size() - 1).getEndTime()).toMinutes();
+        this.idleMinutes = totalMinutes - busyMinutes;
+    }
+
+    public static RoutePlan empty(LocalDateTime excursionStart) {
+        return new RoutePlan(excursionStart, Collections.emptyList());
+    }
+
+    public List<PlannedStop> getStops() {
+        return stops;
+    }
+
+    public int getVisitedCount() {
+        return stops.size();
+    }
+
+    public long getIdleMinutes() {
+        return idleMinutes;
+    }
+
+    public long getTotalMinutes() {
+        return totalMinutes;
+    }
+
+    public boolean isBetterThan(RoutePlan other) {
+        return compare(getVisitedCount(), idleMinutes, totalMinutes, other) > 0;
+    }
+
+    /**
+     * Сравнивает метрики маршрута с планом other без построения объекта плана
+     * @return > 0, если метрики лучше
+     */
+    static int compare(int visited, long idle, long total, RoutePlan other) {
+        if (visited != other.getVisitedCount()) {
+            return Integer.compare(visited, other.getVisitedCount());
+        }
+        if (idle != other.idleMinutes) {
+            return Long.compare(other.idleMinutes, idle);
+        }
+        return Long.compare(other.totalMinutes, total);
+    }
+}
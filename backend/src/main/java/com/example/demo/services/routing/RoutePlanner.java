@@ -0,0 +1,46 @@
+package com.example.demo.services.routing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Выбор алгоритма построения маршрута по настройке excursions.route-solver.type.
+ * Жадный алгоритм - запасной вариант при неизвестном типе или ошибке выбранного алгоритма.
+ */
+@Component
+public class RoutePlanner {
+    private final GreedyRouteSolver greedySolver;
+    private final RouteSolver solver;
+
+    public RoutePlanner(List<RouteSolver> solvers, GreedyRouteSolver greedySolver,
+                        @Value("${excursions.route-solver.type:" + BranchAndBoundRouteSolver.NAME + "}") String solverType) {
+        Map<String, RouteSolver> solversByName = solvers.stream()
+                .collect(Collectors.toMap(RouteSolver::getName, Function.identity()));
+        this.greedySolver = greedySolver;
+
+        RouteSolver configured = solversByName.get(solverType);
+        if (configured == null) {
+            System.err.println("[RoutePlanner] Неизвестный алгоритм маршрута '" + solverType +
+                    "', используется " + GreedyRouteSolver.NAME);
+            configured = greedySolver;
+        }
+        this.solver = configured;
+    }
+
+    public RoutePlan plan(RoutePlanningRequest request) {
+        if (solver == greedySolver) {
+            return greedySolver.solve(request);
+        }
+        try {
+            return solver.solve(request);
+        } catch (RuntimeException e) {
+            System.err.println("[RoutePlanner Error] " + solver.getName() + ": " + e.getMessage());
+            return greedySolver.solve(request);
+        }
+    }
+}
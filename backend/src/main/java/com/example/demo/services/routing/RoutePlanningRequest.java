@@ -0,0 +1,70 @@
+package com.example.demo.services.routing;
+
+import com.example.demo.services.WorkshopOccupancySnapshot;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Входные данные планировщика маршрута: подходящие цеха, окно планирования и снимок занятости
+ */
+public class RoutePlanningRequest {
+    // Шаг сдвига времени, если цех занят
+    public static final int SHIFT_MINUTES = 15;
+    // Максимум сдвигов подряд без посещения цеха (20 * 15 минут = 5 часов)
+    public static final int MAX_IDLE_SHIFTS = 20;
+
+    private final LocalDateTime startTime;
+    private final LocalDateTime maxTime;
+    private final int participantsCount;
+    private final Long excursionId;
+    private final List<RouteCandidate> candidates;
+    private final WorkshopOccupancySnapshot snapshot;
+
+    /**
+     * @param maxTime точки маршрута должны начинаться раньше этого времени
+     * @param excursionId редактируемая экскурсия (её маршруты не учитываются), может быть null
+     */
+    public RoutePlanningRequest(LocalDateTime startTime, LocalDateTime maxTime, int participantsCount,
+                                Long excursionId, List<RouteCandidate> candidates,
+                                WorkshopOccupancySnapshot snapshot) {
+        this.startTime = startTime;
+        this.maxTime = maxTime;
+        this.participantsCount = participantsCount;
+        this.excursionId = excursionId;
+        this.candidates = candidates;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Помещается ли группа в цех на время посещения, начиная с time
+     */
+    public boolean isAvailable(RouteCandidate candidate, LocalDateTime time) {
+        if (candidate.getCapacity() == null) {
+            return true;
+        }
+        int occupancy = snapshot.getOccupancy(candidate.getWorkshopId(), time,
+                time.plusMinutes(candidate.getDurationMinutes()), excursionId);
+        return occupancy + participantsCount <= candidate.getCapacity();
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public LocalDateTime getMaxTime() {
+        return maxTime;
+    }
+
+    public int getParticipantsCount() {
+        return participantsCount;
+    }
+
+    public Long getExcursionId() {
+        return excursionId;
+    }
+
+    public List<RouteCandidate> getCandidates() {
+        return candidates;
+    }
+}
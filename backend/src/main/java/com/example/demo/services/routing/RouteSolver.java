@@ -0,0 +1,14 @@
+package com.example.demo.services.routing;
+
+/**
+ * Алгоритм построения маршрута экскурсии по снимку занятости цехов
+ */
+public interface RouteSolver {
+
+    /**
+     * Имя алгоритма для настройки excursions.route-solver.type
+     */
+    String getName();
+
+    RoutePlan solve(RoutePlanningRequest request);
+}
@@ -0,0 +1,111 @@
+package com.example.demo.utils;
+
+import java.util.Arrays;
+
+/**
+ * Множество примитивных long с открытой адресацией (линейное пробирование) - без упаковки в Long
+ * и без объекта-узла на элемент. Таблица степени двойки, заполнение не больше половины.
+ * Удаление не поддерживается. Не потокобезопасно.
+ */
+public class LongHashSet {
+    // Пустая ячейка; само значение EMPTY хранится отдельным флагом
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] slots;
+    private int mask;
+    private int size;
+    private boolean containsEmpty;
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * @return false, если значение уже было в множестве
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsEmpty) {
+                return false;
+            }
+            containsEmpty = true;
+            size++;
+            return true;
+        }
+        int slot = indexOf(value);
+        if (slots[slot] == value) {
+            return false;
+        }
+        slots[slot] = value;
+        if (++size * 2 > slots.length) {
+            grow();
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsEmpty;
+        }
+        return slots[indexOf(value)] == value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long[] toArray() {
+        long[] values = new long[size];
+        int i = 0;
+        if (containsEmpty) {
+            values[i++] = EMPTY;
+        }
+        for (long slot : slots) {
+            if (slot != EMPTY) {
+                values[i++] = slot;
+            }
+        }
+        return values;
+    }
+
+    public long sizeInBytes() {
+        return (long) slots.length * Long.BYTES;
+    }
+
+    // Ячейка со значением или первая пустая ячейка на пути пробирования
+    private int indexOf(long value) {
+        int slot = mix(value) & mask;
+        while (slots[slot] != EMPTY && slots[slot] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] old = slots;
+        allocate(old.length * 2);
+        for (long value : old) {
+            if (value != EMPTY) {
+                slots[indexOf(value)] = value;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        slots = new long[capacity];
+        Arrays.fill(slots, EMPTY);
+        mask = capacity - 1;
+    }
+
+    // Финальное перемешивание SplitMix64: последовательные коды не попадают в соседние ячейки
+    private static int mix(long value) {
+        long hash = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return (int) (hash ^ (hash >>> 31));
+    }
+}
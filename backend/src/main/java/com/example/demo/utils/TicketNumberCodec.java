@@ -0,0 +1,133 @@
+package com.example.demo.utils;
+
+import java.util.Arrays;
+
+/**
+ * Числовое представление номера золотого билета (колонка golden_tickets.ticket_code).
+ *
+ * Канонический номер - 8 символов алфавита ALPHABET из 32 символов, то есть ровно 40 бит:
+ * i-й символ - биты [5i, 5i + 5). Такие номера кодируются в [0, 2^40).
+ * Номера старого формата (до 10 символов A-Z, 0-9) кодируются в base-37 со сдвигом 2^40,
+ * поэтому отображение взаимно однозначно и для них. Та же формула используется
+ * для заполнения ticket_code в db/schema-upgrade.sql.
+ */
+public final class TicketNumberCodec {
+    public static final String ALPHABET = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789"; // Без O, I, 0, 1 (путаница)
+    public static final int LENGTH = 8;
+    public static final long INVALID = -1;
+
+    private static final int BITS_PER_CHAR = 5;
+    private static final long CANONICAL_LIMIT = 1L << (BITS_PER_CHAR * LENGTH);
+    private static final String LEGACY_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final int LEGACY_BASE = LEGACY_ALPHABET.length() + 1;
+    private static final int LEGACY_MAX_LENGTH = 10;
+
+    private static final byte[] CANONICAL_INDEX = indexOf(ALPHABET);
+    private static final byte[] LEGACY_INDEX = indexOf(LEGACY_ALPHABET);
+
+    private TicketNumberCodec() {
+    }
+
+    /**
+     * @throws IllegalArgumentException если строка не является номером билета
+     */
+    public static long encode(String ticketNumber) {
+        long code = tryEncode(ticketNumber);
+        if (code == INVALID) {
+            throw new IllegalArgumentException("Некорректный номер билета: " + ticketNumber);
+        }
+        return code;
+    }
+
+    /**
+     * Как encode, но вместо исключения возвращает INVALID (для поиска по номеру из запроса)
+     */
+    public static long tryEncode(String ticketNumber) {
+        if (ticketNumber == null || ticketNumber.isEmpty() || ticketNumber.length() > LEGACY_MAX_LENGTH) {
+            return INVALID;
+        }
+        if (ticketNumber.length() == LENGTH) {
+            long code = encodeCanonical(ticketNumber);
+            if (code != INVALID) {
+                return code;
+            }
+        }
+        return encodeLegacy(ticketNumber);
+    }
+
+    /**
+     * @throws IllegalArgumentException если код не получен из encode
+     */
+    public static String decode(long code) {
+        if (code < 0) {
+            throw new IllegalArgumentException("Некорректный код билета: " + code);
+        }
+        if (code < CANONICAL_LIMIT) {
+            char[] chars = new char[LENGTH];
+            for (int i = 0; i < LENGTH; i++) {
+                chars[i] = ALPHABET.charAt((int) (code & (ALPHABET.length() - 1)));
+                code >>>= BITS_PER_CHAR;
+            }
+            return new String(chars);
+        }
+
+        StringBuilder chars = new StringBuilder(LEGACY_MAX_LENGTH);
+        for (long value = code - CANONICAL_LIMIT; value > 0; value /= LEGACY_BASE) {
+            int digit = (int) (value % LEGACY_BASE);
+            if (digit == 0 || chars.length() == LEGACY_MAX_LENGTH) {
+                throw new IllegalArgumentException("Некорректный код билета: " + code);
+            }
+            chars.append(LEGACY_ALPHABET.charAt(digit - 1));
+        }
+        if (chars.length() == 0) {
+            throw new IllegalArgumentException("Некорректный код билета: " + code);
+        }
+        return chars.toString();
+    }
+
+    /**
+     * Канонический код из случайных бит (используются младшие 40)
+     */
+    public static long fromRandomBits(long bits) {
+        return bits & (CANONICAL_LIMIT - 1);
+    }
+
+    private static long encodeCanonical(String ticketNumber) {
+        long code = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            int index = indexIn(CANONICAL_INDEX, ticketNumber.charAt(i));
+            if (index < 0) {
+                return INVALID;
+            }
+            code |= (long) index << (BITS_PER_CHAR * i);
+        }
+        return code;
+    }
+
+    private static long encodeLegacy(String ticketNumber) {
+        long value = 0;
+        long weight = 1;
+        for (int i = 0; i < ticketNumber.length(); i++) {
+            int index = indexIn(LEGACY_INDEX, ticketNumber.charAt(i));
+            if (index < 0) {
+                return INVALID;
+            }
+            value += (index + 1) * weight;
+            weight *= LEGACY_BASE;
+        }
+        return CANONICAL_LIMIT + value;
+    }
+
+    private static int indexIn(byte[] index, char c) {
+        return c < index.length ? index[c] : -1;
+    }
+
+    private static byte[] indexOf(String alphabet) {
+        byte[] index = new byte[128];
+        Arrays.fill(index, (byte) -1);
+        for (int i = 0; i < alphabet.length(); i++) {
+            index[alphabet.charAt(i)] = (byte) i;
+        }
+        return index;
+    }
+}
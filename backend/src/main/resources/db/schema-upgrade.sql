@@ -0,0 +1,114 @@
+-- Дополнения схемы, которые Hibernate (ddl-auto) создать не может.
+-- Выполняется после инициализации JPA (spring.jpa.defer-datasource-initialization) при каждом запуске,
+-- поэтому каждая операция идемпотентна, а ошибка любой из них останавливает запуск приложения.
+-- Разделитель операций - "^;" (spring.sql.init.separator): блоки DO $$ ... $$ содержат ";" внутри.
+
+-- Триграммные индексы для поиска подстроки в задачах (TaskSpecification.search / withFilters.name).
+-- Без расширения pg_trgm (нет в сборке PostgreSQL или нет прав) поиск работает без индексов.
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm') THEN
+        IF NOT EXISTS (SELECT 1 FROM pg_available_extensions WHERE name = 'pg_trgm') THEN
+            RAISE WARNING 'pg_trgm недоступен: поиск задач работает без триграммных индексов';
+            RETURN;
+        END IF;
+        BEGIN
+            CREATE EXTENSION pg_trgm;
+        EXCEPTION WHEN insufficient_privilege THEN
+            RAISE WARNING 'нет прав на создание pg_trgm: поиск задач работает без триграммных индексов';
+            RETURN;
+        END;
+    END IF;
+    CREATE INDEX IF NOT EXISTS idx_tasks_name_trgm ON tasks USING gin (lower(name) gin_trgm_ops);
+    CREATE INDEX IF NOT EXISTS idx_tasks_description_trgm ON tasks USING gin (lower(description) gin_trgm_ops);
+END
+$$^;
+
+-- Идентификаторы из последовательностей с пулом (allocationSize = 50) вместо IDENTITY, чтобы Hibernate мог
+-- пакетировать INSERT. Для существующих таблиц снимается IDENTITY, id по умолчанию берется из той же
+-- последовательности (прямые INSERT без id продолжают работать), а последовательность сдвигается за MAX(id).
+-- Каждое значение последовательности - верхняя граница отдельного блока Hibernate, поэтому id прямого INSERT
+-- не пересекается с выданными блоками. ALTER TABLE выполняется, только если колонка еще не переведена.
+DO $$
+DECLARE
+    t text;
+    seq text;
+BEGIN
+    FOREACH t IN ARRAY ARRAY['users', 'tasks', 'notifications', 'golden_tickets', 'excursions', 'excursion_routes',
+            'workshops', 'workshop_user', 'equipment', 'workshop_slots', 'ticket_minting_jobs'] LOOP
+        seq := t || '_seq';
+        IF EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = current_schema() AND table_name = t AND column_name = 'id'
+                     AND (is_identity = 'YES' OR column_default IS DISTINCT FROM format('nextval(%L::regclass)', seq))) THEN
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY IF EXISTS', t);
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id SET DEFAULT nextval(%L)', t, seq);
+        END IF;
+        EXECUTE format('SELECT setval(%L, GREATEST((SELECT last_value FROM %I), (SELECT COALESCE(MAX(id), 0) FROM %I), 1))',
+                seq, seq, t);
+    END LOOP;
+END
+$$^;
+
+-- Заполнение excursions.end_time для экскурсий, созданных до появления колонки
+-- (окончание последней точки маршрута, без маршрута - 2 часа от начала)
+UPDATE excursions e SET end_time = COALESCE((SELECT MAX(r.start_time + r.duration_minutes * INTERVAL '1 minute') FROM excursion_routes r WHERE r.excursion_id = e.id), e.start_time + INTERVAL '2 hours') WHERE e.end_time IS NULL^;
+
+-- Заполнение excursion_routes.end_time для точек маршрута, созданных до появления колонки
+UPDATE excursion_routes SET end_time = start_time + duration_minutes * INTERVAL '1 minute' WHERE end_time IS NULL^;
+ALTER TABLE excursion_routes ALTER COLUMN end_time SET NOT NULL^;
+
+-- Журнал со слотами другой длины (поминутный журнал прежних версий) очищается и заполняется заново:
+-- занятость слотов выводится из маршрутов, поэтому при старте его можно пересобрать без потерь
+DELETE FROM workshop_slots WHERE EXISTS (SELECT 1 FROM workshop_slots WHERE slot_start <> date_bin(INTERVAL '15 minutes', slot_start, TIMESTAMP '2000-01-01'))^;
+
+-- Первичное заполнение журнала резервирования цехов (WorkshopSlotLedger, слоты по 15 минут) по маршрутам
+-- активных экскурсий, которые еще не закончились: только будущие слоты, слот цеха учитывается один раз
+-- на экскурсию. Выполняется, только пока журнал пуст.
+INSERT INTO workshop_slots (workshop_id, slot_start, occupied) SELECT c.workshop_id, c.slot, SUM(c.participants_count) FROM (SELECT DISTINCT e.id, r.workshop_id, s.slot, e.participants_count FROM excursion_routes r JOIN excursions e ON e.id = r.excursion_id CROSS JOIN LATERAL generate_series(date_bin(INTERVAL '15 minutes', r.start_time, TIMESTAMP '2000-01-01'), r.start_time + r.duration_minutes * INTERVAL '1 minute' - INTERVAL '1 microsecond', INTERVAL '15 minutes') AS s(slot) WHERE e.status IN ('CONFIRMED', 'IN_PROGRESS') AND e.participants_count > 0 AND r.start_time + r.duration_minutes * INTERVAL '1 minute' > NOW()) c WHERE NOT EXISTS (SELECT 1 FROM workshop_slots) GROUP BY c.workshop_id, c.slot ON CONFLICT (workshop_id, slot_start) DO NOTHING^;
+
+-- Числовой код номера билета (TicketNumberCodec) для билетов, созданных до появления колонки ticket_code.
+-- Сущность объявляет ticket_code NOT NULL, поэтому на непустой таблице Hibernate не может добавить колонку
+-- и ее уникальное ограничение - они создаются здесь. Канонический номер из 8 символов алфавита - 40 бит по 5
+-- на символ, прочие номера (A-Z, 0-9, до 10 символов) - base-37 со сдвигом 2^40. Билеты с номерами, которые
+-- не кодируются, переносятся в golden_tickets_quarantine с предупреждением в журнале, запуск не прерывается.
+-- Строковая колонка ticket_number сохраняется без NOT NULL и уникального ограничения (новые билеты ее не
+-- заполняют); ее удаление - отдельная миграция. Блок выполняется, пока ticket_code допускает NULL.
+DO $$
+DECLARE
+    quarantined bigint;
+    constraint_name text;
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = current_schema() AND table_name = 'golden_tickets' AND column_name = 'ticket_number')
+       OR EXISTS (SELECT 1 FROM information_schema.columns
+                  WHERE table_schema = current_schema() AND table_name = 'golden_tickets' AND column_name = 'ticket_code'
+                    AND is_nullable = 'NO') THEN
+        RETURN;
+    END IF;
+    ALTER TABLE golden_tickets ADD COLUMN IF NOT EXISTS ticket_code BIGINT;
+    UPDATE golden_tickets t SET ticket_code = (SELECT CASE WHEN t.ticket_number ~ '^[A-HJ-NP-Z2-9]{8}$' THEN SUM((strpos('ABCDEFGHJKLMNPQRSTUVWXYZ23456789', substr(t.ticket_number, i, 1)) - 1)::bigint << (5 * (i - 1))) ELSE 1099511627776 + SUM(strpos('ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789', substr(t.ticket_number, i, 1))::bigint * power(37::numeric, i - 1)::bigint) END FROM generate_series(1, length(t.ticket_number)) i) WHERE t.ticket_code IS NULL AND t.ticket_number ~ '^[A-Z0-9]{1,10}$';
+
+    CREATE TABLE IF NOT EXISTS golden_tickets_quarantine AS SELECT * FROM golden_tickets WITH NO DATA;
+    INSERT INTO golden_tickets_quarantine SELECT * FROM golden_tickets WHERE ticket_code IS NULL;
+    GET DIAGNOSTICS quarantined = ROW_COUNT;
+    IF quarantined > 0 THEN
+        DELETE FROM golden_tickets WHERE ticket_code IS NULL;
+        RAISE WARNING 'golden_tickets: % билетов с номерами без числового кода перенесены в golden_tickets_quarantine', quarantined;
+    END IF;
+
+    ALTER TABLE golden_tickets ALTER COLUMN ticket_number DROP NOT NULL;
+    FOR constraint_name IN SELECT c.conname FROM pg_constraint c
+            JOIN pg_attribute a ON a.attrelid = c.conrelid AND a.attnum = ANY (c.conkey)
+            WHERE c.conrelid = 'golden_tickets'::regclass AND c.contype = 'u' AND a.attname = 'ticket_number' LOOP
+        EXECUTE format('ALTER TABLE golden_tickets DROP CONSTRAINT %I', constraint_name);
+    END LOOP;
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint
+                   WHERE conrelid = 'golden_tickets'::regclass AND conname = 'uk_golden_tickets_ticket_code') THEN
+        ALTER TABLE golden_tickets ADD CONSTRAINT uk_golden_tickets_ticket_code UNIQUE (ticket_code);
+    END IF;
+    ALTER TABLE golden_tickets ALTER COLUMN ticket_code SET NOT NULL;
+END
+$$^;
+
+-- Счетчики занятых мест экскурсий (excursion_seats) по фактическим бронированиям; существующие счетчики не трогаются
+INSERT INTO excursion_seats (excursion_id, booked) SELECT e.id, COUNT(t.id) FROM excursions e LEFT JOIN golden_tickets t ON t.excursion_id = e.id AND t.status = 'BOOKED' GROUP BY e.id ON CONFLICT (excursion_id) DO NOTHING^;
@@ -4,6 +4,7 @@ import com.example.demo.models.Role;
 import com.example.demo.models.User;
 import com.example.demo.repositories.UserRepository;
 import com.example.demo.security.jwt.JwtUtils;
+import com.example.demo.services.TicketCache;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -39,12 +40,17 @@ public abstract class BaseTest {
     @Autowired
     protected BCryptPasswordEncoder passwordEncoder;
 
+    @Autowired
+    protected TicketCache ticketCache;
+
     protected Map<Role, String> roleTokens = new HashMap<>();
     protected Map<Role, User> roleUsers = new HashMap<>();
 
     @BeforeEach
     public void setupBaseTest() {
-        
+        // Тесты пересоздают билеты с теми же номерами в обход сервиса
+        ticketCache.invalidateAll();
+
         if (userRepository.count() == 0) {
             createTestUsers();
             generateTokensForRoles();
@@ -5,6 +5,8 @@ import com.example.demo.dto.request.ExcursionRequestDTO;
 import com.example.demo.models.*;
 import com.example.demo.repositories.ExcursionRepository;
 import com.example.demo.repositories.WorkshopRepository;
+import com.example.demo.services.ExcursionService;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -12,7 +14,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -53,7 +57,7 @@ public class ExcursionControllerTest extends BaseTest {
         
         ExcursionRequestDTO dto = new ExcursionRequestDTO();
         dto.setName("Экскурсия по фабрике");
-        dto.setStartTime(LocalDateTime.now().plusDays(1));
+        dto.setStartTime(LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.HOURS));
         dto.setParticipantsCount(20);
         dto.setGuideId(guide.getId());
         dto.setStatus(ExcursionStatus.DRAFT);
@@ -76,7 +80,7 @@ public class ExcursionControllerTest extends BaseTest {
         
         ExcursionRequestDTO dto = new ExcursionRequestDTO();
         dto.setName("Утренняя экскурсия");
-        dto.setStartTime(LocalDateTime.now().plusDays(2));
+        dto.setStartTime(LocalDateTime.now().plusDays(2).truncatedTo(ChronoUnit.HOURS));
         dto.setParticipantsCount(15);
         dto.setGuideId(guide.getId());
         dto.setStatus(ExcursionStatus.DRAFT);
@@ -104,7 +108,7 @@ public class ExcursionControllerTest extends BaseTest {
 
         ExcursionRequestDTO dto = new ExcursionRequestDTO();
         dto.setName("Кастомная экскурсия");
-        dto.setStartTime(LocalDateTime.now().plusDays(3));
+        dto.setStartTime(LocalDateTime.now().plusDays(3).truncatedTo(ChronoUnit.HOURS));
         dto.setParticipantsCount(25);
         dto.setGuideId(guide.getId());
         dto.setStatus(ExcursionStatus.DRAFT);
@@ -119,6 +123,33 @@ public class ExcursionControllerTest extends BaseTest {
                 .andExpect(jsonPath("$.name", is("Кастомная экскурсия")));
     }
 
+    @Test
+    @DisplayName("Начало экскурсии не на границе слота журнала - 400")
+    public void testCreateExcursionWithUnalignedStart() throws Exception {
+        User guide = getUserForRole(Role.GUIDE);
+
+        ExcursionRequestDTO.RoutePointDTO point = new ExcursionRequestDTO.RoutePointDTO();
+        point.setWorkshopId(testWorkshop.getId());
+        point.setOrderNumber(1);
+        point.setDurationMinutes(30);
+
+        ExcursionRequestDTO dto = new ExcursionRequestDTO();
+        dto.setName("Экскурсия в 10:07");
+        dto.setStartTime(LocalDateTime.now().plusDays(3).truncatedTo(ChronoUnit.HOURS).plusMinutes(7));
+        dto.setParticipantsCount(10);
+        dto.setGuideId(guide.getId());
+        dto.setStatus(ExcursionStatus.CONFIRMED);
+        dto.setAutoGenerateRoute(false);
+        dto.setRoutes(new ArrayList<>(List.of(point)));
+
+        mockMvc.perform(post("/api/excursions")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(dto)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", containsString("кратно 15 минутам")));
+    }
+
     @Test
     @DisplayName("Создание экскурсии WORKER'ом запрещено")
     public void testCreateExcursionAsWorkerForbidden() throws Exception {
@@ -126,7 +157,7 @@ public class ExcursionControllerTest extends BaseTest {
         
         ExcursionRequestDTO dto = new ExcursionRequestDTO();
         dto.setName("Недопустимая экскурсия");
-        dto.setStartTime(LocalDateTime.now().plusDays(1));
+        dto.setStartTime(LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.HOURS));
         dto.setParticipantsCount(10);
         dto.setGuideId(guide.getId());
         dto.setAutoGenerateRoute(true);
@@ -209,6 +240,74 @@ public class ExcursionControllerTest extends BaseTest {
                 .andExpect(jsonPath("$", hasSize(2)));
     }
 
+    @Test
+    @DisplayName("Постраничный список экскурсий по курсору с фильтром по датам")
+    public void testGetExcursionsByCursor() throws Exception {
+        User guide = getUserForRole(Role.GUIDE);
+        LocalDateTime base = LocalDateTime.now().plusDays(10).withNano(0);
+
+        for (int i = 0; i < 4; i++) {
+            Excursion excursion = new Excursion();
+            excursion.setName("Экскурсия " + i);
+            excursion.setStartTime(base.plusHours(i));
+            excursion.setParticipantsCount(10);
+            excursion.setGuide(guide);
+            excursion.setStatus(ExcursionStatus.CONFIRMED);
+            excursionRepository.save(excursion);
+        }
+        // Вне диапазона
+        Excursion outside = new Excursion();
+        outside.setName("Другая неделя");
+        outside.setStartTime(base.plusDays(7));
+        outside.setParticipantsCount(10);
+        outside.setGuide(guide);
+        outside.setStatus(ExcursionStatus.CONFIRMED);
+        excursionRepository.save(outside);
+
+        String firstPage = mockMvc.perform(get("/api/excursions/cursor")
+                .param("from", base.toString())
+                .param("to", base.plusDays(1).toString())
+                .param("size", "3")
+                .param("withTotal", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(3)))
+                .andExpect(jsonPath("$.content[0].name", is("Экскурсия 0")))
+                .andExpect(jsonPath("$.hasNext", is(true)))
+                .andExpect(jsonPath("$.totalElements", is(4)))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = JsonPath.read(firstPage, "$.nextCursor");
+
+        mockMvc.perform(get("/api/excursions/cursor")
+                .param("from", base.toString())
+                .param("to", base.plusDays(1).toString())
+                .param("size", "3")
+                .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].name", is("Экскурсия 3")))
+                .andExpect(jsonPath("$.hasNext", is(false)));
+
+        mockMvc.perform(get("/api/excursions/cursor")
+                .param("cursor", "не-курсор"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", is("Некорректный курсор")));
+    }
+
+    @Test
+    @DisplayName("Размер страницы курсора вне диапазона 1..MAX_PAGE_SIZE - 400")
+    public void testGetExcursionsByCursorInvalidSize() throws Exception {
+        for (String size : new String[] { "0", "-1", String.valueOf(ExcursionService.MAX_PAGE_SIZE + 1), String.valueOf(Integer.MAX_VALUE) }) {
+            mockMvc.perform(get("/api/excursions/cursor")
+                    .param("size", size))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").exists());
+        }
+
+        mockMvc.perform(get("/api/excursions/cursor")
+                .param("size", String.valueOf(ExcursionService.MAX_PAGE_SIZE)))
+                .andExpect(status().isOk());
+    }
+
     @Test
     @DisplayName("Обновление экскурсии")
     public void testUpdateExcursion() throws Exception {
@@ -224,7 +323,7 @@ public class ExcursionControllerTest extends BaseTest {
 
         ExcursionRequestDTO dto = new ExcursionRequestDTO();
         dto.setName("Новое название");
-        dto.setStartTime(LocalDateTime.now().plusDays(3));
+        dto.setStartTime(LocalDateTime.now().plusDays(3).truncatedTo(ChronoUnit.HOURS));
         dto.setParticipantsCount(25);
         dto.setGuideId(guide.getId());
         dto.setStatus(ExcursionStatus.CONFIRMED);
@@ -277,7 +376,7 @@ public class ExcursionControllerTest extends BaseTest {
         User guide = getUserForRole(Role.GUIDE);
         
         ExcursionRequestDTO dto = new ExcursionRequestDTO();
-        dto.setStartTime(LocalDateTime.now().plusDays(1));
+        dto.setStartTime(LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.HOURS));
         dto.setParticipantsCount(20);
         dto.setGuideId(guide.getId());
         dto.setAutoGenerateRoute(true);
@@ -290,6 +389,200 @@ public class ExcursionControllerTest extends BaseTest {
                 .andExpect(jsonPath("$", notNullValue()));
     }
 
+    @Test
+    @DisplayName("Проверка доступности учитывает подтвержденные экскурсии и их удаление")
+    public void testCheckRouteAvailabilityUsesOccupancyIndex() throws Exception {
+        User guide = getUserForRole(Role.GUIDE);
+        LocalDateTime startTime = LocalDateTime.now().plusDays(5).truncatedTo(ChronoUnit.HOURS);
+
+        ExcursionRequestDTO.RoutePointDTO point = new ExcursionRequestDTO.RoutePointDTO();
+        point.setWorkshopId(testWorkshop.getId());
+        point.setOrderNumber(1);
+        point.setDurationMinutes(30);
+
+        ExcursionRequestDTO booked = new ExcursionRequestDTO();
+        booked.setName("Подтвержденная экскурсия");
+        booked.setStartTime(startTime);
+        booked.setParticipantsCount(30);
+        booked.setGuideId(guide.getId());
+        booked.setStatus(ExcursionStatus.CONFIRMED);
+        booked.setAutoGenerateRoute(false);
+        booked.setRoutes(new ArrayList<>(List.of(point)));
+
+        String response = mockMvc.perform(post("/api/excursions")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(booked)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long excursionId = objectMapper.readTree(response).get("id").asLong();
+
+        // Вторая группа пересекается по времени: 30 + 30 > 50
+        ExcursionRequestDTO candidate = new ExcursionRequestDTO();
+        candidate.setStartTime(startTime.plusMinutes(15));
+        candidate.setParticipantsCount(30);
+        candidate.setRoutes(new ArrayList<>(List.of(point)));
+
+        mockMvc.perform(post("/api/excursions/check-availability")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(candidate)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.available", is(false)));
+
+        // Соседний слот после окончания подтвержденной экскурсии свободен
+        candidate.setStartTime(startTime.plusMinutes(30));
+        mockMvc.perform(post("/api/excursions/check-availability")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(candidate)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.available", is(true)));
+
+        mockMvc.perform(delete("/api/excursions/" + excursionId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN)))
+                .andExpect(status().is2xxSuccessful());
+
+        candidate.setStartTime(startTime.plusMinutes(15));
+        mockMvc.perform(post("/api/excursions/check-availability")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(candidate)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.available", is(true)));
+    }
+
+    @Test
+    @DisplayName("Пакетная проверка доступности вариантов экскурсии")
+    public void testCheckRouteAvailabilityBatch() throws Exception {
+        User guide = getUserForRole(Role.GUIDE);
+        LocalDateTime startTime = LocalDateTime.now().plusDays(6).truncatedTo(ChronoUnit.HOURS);
+
+        ExcursionRequestDTO.RoutePointDTO point = new ExcursionRequestDTO.RoutePointDTO();
+        point.setWorkshopId(testWorkshop.getId());
+        point.setOrderNumber(1);
+        point.setDurationMinutes(30);
+
+        // Бронь через API, чтобы она попала в индекс занятости
+        ExcursionRequestDTO booked = new ExcursionRequestDTO();
+        booked.setName("Подтвержденная экскурсия");
+        booked.setStartTime(startTime);
+        booked.setParticipantsCount(30);
+        booked.setGuideId(guide.getId());
+        booked.setStatus(ExcursionStatus.CONFIRMED);
+        booked.setAutoGenerateRoute(false);
+        booked.setRoutes(new ArrayList<>(List.of(point)));
+
+        mockMvc.perform(post("/api/excursions")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(booked)))
+                .andExpect(status().isOk());
+
+        List<ExcursionRequestDTO> candidates = new ArrayList<>();
+        for (int shift : new int[] { 0, 15, 45, 30 }) {
+            ExcursionRequestDTO candidate = new ExcursionRequestDTO();
+            candidate.setStartTime(startTime.plusMinutes(shift));
+            candidate.setParticipantsCount(30);
+            candidate.setGuideId(guide.getId());
+            candidate.setRoutes(new ArrayList<>(List.of(point)));
+            candidates.add(candidate);
+        }
+
+        mockMvc.perform(post("/api/excursions/check-availability/batch")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(candidates)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results", hasSize(4)))
+                .andExpect(jsonPath("$.results[0].available", is(false)))
+                .andExpect(jsonPath("$.results[0].conflicts", hasSize(2)))
+                .andExpect(jsonPath("$.results[1].available", is(false)))
+                .andExpect(jsonPath("$.results[2].available", is(true)))
+                .andExpect(jsonPath("$.results[3].available", is(true)))
+                .andExpect(jsonPath("$.availableCount", is(2)))
+                .andExpect(jsonPath("$.earliestAvailable.index", is(3)));
+
+        mockMvc.perform(post("/api/excursions/check-availability/batch")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Тепловая карта загрузки цехов обновляется при изменении и удалении экскурсии")
+    public void testWorkshopHeatmap() throws Exception {
+        User guide = getUserForRole(Role.GUIDE);
+        LocalDate day = LocalDate.now().plusDays(20);
+
+        ExcursionRequestDTO.RoutePointDTO point = new ExcursionRequestDTO.RoutePointDTO();
+        point.setWorkshopId(testWorkshop.getId());
+        point.setOrderNumber(1);
+        point.setDurationMinutes(30);
+
+        ExcursionRequestDTO booked = new ExcursionRequestDTO();
+        booked.setName("Экскурсия на карте");
+        booked.setStartTime(day.atTime(10, 0));
+        booked.setParticipantsCount(20);
+        booked.setGuideId(guide.getId());
+        booked.setStatus(ExcursionStatus.CONFIRMED);
+        booked.setAutoGenerateRoute(false);
+        booked.setRoutes(new ArrayList<>(List.of(point)));
+
+        String response = mockMvc.perform(post("/api/excursions")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(booked)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long excursionId = objectMapper.readTree(response).get("id").asLong();
+
+        // Интервалы по 30 минут: 10:00-10:30 - двадцатый
+        mockMvc.perform(get("/api/excursions/heatmap")
+                .param("from", day.toString())
+                .param("to", day.plusDays(1).toString())
+                .param("workshopIds", testWorkshop.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.workshops", hasSize(1)))
+                .andExpect(jsonPath("$.workshops[0].occupied", hasSize(48)))
+                .andExpect(jsonPath("$.workshops[0].occupied[20]", is(20)))
+                .andExpect(jsonPath("$.workshops[0].remaining[20]", is(30)))
+                .andExpect(jsonPath("$.workshops[0].remaining[19]", is(50)))
+                .andExpect(jsonPath("$.workshops[0].remaining[21]", is(50)));
+
+        ExcursionRequestDTO update = new ExcursionRequestDTO();
+        update.setParticipantsCount(40);
+        mockMvc.perform(put("/api/excursions/" + excursionId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(update)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/excursions/heatmap")
+                .param("from", day.toString())
+                .param("to", day.plusDays(1).toString())
+                .param("workshopIds", testWorkshop.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.workshops[0].remaining[20]", is(10)));
+
+        mockMvc.perform(delete("/api/excursions/" + excursionId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN)))
+                .andExpect(status().is2xxSuccessful());
+
+        mockMvc.perform(get("/api/excursions/heatmap")
+                .param("from", day.toString())
+                .param("to", day.plusDays(1).toString())
+                .param("workshopIds", testWorkshop.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.workshops[0].remaining[20]", is(50)));
+
+        mockMvc.perform(get("/api/excursions/heatmap")
+                .param("from", day.toString())
+                .param("to", day.toString()))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("Удаление экскурсии WORKER'ом запрещено")
     public void testDeleteExcursionAsWorkerForbidden() throws Exception {
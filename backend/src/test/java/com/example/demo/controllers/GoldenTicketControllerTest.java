@@ -6,6 +6,7 @@ import com.example.demo.dto.request.GenerateTicketsRequestDTO;
 import com.example.demo.models.*;
 import com.example.demo.repositories.ExcursionRepository;
 import com.example.demo.repositories.GoldenTicketRepository;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,6 +16,7 @@ import org.springframework.http.MediaType;
 
 import java.time.LocalDateTime;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.hamcrest.Matchers.*;
@@ -137,6 +139,44 @@ public class GoldenTicketControllerTest extends BaseTest {
                 .andExpect(jsonPath("$.valid", is(false)));
     }
 
+    @Test
+    @DisplayName("Кеш проверки билета сбрасывается бронированием и отменой")
+    public void testValidateTicketCacheInvalidation() throws Exception {
+        goldenTicketRepository.save(new GoldenTicket("CACHE001"));
+
+        // Первый запрос кладет билет в кеш, второй отвечает из него
+        mockMvc.perform(get("/api/tickets/validate/CACHE001"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ticket.status", is("ACTIVE")));
+        mockMvc.perform(get("/api/tickets/CACHE001")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("ACTIVE")));
+
+        BookTicketRequestDTO dto = new BookTicketRequestDTO();
+        dto.setTicketNumber("CACHE001");
+        dto.setExcursionId(testExcursion.getId());
+        dto.setHolderName("Чарли Бакет");
+        mockMvc.perform(post("/api/tickets/book")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(dto)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/tickets/validate/CACHE001"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.valid", is(true)))
+                .andExpect(jsonPath("$.ticket.status", is("BOOKED")))
+                .andExpect(jsonPath("$.ticket.excursionId", is(testExcursion.getId().intValue())));
+
+        mockMvc.perform(delete("/api/tickets/CACHE001/cancel"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/tickets/CACHE001")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("ACTIVE")))
+                .andExpect(jsonPath("$.holderName", nullValue()));
+    }
+
     @Test
     @DisplayName("Бронирование билета на экскурсию (публичный доступ)")
     public void testBookTicket() throws Exception {
@@ -179,6 +219,43 @@ public class GoldenTicketControllerTest extends BaseTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @DisplayName("Бронирование сверх вместимости экскурсии и освобождение места отменой")
+    public void testBookTicketWhenNoSeatsLeft() throws Exception {
+        testExcursion.setParticipantsCount(1);
+        testExcursion = excursionRepository.save(testExcursion);
+        goldenTicketRepository.save(new GoldenTicket("SEAT0001"));
+        goldenTicketRepository.save(new GoldenTicket("SEAT0002"));
+
+        BookTicketRequestDTO first = new BookTicketRequestDTO();
+        first.setTicketNumber("SEAT0001");
+        first.setExcursionId(testExcursion.getId());
+        first.setHolderName("Первый");
+        mockMvc.perform(post("/api/tickets/book")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(first)))
+                .andExpect(status().isOk());
+
+        BookTicketRequestDTO second = new BookTicketRequestDTO();
+        second.setTicketNumber("SEAT0002");
+        second.setExcursionId(testExcursion.getId());
+        second.setHolderName("Второй");
+        mockMvc.perform(post("/api/tickets/book")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(second)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", is("На экскурсии нет свободных мест")));
+
+        // Отмена освобождает место
+        mockMvc.perform(delete("/api/tickets/SEAT0001/cancel"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/tickets/book")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(second)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("BOOKED")));
+    }
+
     @Test
     @DisplayName("Отмена бронирования (публичный доступ)")
     public void testCancelBooking() throws Exception {
@@ -240,6 +317,68 @@ public class GoldenTicketControllerTest extends BaseTest {
                 .andExpect(jsonPath("$.tickets", hasSize(20)));
     }
 
+    @Test
+    @DisplayName("Массовый выпуск билетов фоновым заданием")
+    public void testMintTickets() throws Exception {
+        GenerateTicketsRequestDTO dto = new GenerateTicketsRequestDTO();
+        dto.setCount(2500);
+        dto.setExpiresInDays(30);
+
+        String response = mockMvc.perform(post("/api/tickets/mint")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(dto)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.requested", is(2500)))
+                .andExpect(jsonPath("$.status", is("RUNNING")))
+                .andReturn().getResponse().getContentAsString();
+        Number jobId = JsonPath.read(response, "$.id");
+
+        // Задание выполняется в фоне: ждем завершения
+        String status = "RUNNING";
+        for (int i = 0; i < 100 && status.equals("RUNNING"); i++) {
+            Thread.sleep(100);
+            String job = mockMvc.perform(get("/api/tickets/mint/" + jobId.longValue())
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN)))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            status = JsonPath.read(job, "$.status");
+        }
+
+        mockMvc.perform(get("/api/tickets/mint/" + jobId.longValue())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("COMPLETED")))
+                .andExpect(jsonPath("$.generated", is(2500)))
+                .andExpect(jsonPath("$.progressPercent", is(100.0)));
+        assertEquals(2500, goldenTicketRepository.count());
+    }
+
+    @Test
+    @DisplayName("Массовый выпуск билетов: GUIDE запрещено, превышение лимита - 400, неизвестное задание - 404")
+    public void testMintTicketsValidation() throws Exception {
+        GenerateTicketsRequestDTO dto = new GenerateTicketsRequestDTO();
+        dto.setCount(10);
+
+        mockMvc.perform(post("/api/tickets/mint")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.GUIDE))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(dto)))
+                .andExpect(status().isForbidden());
+
+        dto.setCount(0);
+        mockMvc.perform(post("/api/tickets/mint")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(dto)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", notNullValue()));
+
+        mockMvc.perform(get("/api/tickets/mint/999999")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN)))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     @DisplayName("Валидация несуществующего билета")
     public void testValidateNonExistentTicket() throws Exception {
@@ -8,18 +8,27 @@ import com.example.demo.models.Task;
 import com.example.demo.models.TaskStatus;
 import com.example.demo.models.User;
 import com.example.demo.repositories.TaskRepository;
+import com.example.demo.services.TaskService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DisplayName("Функциональные тесты для TaskController")
 public class TaskControllerTest extends BaseTest {
@@ -27,6 +36,9 @@ public class TaskControllerTest extends BaseTest {
     @Autowired
     private TaskRepository taskRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Override
     @BeforeEach
     public void setupBaseTest() {
@@ -52,7 +64,8 @@ public class TaskControllerTest extends BaseTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.name", is("Ремонт оборудования")))
                 .andExpect(jsonPath("$.description", is("Починить конвейер №3")))
-                .andExpect(jsonPath("$.status", is("IN_PROGRESS")));
+                // Статус новой задачи определяется наличием исполнителя (TaskService.createTask)
+                .andExpect(jsonPath("$.status", is("ASSIGNED")));
     }
 
     @Test
@@ -201,14 +214,186 @@ public class TaskControllerTest extends BaseTest {
                 .andExpect(jsonPath("$.content", hasSize(10)));
     }
 
+    @Test
+    @DisplayName("Получение задач по курсору (keyset-пагинация)")
+    public void testGetTasksByCursor() throws Exception {
+        for (int i = 0; i < 15; i++) {
+            Task task = new Task();
+            task.setName("Задача " + i);
+            task.setStatus(TaskStatus.NOT_ASSIGNED);
+            taskRepository.save(task);
+        }
+
+        String firstPage = mockMvc.perform(get("/api/tasks/cursor")
+                .param("size", "10")
+                .param("withTotal", "true")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(10)))
+                .andExpect(jsonPath("$.hasNext", is(true)))
+                .andExpect(jsonPath("$.totalElements", is(15)))
+                .andReturn().getResponse().getContentAsString();
+
+        String nextCursor = objectMapper.readTree(firstPage).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/tasks/cursor")
+                .param("cursor", nextCursor)
+                .param("size", "10")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(5)))
+                .andExpect(jsonPath("$.hasNext", is(false)))
+                .andExpect(jsonPath("$.totalElements").value(nullValue()));
+    }
+
+    @Test
+    @DisplayName("Размер страницы курсора вне диапазона 1..MAX_PAGE_SIZE - 400")
+    public void testGetTasksByCursorInvalidSize() throws Exception {
+        for (String size : new String[] { "0", "-1", String.valueOf(TaskService.MAX_PAGE_SIZE + 1), String.valueOf(Integer.MAX_VALUE) }) {
+            mockMvc.perform(get("/api/tasks/cursor")
+                    .param("size", size)
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN)))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").exists());
+        }
+
+        mockMvc.perform(get("/api/tasks/cursor")
+                .param("size", String.valueOf(TaskService.MAX_PAGE_SIZE))
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Потоковая выгрузка задач в NDJSON и CSV")
+    public void testExportTasksStreaming() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            Task task = new Task();
+            task.setName("Выгрузка, задача " + i);
+            task.setStatus(TaskStatus.NOT_ASSIGNED);
+            taskRepository.save(task);
+        }
+
+        MvcResult ndjson = mockMvc.perform(get("/api/tasks")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String ndjsonBody = mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        String[] lines = ndjsonBody.trim().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(objectMapper.readTree(lines[0]).has("name"));
+
+        MvcResult csv = mockMvc.perform(get("/api/tasks")
+                .accept("text/csv")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String csvBody = mockMvc.perform(asyncDispatch(csv))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        String[] rows = csvBody.trim().split("\r\n");
+        assertEquals(4, rows.length);
+        assertTrue(rows[1].contains("\"Выгрузка, задача"));
+    }
+
+    @Test
+    @DisplayName("Списки задач загружаются одним запросом независимо от числа исполнителей")
+    public void testTaskListsQueryCount() throws Exception {
+        for (Role role : new Role[] { Role.ADMIN, Role.FOREMAN, Role.WORKER, Role.MASTER, Role.GUIDE }) {
+            Task task = new Task();
+            task.setName("Задача для " + role);
+            task.setStatus(TaskStatus.ASSIGNED);
+            task.setUser(getUserForRole(role));
+            taskRepository.save(task);
+        }
+        Task unassigned = new Task();
+        unassigned.setName("Свободная задача");
+        unassigned.setStatus(TaskStatus.NOT_ASSIGNED);
+        taskRepository.save(unassigned);
+
+        String token = "Bearer " + getTokenForRole(Role.ADMIN);
+        // Запросы аутентификации (загрузка пользователя по JWT) - базовая линия
+        long authStatements = statementsFor(get("/api/tasks/statuses").header(HttpHeaders.AUTHORIZATION, token));
+
+        assertEquals(authStatements + 1, statementsFor(get("/api/tasks")
+                .header(HttpHeaders.AUTHORIZATION, token)));
+        assertEquals(authStatements + 1, statementsFor(get("/api/tasks/paged")
+                .param("size", "10")
+                .header(HttpHeaders.AUTHORIZATION, token)));
+        assertEquals(authStatements + 1, statementsFor(post("/api/tasks/filter-paged")
+                .param("size", "10")
+                .header(HttpHeaders.AUTHORIZATION, token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(new TaskFilterRequestDTO(null, null, null, null, null, null, TaskStatus.ASSIGNED)))));
+        assertEquals(authStatements + 1, statementsFor(get("/api/tasks/unassigned")
+                .header(HttpHeaders.AUTHORIZATION, token)));
+
+        mockMvc.perform(get("/api/tasks/unassigned")
+                .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].user", nullValue()));
+    }
+
+    @Test
+    @DisplayName("Массовый импорт задач из JSON с отчетом об ошибках по строкам")
+    public void testImportTasksJson() throws Exception {
+        User worker = getUserForRole(Role.WORKER);
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rows.add(Map.of("name", "Импорт 1", "description", "Без исполнителя"));
+        rows.add(Map.of("name", "Импорт 2", "userId", worker.getId()));
+        rows.add(Map.of("description", "Без названия"));
+        rows.add(Map.of("name", "Импорт 4", "userId", 999999));
+
+        mockMvc.perform(post("/api/tasks/import")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(rows)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalRows", is(4)))
+                .andExpect(jsonPath("$.importedCount", is(2)))
+                .andExpect(jsonPath("$.failedCount", is(2)))
+                .andExpect(jsonPath("$.errors[0].row", is(3)))
+                .andExpect(jsonPath("$.errors[1].row", is(4)));
+
+        assertEquals(2, taskRepository.count());
+    }
+
+    @Test
+    @DisplayName("Массовый импорт задач из CSV")
+    public void testImportTasksCsv() throws Exception {
+        String csv = "name,description,userId\r\n" +
+                "Импорт CSV 1,\"Описание, с запятой\",\r\n" +
+                "Импорт CSV 2,,abc\r\n";
+
+        mockMvc.perform(post("/api/tasks/import")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN))
+                .contentType("text/csv")
+                .content(csv.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalRows", is(2)))
+                .andExpect(jsonPath("$.importedCount", is(1)))
+                .andExpect(jsonPath("$.errors[0].row", is(2)));
+
+        assertEquals("Описание, с запятой", taskRepository.findAll().get(0).getDescription());
+    }
+
     @Test
     @DisplayName("Получение статусов задач")
     public void testGetTaskStatuses() throws Exception {
         mockMvc.perform(get("/api/tasks/statuses")
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(3)))
-                .andExpect(jsonPath("$[0]", isOneOf("NOT_ASSIGNED", "IN_PROGRESS", "COMPLETED")));
+                .andExpect(jsonPath("$", hasSize(TaskStatus.values().length)))
+                .andExpect(jsonPath("$[0]", isOneOf("NOT_ASSIGNED", "ASSIGNED", "IN_PROGRESS", "COMPLETED")));
     }
 
     @Test
@@ -228,6 +413,44 @@ public class TaskControllerTest extends BaseTest {
                 .andExpect(jsonPath("$.user.id", is(worker.getId().intValue())));
     }
 
+    @Test
+    @DisplayName("Взять уже занятую задачу - 409 TASK_ALREADY_CLAIMED")
+    public void testAssignAlreadyClaimedTask() throws Exception {
+        User worker = getUserForRole(Role.WORKER);
+        User master = getUserForRole(Role.MASTER);
+
+        Task task = new Task();
+        task.setName("Задача, занятая другим");
+        task.setStatus(TaskStatus.ASSIGNED);
+        task.setUser(master);
+        Task savedTask = taskRepository.save(task);
+
+        mockMvc.perform(post("/api/tasks/" + savedTask.getId() + "/assign-to-me")
+                .param("userId", worker.getId().toString())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.WORKER)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error", is("TASK_ALREADY_CLAIMED")));
+    }
+
+    @Test
+    @DisplayName("Взять завершенную задачу без исполнителя - 409 TASK_ALREADY_CLAIMED")
+    public void testAssignCompletedTask() throws Exception {
+        User worker = getUserForRole(Role.WORKER);
+
+        Task task = new Task();
+        task.setName("Завершенная задача без исполнителя");
+        task.setStatus(TaskStatus.COMPLETED);
+        Task savedTask = taskRepository.saveAndFlush(task);
+
+        mockMvc.perform(post("/api/tasks/" + savedTask.getId() + "/assign-to-me")
+                .param("userId", worker.getId().toString())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.WORKER)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error", is("TASK_ALREADY_CLAIMED")));
+
+        assertEquals(TaskStatus.COMPLETED, taskRepository.findById(savedTask.getId()).orElseThrow().getStatus());
+    }
+
     @Test
     @DisplayName("Отказаться от задачи (unassign)")
     public void testUnassignTask() throws Exception {
@@ -319,5 +542,108 @@ public class TaskControllerTest extends BaseTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content", notNullValue()));
     }
-}
 
+    @Test
+    @DisplayName("Поиск задач по подстроке в названии и описании")
+    public void testFilterTasksBySearch() throws Exception {
+        Task byName = new Task();
+        byName.setName("Настроить шоколадный водопад");
+        byName.setStatus(TaskStatus.NOT_ASSIGNED);
+        taskRepository.save(byName);
+
+        Task byDescription = new Task();
+        byDescription.setName("Плановый осмотр");
+        byDescription.setDescription("Проверить насосы шоколадного водопада");
+        byDescription.setStatus(TaskStatus.NOT_ASSIGNED);
+        taskRepository.save(byDescription);
+
+        Task other = new Task();
+        other.setName("Покрасить забор 100%_готово");
+        other.setStatus(TaskStatus.NOT_ASSIGNED);
+        taskRepository.save(other);
+
+        TaskFilterRequestDTO filterDTO = new TaskFilterRequestDTO(null, null, null, null, null, null, null);
+        filterDTO.setSearch("шоколадн");
+
+        mockMvc.perform(post("/api/tasks/filter")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(filterDTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+
+        // Символы % и _ ищутся буквально, а не как шаблоны LIKE
+        filterDTO.setSearch("0%_г");
+
+        mockMvc.perform(post("/api/tasks/filter")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(filterDTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    @DisplayName("Автоматическое распределение не превышает лимит задач без force")
+    public void testDistributeTasksRespectsLimit() throws Exception {
+        int capacity = workerCapacity();
+        List<Long> taskIds = new ArrayList<>();
+        for (int i = 0; i <= capacity; i++) {
+            Task task = new Task();
+            task.setName("Задача лимита " + i);
+            task.setStatus(TaskStatus.NOT_ASSIGNED);
+            taskIds.add(taskRepository.save(task).getId());
+        }
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("taskIds", taskIds);
+        request.put("force", false);
+
+        mockMvc.perform(post("/api/tasks/distribute")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.distributedCount", is(capacity)))
+                .andExpect(jsonPath("$.skippedCount", is(1)))
+                .andExpect(jsonPath("$.errors", hasSize(1)));
+    }
+
+    @Test
+    @DisplayName("Принудительное распределение игнорирует лимит задач")
+    public void testDistributeTasksForced() throws Exception {
+        int capacity = workerCapacity();
+        List<Long> taskIds = new ArrayList<>();
+        for (int i = 0; i <= capacity; i++) {
+            Task task = new Task();
+            task.setName("Принудительная задача " + i);
+            task.setStatus(TaskStatus.NOT_ASSIGNED);
+            taskIds.add(taskRepository.save(task).getId());
+        }
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("taskIds", taskIds);
+        request.put("force", true);
+
+        mockMvc.perform(post("/api/tasks/distribute")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getTokenForRole(Role.ADMIN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.distributedCount", is(capacity + 1)))
+                .andExpect(jsonPath("$.skippedCount", is(0)));
+    }
+
+    // Задачи могут получить WORKER, FOREMAN, MASTER и GUIDE
+    private int workerCapacity() {
+        return userRepository.findByRoleIn(List.of(Role.WORKER, Role.FOREMAN, Role.MASTER, Role.GUIDE)).size()
+                * TaskService.MAX_ALLOWED_TASKS;
+    }
+
+    private long statementsFor(MockHttpServletRequestBuilder request) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(request).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.example.demo.repositories.*;
+import com.example.demo.services.TicketCache;
 import com.example.demo.services.UserService;
 
 @SpringBootTest
@@ -42,8 +43,12 @@ public abstract class BaseDatabaseTest {
     @Autowired
     protected UserService userService;
 
+    @Autowired
+    protected TicketCache ticketCache;
+
     @BeforeEach
     public void cleanDatabase() {
+        jdbcTemplate.execute("DELETE FROM ticket_minting_jobs");
         jdbcTemplate.execute("DELETE FROM golden_tickets");
         jdbcTemplate.execute("DELETE FROM excursion_routes");
         jdbcTemplate.execute("DELETE FROM excursions");
@@ -53,6 +58,7 @@ public abstract class BaseDatabaseTest {
         jdbcTemplate.execute("DELETE FROM workshop_user");
         jdbcTemplate.execute("DELETE FROM workshops");
         jdbcTemplate.execute("DELETE FROM users");
+        ticketCache.invalidateAll();
     }
 
     /**
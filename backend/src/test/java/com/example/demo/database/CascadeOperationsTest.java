@@ -22,14 +22,14 @@ public class CascadeOperationsTest extends BaseDatabaseTest {
         Workshop workshop = new Workshop();
         workshop.setName("Test Workshop");
         workshop.setDescription("Test");
-        workshop = workshopRepository.save(workshop);
+        workshop = workshopRepository.saveAndFlush(workshop);
 
         Equipment equipment = new Equipment();
         equipment.setName("Test Equipment");
         equipment.setStatus(EquipmentStatus.WORKING);
         equipment.setHealth(100);
         equipment.setWorkshop(workshop);
-        equipment = equipmentRepository.save(equipment);
+        equipment = equipmentRepository.saveAndFlush(equipment);
 
         Long workshopId = workshop.getId();
         Long equipmentId = equipment.getId();
@@ -55,7 +55,7 @@ public class CascadeOperationsTest extends BaseDatabaseTest {
         guide.setUsername("guide_test_" + System.currentTimeMillis());
         guide.setPassword("password");
         guide.setRole(Role.GUIDE);
-        guide = userRepository.save(guide);
+        guide = userRepository.saveAndFlush(guide);
 
         Excursion excursion = new Excursion();
         excursion.setName("Test Excursion");
@@ -63,14 +63,14 @@ public class CascadeOperationsTest extends BaseDatabaseTest {
         excursion.setParticipantsCount(10);
         excursion.setGuide(guide);
         excursion.setStatus(ExcursionStatus.CONFIRMED);
-        excursion = excursionRepository.save(excursion);
+        excursion = excursionRepository.saveAndFlush(excursion);
 
         GoldenTicket ticket = new GoldenTicket();
         String shortNumber = String.format("T%09d", System.currentTimeMillis() % 1000000000L);
         ticket.setTicketNumber(shortNumber);
         ticket.setStatus(TicketStatus.BOOKED);
         ticket.setExcursion(excursion);
-        ticket = goldenTicketRepository.save(ticket);
+        ticket = goldenTicketRepository.saveAndFlush(ticket);
 
         Long excursionId = excursion.getId();
         Long ticketId = ticket.getId();
@@ -104,11 +104,11 @@ public class CascadeOperationsTest extends BaseDatabaseTest {
         guide.setUsername("guide_routes_" + System.currentTimeMillis());
         guide.setPassword("password");
         guide.setRole(Role.GUIDE);
-        guide = userRepository.save(guide);
+        guide = userRepository.saveAndFlush(guide);
 
         Workshop workshop = new Workshop();
         workshop.setName("Workshop for Route");
-        workshop = workshopRepository.save(workshop);
+        workshop = workshopRepository.saveAndFlush(workshop);
 
         Excursion excursion = new Excursion();
         excursion.setName("Test Excursion with Routes");
@@ -116,14 +116,15 @@ public class CascadeOperationsTest extends BaseDatabaseTest {
         excursion.setParticipantsCount(10);
         excursion.setGuide(guide);
         excursion.setStatus(ExcursionStatus.CONFIRMED);
-        excursion = excursionRepository.save(excursion);
+        excursion = excursionRepository.saveAndFlush(excursion);
 
         Long excursionId = excursion.getId();
 
         // Создаем маршрут через SQL (для чистоты теста)
+        LocalDateTime routeStart = LocalDateTime.now();
         jdbcTemplate.update(
-                "INSERT INTO excursion_routes (excursion_id, workshop_id, order_number, start_time, duration_minutes) VALUES (?, ?, ?, ?, ?)",
-                excursionId, workshop.getId(), 1, LocalDateTime.now(), 30);
+                "INSERT INTO excursion_routes (excursion_id, workshop_id, order_number, start_time, duration_minutes, end_time) VALUES (?, ?, ?, ?, ?, ?)",
+                excursionId, workshop.getId(), 1, routeStart, 30, routeStart.plusMinutes(30));
 
         // Проверяем, что маршрут создан
         assertEquals(1, countRows("SELECT COUNT(*) FROM excursion_routes WHERE excursion_id = ?", excursionId));
@@ -145,14 +146,14 @@ public class CascadeOperationsTest extends BaseDatabaseTest {
         user.setUsername("user_task_" + System.currentTimeMillis());
         user.setPassword("password");
         user.setRole(Role.WORKER);
-        user = userRepository.save(user);
+        user = userRepository.saveAndFlush(user);
 
 
         Task task = new Task();
         task.setName("Test Task");
         task.setStatus(TaskStatus.IN_PROGRESS);
         task.setUser(user);
-        task = taskRepository.save(task);
+        task = taskRepository.saveAndFlush(task);
 
         Long userId = user.getId();
         Long taskId = task.getId();
@@ -32,7 +32,7 @@ public class ConstraintsTest extends BaseDatabaseTest {
         user1.setUsername(username);
         user1.setPassword("password");
         user1.setRole(Role.WORKER);
-        userRepository.save(user1);
+        userRepository.saveAndFlush(user1);
 
         // Пытаемся создать второго с таким же username
         User user2 = new User();
@@ -46,7 +46,7 @@ public class ConstraintsTest extends BaseDatabaseTest {
     }
 
     @Test
-    @DisplayName("ticket_number должен быть уникальным")
+    @DisplayName("Номер билета (ticket_code) должен быть уникальным")
     public void testTicketNumberUnique() {
         // Генерируем номер не длиннее 10 символов
         String ticketNumber = String.format("T%09d", System.currentTimeMillis() % 1000000000L);
@@ -54,7 +54,7 @@ public class ConstraintsTest extends BaseDatabaseTest {
         GoldenTicket ticket1 = new GoldenTicket();
         ticket1.setTicketNumber(ticketNumber);
         ticket1.setStatus(TicketStatus.ACTIVE);
-        goldenTicketRepository.save(ticket1);
+        goldenTicketRepository.saveAndFlush(ticket1);
 
         GoldenTicket ticket2 = new GoldenTicket();
         ticket2.setTicketNumber(ticketNumber);
@@ -62,7 +62,7 @@ public class ConstraintsTest extends BaseDatabaseTest {
 
         assertThrows(DataIntegrityViolationException.class, () -> {
             goldenTicketRepository.saveAndFlush(ticket2);
-        }, "Должна быть ошибка при попытке создать билет с существующим ticket_number");
+        }, "Должна быть ошибка при попытке создать билет с существующим номером");
     }
 
     @Test
@@ -124,7 +124,7 @@ public class ConstraintsTest extends BaseDatabaseTest {
         user.setUsername("enum_test_" + System.currentTimeMillis());
         user.setPassword("password");
         user.setRole(Role.WORKER);
-        userRepository.save(user);
+        userRepository.saveAndFlush(user);
 
         // Проверяем, что значение сохранилось как строка
         String roleFromDb = jdbcTemplate.queryForObject(
@@ -147,14 +147,14 @@ public class ConstraintsTest extends BaseDatabaseTest {
     public void testEquipmentStatusEnumValues() {
         Workshop workshop = new Workshop();
         workshop.setName("Test Workshop");
-        workshop = workshopRepository.save(workshop);
+        workshop = workshopRepository.saveAndFlush(workshop);
 
         Equipment equipment = new Equipment();
         equipment.setName("Test Equipment");
         equipment.setStatus(EquipmentStatus.WORKING);
         equipment.setHealth(100);
         equipment.setWorkshop(workshop);
-        equipmentRepository.save(equipment);
+        equipmentRepository.saveAndFlush(equipment);
 
         String statusFromDb = jdbcTemplate.queryForObject(
             "SELECT status FROM equipment WHERE name = ?",
@@ -168,7 +168,7 @@ public class ConstraintsTest extends BaseDatabaseTest {
     public void testEquipmentHealthConstraint() {
         Workshop workshop = new Workshop();
         workshop.setName("Workshop for health test");
-        workshop = workshopRepository.save(workshop);
+        workshop = workshopRepository.saveAndFlush(workshop);
         Long workshopId = workshop.getId();
 
         // Health = -1 (невалидно)
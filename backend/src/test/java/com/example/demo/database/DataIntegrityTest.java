@@ -22,7 +22,7 @@ public class DataIntegrityTest extends BaseDatabaseTest {
         user.setUsername("user_timestamp_" + System.currentTimeMillis());
         user.setPassword("password");
         user.setRole(Role.WORKER);
-        user = userRepository.save(user);
+        user = userRepository.saveAndFlush(user);
 
         assertNotNull(user.getCreatedAt(), "created_at должен быть заполнен автоматически");
 
@@ -39,7 +39,7 @@ public class DataIntegrityTest extends BaseDatabaseTest {
         Task task = new Task();
         task.setName("Test Task");
         task.setStatus(TaskStatus.NOT_ASSIGNED);
-        task = taskRepository.save(task);
+        task = taskRepository.saveAndFlush(task);
 
         assertNotNull(task.getCreatedAt(), "created_at должен быть заполнен автоматически");
     }
@@ -57,8 +57,8 @@ public class DataIntegrityTest extends BaseDatabaseTest {
         }, "excursion_id может быть NULL для активного билета");
 
         Integer excursionId = jdbcTemplate.queryForObject(
-            "SELECT excursion_id FROM golden_tickets WHERE ticket_number = ?",
-            Integer.class, ticket.getTicketNumber()
+            "SELECT excursion_id FROM golden_tickets WHERE ticket_code = ?",
+            Integer.class, ticket.getTicketCode()
         );
         assertNull(excursionId, "excursion_id должен быть NULL");
     }
@@ -88,7 +88,7 @@ public class DataIntegrityTest extends BaseDatabaseTest {
         Workshop workshop = new Workshop();
         workshop.setName("Empty Workshop");
         workshop.setDescription("Workshop without equipment");
-        workshop = workshopRepository.save(workshop);
+        workshop = workshopRepository.saveAndFlush(workshop);
 
         Long workshopId = workshop.getId();
 
@@ -103,7 +103,7 @@ public class DataIntegrityTest extends BaseDatabaseTest {
         guide.setUsername("valid_guide_" + System.currentTimeMillis());
         guide.setPassword("password");
         guide.setRole(Role.GUIDE);
-        guide = userRepository.save(guide);
+        guide = userRepository.saveAndFlush(guide);
 
         Excursion excursion = new Excursion();
         excursion.setName("Excursion with GUIDE");
@@ -130,7 +130,7 @@ public class DataIntegrityTest extends BaseDatabaseTest {
         guide.setUsername("guide_routes_count_" + System.currentTimeMillis());
         guide.setPassword("password");
         guide.setRole(Role.GUIDE);
-        guide = userRepository.save(guide);
+        guide = userRepository.saveAndFlush(guide);
 
         Excursion excursion = new Excursion();
         excursion.setName("Excursion for routes count test");
@@ -138,7 +138,7 @@ public class DataIntegrityTest extends BaseDatabaseTest {
         excursion.setParticipantsCount(10);
         excursion.setGuide(guide);
         excursion.setStatus(ExcursionStatus.DRAFT);
-        excursion = excursionRepository.save(excursion);
+        excursion = excursionRepository.saveAndFlush(excursion);
 
         Long excursionId = excursion.getId();
 
@@ -147,20 +147,21 @@ public class DataIntegrityTest extends BaseDatabaseTest {
 
         Workshop workshop1 = new Workshop();
         workshop1.setName("Workshop 1");
-        workshop1 = workshopRepository.save(workshop1);
+        workshop1 = workshopRepository.saveAndFlush(workshop1);
 
         Workshop workshop2 = new Workshop();
         workshop2.setName("Workshop 2");
-        workshop2 = workshopRepository.save(workshop2);
+        workshop2 = workshopRepository.saveAndFlush(workshop2);
 
+        LocalDateTime routeStart = LocalDateTime.now();
         jdbcTemplate.update(
-            "INSERT INTO excursion_routes (excursion_id, workshop_id, order_number, start_time, duration_minutes) VALUES (?, ?, ?, ?, ?)",
-            excursionId, workshop1.getId(), 1, LocalDateTime.now(), 30
+            "INSERT INTO excursion_routes (excursion_id, workshop_id, order_number, start_time, duration_minutes, end_time) VALUES (?, ?, ?, ?, ?, ?)",
+            excursionId, workshop1.getId(), 1, routeStart, 30, routeStart.plusMinutes(30)
         );
 
         jdbcTemplate.update(
-            "INSERT INTO excursion_routes (excursion_id, workshop_id, order_number, start_time, duration_minutes) VALUES (?, ?, ?, ?, ?)",
-            excursionId, workshop2.getId(), 2, LocalDateTime.now(), 30
+            "INSERT INTO excursion_routes (excursion_id, workshop_id, order_number, start_time, duration_minutes, end_time) VALUES (?, ?, ?, ?, ?, ?)",
+            excursionId, workshop2.getId(), 2, routeStart, 30, routeStart.plusMinutes(30)
         );
 
         assertEquals(2, countRows("SELECT COUNT(*) FROM excursion_routes WHERE excursion_id = ?", excursionId),
@@ -174,14 +175,14 @@ public class DataIntegrityTest extends BaseDatabaseTest {
         user.setUsername("notif_user_" + System.currentTimeMillis());
         user.setPassword("password");
         user.setRole(Role.WORKER);
-        user = userRepository.save(user);
+        user = userRepository.saveAndFlush(user);
 
         Notification notification = new Notification();
         notification.setUser(user);
         notification.setTitle("Test Notification");
         notification.setMessage("Test Message");
         notification.setType(NotificationType.INFO);
-        notification = notificationRepository.save(notification);
+        notification = notificationRepository.saveAndFlush(notification);
 
         assertNotNull(notification.getUser(), "Notification должен быть связан с User");
 
@@ -197,7 +198,7 @@ public class DataIntegrityTest extends BaseDatabaseTest {
     public void testDefaultValues() {
         GoldenTicket ticket = new GoldenTicket();
         ticket.setTicketNumber(String.format("D%09d", System.currentTimeMillis() % 1000000000L));
-        ticket = goldenTicketRepository.save(ticket);
+        ticket = goldenTicketRepository.saveAndFlush(ticket);
 
         assertEquals(TicketStatus.ACTIVE, ticket.getStatus(),
             "Status должен быть ACTIVE по умолчанию");
@@ -206,7 +207,7 @@ public class DataIntegrityTest extends BaseDatabaseTest {
         user.setUsername("default_banned_" + System.currentTimeMillis());
         user.setPassword("password");
         user.setRole(Role.WORKER);
-        user = userRepository.save(user);
+        user = userRepository.saveAndFlush(user);
 
         assertFalse(user.getIsBanned(), "is_banned должен быть false по умолчанию");
     }
@@ -2,6 +2,9 @@ package com.example.demo.database;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -12,6 +15,9 @@ import static org.junit.jupiter.api.Assertions.*;
 @DisplayName("Тесты структуры БД")
 public class DatabaseStructureTest extends BaseDatabaseTest {
 
+    @Value("${spring.sql.init.separator}")
+    private String scriptSeparator;
+
     @Test
     @DisplayName("Проверка существования всех основных таблиц")
     public void testAllTablesExist() {
@@ -64,12 +70,13 @@ public class DatabaseStructureTest extends BaseDatabaseTest {
     @Test
     @DisplayName("Проверка структуры таблицы golden_tickets")
     public void testGoldenTicketsTableStructure() {
-        assertTrue(columnExists("golden_tickets", "ticket_number"));
+        assertTrue(columnExists("golden_tickets", "ticket_code"));
+        assertFalse(columnExists("golden_tickets", "ticket_number"), "Номер билета выводится из ticket_code");
         assertTrue(columnExists("golden_tickets", "status"));
         assertTrue(columnExists("golden_tickets", "excursion_id"));
         assertTrue(columnExists("golden_tickets", "generated_at"));
 
-        assertFalse(isColumnNullable("golden_tickets", "ticket_number"), "ticket_number NOT NULL");
+        assertFalse(isColumnNullable("golden_tickets", "ticket_code"), "ticket_code NOT NULL");
         assertFalse(isColumnNullable("golden_tickets", "status"), "status NOT NULL");
         assertTrue(isColumnNullable("golden_tickets", "excursion_id"), "excursion_id nullable");
     }
@@ -117,5 +124,34 @@ public class DatabaseStructureTest extends BaseDatabaseTest {
         assertTrue(countRows(sql, "excursions") > 0, "excursions должна иметь FK");
         assertTrue(countRows(sql, "golden_tickets") > 0, "golden_tickets должна иметь FK");
     }
-}
 
+    @Test
+    @DisplayName("Скрипт дополнения схемы можно выполнить повторно")
+    public void testSchemaUpgradeIsIdempotent() {
+        // При запуске приложения скрипт уже выполнен; повторный запуск не должен падать
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource("db/schema-upgrade.sql"));
+        populator.setSeparator(scriptSeparator);
+        populator.setContinueOnError(false);
+        assertDoesNotThrow(() -> populator.execute(jdbcTemplate.getDataSource()));
+
+        int trigramIndexes = countRows("SELECT COUNT(*) FROM pg_indexes WHERE tablename = 'tasks' " +
+                "AND indexname IN ('idx_tasks_name_trgm', 'idx_tasks_description_trgm')");
+        int trigramExtension = countRows("SELECT COUNT(*) FROM pg_extension WHERE extname = 'pg_trgm'");
+        assertEquals(2 * trigramExtension, trigramIndexes, "Триграммные индексы создаются, если доступен pg_trgm");
+    }
+
+    @Test
+    @DisplayName("id по умолчанию берется из последовательности Hibernate, IDENTITY снято")
+    public void testIdDefaultsFromSequences() {
+        String[] tables = { "users", "tasks", "notifications", "golden_tickets", "excursions", "excursion_routes",
+                "workshops", "workshop_user", "equipment", "workshop_slots", "ticket_minting_jobs" };
+        for (String table : tables) {
+            String columnDefault = jdbcTemplate.queryForObject(
+                "SELECT column_default FROM information_schema.columns WHERE table_name = ? AND column_name = 'id'",
+                String.class, table);
+            assertEquals("nextval('" + table + "_seq'::regclass)", columnDefault, table + ".id должен браться из " + table + "_seq");
+            assertEquals(0, countRows("SELECT COUNT(*) FROM information_schema.columns " +
+                "WHERE table_name = ? AND column_name = 'id' AND is_identity = 'YES'", table), table + ".id не должен быть IDENTITY");
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.demo.database;
+
+import com.example.demo.models.Excursion;
+import com.example.demo.models.ExcursionRoute;
+import com.example.demo.models.ExcursionStatus;
+import com.example.demo.models.Role;
+import com.example.demo.models.User;
+import com.example.demo.models.Workshop;
+import com.example.demo.repositories.ExcursionRouteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты хранимого времени окончания точек маршрута и проверок пересечения по нему
+ * Маршруты сохраняются через репозиторий: end_time должен вычисляться сущностью,
+ * а запросы занятости цеха и гида - давать полуоткрытые интервалы [start_time, end_time)
+ */
+@DisplayName("Тесты пересечения маршрутов по end_time")
+public class ExcursionRouteOverlapTest extends BaseDatabaseTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2030, 3, 1, 10, 0);
+
+    @Autowired
+    private ExcursionRouteRepository routeRepository;
+
+    private User guide;
+    private Workshop chocolate;
+    private Workshop candy;
+
+    @BeforeEach
+    public void setUpRouteData() {
+        guide = new User();
+        guide.setUsername("overlap_guide");
+        guide.setPassword("password");
+        guide.setRole(Role.GUIDE);
+        guide = userRepository.saveAndFlush(guide);
+
+        chocolate = saveWorkshop("Шоколадный цех");
+        candy = saveWorkshop("Конфетный цех");
+    }
+
+    @Test
+    @DisplayName("end_time вычисляется при сохранении и изменении точки маршрута")
+    public void testEndTimeOnSave() {
+        Excursion excursion = saveExcursion("Маршрут", ExcursionStatus.CONFIRMED, 10);
+        ExcursionRoute route = routeRepository.saveAndFlush(new ExcursionRoute(excursion, chocolate, 1, START, 30));
+        assertEquals(START.plusMinutes(30), endTimeOf(route));
+
+        route.setDurationMinutes(45);
+        route = routeRepository.saveAndFlush(route);
+        assertEquals(START.plusMinutes(45), endTimeOf(route));
+
+        route.setStartTime(START.plusHours(1));
+        route = routeRepository.saveAndFlush(route);
+        assertEquals(START.plusHours(1).plusMinutes(45), endTimeOf(route));
+    }
+
+    @Test
+    @DisplayName("end_time обязателен")
+    public void testEndTimeIsNotNull() {
+        assertFalse(isColumnNullable("excursion_routes", "end_time"), "excursion_routes.end_time должен быть NOT NULL");
+
+        Excursion excursion = saveExcursion("Без окончания", ExcursionStatus.CONFIRMED, 10);
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(
+                "INSERT INTO excursion_routes (excursion_id, workshop_id, order_number, start_time, duration_minutes) " +
+                "VALUES (?, ?, 1, ?, 30)", excursion.getId(), chocolate.getId(), START));
+    }
+
+    @Test
+    @DisplayName("Занятость цеха: пересечение полуоткрытых интервалов активных экскурсий")
+    public void testWorkshopOverlap() {
+        Excursion confirmed = saveExcursion("Подтвержденная", ExcursionStatus.CONFIRMED, 10);
+        routeRepository.save(new ExcursionRoute(confirmed, chocolate, 1, START, 30));
+        routeRepository.save(new ExcursionRoute(confirmed, candy, 2, START.plusMinutes(30), 30));
+        // Черновик в том же цехе и в то же время не занимает мест
+        Excursion draft = saveExcursion("Черновик", ExcursionStatus.DRAFT, 7);
+        routeRepository.save(new ExcursionRoute(draft, chocolate, 1, START, 30));
+        routeRepository.flush();
+
+        assertEquals(10, routeRepository.getTotalParticipantsInWorkshop(chocolate.getId(), START.plusMinutes(29), START.plusMinutes(31)));
+        assertEquals(0, routeRepository.getTotalParticipantsInWorkshop(chocolate.getId(), START.plusMinutes(30), START.plusMinutes(60)),
+                "Интервал, начинающийся в момент окончания, не пересекается");
+        assertEquals(0, routeRepository.getTotalParticipantsInWorkshop(chocolate.getId(), START.minusMinutes(30), START),
+                "Интервал, заканчивающийся в момент начала, не пересекается");
+        assertEquals(1, routeRepository.findConflictingRoutes(candy.getId(), START, START.plusMinutes(31)).size());
+    }
+
+    @Test
+    @DisplayName("Занятость гида: пересечение с любой точкой маршрута")
+    public void testGuideOverlap() {
+        Excursion confirmed = saveExcursion("Подтвержденная", ExcursionStatus.CONFIRMED, 10);
+        routeRepository.save(new ExcursionRoute(confirmed, chocolate, 1, START, 30));
+        routeRepository.save(new ExcursionRoute(confirmed, candy, 2, START.plusMinutes(30), 30));
+        routeRepository.flush();
+
+        assertEquals(1, excursionRepository.findGuideConflicts(guide.getId(), START.plusMinutes(59), START.plusHours(2)).size());
+        assertEquals(0, excursionRepository.findGuideConflicts(guide.getId(), START.plusMinutes(60), START.plusHours(2)).size());
+    }
+
+    @Test
+    @DisplayName("Индексы пересечения по (start_time, end_time)")
+    public void testOverlapIndexes() {
+        assertTrue(indexDefinition("idx_excursion_routes_workshop_time").contains("(workshop_id, start_time, end_time)"));
+        assertTrue(indexDefinition("idx_excursion_routes_excursion_time").contains("(excursion_id, start_time, end_time)"));
+    }
+
+    private Workshop saveWorkshop(String name) {
+        Workshop workshop = new Workshop();
+        workshop.setName(name);
+        workshop.setCapacity(50);
+        workshop.setVisitDurationMinutes(30);
+        return workshopRepository.saveAndFlush(workshop);
+    }
+
+    private Excursion saveExcursion(String name, ExcursionStatus status, int participants) {
+        Excursion excursion = new Excursion(name, START, participants, guide);
+        excursion.setStatus(status);
+        return excursionRepository.saveAndFlush(excursion);
+    }
+
+    private LocalDateTime endTimeOf(ExcursionRoute route) {
+        return jdbcTemplate.queryForObject("SELECT end_time FROM excursion_routes WHERE id = ?", LocalDateTime.class, route.getId());
+    }
+
+    private String indexDefinition(String name) {
+        return jdbcTemplate.queryForObject("SELECT indexdef FROM pg_indexes WHERE indexname = ?", String.class, name);
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.performance;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.models.*;
+import com.example.demo.repositories.ExcursionRouteRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Бенчмарк пакетной вставки: идентификаторы из последовательностей с пулом + hibernate.jdbc.batch_size.
+ * При IDENTITY каждая строка - отдельный INSERT ... RETURNING (1000 строк = 1000 запросов),
+ * теперь - по одному пакету на batch_size строк и одному nextval на allocationSize идентификаторов.
+ * Запуск: ./gradlew benchmark --tests "*BatchInsertBenchmarkTest"
+ */
+@Tag("benchmark")
+@DisplayName("Бенчмарк пакетной вставки сущностей")
+public class BatchInsertBenchmarkTest extends BaseDatabaseTest {
+
+    private static final int ROWS = 1_000;
+    // batch_size = 50 и allocationSize = 50: ~20 пакетов INSERT и ~20 вызовов nextval на 1000 строк
+    private static final int MAX_STATEMENTS = 100;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ExcursionRouteRepository routeRepository;
+
+    @Test
+    @DisplayName("Массовая генерация золотых билетов")
+    public void benchmarkTicketInserts() {
+        List<GoldenTicket> tickets = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            tickets.add(new GoldenTicket(String.format("B%09d", i)));
+        }
+
+        long statements = measure("golden_tickets", () -> goldenTicketRepository.saveAll(tickets));
+
+        assertEquals(ROWS, countRows("SELECT COUNT(*) FROM golden_tickets"));
+        assertTrue(statements < MAX_STATEMENTS, "Вставка билетов должна идти пакетами, запросов: " + statements);
+    }
+
+    @Test
+    @DisplayName("Сохранение маршрута экскурсии")
+    public void benchmarkRouteInserts() {
+        User guide = new User();
+        guide.setUsername("batch_guide");
+        guide.setPassword("password");
+        guide.setRole(Role.GUIDE);
+        guide = userRepository.save(guide);
+
+        Workshop workshop = new Workshop();
+        workshop.setName("Batch Workshop");
+        workshop = workshopRepository.save(workshop);
+
+        Excursion excursion = new Excursion();
+        excursion.setName("Batch Excursion");
+        excursion.setStartTime(LocalDateTime.now().plusDays(1));
+        excursion.setParticipantsCount(10);
+        excursion.setGuide(guide);
+        excursion.setStatus(ExcursionStatus.DRAFT);
+        excursion = excursionRepository.save(excursion);
+        entityManager.flush();
+
+        List<ExcursionRoute> routes = new ArrayList<>(ROWS);
+        LocalDateTime start = excursion.getStartTime();
+        for (int i = 0; i < ROWS; i++) {
+            routes.add(new ExcursionRoute(excursion, workshop, i + 1, start.plusMinutes(15L * i), 15));
+        }
+
+        long statements = measure("excursion_routes", () -> routeRepository.saveAll(routes));
+
+        assertEquals(ROWS, countRows("SELECT COUNT(*) FROM excursion_routes"));
+        assertTrue(statements < MAX_STATEMENTS, "Вставка маршрутов должна идти пакетами, запросов: " + statements);
+    }
+
+    @Test
+    @DisplayName("Рассылка уведомлений")
+    public void benchmarkNotificationInserts() {
+        User user = new User();
+        user.setUsername("batch_notified");
+        user.setPassword("password");
+        user.setRole(Role.WORKER);
+        User recipient = userRepository.save(user);
+        entityManager.flush();
+
+        List<Notification> notifications = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Notification notification = new Notification();
+            notification.setUser(recipient);
+            notification.setTitle("Уведомление " + i);
+            notification.setMessage("Пакетная рассылка");
+            notification.setType(NotificationType.INFO);
+            notifications.add(notification);
+        }
+
+        long statements = measure("notifications", () -> notificationRepository.saveAll(notifications));
+
+        assertEquals(ROWS, countRows("SELECT COUNT(*) FROM notifications"));
+        assertTrue(statements < MAX_STATEMENTS, "Вставка уведомлений должна идти пакетами, запросов: " + statements);
+    }
+
+    /**
+     * Выполняет сохранение с flush и возвращает количество подготовленных JDBC-запросов
+     */
+    private long measure(String table, Runnable save) {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        long startedAt = System.nanoTime();
+        save.run();
+        entityManager.flush();
+        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+
+        long statements = statistics.getPrepareStatementCount();
+        System.out.println("[Benchmark] " + table + ": " + ROWS + " строк за " + elapsedMs + " мс, JDBC-запросов: " +
+                statements + ", вставлено сущностей: " + statistics.getEntityInsertCount());
+        return statements;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.demo.performance;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.dto.response.CursorPageDTO;
+import com.example.demo.dto.response.ExcursionResponseDTO;
+import com.example.demo.services.ExcursionService;
+import com.example.demo.utils.DateTimeUtils;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Количество запросов при постраничной выдаче экскурсий на 5 000 экскурсий по 3 точки маршрута.
+ * Страница должна загружаться двумя запросами (ID страницы + fetch join маршрута, цехов и гида)
+ * независимо от размера страницы; полный список - одним запросом.
+ * Запуск: ./gradlew benchmark --tests "*ExcursionListingQueryCountTest"
+ */
+@Tag("benchmark")
+@DisplayName("Запросы при выдаче списка экскурсий (5k экскурсий)")
+public class ExcursionListingQueryCountTest extends BaseDatabaseTest {
+
+    private static final int EXCURSIONS = 5_000;
+    private static final int ROUTE_POINTS = 3;
+    private static final int PAGE_SIZE = 50;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ExcursionService excursionService;
+
+    @Test
+    @DisplayName("Страница курсора - два запроса, обход всех страниц без пропусков и повторов")
+    public void benchmarkCursorPages() {
+        LocalDateTime base = seed();
+        Statistics statistics = statistics();
+
+        Set<Long> seen = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        LocalDateTime previousStart = null;
+        long startedAt = System.nanoTime();
+        do {
+            entityManager.clear();
+            statistics.clear();
+
+            CursorPageDTO<ExcursionResponseDTO> page = excursionService.getExcursionsByCursor(
+                    null, null, null, null, cursor, PAGE_SIZE, false);
+
+            assertTrue(statistics.getPrepareStatementCount() <= 2,
+                    "Страница должна загружаться не более чем двумя запросами, выполнено: "
+                            + statistics.getPrepareStatementCount());
+            for (ExcursionResponseDTO dto : page.getContent()) {
+                assertTrue(seen.add(dto.getId()), "Экскурсия повторилась на разных страницах");
+                assertEquals(ROUTE_POINTS, dto.getRoutes().size());
+                assertNotNull(dto.getGuideName());
+                if (previousStart != null) {
+                    assertFalse(dto.getStartTime().isBefore(previousStart), "Нарушен порядок по времени начала");
+                }
+                previousStart = dto.getStartTime();
+            }
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+
+        System.out.println("[Benchmark] Обход " + pages + " страниц по " + PAGE_SIZE + ": " + elapsedMs + " мс");
+        assertEquals(EXCURSIONS, seen.size());
+        assertEquals(EXCURSIONS / PAGE_SIZE, pages);
+
+        // Диапазон дат: первые сутки содержат ровно 24 * 60 / 10 = 144 экскурсии
+        entityManager.clear();
+        statistics.clear();
+        CursorPageDTO<ExcursionResponseDTO> day = excursionService.getExcursionsByCursor(
+                base, base.plusDays(1), null, null, null, ExcursionService.MAX_PAGE_SIZE, true);
+        assertEquals(144, day.getContent().size());
+        assertEquals(144L, day.getTotalElements());
+        assertFalse(day.isHasNext());
+        assertTrue(statistics.getPrepareStatementCount() <= 3, "Страница с COUNT - не более трех запросов");
+    }
+
+    @Test
+    @DisplayName("Полный список - один запрос вместо N+1")
+    public void benchmarkFullList() {
+        seed();
+        Statistics statistics = statistics();
+        entityManager.clear();
+        statistics.clear();
+
+        long startedAt = System.nanoTime();
+        int size = excursionService.getAllExcursions().size();
+        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+
+        System.out.println("[Benchmark] Полный список " + size + " экскурсий: " + elapsedMs + " мс, JDBC-запросов: "
+                + statistics.getPrepareStatementCount());
+        assertEquals(EXCURSIONS, size);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private Statistics statistics() {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // Экскурсии каждые 10 минут, начиная с base, у каждой по ROUTE_POINTS точек маршрута
+    private LocalDateTime seed() {
+        LocalDateTime base = DateTimeUtils.nowUTC().plusDays(1).withHour(0).withMinute(0).withSecond(0).withNano(0);
+
+        jdbcTemplate.update("INSERT INTO users (username, password, role, is_banned, created_at) " +
+                "VALUES ('listing_guide', 'password', 'GUIDE', false, NOW())");
+        Long guideId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'listing_guide'", Long.class);
+        jdbcTemplate.update("INSERT INTO workshops (name, description, capacity, visit_duration_minutes) " +
+                "SELECT 'Listing workshop ' || g, 'Цех', 100, 20 FROM generate_series(1, ?) g", ROUTE_POINTS);
+
+        jdbcTemplate.update("INSERT INTO excursions (name, start_time, end_time, participants_count, guide_id, status, created_at) " +
+                "SELECT 'Listing ' || g, ?::timestamp + (g * INTERVAL '10 minutes'), " +
+                "?::timestamp + (g * INTERVAL '10 minutes') + INTERVAL '1 hour', 10, ?, 'CONFIRMED', NOW() " +
+                "FROM generate_series(0, ? - 1) g",
+                Timestamp.valueOf(base), Timestamp.valueOf(base), guideId, EXCURSIONS);
+        jdbcTemplate.update("INSERT INTO excursion_routes (excursion_id, workshop_id, order_number, start_time, duration_minutes, end_time) " +
+                "SELECT e.id, w.id, w.rn, e.start_time + ((w.rn - 1) * INTERVAL '20 minutes'), 20, " +
+                "e.start_time + (w.rn * INTERVAL '20 minutes') " +
+                "FROM excursions e CROSS JOIN (SELECT id, ROW_NUMBER() OVER (ORDER BY id) AS rn FROM workshops " +
+                "WHERE name LIKE 'Listing workshop %') w");
+        jdbcTemplate.execute("ANALYZE excursions");
+        jdbcTemplate.execute("ANALYZE excursion_routes");
+        return base;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.demo.performance;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.dto.request.ExcursionRequestDTO;
+import com.example.demo.dto.response.ExcursionResponseDTO;
+import com.example.demo.models.*;
+import com.example.demo.services.ExcursionService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Бенчмарк автоматического построения маршрута по снимку занятости.
+ * Количество запросов не должно зависеть от числа 15-минутных сдвигов, которые делает планировщик.
+ * Запуск: ./gradlew benchmark --tests "*ExcursionRoutePlanningBenchmarkTest"
+ */
+@Tag("benchmark")
+@DisplayName("Бенчмарк построения маршрута экскурсии (30 цехов)")
+public class ExcursionRoutePlanningBenchmarkTest extends BaseDatabaseTest {
+
+    private static final int WORKSHOPS = 30;
+    private static final int CAPACITY = 20;
+    private static final int BLOCKED_MINUTES = 120;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ExcursionService excursionService;
+
+    @Test
+    @DisplayName("Количество запросов не зависит от числа сдвигов времени")
+    public void benchmarkPlanningWithBlockedWorkshops() {
+        LocalDateTime blockedStart = LocalDateTime.now().plusDays(1).withHour(9).withMinute(0).withSecond(0).withNano(0);
+        List<Workshop> workshops = seedWorkshops();
+        seedBlockingExcursion(workshops, blockedStart);
+
+        // Свободный день: маршрут строится без сдвигов
+        PlanResult free = plan("free_guide", blockedStart.plusDays(1));
+        // Все цеха заняты первые 2 часа: планировщик сдвигает время 8 раз
+        PlanResult shifted = plan("shifted_guide", blockedStart);
+
+        System.out.println("[Benchmark] route planning: без сдвигов " + free.elapsedMs + " мс / " + free.statements +
+                " запросов, со сдвигами " + shifted.elapsedMs + " мс / " + shifted.statements + " запросов");
+
+        assertEquals(blockedStart.plusMinutes(BLOCKED_MINUTES), shifted.excursion.getRoutes().get(0).getStartTime(),
+                "Маршрут должен начаться сразу после освобождения цехов");
+        assertTrue(Math.abs(shifted.statements - free.statements) <= 2,
+                "Сдвиги времени не должны порождать запросы: " + free.statements + " vs " + shifted.statements);
+    }
+
+    private PlanResult plan(String guideName, LocalDateTime startTime) {
+        User guide = saveGuide(guideName);
+        entityManager.flush();
+
+        ExcursionRequestDTO dto = new ExcursionRequestDTO();
+        dto.setName("Экскурсия " + guideName);
+        dto.setStartTime(startTime);
+        dto.setParticipantsCount(CAPACITY);
+        dto.setGuideId(guide.getId());
+        dto.setStatus(ExcursionStatus.DRAFT);
+        dto.setAutoGenerateRoute(true);
+        dto.setMinRequiredWorkshops(5);
+
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        long startedAt = System.nanoTime();
+        ExcursionResponseDTO excursion = excursionService.createExcursion(dto);
+        entityManager.flush();
+        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+
+        return new PlanResult(excursion, statistics.getPrepareStatementCount(), elapsedMs);
+    }
+
+    private List<Workshop> seedWorkshops() {
+        List<Workshop> workshops = new ArrayList<>(WORKSHOPS);
+        for (int i = 0; i < WORKSHOPS; i++) {
+            Workshop workshop = new Workshop();
+            workshop.setName("Bench Workshop " + i);
+            workshop.setCapacity(CAPACITY);
+            workshop.setVisitDurationMinutes(30);
+            workshops.add(workshop);
+        }
+        return workshopRepository.saveAll(workshops);
+    }
+
+    private void seedBlockingExcursion(List<Workshop> workshops, LocalDateTime startTime) {
+        Excursion excursion = new Excursion();
+        excursion.setName("Blocking Excursion");
+        excursion.setStartTime(startTime);
+        excursion.setParticipantsCount(CAPACITY);
+        excursion.setGuide(saveGuide("blocking_guide"));
+        excursion.setStatus(ExcursionStatus.CONFIRMED);
+
+        int order = 1;
+        for (Workshop workshop : workshops) {
+            excursion.getRoutes().add(new ExcursionRoute(excursion, workshop, order++, startTime, BLOCKED_MINUTES));
+        }
+        excursionRepository.save(excursion);
+    }
+
+    private User saveGuide(String username) {
+        User guide = new User();
+        guide.setUsername(username);
+        guide.setPassword("password");
+        guide.setRole(Role.GUIDE);
+        return userRepository.save(guide);
+    }
+
+    private static class PlanResult {
+        final ExcursionResponseDTO excursion;
+        final long statements;
+        final long elapsedMs;
+
+        PlanResult(ExcursionResponseDTO excursion, long statements, long elapsedMs) {
+            this.excursion = excursion;
+            this.statements = statements;
+            this.elapsedMs = elapsedMs;
+        }
+    }
+}
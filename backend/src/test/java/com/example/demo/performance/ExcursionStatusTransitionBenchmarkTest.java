@@ -0,0 +1,101 @@
+package com.example.demo.performance;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.services.ExcursionService;
+import com.example.demo.utils.DateTimeUtils;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Бенчмарк планировщика статусов экскурсий на фоне 100 000 завершенных экскурсий.
+ * Переходы выполняются по индексам (status, start_time) и (status, end_time): UPDATE начавшихся
+ * и UPDATE ... RETURNING порции закончившихся, который в том же запросе освобождает их слоты.
+ * Число запросов и стоимость тика не зависят от накопленной истории.
+ * Запуск: ./gradlew benchmark --tests "*ExcursionStatusTransitionBenchmarkTest"
+ */
+@Tag("benchmark")
+@DisplayName("Бенчмарк переходов статусов экскурсий (100k завершенных)")
+public class ExcursionStatusTransitionBenchmarkTest extends BaseDatabaseTest {
+
+    private static final int COMPLETED_HISTORY = 100_000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ExcursionService excursionService;
+
+    @Test
+    @DisplayName("Тик планировщика - два запроса по индексам")
+    public void benchmarkStatusTick() {
+        LocalDateTime now = DateTimeUtils.nowUTC();
+        Long guideId = seedGuide();
+
+        List<Object[]> rows = new ArrayList<>(COMPLETED_HISTORY + 6);
+        for (int i = 0; i < COMPLETED_HISTORY; i++) {
+            LocalDateTime start = now.minusDays(1 + i % 1000).minusMinutes(i % 600);
+            rows.add(excursion("History " + i, start, start.plusHours(2), guideId, "COMPLETED"));
+        }
+        // Должны начаться: время начала прошло, окончание в будущем
+        for (int i = 0; i < 3; i++) {
+            rows.add(excursion("Due start " + i, now.minusMinutes(1 + i), now.plusHours(1), guideId, "CONFIRMED"));
+        }
+        // Должны завершиться
+        for (int i = 0; i < 2; i++) {
+            rows.add(excursion("Due end " + i, now.minusHours(3), now.minusMinutes(1 + i), guideId, "IN_PROGRESS"));
+        }
+        // Еще не началась
+        rows.add(excursion("Future", now.plusDays(1), now.plusDays(1).plusHours(2), guideId, "CONFIRMED"));
+
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO excursions (name, start_time, end_time, participants_count, guide_id, status, created_at) " +
+            "VALUES (?, ?, ?, 10, ?, ?, NOW())", rows);
+        jdbcTemplate.execute("ANALYZE excursions");
+
+        String plan = String.join("\n", jdbcTemplate.queryForList(
+                "EXPLAIN SELECT id FROM excursions WHERE status = 'IN_PROGRESS' AND end_time <= ? LIMIT 500 FOR UPDATE SKIP LOCKED",
+                String.class, Timestamp.valueOf(now)));
+        System.out.println("[Benchmark] План завершения экскурсий:\n" + plan);
+        assertTrue(plan.contains("idx_excursions_status_end_time"), "Ожидалось использование индекса (status, end_time)");
+
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        long startedAt = System.nanoTime();
+        Map<String, Integer> result = excursionService.updateExcursionStatuses();
+        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+
+        long statements = statistics.getPrepareStatementCount();
+        System.out.println("[Benchmark] Тик статусов экскурсий: " + elapsedMs + " мс, JDBC-запросов: " + statements);
+
+        assertEquals(3, result.get("started"));
+        assertEquals(2, result.get("completed"));
+        assertEquals(2, statements, "Тик должен выполнять ровно два запроса");
+        assertEquals(1, countRows("SELECT COUNT(*) FROM excursions WHERE status = 'CONFIRMED'"));
+        assertEquals(3, countRows("SELECT COUNT(*) FROM excursions WHERE status = 'IN_PROGRESS'"));
+    }
+
+    private Long seedGuide() {
+        jdbcTemplate.update("INSERT INTO users (username, password, role, is_banned, created_at) " +
+                "VALUES ('status_guide', 'password', 'GUIDE', false, NOW())");
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'status_guide'", Long.class);
+    }
+
+    private static Object[] excursion(String name, LocalDateTime start, LocalDateTime end, Long guideId, String status) {
+        return new Object[] { name, Timestamp.valueOf(start), Timestamp.valueOf(end), guideId, status };
+    }
+}
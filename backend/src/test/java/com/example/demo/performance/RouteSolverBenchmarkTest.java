@@ -0,0 +1,92 @@
+package com.example.demo.performance;
+
+import com.example.demo.services.WorkshopOccupancySnapshot;
+import com.example.demo.services.routing.BranchAndBoundRouteSolver;
+import com.example.demo.services.routing.GreedyRouteSolver;
+import com.example.demo.services.routing.RouteCandidate;
+import com.example.demo.services.routing.RoutePlan;
+import com.example.demo.services.routing.RoutePlanningRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Бенчмарк алгоритмов построения маршрута на снимке занятости в памяти (без БД):
+ * качество (посещено цехов, простой) и время для 10-60 цехов.
+ * Допустимость и оптимальность маршрутов проверяет RouteSolverTest.
+ * Запуск: ./gradlew benchmark --tests "*RouteSolverBenchmarkTest"
+ */
+@Tag("benchmark")
+@DisplayName("Бенчмарк алгоритмов построения маршрута")
+public class RouteSolverBenchmarkTest {
+
+    private static final long TIME_BUDGET_MS = 200;
+    private static final int PARTICIPANTS = 20;
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 15, 9, 0);
+
+    private final GreedyRouteSolver greedySolver = new GreedyRouteSolver();
+    private final BranchAndBoundRouteSolver branchAndBoundSolver =
+            new BranchAndBoundRouteSolver(greedySolver, TIME_BUDGET_MS, 0);
+
+    @AfterEach
+    public void shutdownPool() {
+        branchAndBoundSolver.shutdown();
+    }
+
+    @Test
+    @DisplayName("Качество и время для 10-60 цехов")
+    public void benchmarkSolvers() {
+        for (int workshops = 10; workshops <= 60; workshops += 10) {
+            RoutePlanningRequest request = randomRequest(workshops, new Random(workshops));
+
+            long startedAt = System.nanoTime();
+            RoutePlan greedy = greedySolver.solve(request);
+            long greedyMicros = (System.nanoTime() - startedAt) / 1_000;
+
+            startedAt = System.nanoTime();
+            RoutePlan optimized = branchAndBoundSolver.solve(request);
+            long optimizedMs = (System.nanoTime() - startedAt) / 1_000_000;
+
+            System.out.println("[Benchmark] route solver, цехов " + workshops +
+                    ": greedy посещено " + greedy.getVisitedCount() + ", простой " + greedy.getIdleMinutes() +
+                    " мин, " + greedyMicros + " мкс; branch-and-bound посещено " + optimized.getVisitedCount() +
+                    ", простой " + optimized.getIdleMinutes() + " мин, " + optimizedMs + " мс");
+
+            assertFalse(greedy.isBetterThan(optimized), "Оптимизированный маршрут не должен быть хуже жадного");
+            assertTrue(optimizedMs < TIME_BUDGET_MS * 3, "Поиск должен укладываться в бюджет времени: " + optimizedMs);
+        }
+    }
+
+    /**
+     * Цеха по 15-45 минут, у каждого 1-3 занятых интервала в течение 8-часового окна
+     */
+    private static RoutePlanningRequest randomRequest(int workshops, Random random) {
+        List<RouteCandidate> candidates = new ArrayList<>();
+        List<Object[]> occupancy = new ArrayList<>();
+        long excursionId = 1;
+
+        for (long workshopId = 1; workshopId <= workshops; workshopId++) {
+            candidates.add(new RouteCandidate(workshopId, PARTICIPANTS * 2, 15 * (1 + random.nextInt(3))));
+            int busyIntervals = 1 + random.nextInt(3);
+            for (int i = 0; i < busyIntervals; i++) {
+                LocalDateTime busyFrom = START.plusMinutes(15L * random.nextInt(32));
+                occupancy.add(new Object[] { workshopId, excursionId++, busyFrom, 30 + 15 * random.nextInt(6),
+                        PARTICIPANTS + 1 + random.nextInt(PARTICIPANTS) });
+            }
+        }
+        return request(candidates, occupancy);
+    }
+
+    private static RoutePlanningRequest request(List<RouteCandidate> candidates, List<Object[]> occupancy) {
+        return new RoutePlanningRequest(START, START.plusHours(8), PARTICIPANTS, null, candidates,
+                WorkshopOccupancySnapshot.of(occupancy));
+    }
+}
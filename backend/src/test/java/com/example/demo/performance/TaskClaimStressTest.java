@@ -0,0 +1,204 @@
+package com.example.demo.performance;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.exceptions.TaskAlreadyClaimedException;
+import com.example.demo.exceptions.WorkerOverloadedException;
+import com.example.demo.services.TaskService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Нагрузочный тест захвата задач (assign-to-me): сотни рабочих одновременно берут одни и те же задачи,
+ * каждый рабочий - с нескольких устройств сразу, чтобы проверить и лимит незавершенных задач.
+ * Сравнивает атомарный условный UPDATE с блокирующим подходом (SELECT ... FOR UPDATE).
+ * Транзакции здесь реально коммитятся, поэтому тестовая транзакция BaseDatabaseTest отключена.
+ * Запуск: ./gradlew benchmark --tests "*TaskClaimStressTest"
+ */
+@Tag("benchmark")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Нагрузочный тест захвата задач")
+public class TaskClaimStressTest extends BaseDatabaseTest {
+
+    private static final int WORKERS = 100;
+    private static final int TASKS = 600;
+    private static final int THREADS = 32;
+    private static final int DEVICES_PER_WORKER = 3;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    public void cleanUp() {
+        cleanDatabase();
+    }
+
+    @Test
+    @DisplayName("Атомарный захват: ни одной задачи с двумя исполнителями")
+    public void stressAtomicClaim() throws Exception {
+        List<Long> workerIds = seedWorkers();
+        List<Long> taskIds = seedTasks();
+
+        ClaimResult result = runClaims(workerIds, taskIds, (taskId, workerId) -> {
+            try {
+                return taskService.assignTaskToMe(taskId, workerId).isPresent();
+            } catch (TaskAlreadyClaimedException e) {
+                return false;
+            }
+        });
+
+        System.out.println("[Benchmark] assign-to-me (условный UPDATE): " + result);
+        assertClaimsConsistent(result);
+    }
+
+    @Test
+    @DisplayName("Базовая линия: захват через SELECT ... FOR UPDATE")
+    public void stressLockingClaim() throws Exception {
+        List<Long> workerIds = seedWorkers();
+        List<Long> taskIds = seedTasks();
+
+        ClaimResult result = runClaims(workerIds, taskIds, (taskId, workerId) ->
+                Boolean.TRUE.equals(transactionTemplate.execute(status -> claimWithLock(taskId, workerId))));
+
+        System.out.println("[Benchmark] assign-to-me (SELECT FOR UPDATE): " + result);
+        assertClaimsConsistent(result);
+    }
+
+    /**
+     * Каждое устройство рабочего перебирает задачи в случайном порядке, пока рабочий не достигнет лимита
+     * или задачи не кончатся
+     */
+    private ClaimResult runClaims(List<Long> workerIds, List<Long> taskIds, ClaimAttempt attempt) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger claims = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+
+        for (int w = 0; w < workerIds.size(); w++) {
+            Long workerId = workerIds.get(w);
+            for (int d = 0; d < DEVICES_PER_WORKER; d++) {
+                List<Long> order = new ArrayList<>(taskIds);
+                Collections.shuffle(order, new Random(w * DEVICES_PER_WORKER + d));
+                executor.submit(() -> {
+                    start.await();
+                    for (Long taskId : order) {
+                        try {
+                            if (attempt.claim(taskId, workerId)) {
+                                claims.incrementAndGet();
+                            } else {
+                                conflicts.incrementAndGet();
+                            }
+                        } catch (WorkerOverloadedException e) {
+                            break;
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.MINUTES), "Захваты не завершились за отведенное время");
+        long elapsedNanos = System.nanoTime() - startedAt;
+
+        return new ClaimResult(claims.get(), conflicts.get(), elapsedNanos);
+    }
+
+    private void assertClaimsConsistent(ClaimResult result) {
+        int assignedTasks = countRows("SELECT COUNT(*) FROM tasks WHERE user_id IS NOT NULL");
+        assertEquals(assignedTasks, result.claims, "Каждый успешный захват должен соответствовать ровно одной задаче");
+        assertEquals(Math.min(TASKS, WORKERS * TaskService.MAX_ALLOWED_TASKS), assignedTasks);
+        assertEquals(TaskService.MAX_ALLOWED_TASKS, maxLoad(), "Ни один рабочий не должен превысить лимит");
+    }
+
+    /**
+     * Блокирующий вариант для сравнения: блокировка рабочего и задачи, проверка, подсчет загрузки, UPDATE
+     */
+    private boolean claimWithLock(Long taskId, Long workerId) {
+        jdbcTemplate.queryForList("SELECT id FROM users WHERE id = ? FOR UPDATE", Long.class, workerId);
+        List<Long> owner = jdbcTemplate.queryForList(
+                "SELECT COALESCE(user_id, 0) FROM tasks WHERE id = ? FOR UPDATE", Long.class, taskId);
+        if (owner.isEmpty() || owner.get(0) != 0L) {
+            return false;
+        }
+        int load = countRows("SELECT COUNT(*) FROM tasks WHERE user_id = ? AND status <> 'COMPLETED'", workerId);
+        if (load >= TaskService.MAX_ALLOWED_TASKS) {
+            throw new WorkerOverloadedException("limit");
+        }
+        jdbcTemplate.update("UPDATE tasks SET user_id = ?, status = 'ASSIGNED' WHERE id = ?", workerId, taskId);
+        return true;
+    }
+
+    private List<Long> seedWorkers() {
+        List<Object[]> rows = new ArrayList<>(WORKERS);
+        for (int i = 0; i < WORKERS; i++) {
+            rows.add(new Object[] { "claim_worker_" + i });
+        }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO users (username, password, role, is_banned, created_at) VALUES (?, 'password', 'WORKER', false, NOW())",
+            rows);
+        return jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Long.class);
+    }
+
+    private List<Long> seedTasks() {
+        List<Object[]> rows = new ArrayList<>(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            rows.add(new Object[] { "Claim task " + i });
+        }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO tasks (name, status, created_at) VALUES (?, 'NOT_ASSIGNED', NOW())",
+            rows);
+        return jdbcTemplate.queryForList("SELECT id FROM tasks ORDER BY id", Long.class);
+    }
+
+    private int maxLoad() {
+        return countRows("SELECT COALESCE(MAX(cnt), 0) FROM (SELECT COUNT(*) AS cnt FROM tasks " +
+                "WHERE user_id IS NOT NULL GROUP BY user_id) loads");
+    }
+
+    @FunctionalInterface
+    private interface ClaimAttempt {
+        boolean claim(Long taskId, Long workerId);
+    }
+
+    private static final class ClaimResult {
+        private final int claims;
+        private final int conflicts;
+        private final long elapsedNanos;
+
+        private ClaimResult(int claims, int conflicts, long elapsedNanos) {
+            this.claims = claims;
+            this.conflicts = conflicts;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            return claims + " захватов, " + conflicts + " конфликтов за " + Math.round(seconds * 1000) +
+                    " мс (" + Math.round(claims / seconds) + " захватов/с)";
+        }
+    }
+}
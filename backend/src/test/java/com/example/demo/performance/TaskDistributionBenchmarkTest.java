@@ -0,0 +1,97 @@
+package com.example.demo.performance;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.services.TaskService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Бенчмарк автоматического распределения задач: 10 000 задач на 1 000 рабочих
+ * Запуск: ./gradlew benchmark --tests "*TaskDistributionBenchmarkTest"
+ */
+@Tag("benchmark")
+@DisplayName("Бенчмарк распределения задач (10k задач × 1k рабочих)")
+public class TaskDistributionBenchmarkTest extends BaseDatabaseTest {
+
+    private static final int WORKERS = 1_000;
+    private static final int TASKS = 10_000;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Test
+    @DisplayName("Распределение с учетом лимита MAX_ALLOWED_TASKS")
+    public void benchmarkDistributionWithLimit() {
+        seedWorkers();
+        List<Long> taskIds = seedTasks();
+
+        long startedAt = System.nanoTime();
+        Map<String, Object> result = taskService.distributeTasksAutomatically(taskIds, false);
+        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+
+        System.out.println("[Benchmark] distribute(force=false) " + TASKS + " задач × " + WORKERS +
+                " рабочих: " + elapsedMs + " мс, распределено " + result.get("distributedCount"));
+
+        int capacity = WORKERS * TaskService.MAX_ALLOWED_TASKS;
+        assertEquals(capacity, result.get("distributedCount"));
+        assertEquals(TASKS - capacity, result.get("skippedCount"));
+        assertEquals(TaskService.MAX_ALLOWED_TASKS, maxLoad(), "Ни один рабочий не должен превысить лимит");
+    }
+
+    @Test
+    @DisplayName("Принудительное распределение (force)")
+    public void benchmarkForcedDistribution() {
+        seedWorkers();
+        List<Long> taskIds = seedTasks();
+
+        long startedAt = System.nanoTime();
+        Map<String, Object> result = taskService.distributeTasksAutomatically(taskIds, true);
+        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+
+        System.out.println("[Benchmark] distribute(force=true) " + TASKS + " задач × " + WORKERS +
+                " рабочих: " + elapsedMs + " мс, распределено " + result.get("distributedCount"));
+
+        assertEquals(TASKS, result.get("distributedCount"));
+        assertTrue(maxLoad() - minLoad() <= 1, "Задачи должны распределяться равномерно");
+        assertEquals(TASKS, countRows("SELECT COUNT(*) FROM notifications WHERE type = 'TASK_ASSIGNED'"));
+    }
+
+    private void seedWorkers() {
+        List<Object[]> rows = new ArrayList<>(WORKERS);
+        for (int i = 0; i < WORKERS; i++) {
+            rows.add(new Object[] { "bench_worker_" + i });
+        }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO users (username, password, role, is_banned, created_at) VALUES (?, 'password', 'WORKER', false, NOW())",
+            rows);
+    }
+
+    private List<Long> seedTasks() {
+        List<Object[]> rows = new ArrayList<>(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            rows.add(new Object[] { "Bench task " + i });
+        }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO tasks (name, status, created_at) VALUES (?, 'NOT_ASSIGNED', NOW())",
+            rows);
+        return jdbcTemplate.queryForList("SELECT id FROM tasks ORDER BY id", Long.class);
+    }
+
+    private int maxLoad() {
+        return countRows("SELECT COALESCE(MAX(cnt), 0) FROM (SELECT COUNT(*) AS cnt FROM tasks " +
+                "WHERE user_id IS NOT NULL GROUP BY user_id) loads");
+    }
+
+    private int minLoad() {
+        return countRows("SELECT COALESCE(MIN(cnt), 0) FROM (SELECT COUNT(*) AS cnt FROM tasks " +
+                "WHERE user_id IS NOT NULL GROUP BY user_id) loads");
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.demo.performance;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.dto.request.TaskFilterRequestDTO;
+import com.example.demo.dto.response.TaskResponseDTO;
+import com.example.demo.services.TaskService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Бенчмарк поиска подстроки в задачах: триграммные GIN-индексы против последовательного LIKE-скана
+ * Запуск: ./gradlew benchmark --tests "*TaskSearchBenchmarkTest"
+ */
+@Tag("benchmark")
+@DisplayName("Бенчмарк поиска задач по подстроке")
+public class TaskSearchBenchmarkTest extends BaseDatabaseTest {
+
+    private static final int TASKS = 500_000;
+    private static final int BATCH = 10_000;
+    private static final int MATCHES = 50;
+    private static final String TERM = "шоколадный фонтан";
+    private static final int RUNS = 20;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Test
+    @DisplayName("Поиск по названию и описанию использует триграммный индекс")
+    public void benchmarkSearch() {
+        // pg_trgm берет буквы из LC_CTYPE базы: при локали без кириллицы (C) триграмм у запроса нет и индекс бесполезен
+        Integer termTrigrams = jdbcTemplate.queryForObject("SELECT cardinality(show_trgm(?))", Integer.class, TERM);
+        assumeTrue(termTrigrams != null && termTrigrams > 0,
+                "LC_CTYPE тестовой базы не выделяет триграммы из кириллицы (нужна UTF-8 локаль, как в docker-compose.test.yml)");
+
+        seedTasks();
+        jdbcTemplate.execute("ANALYZE tasks");
+
+        TaskFilterRequestDTO filter = new TaskFilterRequestDTO(null, null, null, null, null, null, null);
+        filter.setSearch(TERM);
+
+        String plan = String.join("\n", jdbcTemplate.queryForList(
+                "EXPLAIN SELECT id FROM tasks WHERE lower(name) LIKE ? OR lower(description) LIKE ?",
+                String.class, "%" + TERM + "%", "%" + TERM + "%"));
+        System.out.println("[Benchmark] План поиска:\n" + plan);
+        assertTrue(plan.contains("idx_tasks_name_trgm") && plan.contains("idx_tasks_description_trgm"),
+                "Поиск должен использовать триграммные индексы");
+
+        long indexedMicros = measure(filter);
+
+        // Базовая линия: тот же запрос без индексов - последовательный скан, как у прежнего LIKE '%term%'
+        jdbcTemplate.execute("SET LOCAL enable_bitmapscan = off");
+        jdbcTemplate.execute("SET LOCAL enable_indexscan = off");
+        long seqScanMicros = measure(filter);
+
+        System.out.println("[Benchmark] Поиск среди " + TASKS + " задач: триграммный индекс " +
+                indexedMicros + " мкс/запрос, последовательный скан " + seqScanMicros + " мкс/запрос");
+    }
+
+    private long measure(TaskFilterRequestDTO filter) {
+        List<TaskResponseDTO> found = taskService.filterTasks(filter);
+        assertEquals(MATCHES, found.size());
+
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            taskService.filterTasks(filter);
+        }
+        return (System.nanoTime() - startedAt) / 1_000 / RUNS;
+    }
+
+    private void seedTasks() {
+        for (int offset = 0; offset < TASKS; offset += BATCH) {
+            List<Object[]> rows = new ArrayList<>(BATCH);
+            for (int i = offset; i < offset + BATCH; i++) {
+                String name = "Задача " + i;
+                String description = "Описание задачи номер " + i;
+                if (i % (TASKS / MATCHES) == 0) {
+                    // Половина совпадений - в названии, половина - в описании
+                    if ((i / (TASKS / MATCHES)) % 2 == 0) {
+                        name = "Починить " + TERM + " " + i;
+                    } else {
+                        description = "Проверить " + TERM + " в цехе " + i;
+                    }
+                }
+                rows.add(new Object[] { name, description });
+            }
+            jdbcTemplate.batchUpdate(
+                "INSERT INTO tasks (name, description, status, created_at) VALUES (?, ?, 'NOT_ASSIGNED', NOW())",
+                rows);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.demo.performance;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.dto.request.BookTicketRequestDTO;
+import com.example.demo.repositories.GoldenTicketBatchRepository;
+import com.example.demo.services.GoldenTicketService;
+import com.example.demo.utils.DateTimeUtils;
+import com.example.demo.utils.TicketNumberCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Нагрузочный тест бронирования золотых билетов при открытии кампании: тысячи держателей билетов
+ * одновременно записываются на несколько экскурсий, часть отменяет запись или перезаписывается.
+ * Счетчик мест (excursion_seats) меняется только условным UPDATE, поэтому ни одна экскурсия
+ * не должна быть переполнена, а счетчик должен совпасть с фактическим числом бронирований.
+ * Транзакции здесь реально коммитятся, поэтому тестовая транзакция BaseDatabaseTest отключена.
+ * Запуск: ./gradlew benchmark --tests "*TicketBookingStressTest"
+ */
+@Tag("benchmark")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Нагрузочный тест бронирования золотых билетов")
+public class TicketBookingStressTest extends BaseDatabaseTest {
+
+    private static final int EXCURSIONS = 3;
+    private static final int CAPACITY = 100;
+    private static final int TICKETS = 3_000;
+    private static final int THREADS = 64;
+
+    @Autowired
+    private GoldenTicketService ticketService;
+
+    @Autowired
+    private GoldenTicketBatchRepository batchRepository;
+
+    @AfterEach
+    public void cleanUp() {
+        cleanDatabase();
+    }
+
+    @Test
+    @DisplayName("Параллельные бронирования, отмены и перезаписи: мест не продано больше вместимости")
+    public void stressConcurrentBooking() throws Exception {
+        List<Long> excursionIds = seedExcursions();
+        long[] ticketCodes = new long[TICKETS];
+        for (int i = 0; i < TICKETS; i++) {
+            ticketCodes[i] = i + 1;
+        }
+        batchRepository.insertIfAbsent(ticketCodes, DateTimeUtils.nowUTC(), null);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger cancelled = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        for (int i = 0; i < TICKETS; i++) {
+            String ticketNumber = TicketNumberCodec.decode(ticketCodes[i]);
+            Random random = new Random(i);
+            executor.submit(() -> {
+                start.await();
+                Long excursionId = excursionIds.get(random.nextInt(EXCURSIONS));
+                if (!book(ticketNumber, excursionId, booked, rejected, failed)) {
+                    return null;
+                }
+                switch (random.nextInt(5)) {
+                    case 0 -> {
+                        ticketService.cancelBooking(ticketNumber);
+                        cancelled.incrementAndGet();
+                    }
+                    case 1 -> book(ticketNumber, excursionIds.get(random.nextInt(EXCURSIONS)), booked, rejected, failed);
+                    default -> { }
+                }
+                return null;
+            });
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.MINUTES), "Бронирования не завершились за отведенное время");
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+
+        int attempts = booked.get() + rejected.get() + failed.get();
+        System.out.println("[Benchmark] Бронирование: " + attempts + " попыток за " + Math.round(seconds * 1000) +
+                " мс (" + Math.round(attempts / seconds) + " бронирований/с), успешно " + booked.get() +
+                ", нет мест " + rejected.get() + ", отмен " + cancelled.get());
+
+        assertEquals(0, failed.get(), "Бронирования не должны падать с другими ошибками");
+        for (Long excursionId : excursionIds) {
+            int actual = countRows("SELECT COUNT(*) FROM golden_tickets WHERE excursion_id = ? AND status = 'BOOKED'", excursionId);
+            int counter = countRows("SELECT booked FROM excursion_seats WHERE excursion_id = ?", excursionId);
+            System.out.println("[Benchmark] Экскурсия " + excursionId + ": забронировано " + actual + " из " + CAPACITY);
+            assertTrue(actual <= CAPACITY, "Экскурсия переполнена: " + actual + " > " + CAPACITY);
+            assertEquals(actual, counter, "Счетчик мест разошелся с фактическими бронированиями");
+        }
+        // Спрос многократно превышает вместимость: каждое место было продано хотя бы раз
+        assertTrue(booked.get() >= EXCURSIONS * CAPACITY, "Слишком мало успешных бронирований: " + booked.get());
+    }
+
+    private boolean book(String ticketNumber, Long excursionId, AtomicInteger booked, AtomicInteger rejected, AtomicInteger failed) {
+        BookTicketRequestDTO request = new BookTicketRequestDTO();
+        request.setTicketNumber(ticketNumber);
+        request.setExcursionId(excursionId);
+        request.setHolderName("Держатель " + ticketNumber);
+        try {
+            ticketService.bookTicket(request);
+            booked.incrementAndGet();
+            return true;
+        } catch (RuntimeException e) {
+            if ("На экскурсии нет свободных мест".equals(e.getMessage())) {
+                rejected.incrementAndGet();
+            } else {
+                failed.incrementAndGet();
+            }
+            return false;
+        }
+    }
+
+    private List<Long> seedExcursions() {
+        jdbcTemplate.update("INSERT INTO users (username, password, role, is_banned, created_at) " +
+                "VALUES ('stress_guide', 'password', 'GUIDE', false, NOW())");
+        jdbcTemplate.update("INSERT INTO excursions (name, start_time, end_time, participants_count, guide_id, status, created_at) " +
+                "SELECT 'Stress excursion ' || g, NOW() + INTERVAL '30 days', NOW() + INTERVAL '30 days 2 hours', ?, " +
+                "(SELECT id FROM users WHERE username = 'stress_guide'), 'CONFIRMED', NOW() FROM generate_series(1, ?) g",
+                CAPACITY, EXCURSIONS);
+        return jdbcTemplate.queryForList("SELECT id FROM excursions ORDER BY id", Long.class);
+    }
+}
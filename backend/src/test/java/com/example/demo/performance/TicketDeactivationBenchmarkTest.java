@@ -0,0 +1,105 @@
+package com.example.demo.performance;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.models.TicketStatus;
+import com.example.demo.services.GoldenTicketService;
+import com.example.demo.utils.TicketNumberCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Производительность деактивации билетов после окончания большой кампании: порции bulk UPDATE
+ * (tickets.deactivation.chunk-size строк на транзакцию) вместо загрузки всех билетов в контекст персистентности.
+ * Каждая порция коммитится отдельно, поэтому тестовая транзакция BaseDatabaseTest отключена.
+ * Запуск: ./gradlew benchmark --tests "*TicketDeactivationBenchmarkTest"
+ */
+@Tag("benchmark")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Бенчмарк деактивации золотых билетов")
+public class TicketDeactivationBenchmarkTest extends BaseDatabaseTest {
+
+    private static final int EXPIRED_TICKETS = 300_000;
+    private static final int ACTIVE_TICKETS = 50_000;
+    private static final int BOOKED_TICKETS = 50_000;
+
+    @Autowired
+    private GoldenTicketService ticketService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    public void cleanUp() {
+        cleanDatabase();
+    }
+
+    @Test
+    @DisplayName("Деактивация истекших билетов порциями")
+    public void benchmarkExpiredTickets() {
+        seedTickets(1, EXPIRED_TICKETS, "'ACTIVE'", "NOW() - INTERVAL '1 day'");
+        seedTickets(EXPIRED_TICKETS + 1, ACTIVE_TICKETS, "'ACTIVE'", "NOW() + INTERVAL '30 days'");
+        jdbcTemplate.execute("ANALYZE golden_tickets");
+
+        // Билет в кеше до деактивации: после нее проверка должна видеть новый статус
+        String cachedNumber = TicketNumberCodec.decode(1);
+        assertEquals(TicketStatus.ACTIVE, ticketService.getTicketByNumber(cachedNumber).getStatus());
+
+        long startedAt = System.nanoTime();
+        int deactivated = ticketService.deactivateExpiredTickets();
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+
+        System.out.println("[Benchmark] Деактивация истекших: " + deactivated + " билетов за " +
+                Math.round(seconds * 1000) + " мс (" + Math.round(deactivated / seconds) + " строк/с, метрика " +
+                Math.round(meterRegistry.get("tickets.deactivation.rate").tag("job", "expired").gauge().value()) + ")");
+
+        assertEquals(EXPIRED_TICKETS, deactivated);
+        assertEquals(EXPIRED_TICKETS, countRows("SELECT COUNT(*) FROM golden_tickets WHERE status = 'EXPIRED'"));
+        assertEquals(ACTIVE_TICKETS, countRows("SELECT COUNT(*) FROM golden_tickets WHERE status = 'ACTIVE'"));
+        assertEquals(TicketStatus.EXPIRED, ticketService.getTicketByNumber(cachedNumber).getStatus());
+        assertTrue(meterRegistry.get("tickets.deactivation.rows").tag("job", "expired").counter().count() >= EXPIRED_TICKETS);
+        assertEquals(0, ticketService.deactivateExpiredTickets(), "Повторный запуск не должен находить билетов");
+    }
+
+    @Test
+    @DisplayName("Деактивация билетов на начавшиеся экскурсии порциями")
+    public void benchmarkStartedExcursionTickets() {
+        jdbcTemplate.update("INSERT INTO users (username, password, role, is_banned, created_at) " +
+                "VALUES ('deactivation_guide', 'password', 'GUIDE', false, NOW())");
+        jdbcTemplate.update("INSERT INTO excursions (name, start_time, end_time, participants_count, guide_id, status, created_at) " +
+                "SELECT 'Excursion ' || g, NOW() + (2 * g - 3) * INTERVAL '1 day', NOW() + (2 * g - 3) * INTERVAL '1 day' + INTERVAL '2 hours', " +
+                "?, (SELECT id FROM users WHERE username = 'deactivation_guide'), 'CONFIRMED', NOW() FROM generate_series(1, 2) g",
+                BOOKED_TICKETS);
+        seedTickets(1, BOOKED_TICKETS, "'BOOKED'", "NULL");
+        // Первая экскурсия началась вчера, вторая начнется завтра: билеты делятся пополам
+        jdbcTemplate.update("UPDATE golden_tickets SET booked_at = NOW(), excursion_id = CASE WHEN ticket_code % 2 = 0 " +
+                "THEN (SELECT id FROM excursions ORDER BY start_time LIMIT 1) " +
+                "ELSE (SELECT id FROM excursions ORDER BY start_time DESC LIMIT 1) END");
+        jdbcTemplate.execute("ANALYZE golden_tickets");
+
+        long startedAt = System.nanoTime();
+        int deactivated = ticketService.deactivateTicketsForStartedExcursions();
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+
+        System.out.println("[Benchmark] Деактивация билетов начавшихся экскурсий: " + deactivated + " билетов за " +
+                Math.round(seconds * 1000) + " мс (" + Math.round(deactivated / seconds) + " строк/с)");
+
+        assertEquals(BOOKED_TICKETS / 2, deactivated);
+        assertEquals(BOOKED_TICKETS / 2, countRows("SELECT COUNT(*) FROM golden_tickets WHERE status = 'USED' AND used_at IS NOT NULL"));
+        assertEquals(BOOKED_TICKETS / 2, countRows("SELECT COUNT(*) FROM golden_tickets WHERE status = 'BOOKED'"));
+    }
+
+    // Билеты с кодами [firstCode, firstCode + count) (канонические коды TicketNumberCodec)
+    private void seedTickets(long firstCode, int count, String status, String expiresAt) {
+        jdbcTemplate.update("INSERT INTO golden_tickets (ticket_code, status, generated_at, expires_at) " +
+                "SELECT c, " + status + ", NOW(), " + expiresAt + " FROM generate_series(?::bigint, ?::bigint) c",
+                firstCode, firstCode + count - 1);
+    }
+}
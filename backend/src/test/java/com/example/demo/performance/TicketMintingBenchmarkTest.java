@@ -0,0 +1,111 @@
+package com.example.demo.performance;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.dto.request.GenerateTicketsRequestDTO;
+import com.example.demo.dto.response.TicketMintingJobDTO;
+import com.example.demo.models.TicketMintingJobStatus;
+import com.example.demo.services.GoldenTicketService;
+import com.example.demo.services.TicketMintingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Производительность массового выпуска билетов: задание TicketMintingService (фильтр Блума + пачки
+ * INSERT ... ON CONFLICT) против прежней генерации по 1000 билетов с проверкой каждого номера запросом.
+ * Задание выполняется в фоновом потоке и коммитит пачки, поэтому тестовая транзакция отключена.
+ * Запуск: ./gradlew benchmark --tests "*TicketMintingBenchmarkTest"
+ */
+@Tag("benchmark")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Бенчмарк массового выпуска золотых билетов")
+public class TicketMintingBenchmarkTest extends BaseDatabaseTest {
+
+    private static final int EXISTING_TICKETS = 100_000;
+    private static final int MINT_COUNT = 500_000;
+    private static final int LEGACY_CALLS = 5;
+
+    @Autowired
+    private TicketMintingService mintingService;
+
+    @Autowired
+    private GoldenTicketService ticketService;
+
+    @AfterEach
+    public void cleanUp() {
+        cleanDatabase();
+    }
+
+    @Test
+    @DisplayName("Выпуск 500k билетов одним заданием против generateTickets")
+    public void benchmarkMinting() throws Exception {
+        seedTickets(1, EXISTING_TICKETS);
+
+        GenerateTicketsRequestDTO legacyRequest = new GenerateTicketsRequestDTO();
+        legacyRequest.setCount(1000);
+        long legacyStart = System.nanoTime();
+        for (int i = 0; i < LEGACY_CALLS; i++) {
+            ticketService.generateTickets(legacyRequest);
+        }
+        double legacySeconds = (System.nanoTime() - legacyStart) / 1_000_000_000.0;
+        long legacyRate = Math.round(LEGACY_CALLS * 1000 / legacySeconds);
+
+        GenerateTicketsRequestDTO request = new GenerateTicketsRequestDTO();
+        request.setCount(MINT_COUNT);
+        request.setExpiresInDays(30);
+        long start = System.nanoTime();
+        TicketMintingJobDTO job = awaitCompletion(mintingService.startJob(request).getId());
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        long rate = Math.round(MINT_COUNT / seconds);
+
+        System.out.println("[Benchmark] generateTickets: " + legacyRate + " билетов/с; задание выпуска: " +
+                MINT_COUNT + " билетов за " + Math.round(seconds * 1000) + " мс (" + rate + " билетов/с)");
+
+        assertEquals(TicketMintingJobStatus.COMPLETED, job.getStatus());
+        assertEquals(MINT_COUNT, job.getGenerated());
+        assertEquals(EXISTING_TICKETS + LEGACY_CALLS * 1000 + MINT_COUNT, countRows("SELECT COUNT(*) FROM golden_tickets"));
+        assertEquals(MINT_COUNT, countRows("SELECT COUNT(*) FROM golden_tickets WHERE expires_at IS NOT NULL"));
+        assertTrue(rate > legacyRate, "Задание выпуска должно быть быстрее поштучной генерации");
+    }
+
+    @Test
+    @DisplayName("Задание остановившегося узла продолжается с сохраненного прогресса")
+    public void resumeAfterNodeRestart() throws Exception {
+        // Задание "упавшего" узла: выпущено 3000 из 20000, давно не обновлялось
+        seedTickets(1_000_000, 3000);
+        Long jobId = jdbcTemplate.queryForObject("INSERT INTO ticket_minting_jobs " +
+                "(requested, generated, status, owner, created_at, updated_at) " +
+                "VALUES (20000, 3000, 'RUNNING', 'stopped-node', NOW() - INTERVAL '1 hour', NOW() - INTERVAL '1 hour') " +
+                "RETURNING id", Long.class);
+
+        mintingService.adoptStaleJobs();
+        TicketMintingJobDTO job = awaitCompletion(jobId);
+
+        assertEquals(TicketMintingJobStatus.COMPLETED, job.getStatus());
+        assertEquals(20000, job.getGenerated());
+        assertEquals(20000, countRows("SELECT COUNT(*) FROM golden_tickets"));
+        assertEquals(20000, countRows("SELECT COUNT(DISTINCT ticket_code) FROM golden_tickets"));
+    }
+
+    private TicketMintingJobDTO awaitCompletion(Long jobId) throws InterruptedException {
+        TicketMintingJobDTO job = mintingService.getJob(jobId).orElseThrow();
+        for (int i = 0; i < 1200 && job.getStatus() == TicketMintingJobStatus.RUNNING; i++) {
+            Thread.sleep(100);
+            job = mintingService.getJob(jobId).orElseThrow();
+        }
+        return job;
+    }
+
+    // Билеты с кодами [firstCode, firstCode + count) (канонические коды TicketNumberCodec)
+    private void seedTickets(long firstCode, int count) {
+        jdbcTemplate.update("INSERT INTO golden_tickets (ticket_code, status, generated_at) " +
+                "SELECT c, 'ACTIVE', NOW() FROM generate_series(?::bigint, ?::bigint) c",
+                firstCode, firstCode + count - 1);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.demo.performance;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.dto.response.GoldenTicketResponseDTO;
+import com.example.demo.repositories.GoldenTicketBatchRepository;
+import com.example.demo.services.GoldenTicketService;
+import com.example.demo.utils.DateTimeUtils;
+import com.example.demo.utils.LongHashSet;
+import com.example.demo.utils.TicketNumberCodec;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Бенчмарк числового представления номеров билетов (TicketNumberCodec) до/после:
+ * память и скорость проверки принадлежности HashSet<String> против LongHashSet,
+ * размер уникального индекса VARCHAR(10) против BIGINT и поиск билета по номеру.
+ * Запуск: ./gradlew benchmark --tests "*TicketNumberEncodingBenchmarkTest"
+ */
+@Tag("benchmark")
+@DisplayName("Бенчмарк числовых номеров золотых билетов")
+public class TicketNumberEncodingBenchmarkTest extends BaseDatabaseTest {
+
+    private static final int SET_SIZE = 1_000_000;
+    private static final int TICKETS = 200_000;
+    private static final int BATCH = 10_000;
+    private static final int LOOKUPS = 5_000;
+
+    @Autowired
+    private GoldenTicketBatchRepository batchRepository;
+
+    @Autowired
+    private GoldenTicketService ticketService;
+
+    @Test
+    @DisplayName("Множество кодов: память и проверка принадлежности")
+    public void benchmarkInMemorySets() {
+        long[] codes = randomCodes(SET_SIZE, 1);
+        String[] numbers = new String[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            numbers[i] = TicketNumberCodec.decode(codes[i]);
+        }
+        // Половина запросов - промахи
+        long[] probes = randomCodes(SET_SIZE, 2);
+        for (int i = 0; i < probes.length; i += 2) {
+            probes[i] = codes[i];
+        }
+
+        long before = usedMemory();
+        Set<String> stringSet = new HashSet<>();
+        for (String number : numbers) {
+            stringSet.add(number);
+        }
+        long stringSetBytes = usedMemory() - before;
+
+        LongHashSet longSet = new LongHashSet(SET_SIZE);
+        for (long code : codes) {
+            longSet.add(code);
+        }
+
+        long startedAt = System.nanoTime();
+        int stringHits = 0;
+        for (long probe : probes) {
+            // Строка из запроса, как при проверке по строковому номеру
+            if (stringSet.contains(TicketNumberCodec.decode(probe))) {
+                stringHits++;
+            }
+        }
+        long stringNanos = (System.nanoTime() - startedAt) / probes.length;
+
+        startedAt = System.nanoTime();
+        int longHits = 0;
+        for (long probe : probes) {
+            if (longSet.contains(probe)) {
+                longHits++;
+            }
+        }
+        long longNanos = (System.nanoTime() - startedAt) / probes.length;
+
+        System.out.println("[Benchmark] " + SET_SIZE + " номеров: HashSet<String> ~" + stringSetBytes / 1024 / 1024 +
+                " МБ, " + stringNanos + " нс/проверка; LongHashSet " + longSet.sizeInBytes() / 1024 / 1024 +
+                " МБ, " + longNanos + " нс/проверка");
+
+        assertEquals(stringHits, longHits);
+        assertEquals(SET_SIZE, longSet.size());
+        assertTrue(longSet.sizeInBytes() < stringSetBytes, "Примитивное множество должно занимать меньше памяти");
+    }
+
+    @Test
+    @DisplayName("Уникальный индекс BIGINT против VARCHAR и поиск по номеру")
+    public void benchmarkIndexAndLookup() {
+        long[] codes = randomCodes(TICKETS, 3);
+        for (int offset = 0; offset < TICKETS; offset += BATCH) {
+            batchRepository.insertIfAbsent(Arrays.copyOfRange(codes, offset, offset + BATCH), DateTimeUtils.nowUTC(), null);
+        }
+        // Оба индекса сравниваются свежепостроенными: индекс кодов перестраивается после вставки пачками
+        // (и после предыдущих тестов), размер снимается до базовой линии - ее UPDATE создает новые версии всех строк
+        jdbcTemplate.execute("REINDEX INDEX uk_golden_tickets_ticket_code");
+        long codeIndexBytes = indexSize("uk_golden_tickets_ticket_code");
+        // Базовая линия: прежняя строковая колонка номера с уникальным индексом (откатывается вместе с тестом)
+        jdbcTemplate.execute("ALTER TABLE golden_tickets ADD COLUMN tmp_ticket_number VARCHAR(10)");
+        jdbcTemplate.execute("UPDATE golden_tickets SET tmp_ticket_number = (SELECT string_agg(substr('" +
+                TicketNumberCodec.ALPHABET + "', ((ticket_code >> (5 * i)) & 31)::int + 1, 1), '' ORDER BY i) " +
+                "FROM generate_series(0, 7) i)");
+        jdbcTemplate.execute("CREATE UNIQUE INDEX tmp_golden_tickets_ticket_number ON golden_tickets (tmp_ticket_number)");
+        jdbcTemplate.execute("ANALYZE golden_tickets");
+
+        long numberIndexBytes = indexSize("tmp_golden_tickets_ticket_number");
+
+        Random random = new Random(4);
+        String[] lookups = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = TicketNumberCodec.decode(codes[random.nextInt(TICKETS)]);
+        }
+
+        long startedAt = System.nanoTime();
+        for (String number : lookups) {
+            Long id = jdbcTemplate.queryForObject("SELECT id FROM golden_tickets WHERE tmp_ticket_number = ?", Long.class, number);
+            assertNotNull(id);
+        }
+        long numberMicros = (System.nanoTime() - startedAt) / 1_000 / LOOKUPS;
+
+        startedAt = System.nanoTime();
+        for (String number : lookups) {
+            GoldenTicketResponseDTO ticket = ticketService.getTicketByNumber(number);
+            assertEquals(number, ticket.getTicketNumber());
+        }
+        long codeMicros = (System.nanoTime() - startedAt) / 1_000 / LOOKUPS;
+
+        System.out.println("[Benchmark] " + TICKETS + " билетов: индекс ticket_number " + numberIndexBytes / 1024 +
+                " КБ, индекс ticket_code " + codeIndexBytes / 1024 + " КБ; поиск по строке " + numberMicros +
+                " мкс, по коду через GoldenTicketService " + codeMicros + " мкс");
+
+        assertTrue(codeIndexBytes < numberIndexBytes, "Индекс по BIGINT должен быть меньше индекса по VARCHAR");
+    }
+
+    private long indexSize(String indexName) {
+        Long bytes = jdbcTemplate.queryForObject("SELECT pg_relation_size(?::regclass)", Long.class, indexName);
+        return bytes != null ? bytes : 0;
+    }
+
+    private static long[] randomCodes(int count, long seed) {
+        Random random = new Random(seed);
+        LongHashSet unique = new LongHashSet(count);
+        while (unique.size() < count) {
+            unique.add(TicketNumberCodec.fromRandomBits(random.nextLong()));
+        }
+        return unique.toArray();
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo.performance;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.repositories.GoldenTicketBatchRepository;
+import com.example.demo.services.GoldenTicketService;
+import com.example.demo.utils.DateTimeUtils;
+import com.example.demo.utils.TicketNumberCodec;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Бенчмарк проверки билета (validateTicket) с ближним кешем TicketCache и без него:
+ * сканеры многократно проверяют одни и те же билеты. Сравниваются p50/p99 задержки
+ * промаха (запрос в БД) и попадания в кеш.
+ * Запуск: ./gradlew benchmark --tests "*TicketValidationCacheBenchmarkTest"
+ */
+@Tag("benchmark")
+@DisplayName("Бенчмарк кеша проверки золотых билетов")
+public class TicketValidationCacheBenchmarkTest extends BaseDatabaseTest {
+
+    private static final int TICKETS = 10_000;
+    private static final int HOT_TICKETS = 1_000;
+    private static final int WARMUP = 20_000;
+    private static final int CALLS = 50_000;
+
+    @Autowired
+    private GoldenTicketService ticketService;
+
+    @Autowired
+    private GoldenTicketBatchRepository batchRepository;
+
+    @Test
+    @DisplayName("Задержка проверки: промах против попадания в кеш")
+    public void benchmarkValidation() {
+        long[] codes = new long[TICKETS];
+        for (int i = 0; i < TICKETS; i++) {
+            codes[i] = i + 1;
+        }
+        batchRepository.insertIfAbsent(codes, DateTimeUtils.nowUTC(), DateTimeUtils.nowUTC().plusDays(30));
+
+        Random random = new Random(5);
+        String[] numbers = new String[CALLS];
+        for (int i = 0; i < CALLS; i++) {
+            numbers[i] = TicketNumberCodec.decode(codes[random.nextInt(HOT_TICKETS)]);
+        }
+
+        // Без кеша: каждый вызов после сброса идет в БД
+        long[] missNanos = new long[CALLS / 10];
+        for (int i = 0; i < missNanos.length; i++) {
+            ticketCache.invalidateAll();
+            long startedAt = System.nanoTime();
+            Map<String, Object> result = ticketService.validateTicket(numbers[i]);
+            missNanos[i] = System.nanoTime() - startedAt;
+            assertEquals(true, result.get("valid"));
+        }
+
+        for (int i = 0; i < WARMUP; i++) {
+            ticketService.validateTicket(numbers[i % CALLS]);
+        }
+        long[] hitNanos = new long[CALLS];
+        for (int i = 0; i < CALLS; i++) {
+            long startedAt = System.nanoTime();
+            Map<String, Object> result = ticketService.validateTicket(numbers[i]);
+            hitNanos[i] = System.nanoTime() - startedAt;
+            assertEquals(true, result.get("valid"));
+        }
+
+        System.out.println("[Benchmark] validateTicket без кеша: p50 " + percentile(missNanos, 50) / 1_000 +
+                " мкс, p99 " + percentile(missNanos, 99) / 1_000 + " мкс; попадание в кеш: p50 " +
+                percentile(hitNanos, 50) / 1_000 + " мкс, p99 " + percentile(hitNanos, 99) / 1_000 +
+                " мкс; в кеше " + ticketCache.size() + " билетов");
+
+        assertTrue(percentile(hitNanos, 99) < 1_000_000, "p99 проверки при попадании в кеш должен быть меньше 1 мс");
+        assertTrue(percentile(hitNanos, 99) < percentile(missNanos, 99), "Попадание в кеш должно быть быстрее запроса в БД");
+    }
+
+    private static long percentile(long[] values, int percent) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.demo.performance;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.dto.request.ExcursionRequestDTO;
+import com.example.demo.exceptions.WorkshopSlotUnavailableException;
+import com.example.demo.models.ExcursionStatus;
+import com.example.demo.services.ExcursionService;
+import com.example.demo.services.WorkshopSlotLedger;
+import com.example.demo.utils.DateTimeUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Нагрузочный тест создания экскурсий: сотни планировщиков одновременно бронируют одни и те же слоты цехов.
+ * Вместимость цеха 50, группа 20 человек - в любой момент в цехе помещается не больше двух групп.
+ * Проверка занятости в памяти может пропустить гонку, но условное резервирование в журнале
+ * workshop_slots не должно допустить переполнения ни одного цеха. Параллельные изменения одной экскурсии
+ * выполняются по очереди (блокировка строки) и не освобождают ее прежние слоты дважды.
+ * Транзакции здесь реально коммитятся, поэтому тестовая транзакция BaseDatabaseTest отключена.
+ * Запуск: ./gradlew benchmark --tests "*WorkshopSlotReservationStressTest"
+ */
+@Tag("benchmark")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Нагрузочный тест резервирования слотов цехов")
+public class WorkshopSlotReservationStressTest extends BaseDatabaseTest {
+
+    private static final int WORKSHOPS = 4;
+    private static final int CAPACITY = 50;
+    private static final int GROUP_SIZE = 20;
+    private static final int ATTEMPTS = 400;
+    private static final int THREADS = 32;
+    // Старты со сдвигом 15 минут при длительности 30: соседние варианты пересекаются
+    private static final int[] START_OFFSETS_MINUTES = { 0, 15, 30, 45 };
+
+    @Autowired
+    private ExcursionService excursionService;
+
+    @AfterEach
+    public void cleanUp() {
+        cleanDatabase();
+    }
+
+    @Test
+    @DisplayName("Параллельное бронирование: ни один цех не переполнен")
+    public void stressConcurrentBooking() throws Exception {
+        List<Long> workshopIds = seedWorkshops();
+        List<Long> guideIds = seedGuides();
+        LocalDateTime base = DateTimeUtils.nowUTC().plusDays(30).withHour(10).withMinute(0).withSecond(0).withNano(0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger slotRejections = new AtomicInteger();
+        AtomicInteger otherRejections = new AtomicInteger();
+
+        for (int i = 0; i < ATTEMPTS; i++) {
+            ExcursionRequestDTO dto = request(guideIds.get(i), workshopIds.get(i % WORKSHOPS),
+                    base.plusMinutes(START_OFFSETS_MINUTES[(i / WORKSHOPS) % START_OFFSETS_MINUTES.length]), i);
+            executor.submit(() -> {
+                start.await();
+                try {
+                    excursionService.createExcursion(dto);
+                    booked.incrementAndGet();
+                } catch (WorkshopSlotUnavailableException e) {
+                    slotRejections.incrementAndGet();
+                } catch (RuntimeException e) {
+                    // Отказ предварительной проверки занятости (индекс в памяти)
+                    otherRejections.incrementAndGet();
+                }
+                return null;
+            });
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.MINUTES), "Бронирования не завершились за отведенное время");
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+
+        System.out.println("[Benchmark] Параллельное бронирование: " + booked.get() + " успешно, " +
+                slotRejections.get() + " отказов журнала, " + otherRejections.get() + " отказов предварительной проверки за " +
+                Math.round(seconds * 1000) + " мс (" + Math.round(ATTEMPTS / seconds) + " попыток/с)");
+
+        assertEquals(ATTEMPTS, booked.get() + slotRejections.get() + otherRejections.get());
+        assertEquals(booked.get(), countRows("SELECT COUNT(*) FROM excursions WHERE status = 'CONFIRMED'"));
+        // Каждый цех принимает минимум две группы в один слот
+        assertTrue(booked.get() >= WORKSHOPS * 2, "Слишком мало успешных бронирований: " + booked.get());
+
+        int peak = peakConcurrentParticipants();
+        System.out.println("[Benchmark] Пиковая одновременная загрузка цеха: " + peak + " из " + CAPACITY);
+        assertTrue(peak <= CAPACITY, "Цех переполнен: " + peak + " > " + CAPACITY);
+        assertTrue(countRows("SELECT COALESCE(MAX(occupied), 0) FROM workshop_slots") <= CAPACITY);
+
+        // Журнал согласован с маршрутами: сумма занятости слотов = участники x слоты маршрутов
+        int expectedSlotLoad = countRows("SELECT COALESCE(SUM(e.participants_count * r.duration_minutes / " + WorkshopSlotLedger.SLOT_MINUTES + "), 0) " +
+                "FROM excursion_routes r JOIN excursions e ON e.id = r.excursion_id WHERE e.status = 'CONFIRMED'");
+        assertEquals(expectedSlotLoad, countRows("SELECT COALESCE(SUM(occupied), 0) FROM workshop_slots"));
+    }
+
+    @Test
+    @DisplayName("Параллельные изменения одной экскурсии: журнал совпадает с итоговым маршрутом")
+    public void stressConcurrentUpdates() throws Exception {
+        Long workshopId = seedWorkshops().get(0);
+        Long guideId = seedGuides().get(0);
+        LocalDateTime base = DateTimeUtils.nowUTC().plusDays(30).withHour(10).withMinute(0).withSecond(0).withNano(0);
+        Long excursionId = excursionService.createExcursion(request(guideId, workshopId, base, 0)).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> updates = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS * 4; i++) {
+                ExcursionRequestDTO dto = new ExcursionRequestDTO();
+                dto.setParticipantsCount(i % 2 == 0 ? GROUP_SIZE / 2 : GROUP_SIZE);
+                updates.add(executor.submit(() -> {
+                    start.await();
+                    excursionService.updateExcursion(excursionId, dto);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> update : updates) {
+                update.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int participants = countRows("SELECT participants_count FROM excursions WHERE id = ?", excursionId);
+        int slots = 30 / WorkshopSlotLedger.SLOT_MINUTES;
+        assertEquals(participants * slots, countRows("SELECT COALESCE(SUM(occupied), 0) FROM workshop_slots"),
+                "Каждое изменение должно освобождать слоты, зарезервированные предыдущим");
+    }
+
+    // Максимум суммарных участников по точкам начала маршрутов (пик пересечения интервалов)
+    private int peakConcurrentParticipants() {
+        return countRows("SELECT COALESCE(MAX(load), 0) FROM (" +
+                "SELECT SUM(e2.participants_count) AS load FROM excursion_routes r1 " +
+                "JOIN excursion_routes r2 ON r2.workshop_id = r1.workshop_id " +
+                "AND r2.start_time <= r1.start_time AND r2.end_time > r1.start_time " +
+                "JOIN excursions e2 ON e2.id = r2.excursion_id AND e2.status IN ('CONFIRMED', 'IN_PROGRESS') " +
+                "GROUP BY r1.id) loads");
+    }
+
+    private static ExcursionRequestDTO request(Long guideId, Long workshopId, LocalDateTime startTime, int index) {
+        ExcursionRequestDTO.RoutePointDTO point = new ExcursionRequestDTO.RoutePointDTO();
+        point.setWorkshopId(workshopId);
+        point.setOrderNumber(1);
+        point.setDurationMinutes(30);
+
+        ExcursionRequestDTO dto = new ExcursionRequestDTO();
+        dto.setName("Stress excursion " + index);
+        dto.setStartTime(startTime);
+        dto.setParticipantsCount(GROUP_SIZE);
+        dto.setGuideId(guideId);
+        dto.setStatus(ExcursionStatus.CONFIRMED);
+        dto.setAutoGenerateRoute(false);
+        dto.setRoutes(new ArrayList<>(List.of(point)));
+        return dto;
+    }
+
+    private List<Long> seedWorkshops() {
+        jdbcTemplate.update("INSERT INTO workshops (name, description, capacity, visit_duration_minutes) " +
+                "SELECT 'Stress workshop ' || g, 'Цех', ?, 30 FROM generate_series(1, ?) g", CAPACITY, WORKSHOPS);
+        return jdbcTemplate.queryForList("SELECT id FROM workshops ORDER BY id", Long.class);
+    }
+
+    // У каждой попытки свой гид, чтобы отказы были только из-за вместимости цехов
+    private List<Long> seedGuides() {
+        jdbcTemplate.update("INSERT INTO users (username, password, role, is_banned, created_at) " +
+                "SELECT 'stress_guide_' || g, 'password', 'GUIDE', false, NOW() FROM generate_series(1, ?) g", ATTEMPTS);
+        return jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Long.class);
+    }
+}
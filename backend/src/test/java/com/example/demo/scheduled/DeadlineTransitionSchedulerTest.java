@@ -0,0 +1,75 @@
+package com.example.demo.scheduled;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.utils.DateTimeUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты выполнения переходов по срокам
+ * В тестовом профиле поток сроков выключен (deadlines.enabled=false): тест включает его,
+ * создает экскурсию, которая начинается через секунду, и ждет перехода без опроса планировщиков.
+ * Переход выполняется в отдельном потоке, поэтому тестовая транзакция BaseDatabaseTest отключена.
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Тесты выполнения переходов по срокам")
+public class DeadlineTransitionSchedulerTest extends BaseDatabaseTest {
+
+    private static final long WAIT_MS = 5_000;
+
+    @Autowired
+    private DeadlineTransitionScheduler scheduler;
+
+    private Object originalEnabled;
+
+    @BeforeEach
+    public void enableScheduler() {
+        originalEnabled = ReflectionTestUtils.getField(scheduler, "enabled");
+        ReflectionTestUtils.setField(scheduler, "enabled", true);
+    }
+
+    @AfterEach
+    public void disableScheduler() {
+        scheduler.stop();
+        ReflectionTestUtils.setField(scheduler, "enabled", originalEnabled);
+        cleanDatabase();
+    }
+
+    @Test
+    @DisplayName("Наступивший срок запускает переход статусов")
+    public void testDueDeadlineFires() throws InterruptedException {
+        LocalDateTime now = DateTimeUtils.nowUTC();
+        jdbcTemplate.update("INSERT INTO users (username, password, role, is_banned, created_at) " +
+                "VALUES ('deadline_guide', 'password', 'GUIDE', false, NOW())");
+        jdbcTemplate.update("INSERT INTO excursions (name, start_time, end_time, participants_count, guide_id, status, created_at) " +
+                "VALUES ('Deadline excursion', ?, ?, 10, (SELECT id FROM users WHERE username = 'deadline_guide'), 'CONFIRMED', NOW())",
+                Timestamp.valueOf(now.plusSeconds(1)), Timestamp.valueOf(now.plusHours(1)));
+
+        // Сроки подгружаются из БД при старте
+        scheduler.start();
+
+        long startedAt = System.currentTimeMillis();
+        while (!"IN_PROGRESS".equals(status()) && System.currentTimeMillis() - startedAt < WAIT_MS) {
+            Thread.sleep(50);
+        }
+        long elapsedMs = System.currentTimeMillis() - startedAt;
+
+        assertEquals("IN_PROGRESS", status(), "Переход должен выполниться по сроку");
+        assertTrue(elapsedMs < 3_000, "Переход должен выполниться в момент начала: " + elapsedMs + " мс");
+    }
+
+    private String status() {
+        return jdbcTemplate.queryForObject("SELECT status FROM excursions WHERE name = 'Deadline excursion'", String.class);
+    }
+}
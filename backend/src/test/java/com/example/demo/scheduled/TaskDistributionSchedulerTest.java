@@ -0,0 +1,125 @@
+package com.example.demo.scheduled;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.services.TaskService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты планировщика распределения задач
+ * Проверяет распределение порциями: лимит загруженности учитывается между порциями,
+ * запуск не обрывается после порции без назначений, пока у рабочих есть свободные места
+ */
+@DisplayName("Тесты планировщика распределения задач")
+public class TaskDistributionSchedulerTest extends BaseDatabaseTest {
+
+    private static final int CHUNK_SIZE = 3;
+
+    @Autowired
+    private TaskDistributionScheduler scheduler;
+
+    private Object originalChunkSize;
+
+    @BeforeEach
+    public void setUpChunkSize() {
+        originalChunkSize = ReflectionTestUtils.getField(scheduler, "chunkSize");
+        ReflectionTestUtils.setField(scheduler, "chunkSize", CHUNK_SIZE);
+    }
+
+    @AfterEach
+    public void restoreChunkSize() {
+        ReflectionTestUtils.setField(scheduler, "chunkSize", originalChunkSize);
+    }
+
+    @Test
+    @DisplayName("Задачи из нескольких порций распределяются между рабочими")
+    public void testDistributesAllChunks() {
+        seedWorkers(2);
+        seedTasks(8);
+
+        scheduler.distributeTasksAutomatically();
+
+        assertEquals(0, countRows("SELECT COUNT(*) FROM tasks WHERE user_id IS NULL"));
+        assertEquals(8, countRows("SELECT COUNT(*) FROM tasks WHERE status = 'ASSIGNED'"));
+        assertEquals(4, maxLoad(), "Задачи должны распределяться равномерно");
+    }
+
+    @Test
+    @DisplayName("Лимит загруженности учитывает назначения предыдущих порций")
+    public void testLimitAcrossChunks() {
+        seedWorkers(2);
+        seedTasks(2 * TaskService.MAX_ALLOWED_TASKS + 4);
+
+        scheduler.distributeTasksAutomatically();
+
+        assertEquals(2 * TaskService.MAX_ALLOWED_TASKS, countRows("SELECT COUNT(*) FROM tasks WHERE user_id IS NOT NULL"));
+        assertEquals(4, countRows("SELECT COUNT(*) FROM tasks WHERE user_id IS NULL"));
+        assertEquals(TaskService.MAX_ALLOWED_TASKS, maxLoad(), "Ни один рабочий не должен превысить лимит");
+    }
+
+    @Test
+    @DisplayName("Уже назначенные задачи рабочих учитываются в загруженности")
+    public void testExistingLoadIsCounted() {
+        seedWorkers(2);
+        // Первый рабочий уже на лимите: все новые задачи должны уйти второму
+        jdbcTemplate.update("INSERT INTO tasks (name, status, user_id, created_at) " +
+                "SELECT 'Busy task ' || g, 'IN_PROGRESS', (SELECT MIN(id) FROM users), NOW() FROM generate_series(1, ?) g",
+                TaskService.MAX_ALLOWED_TASKS);
+        seedTasks(4);
+
+        scheduler.distributeTasksAutomatically();
+
+        assertEquals(4, countRows("SELECT COUNT(*) FROM tasks WHERE user_id = (SELECT MAX(id) FROM users)"));
+        assertEquals(TaskService.MAX_ALLOWED_TASKS, maxLoad());
+    }
+
+    @Test
+    @DisplayName("Завершенные задачи не занимают места рабочих")
+    public void testCompletedTasksAreNotCounted() {
+        seedWorkers(1);
+        jdbcTemplate.update("INSERT INTO tasks (name, status, user_id, created_at, completed_at) " +
+                "SELECT 'Done task ' || g, 'COMPLETED', (SELECT MIN(id) FROM users), NOW(), NOW() FROM generate_series(1, ?) g",
+                TaskService.MAX_ALLOWED_TASKS);
+        seedTasks(TaskService.MAX_ALLOWED_TASKS);
+
+        scheduler.distributeTasksAutomatically();
+
+        assertEquals(0, countRows("SELECT COUNT(*) FROM tasks WHERE user_id IS NULL"));
+    }
+
+    @Test
+    @DisplayName("Распределенные задачи читаются через репозиторий уже с исполнителем")
+    public void testAssignedTasksAreNotStale() {
+        seedWorkers(1);
+        seedTasks(2);
+
+        scheduler.distributeTasksAutomatically();
+
+        // Та же транзакция: сущности, загруженные при распределении, не должны остаться в контексте
+        taskRepository.findAll().forEach(task -> {
+            assertNotNull(task.getUser(), "Исполнитель задачи " + task.getId() + " должен читаться из БД");
+            assertEquals("ASSIGNED", task.getStatus().name());
+        });
+    }
+
+    private void seedWorkers(int count) {
+        jdbcTemplate.update("INSERT INTO users (username, password, role, is_banned, created_at) " +
+                "SELECT 'scheduler_worker_' || g, 'password', 'WORKER', false, NOW() FROM generate_series(1, ?) g", count);
+    }
+
+    private void seedTasks(int count) {
+        jdbcTemplate.update("INSERT INTO tasks (name, status, created_at) " +
+                "SELECT 'Scheduled task ' || g, 'NOT_ASSIGNED', NOW() FROM generate_series(1, ?) g", count);
+    }
+
+    private int maxLoad() {
+        return countRows("SELECT COALESCE(MAX(cnt), 0) FROM (SELECT COUNT(*) AS cnt FROM tasks " +
+                "WHERE user_id IS NOT NULL AND status <> 'COMPLETED' GROUP BY user_id) loads");
+    }
+}
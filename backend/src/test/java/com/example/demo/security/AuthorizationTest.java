@@ -372,7 +372,7 @@ public class AuthorizationTest extends BaseTest {
         
         ExcursionRequestDTO dto = new ExcursionRequestDTO();
         dto.setName("Экскурсия от гида");
-        dto.setStartTime(java.time.LocalDateTime.now().plusDays(1));
+        dto.setStartTime(java.time.LocalDateTime.now().plusDays(1).truncatedTo(java.time.temporal.ChronoUnit.HOURS));
         dto.setParticipantsCount(20);
         dto.setGuideId(guide.getId());
         dto.setStatus(ExcursionStatus.DRAFT);
@@ -541,7 +541,7 @@ public class AuthorizationTest extends BaseTest {
         
         ExcursionRequestDTO dto = new ExcursionRequestDTO();
         dto.setName("Экскурсия");
-        dto.setStartTime(java.time.LocalDateTime.now().plusDays(1));
+        dto.setStartTime(java.time.LocalDateTime.now().plusDays(1).truncatedTo(java.time.temporal.ChronoUnit.HOURS));
         dto.setParticipantsCount(20);
         dto.setGuideId(guide.getId());
         dto.setAutoGenerateRoute(true);
@@ -0,0 +1,177 @@
+package com.example.demo.services;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.dto.request.ExcursionRequestDTO;
+import com.example.demo.models.Excursion;
+import com.example.demo.models.ExcursionStatus;
+import com.example.demo.models.Role;
+import com.example.demo.models.User;
+import com.example.demo.models.Workshop;
+import com.example.demo.utils.DateTimeUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты времени окончания и автоматических переходов статусов экскурсий
+ * Проверяет, что end_time пересчитывается там, где пишется маршрут, отдается в API как есть, и что пакетные
+ * UPDATE планировщика переводят экскурсии по start_time и end_time (завершение - порциями)
+ */
+@DisplayName("Тесты времени окончания и статусов экскурсий")
+public class ExcursionServiceTest extends BaseDatabaseTest {
+
+    @Autowired
+    private ExcursionService excursionService;
+
+    private User guide;
+    private Workshop chocolate;
+    private Workshop candy;
+
+    @BeforeEach
+    public void setUpExcursionData() {
+        guide = new User();
+        guide.setUsername("end_time_guide");
+        guide.setPassword("password");
+        guide.setRole(Role.GUIDE);
+        guide = userRepository.saveAndFlush(guide);
+
+        chocolate = saveWorkshop("Шоколадный цех", 30);
+        candy = saveWorkshop("Конфетный цех", 45);
+    }
+
+    @Test
+    @DisplayName("Время окончания создаваемой экскурсии - конец последней точки маршрута")
+    public void testEndTimeOnCreate() {
+        LocalDateTime startTime = LocalDateTime.now().plusDays(5).truncatedTo(ChronoUnit.HOURS);
+
+        Long id = excursionService.createExcursion(request(startTime,
+                point(chocolate, 1, null), point(candy, 2, null))).getId();
+        excursionRepository.flush();
+
+        assertEquals(startTime.plusMinutes(75), endTimeOf(id));
+    }
+
+    @Test
+    @DisplayName("Время окончания пересчитывается при замене маршрута и не меняется без нее")
+    public void testEndTimeOnUpdate() {
+        LocalDateTime startTime = LocalDateTime.now().plusDays(5).truncatedTo(ChronoUnit.HOURS);
+        Long id = excursionService.createExcursion(request(startTime,
+                point(chocolate, 1, null), point(candy, 2, null))).getId();
+
+        ExcursionRequestDTO routeUpdate = new ExcursionRequestDTO();
+        routeUpdate.setRoutes(new ArrayList<>(List.of(point(candy, 1, 20))));
+        excursionService.updateExcursion(id, routeUpdate);
+        excursionRepository.flush();
+        assertEquals(startTime.plusMinutes(20), endTimeOf(id));
+
+        ExcursionRequestDTO rename = new ExcursionRequestDTO();
+        rename.setName("Переименованная экскурсия");
+        excursionService.updateExcursion(id, rename);
+        excursionRepository.flush();
+        assertEquals(startTime.plusMinutes(20), endTimeOf(id));
+    }
+
+    @Test
+    @DisplayName("API отдает сохраненное время окончания, по которому экскурсия завершается")
+    public void testResponseUsesPersistedEndTime() {
+        LocalDateTime startTime = LocalDateTime.now().plusDays(5).truncatedTo(ChronoUnit.HOURS);
+        Excursion excursion = new Excursion("Экскурсия без маршрута", startTime, 10, guide);
+        Long id = excursionRepository.saveAndFlush(excursion).getId();
+
+        assertEquals(startTime.plusHours(2), endTimeOf(id));
+        assertEquals(endTimeOf(id), excursionService.getExcursionById(id).orElseThrow().getEndTime());
+    }
+
+    @Test
+    @DisplayName("Пакетные переходы: начавшиеся - IN_PROGRESS, закончившиеся - COMPLETED")
+    public void testBulkTransitions() {
+        LocalDateTime now = DateTimeUtils.nowUTC();
+        insertExcursion("Due start", now.minusMinutes(5), now.plusHours(1), ExcursionStatus.CONFIRMED);
+        insertExcursion("Due end", now.minusHours(3), now.minusMinutes(5), ExcursionStatus.IN_PROGRESS);
+        insertExcursion("Future", now.plusDays(1), now.plusDays(1).plusHours(2), ExcursionStatus.CONFIRMED);
+        insertExcursion("Draft in the past", now.minusHours(3), now.minusHours(1), ExcursionStatus.DRAFT);
+
+        Map<String, Integer> result = excursionService.updateExcursionStatuses();
+
+        assertEquals(1, result.get("started"));
+        assertEquals(1, result.get("completed"));
+        assertEquals("IN_PROGRESS", statusOf("Due start"));
+        assertEquals("COMPLETED", statusOf("Due end"));
+        assertEquals("CONFIRMED", statusOf("Future"));
+        assertEquals("DRAFT", statusOf("Draft in the past"));
+
+        Map<String, Integer> repeated = excursionService.updateExcursionStatuses();
+        assertEquals(0, repeated.get("started"), "Повторный запуск не должен находить экскурсий");
+        assertEquals(0, repeated.get("completed"), "Повторный запуск не должен находить экскурсий");
+    }
+
+    @Test
+    @DisplayName("Закончившиеся экскурсии завершаются порциями до последней")
+    public void testCompletionInChunks() {
+        LocalDateTime now = DateTimeUtils.nowUTC();
+        for (int i = 0; i < 5; i++) {
+            insertExcursion("Due end " + i, now.minusHours(3), now.minusMinutes(5 + i), ExcursionStatus.IN_PROGRESS);
+        }
+        Object originalChunkSize = ReflectionTestUtils.getField(excursionService, "completionChunkSize");
+        ReflectionTestUtils.setField(excursionService, "completionChunkSize", 2);
+        try {
+            assertEquals(5, excursionService.updateExcursionStatuses().get("completed"));
+        } finally {
+            ReflectionTestUtils.setField(excursionService, "completionChunkSize", originalChunkSize);
+        }
+        assertEquals(5, countRows("SELECT COUNT(*) FROM excursions WHERE status = 'COMPLETED'"));
+    }
+
+    private Workshop saveWorkshop(String name, int visitDurationMinutes) {
+        Workshop workshop = new Workshop();
+        workshop.setName(name);
+        workshop.setCapacity(50);
+        workshop.setVisitDurationMinutes(visitDurationMinutes);
+        return workshopRepository.saveAndFlush(workshop);
+    }
+
+    private ExcursionRequestDTO request(LocalDateTime startTime, ExcursionRequestDTO.RoutePointDTO... points) {
+        ExcursionRequestDTO dto = new ExcursionRequestDTO();
+        dto.setName("Экскурсия по фабрике");
+        dto.setStartTime(startTime);
+        dto.setParticipantsCount(10);
+        dto.setGuideId(guide.getId());
+        dto.setStatus(ExcursionStatus.CONFIRMED);
+        dto.setAutoGenerateRoute(false);
+        dto.setRoutes(new ArrayList<>(List.of(points)));
+        return dto;
+    }
+
+    private static ExcursionRequestDTO.RoutePointDTO point(Workshop workshop, int orderNumber, Integer durationMinutes) {
+        ExcursionRequestDTO.RoutePointDTO point = new ExcursionRequestDTO.RoutePointDTO();
+        point.setWorkshopId(workshop.getId());
+        point.setOrderNumber(orderNumber);
+        point.setDurationMinutes(durationMinutes);
+        return point;
+    }
+
+    private void insertExcursion(String name, LocalDateTime start, LocalDateTime end, ExcursionStatus status) {
+        jdbcTemplate.update("INSERT INTO excursions (name, start_time, end_time, participants_count, guide_id, status, created_at) " +
+                "VALUES (?, ?, ?, 10, ?, ?, NOW())",
+                name, Timestamp.valueOf(start), Timestamp.valueOf(end), guide.getId(), status.name());
+    }
+
+    private LocalDateTime endTimeOf(Long excursionId) {
+        return jdbcTemplate.queryForObject("SELECT end_time FROM excursions WHERE id = ?", LocalDateTime.class, excursionId);
+    }
+
+    private String statusOf(String name) {
+        return jdbcTemplate.queryForObject("SELECT status FROM excursions WHERE name = ?", String.class, name);
+    }
+}
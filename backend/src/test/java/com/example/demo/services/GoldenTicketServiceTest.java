@@ -0,0 +1,90 @@
+package com.example.demo.services;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.utils.TicketNumberCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты фоновой деактивации золотых билетов
+ * Проверяет, что истекшие активные билеты деактивируются за несколько порций и вытесняются
+ * из TicketCache, а метрика скорости обнуляется запуском без изменений
+ */
+@DisplayName("Тесты деактивации золотых билетов")
+public class GoldenTicketServiceTest extends BaseDatabaseTest {
+
+    private static final int CHUNK_SIZE = 3;
+    private static final int EXPIRED_TICKETS = 8;
+    private static final int VALID_TICKETS = 2;
+
+    @Autowired
+    private GoldenTicketService ticketService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Object originalChunkSize;
+
+    @BeforeEach
+    public void setUpChunkSize() {
+        originalChunkSize = ReflectionTestUtils.getField(ticketService, "deactivationChunkSize");
+        ReflectionTestUtils.setField(ticketService, "deactivationChunkSize", CHUNK_SIZE);
+    }
+
+    @AfterEach
+    public void restoreChunkSize() {
+        ReflectionTestUtils.setField(ticketService, "deactivationChunkSize", originalChunkSize);
+    }
+
+    @Test
+    @DisplayName("Истекшие билеты деактивируются порциями и вытесняются из кеша")
+    public void testExpiredTicketsDeactivatedAcrossChunks() {
+        seedTickets(0, EXPIRED_TICKETS, "NOW() - INTERVAL '1 hour'");
+        seedTickets(EXPIRED_TICKETS, VALID_TICKETS, "NOW() + INTERVAL '1 day'");
+        // Проверка на входе кладет каждый билет в кеш
+        for (long code = 0; code < EXPIRED_TICKETS + VALID_TICKETS; code++) {
+            assertEquals("ACTIVE", ticketService.getTicketByNumber(TicketNumberCodec.decode(code)).getStatus().name());
+            assertNotNull(ticketCache.get(code));
+        }
+
+        int deactivated = ticketService.deactivateExpiredTickets();
+
+        assertEquals(EXPIRED_TICKETS, deactivated, "Все порции должны быть обработаны за один запуск");
+        assertEquals(EXPIRED_TICKETS, countRows("SELECT COUNT(*) FROM golden_tickets WHERE status = 'EXPIRED'"));
+        assertEquals(VALID_TICKETS, countRows("SELECT COUNT(*) FROM golden_tickets WHERE status = 'ACTIVE'"));
+        for (long code = 0; code < EXPIRED_TICKETS; code++) {
+            assertNull(ticketCache.get(code), "Деактивированный билет должен вытесняться из кеша");
+        }
+        assertNotNull(ticketCache.get(EXPIRED_TICKETS), "Действующие билеты остаются в кеше");
+    }
+
+    @Test
+    @DisplayName("Запуск без изменений обнуляет метрику скорости")
+    public void testRateGaugeResetsOnEmptyRun() {
+        seedTickets(0, EXPIRED_TICKETS, "NOW() - INTERVAL '1 hour'");
+
+        ticketService.deactivateExpiredTickets();
+        assertTrue(rateGauge() > 0, "Скорость запуска с изменениями должна быть больше нуля");
+
+        assertEquals(0, ticketService.deactivateExpiredTickets());
+        assertEquals(0.0, rateGauge());
+    }
+
+    private double rateGauge() {
+        return meterRegistry.get("tickets.deactivation.rate").tag("job", "expired").gauge().value();
+    }
+
+    // Активные билеты с кодами [firstCode, firstCode + count) и сроком действия expiresAt (SQL-выражение)
+    private void seedTickets(long firstCode, int count, String expiresAt) {
+        jdbcTemplate.update("INSERT INTO golden_tickets (ticket_code, status, generated_at, expires_at) " +
+                "SELECT c, 'ACTIVE', NOW(), " + expiresAt + " FROM generate_series(?::bigint, ?::bigint) c",
+                firstCode, firstCode + count - 1);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.demo.services;
+
+import com.example.demo.services.OccupancyTimeline.Interval;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты интервалов занятости цеха (общая структура индекса и снимка занятости)
+ */
+@DisplayName("Тесты интервалов занятости цеха")
+public class OccupancyTimelineTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2030, 1, 1, 10, 0);
+
+    @Test
+    @DisplayName("Учитываются только интервалы, пересекающиеся с периодом")
+    public void testOverlap() {
+        OccupancyTimeline timeline = new OccupancyTimeline();
+        timeline.add(interval(1L, 0, 120, 10));   // длинный интервал начинается задолго до периода
+        timeline.add(interval(2L, 60, 30, 5));    // заканчивается ровно в начале периода
+        timeline.add(interval(3L, 100, 20, 7));
+        timeline.add(interval(4L, 120, 15, 3));   // начинается ровно в конце периода
+
+        assertEquals(17, timeline.occupancy(T0.plusMinutes(90), T0.plusMinutes(120), null));
+        assertEquals(10, timeline.occupancy(T0.plusMinutes(90), T0.plusMinutes(120), 3L));
+        assertEquals(0, timeline.occupancy(T0.plusMinutes(135), T0.plusMinutes(200), null));
+    }
+
+    @Test
+    @DisplayName("Интервалы с одинаковым началом хранятся и удаляются независимо")
+    public void testSameStart() {
+        OccupancyTimeline timeline = new OccupancyTimeline();
+        Interval first = interval(1L, 0, 30, 4);
+        timeline.add(first);
+        timeline.add(interval(2L, 0, 30, 6));
+        assertEquals(10, timeline.occupancy(T0, T0.plusMinutes(5), null));
+
+        timeline.remove(first);
+        assertEquals(6, timeline.occupancy(T0, T0.plusMinutes(5), null));
+    }
+
+    @Test
+    @DisplayName("Интервал из строки запроса")
+    public void testFromRow() {
+        OccupancyTimeline timeline = new OccupancyTimeline();
+        timeline.add(Interval.fromRow(new Object[]{7L, 1L, T0, 45, null}));
+        timeline.add(Interval.fromRow(new Object[]{7L, 2L, T0, 45, 12}));
+
+        assertEquals(12, timeline.occupancy(T0.plusMinutes(44), T0.plusMinutes(50), null));
+        assertEquals(0, timeline.occupancy(T0.plusMinutes(45), T0.plusMinutes(50), null));
+    }
+
+    private static Interval interval(Long excursionId, int startMinute, int durationMinutes, int participants) {
+        LocalDateTime start = T0.plusMinutes(startMinute);
+        return new Interval(1L, excursionId, start, start.plusMinutes(durationMinutes), participants);
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.demo.services;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.dto.request.TaskRequestDTO;
+import com.example.demo.models.TaskStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты реестра загруженности рабочих
+ * Проверяет сверку с БД (расхождение и метрику) и то, что сверка не теряет и не удваивает
+ * изменения, закоммиченные параллельно с ней. Изменения должны коммититься, поэтому
+ * тестовая транзакция BaseDatabaseTest отключена.
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Тесты реестра загруженности рабочих")
+public class TaskLoadRegistryTest extends BaseDatabaseTest {
+
+    private static final int THREADS = 8;
+    private static final int TASKS_PER_THREAD = 25;
+
+    @Autowired
+    private TaskLoadRegistry taskLoadRegistry;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void cleanUp() {
+        cleanDatabase();
+        taskLoadRegistry.resync();
+    }
+
+    @Test
+    @DisplayName("Сверка исправляет расхождение и публикует его метрикой")
+    public void testResyncFixesDrift() {
+        long userId = createWorker("registry_drift_worker");
+        // Задачи вставлены в обход TaskService: реестр о них не знает
+        jdbcTemplate.update("INSERT INTO tasks (name, status, user_id, created_at) " +
+                "SELECT 'Drift task ' || g, 'IN_PROGRESS', ?, NOW() FROM generate_series(1, 3) g", userId);
+        assertEquals(0, taskLoadRegistry.getActiveTasks(userId));
+
+        long drift = taskLoadRegistry.resync();
+
+        assertEquals(3, drift);
+        assertEquals(3, taskLoadRegistry.getActiveTasks(userId));
+        assertEquals(3.0, meterRegistry.get("tasks.load.registry.drift").gauge().value());
+        assertEquals(0, taskLoadRegistry.resync(), "Повторная сверка не должна находить расхождений");
+    }
+
+    @Test
+    @DisplayName("Счетчик обновляется только после коммита")
+    public void testCountersFollowCommits() {
+        long userId = createWorker("registry_commit_worker");
+        taskLoadRegistry.resync();
+
+        TaskRequestDTO dto = new TaskRequestDTO();
+        dto.setName("Committed task");
+        dto.setUserId(userId);
+        Long taskId = taskService.createTask(dto).orElseThrow().getId();
+        assertEquals(1, taskLoadRegistry.getActiveTasks(userId));
+
+        dto.setStatus(TaskStatus.COMPLETED);
+        taskService.updateTask(taskId, dto);
+        assertEquals(0, taskLoadRegistry.getActiveTasks(userId));
+    }
+
+    @Test
+    @DisplayName("Параллельные назначения и сверки не приводят к расхождению")
+    public void testConcurrentIncrementsAndResync() throws Exception {
+        long userId = createWorker("registry_concurrent_worker");
+        taskLoadRegistry.resync();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < TASKS_PER_THREAD; i++) {
+                        TaskRequestDTO dto = new TaskRequestDTO();
+                        dto.setName("Concurrent task " + thread + "-" + i);
+                        dto.setUserId(userId);
+                        dto.setForce(true);
+                        taskService.createTask(dto);
+                    }
+                    return null;
+                }));
+            }
+            Future<?> reconciler = executor.submit(() -> {
+                start.await();
+                while (writing.get()) {
+                    taskLoadRegistry.resync();
+                }
+                return null;
+            });
+
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            reconciler.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int expected = THREADS * TASKS_PER_THREAD;
+        assertEquals(expected, countRows("SELECT COUNT(*) FROM tasks WHERE user_id = ?", userId));
+        assertEquals(expected, taskLoadRegistry.getActiveTasks(userId), "Счетчик должен совпадать с БД без дополнительной сверки");
+        assertEquals(0, taskLoadRegistry.resync());
+    }
+
+    @Test
+    @DisplayName("Сверка во время коммита не ждет его и не перезаписывает счетчик")
+    public void testResyncDuringCommit() throws Exception {
+        long userId = createWorker("registry_inflight_worker");
+        taskLoadRegistry.resync();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicLong driftDuringCommit = new AtomicLong(-1);
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                TaskRequestDTO dto = new TaskRequestDTO();
+                dto.setName("In-flight task");
+                dto.setUserId(userId);
+                taskService.createTask(dto);
+                // Сверка из другого потока, пока коммит еще не завершен (до afterCompletion)
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        try {
+                            driftDuringCommit.set(executor.submit(taskLoadRegistry::resync).get(30, TimeUnit.SECONDS));
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                });
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, driftDuringCommit.get(), "Пользователь с коммитом в процессе не должен исправляться");
+        assertEquals(1, taskLoadRegistry.getActiveTasks(userId));
+        assertEquals(0, taskLoadRegistry.resync());
+    }
+
+    private long createWorker(String username) {
+        jdbcTemplate.update("INSERT INTO users (username, password, role, is_banned, created_at) " +
+                "VALUES (?, 'password', 'WORKER', false, NOW())", username);
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, username);
+    }
+}
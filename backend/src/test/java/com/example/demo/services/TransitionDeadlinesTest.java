@@ -0,0 +1,108 @@
+package com.example.demo.services;
+
+import com.example.demo.services.TransitionDeadlines.Deadline;
+import com.example.demo.services.TransitionDeadlines.Kind;
+import com.example.demo.utils.DateTimeUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты очереди сроков автоматических переходов (без Spring-контекста)
+ * Проверяет порядок выдачи, дедупликацию перенесенных сроков, горизонт и добавление после коммита
+ */
+@DisplayName("Тесты очереди сроков переходов")
+public class TransitionDeadlinesTest {
+
+    private TransitionDeadlines deadlines;
+    private LocalDateTime now;
+
+    @BeforeEach
+    public void setUp() {
+        deadlines = new TransitionDeadlines();
+        now = DateTimeUtils.nowUTC();
+        deadlines.extendHorizon(now.plusHours(1));
+    }
+
+    @Test
+    @DisplayName("Сроки выдаются по времени наступления, наступившие - сразу")
+    public void testOrdering() throws InterruptedException {
+        deadlines.add(Kind.EXPIRED_TICKETS, now.plusSeconds(2));
+        deadlines.add(Kind.EXCURSION_STATUS, now.plusSeconds(1));
+        deadlines.add(Kind.STARTED_EXCURSION_TICKETS, now.minusMinutes(5));
+
+        assertEquals(Kind.STARTED_EXCURSION_TICKETS, deadlines.take().getKind());
+
+        Deadline first = deadlines.take();
+        Deadline second = deadlines.take();
+        assertEquals(Kind.EXCURSION_STATUS, first.getKind());
+        assertEquals(Kind.EXPIRED_TICKETS, second.getKind());
+        assertFalse(DateTimeUtils.nowUTC().isBefore(second.getDueAt()), "Срок выдан до наступления");
+        assertNull(deadlines.pollDue());
+        assertEquals(0, deadlines.size());
+    }
+
+    @Test
+    @DisplayName("Одинаковые и перенесенные в ту же секунду сроки дедуплицируются")
+    public void testDeduplication() throws InterruptedException {
+        LocalDateTime dueAt = now.plusMinutes(10).truncatedTo(ChronoUnit.SECONDS);
+        deadlines.add(Kind.EXCURSION_STATUS, dueAt);
+        deadlines.add(Kind.EXCURSION_STATUS, dueAt);
+        // Округляется вверх до той же секунды
+        deadlines.add(Kind.EXCURSION_STATUS, dueAt.minusNanos(300_000_000));
+        assertEquals(1, deadlines.size());
+
+        // Тот же момент другого типа - отдельный срок
+        deadlines.add(Kind.STARTED_EXCURSION_TICKETS, dueAt);
+        // Перенос на другое время добавляет новый срок, старый остается и ничего не найдет
+        deadlines.add(Kind.EXCURSION_STATUS, dueAt.plusMinutes(30));
+        assertEquals(3, deadlines.size());
+
+        // После выдачи тот же срок снова принимается
+        deadlines.add(Kind.EXPIRED_TICKETS, now.minusHours(1));
+        Deadline taken = deadlines.take();
+        assertEquals(Kind.EXPIRED_TICKETS, taken.getKind());
+        deadlines.add(Kind.EXPIRED_TICKETS, taken.getDueAt());
+        assertEquals(4, deadlines.size());
+    }
+
+    @Test
+    @DisplayName("Сроки за горизонтом не попадают в очередь до его сдвига")
+    public void testHorizonCutoff() {
+        deadlines.add(Kind.EXPIRED_TICKETS, now.plusHours(2));
+        assertEquals(0, deadlines.size());
+
+        deadlines.extendHorizon(now.plusHours(3));
+        deadlines.add(Kind.EXPIRED_TICKETS, now.plusHours(2));
+        assertEquals(1, deadlines.size());
+
+        // Горизонт не сдвигается назад
+        deadlines.extendHorizon(now.plusMinutes(30));
+        deadlines.add(Kind.EXCURSION_STATUS, now.plusHours(2));
+        assertEquals(2, deadlines.size());
+    }
+
+    @Test
+    @DisplayName("Срок из транзакции добавляется только после коммита")
+    public void testScheduleAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            deadlines.scheduleExcursionStart(now.plusMinutes(10));
+            deadlines.scheduleExcursionEnd(now.plusMinutes(40));
+            assertEquals(0, deadlines.size(), "До коммита срок не должен попадать в очередь");
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        // Начало - статус и билеты, окончание - статус
+        assertEquals(3, deadlines.size());
+    }
+}
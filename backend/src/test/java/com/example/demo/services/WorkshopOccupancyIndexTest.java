@@ -0,0 +1,94 @@
+package com.example.demo.services;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.models.Workshop;
+import com.example.demo.utils.DateTimeUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты индекса занятости цехов
+ * Проверяет, что перестройка исправляет расхождение с БД, а массовое завершение экскурсий
+ * планировщиком убирает их интервалы из индекса. Индекс обновляется после коммита,
+ * поэтому тестовая транзакция BaseDatabaseTest отключена.
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Тесты индекса занятости цехов")
+public class WorkshopOccupancyIndexTest extends BaseDatabaseTest {
+
+    private static final int GROUP_SIZE = 20;
+
+    @Autowired
+    private WorkshopOccupancyIndex occupancyIndex;
+
+    @Autowired
+    private ExcursionService excursionService;
+
+    private Workshop workshop;
+
+    @BeforeEach
+    public void setUpWorkshop() {
+        workshop = new Workshop();
+        workshop.setName("Цех индекса занятости");
+        workshop.setCapacity(50);
+        workshop.setVisitDurationMinutes(30);
+        workshop = workshopRepository.saveAndFlush(workshop);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        cleanDatabase();
+        jdbcTemplate.execute("DELETE FROM workshop_slots");
+        occupancyIndex.rebuild();
+    }
+
+    @Test
+    @DisplayName("Перестройка подхватывает маршруты, записанные в обход сервиса")
+    public void testRebuildRepairsDrift() {
+        LocalDateTime start = DateTimeUtils.nowUTC().plusDays(3).truncatedTo(ChronoUnit.HOURS);
+        insertExcursion("CONFIRMED", start);
+        assertEquals(0, occupancyIndex.getOccupancy(workshop.getId(), start, start.plusMinutes(30), null));
+
+        occupancyIndex.rebuild();
+
+        assertEquals(GROUP_SIZE, occupancyIndex.getOccupancy(workshop.getId(), start, start.plusMinutes(30), null));
+        assertEquals(0, occupancyIndex.getOccupancy(workshop.getId(), start.plusMinutes(30), start.plusMinutes(60), null),
+                "Соседний интервал после окончания посещения свободен");
+    }
+
+    @Test
+    @DisplayName("Завершенные планировщиком экскурсии удаляются из индекса")
+    public void testCompletionRemovesIntervals() {
+        LocalDateTime start = DateTimeUtils.nowUTC().minusHours(2).truncatedTo(ChronoUnit.MINUTES);
+        insertExcursion("IN_PROGRESS", start);
+        occupancyIndex.rebuild();
+        assertEquals(GROUP_SIZE, occupancyIndex.getOccupancy(workshop.getId(), start, start.plusMinutes(30), null));
+
+        assertEquals(1, excursionService.updateExcursionStatuses().get("completed"));
+
+        assertEquals(0, occupancyIndex.getOccupancy(workshop.getId(), start, start.plusMinutes(30), null));
+    }
+
+    private void insertExcursion(String status, LocalDateTime start) {
+        LocalDateTime end = start.plusMinutes(30);
+        jdbcTemplate.update("INSERT INTO users (username, password, role, is_banned, created_at) " +
+                "VALUES ('occupancy_index_guide', 'password', 'GUIDE', false, NOW())");
+        Long excursionId = jdbcTemplate.queryForObject("INSERT INTO excursions (name, start_time, end_time, participants_count, " +
+                "guide_id, status, created_at) VALUES ('Экскурсия индекса', ?, ?, ?, " +
+                "(SELECT id FROM users WHERE username = 'occupancy_index_guide'), ?, NOW()) RETURNING id",
+                Long.class, Timestamp.valueOf(start), Timestamp.valueOf(end), GROUP_SIZE, status);
+        jdbcTemplate.update("INSERT INTO excursion_routes (excursion_id, workshop_id, order_number, start_time, duration_minutes, end_time) " +
+                "VALUES (?, ?, 1, ?, 30, ?)", excursionId, workshop.getId(), Timestamp.valueOf(start), Timestamp.valueOf(end));
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.demo.services;
+
+import com.example.demo.database.BaseDatabaseTest;
+import com.example.demo.dto.request.ExcursionRequestDTO;
+import com.example.demo.exceptions.WorkshopSlotUnavailableException;
+import com.example.demo.models.ExcursionStatus;
+import com.example.demo.models.Role;
+import com.example.demo.models.User;
+import com.example.demo.models.Workshop;
+import com.example.demo.repositories.WorkshopSlotRepository;
+import com.example.demo.utils.DateTimeUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты журнала резервирования цехов
+ * Проверяет отказ при переполнении слота, то, что сменяющие друг друга группы не считаются
+ * одновременными, отказ в начале экскурсии не на границе слота, и освобождение слотов
+ * при удалении резерва и при массовом завершении экскурсий планировщиком
+ */
+@DisplayName("Тесты журнала резервирования цехов")
+public class WorkshopSlotLedgerTest extends BaseDatabaseTest {
+
+    private static final int CAPACITY = 30;
+    private static final int GROUP_SIZE = 20;
+
+    @Autowired
+    private WorkshopSlotLedger slotLedger;
+
+    @Autowired
+    private WorkshopSlotRepository slotRepository;
+
+    @Autowired
+    private ExcursionService excursionService;
+
+    private Workshop workshop;
+    private LocalDateTime base;
+
+    @BeforeEach
+    public void setUpWorkshop() {
+        workshop = new Workshop();
+        workshop.setName("Цех ограниченной вместимости");
+        workshop.setCapacity(CAPACITY);
+        workshop.setVisitDurationMinutes(30);
+        workshop = workshopRepository.saveAndFlush(workshop);
+        base = DateTimeUtils.nowUTC().plusDays(10).truncatedTo(ChronoUnit.HOURS);
+    }
+
+    @Test
+    @DisplayName("Пересекающаяся группа сверх вместимости отклоняется, соседние интервалы - нет")
+    public void testOverbookingRejected() {
+        // Группы сменяют друг друга на границе слота
+        slotLedger.reserve(List.of(claim(0, 15)));
+        assertDoesNotThrow(() -> slotLedger.reserve(List.of(claim(15, 30))),
+                "Группа, начинающаяся в момент ухода предыдущей, не пересекается с ней");
+        assertEquals(GROUP_SIZE, peak(0, 45));
+        assertEquals(3, countRows("SELECT COUNT(*) FROM workshop_slots WHERE workshop_id = ?", workshop.getId()),
+                "45 минут - три слота журнала");
+
+        assertThrows(WorkshopSlotUnavailableException.class, () -> slotLedger.reserve(List.of(claim(0, 30))),
+                "Вторая группа в тех же слотах превышает вместимость");
+    }
+
+    @Test
+    @DisplayName("Освобожденные слоты снова доступны для бронирования")
+    public void testReleaseFreesSlots() {
+        slotLedger.reserve(List.of(claim(0, 30)));
+        slotLedger.release(List.of(claim(0, 30)));
+        assertEquals(0, peak(0, 30));
+
+        assertDoesNotThrow(() -> slotLedger.reserve(List.of(claim(10, 30))));
+        assertEquals(GROUP_SIZE, peak(0, 60));
+    }
+
+    @Test
+    @DisplayName("Начало экскурсии не на границе слота отклоняется, а не подменяется")
+    public void testUnalignedStartRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> excursionService.createExcursion(request("seconds_slot_guide", base.plusSeconds(30))));
+        assertThrows(IllegalArgumentException.class,
+                () -> excursionService.createExcursion(request("minutes_slot_guide", base.plusMinutes(7))));
+        assertEquals(0, countRows("SELECT COUNT(*) FROM excursions"));
+
+        excursionService.createExcursion(request("first_slot_guide", base));
+        assertDoesNotThrow(() -> excursionService.createExcursion(request("second_slot_guide", base.plusMinutes(30))),
+                "Вторая группа приходит, когда первая уже ушла");
+        assertEquals(GROUP_SIZE, peak(0, 60));
+        assertThrows(RuntimeException.class,
+                () -> excursionService.createExcursion(request("third_slot_guide", base.plusMinutes(15))));
+    }
+
+    @Test
+    @DisplayName("Завершение экскурсий планировщиком освобождает их слоты")
+    public void testBulkCompletionReleasesSlots() {
+        LocalDateTime start = DateTimeUtils.nowUTC().minusHours(2).truncatedTo(ChronoUnit.HOURS);
+        Long excursionId = insertInProgressExcursion(start, start.plusMinutes(30));
+        slotLedger.reserve(slotLedger.claimsOf(excursionRepository.findById(excursionId).orElseThrow()));
+        assertEquals(GROUP_SIZE * 30 / WorkshopSlotLedger.SLOT_MINUTES, totalOccupied());
+
+        Map<String, Integer> result = excursionService.updateExcursionStatuses();
+
+        assertEquals(1, result.get("completed"));
+        assertEquals(0, totalOccupied(), "Слоты завершенной экскурсии должны освобождаться вместе со сменой статуса");
+    }
+
+    private WorkshopSlotLedger.Claim claim(int offsetMinutes, int durationMinutes) {
+        return new WorkshopSlotLedger.Claim(workshop.getId(), CAPACITY, base.plusMinutes(offsetMinutes),
+                base.plusMinutes(offsetMinutes + durationMinutes), GROUP_SIZE);
+    }
+
+    private int peak(int fromMinutes, int toMinutes) {
+        return slotRepository.findPeakOccupancy(workshop.getId(), base.plusMinutes(fromMinutes), base.plusMinutes(toMinutes));
+    }
+
+    private int totalOccupied() {
+        return countRows("SELECT COALESCE(SUM(occupied), 0) FROM workshop_slots WHERE workshop_id = ?", workshop.getId());
+    }
+
+    private ExcursionRequestDTO request(String guideName, LocalDateTime startTime) {
+        ExcursionRequestDTO.RoutePointDTO point = new ExcursionRequestDTO.RoutePointDTO();
+        point.setWorkshopId(workshop.getId());
+        point.setOrderNumber(1);
+
+        ExcursionRequestDTO dto = new ExcursionRequestDTO();
+        dto.setName("Экскурсия " + guideName);
+        dto.setStartTime(startTime);
+        dto.setParticipantsCount(GROUP_SIZE);
+        dto.setGuideId(saveGuide(guideName).getId());
+        dto.setStatus(ExcursionStatus.CONFIRMED);
+        dto.setAutoGenerateRoute(false);
+        dto.setRoutes(new ArrayList<>(List.of(point)));
+        return dto;
+    }
+
+    private User saveGuide(String username) {
+        User guide = new User();
+        guide.setUsername(username);
+        guide.setPassword("password");
+        guide.setRole(Role.GUIDE);
+        return userRepository.saveAndFlush(guide);
+    }
+
+    private Long insertInProgressExcursion(LocalDateTime start, LocalDateTime end) {
+        Long guideId = saveGuide("completed_slot_guide").getId();
+        Long excursionId = jdbcTemplate.queryForObject("INSERT INTO excursions (name, start_time, end_time, participants_count, " +
+                "guide_id, status, created_at) VALUES ('Завершающаяся экскурсия', ?, ?, ?, ?, 'IN_PROGRESS', NOW()) RETURNING id",
+                Long.class, Timestamp.valueOf(start), Timestamp.valueOf(end), GROUP_SIZE, guideId);
+        jdbcTemplate.update("INSERT INTO excursion_routes (excursion_id, workshop_id, order_number, start_time, duration_minutes, end_time) " +
+                "VALUES (?, ?, 1, ?, 30, ?)", excursionId, workshop.getId(), Timestamp.valueOf(start), Timestamp.valueOf(end));
+        return excursionId;
+    }
+}
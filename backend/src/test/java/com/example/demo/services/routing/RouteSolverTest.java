@@ -0,0 +1,169 @@
+package com.example.demo.services.routing;
+
+import com.example.demo.services.WorkshopOccupancySnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты алгоритмов построения маршрута на снимке занятости в памяти (без БД)
+ * Проверяет допустимость маршрутов обоих алгоритмов и оптимальность перебора (branch-and-bound,
+ * алгоритм по умолчанию) против полного перебора порядков на небольших наборах цехов
+ */
+@DisplayName("Тесты алгоритмов построения маршрута")
+public class RouteSolverTest {
+
+    private static final int PARTICIPANTS = 20;
+    private static final int RANDOM_CASES = 30;
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 15, 9, 0);
+
+    private final GreedyRouteSolver greedySolver = new GreedyRouteSolver();
+    // Бюджет с запасом: на 6 цехах перебор должен завершаться полностью, а не по таймауту
+    private final BranchAndBoundRouteSolver branchAndBoundSolver =
+            new BranchAndBoundRouteSolver(greedySolver, 10_000, 2);
+
+    @AfterEach
+    public void shutdownPool() {
+        branchAndBoundSolver.shutdown();
+    }
+
+    @Test
+    @DisplayName("Перебор порядков находит маршрут, который жадный алгоритм пропускает")
+    public void testBranchAndBoundBeatsFirstFit() {
+        // Цех 1 свободен всегда; цех 2 свободен только первые 30 минут, затем занят на 5.5 часов.
+        // Жадный алгоритм берет цех 1 первым и не дожидается цеха 2.
+        List<RouteCandidate> candidates = List.of(
+            new RouteCandidate(1L, PARTICIPANTS, 30),
+            new RouteCandidate(2L, PARTICIPANTS, 30)
+        );
+        List<Object[]> occupancy = new ArrayList<>();
+        occupancy.add(new Object[] { 2L, 100L, START.plusMinutes(30), 330, PARTICIPANTS });
+        RoutePlanningRequest request = request(candidates, occupancy);
+
+        RoutePlan greedy = greedySolver.solve(request);
+        RoutePlan optimized = branchAndBoundSolver.solve(request);
+
+        assertEquals(1, greedy.getVisitedCount());
+        assertEquals(2, optimized.getVisitedCount());
+        assertEquals(2L, optimized.getStops().get(0).getWorkshopId());
+        assertEquals(0, optimized.getIdleMinutes());
+    }
+
+    @Test
+    @DisplayName("Маршруты обоих алгоритмов допустимы")
+    public void testPlansAreFeasible() {
+        for (int seed = 1; seed <= RANDOM_CASES; seed++) {
+            RoutePlanningRequest request = randomRequest(8, new Random(seed));
+            assertFeasible(request, greedySolver.solve(request), "greedy, seed " + seed);
+            assertFeasible(request, branchAndBoundSolver.solve(request), "branch-and-bound, seed " + seed);
+        }
+    }
+
+    @Test
+    @DisplayName("Перебор совпадает с полным перебором порядков и не хуже жадного")
+    public void testBranchAndBoundIsOptimal() {
+        for (int seed = 1; seed <= RANDOM_CASES; seed++) {
+            RoutePlanningRequest request = randomRequest(6, new Random(seed));
+
+            RoutePlan greedy = greedySolver.solve(request);
+            RoutePlan optimized = branchAndBoundSolver.solve(request);
+            long[] exhaustive = exhaustiveBest(request, request.getStartTime(), new HashSet<>(), 0, 0);
+
+            assertEquals(exhaustive[0], optimized.getVisitedCount(), "Посещено цехов, seed " + seed);
+            assertEquals(exhaustive[1], optimized.getIdleMinutes(), "Простой, seed " + seed);
+            assertFalse(greedy.isBetterThan(optimized), "Маршрут не должен быть хуже жадного, seed " + seed);
+        }
+    }
+
+    @Test
+    @DisplayName("Пустой маршрут, если цеха заняты все окно")
+    public void testNoAvailableWorkshops() {
+        List<RouteCandidate> candidates = List.of(new RouteCandidate(1L, PARTICIPANTS, 30));
+        List<Object[]> occupancy = new ArrayList<>();
+        occupancy.add(new Object[] { 1L, 100L, START, 600, PARTICIPANTS });
+        RoutePlanningRequest request = request(candidates, occupancy);
+
+        assertEquals(0, greedySolver.solve(request).getVisitedCount());
+        assertEquals(0, branchAndBoundSolver.solve(request).getVisitedCount());
+    }
+
+    private static void assertFeasible(RoutePlanningRequest request, RoutePlan plan, String label) {
+        Set<Long> visited = new HashSet<>();
+        LocalDateTime previousEnd = request.getStartTime();
+        for (PlannedStop stop : plan.getStops()) {
+            assertTrue(visited.add(stop.getWorkshopId()), "Цех посещается повторно: " + label);
+            assertFalse(stop.getStartTime().isBefore(previousEnd), "Точки маршрута пересекаются: " + label);
+            assertTrue(stop.getStartTime().isBefore(request.getMaxTime()), "Точка за пределами окна: " + label);
+            assertTrue(request.isAvailable(stop.getCandidate(), stop.getStartTime()), "Цех переполнен: " + label);
+            previousEnd = stop.getEndTime();
+        }
+    }
+
+    /**
+     * Полный перебор порядков посещения: каждый следующий цех в ближайший доступный момент
+     * (те же правила сдвига, что у алгоритмов)
+     * @return [посещено цехов, простой в минутах] лучшего маршрута
+     */
+    private static long[] exhaustiveBest(RoutePlanningRequest request, LocalDateTime time, Set<Long> visited,
+                                         int visitedCount, long idle) {
+        long[] best = { visitedCount, idle };
+        for (RouteCandidate candidate : request.getCandidates()) {
+            if (visited.contains(candidate.getWorkshopId())) {
+                continue;
+            }
+            for (int shift = 0; shift <= RoutePlanningRequest.MAX_IDLE_SHIFTS; shift++) {
+                LocalDateTime start = time.plusMinutes((long) shift * RoutePlanningRequest.SHIFT_MINUTES);
+                if (!start.isBefore(request.getMaxTime())) {
+                    break;
+                }
+                if (request.isAvailable(candidate, start)) {
+                    visited.add(candidate.getWorkshopId());
+                    long[] result = exhaustiveBest(request, start.plusMinutes(candidate.getDurationMinutes()), visited,
+                            visitedCount + 1, idle + (long) shift * RoutePlanningRequest.SHIFT_MINUTES);
+                    visited.remove(candidate.getWorkshopId());
+                    if (result[0] > best[0] || (result[0] == best[0] && result[1] < best[1])) {
+                        best = result;
+                    }
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Цеха по 15-45 минут, у каждого 1-3 занятых интервала; окно короче суммы посещений,
+     * поэтому порядок и ожидание влияют на результат
+     */
+    private static RoutePlanningRequest randomRequest(int workshops, Random random) {
+        List<RouteCandidate> candidates = new ArrayList<>();
+        List<Object[]> occupancy = new ArrayList<>();
+        long excursionId = 1;
+
+        for (long workshopId = 1; workshopId <= workshops; workshopId++) {
+            candidates.add(new RouteCandidate(workshopId, PARTICIPANTS * 2, 15 * (1 + random.nextInt(3))));
+            int busyIntervals = 1 + random.nextInt(3);
+            for (int i = 0; i < busyIntervals; i++) {
+                LocalDateTime busyFrom = START.plusMinutes(15L * random.nextInt(12));
+                occupancy.add(new Object[] { workshopId, excursionId++, busyFrom, 30 + 15 * random.nextInt(4),
+                        PARTICIPANTS + 1 + random.nextInt(PARTICIPANTS) });
+            }
+        }
+        return new RoutePlanningRequest(START, START.plusHours(3), PARTICIPANTS, null, candidates,
+                WorkshopOccupancySnapshot.of(occupancy));
+    }
+
+    private static RoutePlanningRequest request(List<RouteCandidate> candidates, List<Object[]> occupancy) {
+        return new RoutePlanningRequest(START, START.plusHours(8), PARTICIPANTS, null, candidates,
+                WorkshopOccupancySnapshot.of(occupancy));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo.utils;
+
+import com.example.demo.database.BaseDatabaseTest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты числового представления номеров золотых билетов
+ * Проверяет взаимную однозначность для канонических и старых номеров, отказ на некорректных
+ * номерах и кодах, а также совпадение кодов с заполнением ticket_code в db/schema-upgrade.sql
+ * и перенос некодируемых номеров в карантин
+ */
+@DisplayName("Тесты кодирования номеров золотых билетов")
+public class TicketNumberCodecTest extends BaseDatabaseTest {
+
+    private static final long CANONICAL_LIMIT = 1L << 40;
+
+    // Канонические номера, старые номера (A-Z, 0-9, до 10 символов) и 8 символов с I, O, 0, 1 вне алфавита
+    private static final String[] NUMBERS = {
+        "GW4A7K2M", "AAAAAAAA", "99999999", "T123456789", "9999999999", "A", "OLDTICKET1", "ABCDEFGI", "00000000"
+    };
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    @DisplayName("Канонический код: decode и encode взаимно обратны")
+    public void testCanonicalRoundTrip() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            long code = TicketNumberCodec.fromRandomBits(random.nextLong());
+            String number = TicketNumberCodec.decode(code);
+
+            assertEquals(TicketNumberCodec.LENGTH, number.length());
+            assertTrue(number.chars().allMatch(c -> TicketNumberCodec.ALPHABET.indexOf(c) >= 0), number);
+            assertEquals(code, TicketNumberCodec.encode(number));
+        }
+        assertEquals("AAAAAAAA", TicketNumberCodec.decode(0));
+        assertEquals(CANONICAL_LIMIT - 1, TicketNumberCodec.encode("99999999"));
+    }
+
+    @Test
+    @DisplayName("Старые номера кодируются в base-37 выше 2^40 и декодируются обратно")
+    public void testLegacyRange() {
+        for (String number : List.of("A", "AA", "T123456789", "9999999999", "OLDTICKET1", "ABCDEFGI", "00000000")) {
+            long code = TicketNumberCodec.encode(number);
+            assertTrue(code >= CANONICAL_LIMIT, number + " должен попадать в диапазон старых номеров");
+            assertEquals(number, TicketNumberCodec.decode(code));
+        }
+        assertEquals(CANONICAL_LIMIT + 1, TicketNumberCodec.encode("A"));
+        assertNotEquals(TicketNumberCodec.encode("A"), TicketNumberCodec.encode("AA"));
+    }
+
+    @Test
+    @DisplayName("Некорректные номера и коды отклоняются")
+    public void testInvalidInput() {
+        for (String number : new String[] { null, "", "ABCDEFGHJKL", "gw4a7k2m", "GW4A-K2M", "БИЛЕТ" }) {
+            assertEquals(TicketNumberCodec.INVALID, TicketNumberCodec.tryEncode(number), String.valueOf(number));
+            assertThrows(IllegalArgumentException.class, () -> TicketNumberCodec.encode(number));
+        }
+        // Отрицательный код, пустой старый номер, нулевая цифра base-37 и номер длиннее 10 символов
+        for (long code : new long[] { -1, CANONICAL_LIMIT, CANONICAL_LIMIT + 37, CANONICAL_LIMIT + (long) Math.pow(37, 10) }) {
+            assertThrows(IllegalArgumentException.class, () -> TicketNumberCodec.decode(code), String.valueOf(code));
+        }
+    }
+
+    @Test
+    @DisplayName("Заполнение ticket_code в schema-upgrade.sql совпадает с TicketNumberCodec")
+    public void testSchemaUpgradeBackfillMatchesCodec() {
+        // Схема до появления ticket_code: уникальный строковый номер NOT NULL, колонку кода Hibernate не добавил
+        jdbcTemplate.execute("ALTER TABLE golden_tickets DROP COLUMN ticket_code");
+        jdbcTemplate.execute("ALTER TABLE golden_tickets ADD COLUMN ticket_number VARCHAR(10) NOT NULL UNIQUE");
+        for (String number : NUMBERS) {
+            jdbcTemplate.update("INSERT INTO golden_tickets (ticket_number, status, generated_at) VALUES (?, 'ACTIVE', NOW())", number);
+        }
+        jdbcTemplate.update("INSERT INTO golden_tickets (ticket_number, status, generated_at) VALUES ('GW4A-K2M', 'ACTIVE', NOW())");
+
+        runSchemaUpgrade();
+        // Повторный запуск ничего не меняет
+        runSchemaUpgrade();
+
+        assertTrue(columnExists("golden_tickets", "ticket_number"), "Строковая колонка сохраняется");
+        assertTrue(isColumnNullable("golden_tickets", "ticket_number"), "Новые билеты не заполняют ticket_number");
+        assertEquals(0, countRows("SELECT COUNT(*) FROM pg_constraint WHERE conrelid = 'golden_tickets'::regclass " +
+                "AND contype = 'u' AND conname <> 'uk_golden_tickets_ticket_code'"), "Уникальность ticket_number снимается");
+        assertFalse(isColumnNullable("golden_tickets", "ticket_code"));
+        List<Long> codes = jdbcTemplate.queryForList("SELECT ticket_code FROM golden_tickets ORDER BY id", Long.class);
+        assertEquals(NUMBERS.length, codes.size());
+        for (int i = 0; i < NUMBERS.length; i++) {
+            assertEquals(TicketNumberCodec.encode(NUMBERS[i]), codes.get(i), NUMBERS[i]);
+        }
+        assertEquals(List.of("GW4A-K2M"), jdbcTemplate.queryForList("SELECT ticket_number FROM golden_tickets_quarantine", String.class),
+                "Номер без числового кода переносится в карантин, запуск не прерывается");
+    }
+
+    private void runSchemaUpgrade() {
+        ResourceDatabasePopulator upgrade = new ResourceDatabasePopulator(new ClassPathResource("db/schema-upgrade.sql"));
+        upgrade.setSeparator("^;");
+        DatabasePopulatorUtils.execute(upgrade, dataSource);
+    }
+}
@@ -501,6 +501,7 @@ export default function ExcursionsPage() {
               type="datetime-local"
               required
               InputLabelProps={{ shrink: true }}
+              inputProps={{ step: 900 }}
               value={selectedExcursion?.startTime || ""}
               onChange={e => {
                 setSelectedExcursion(t => ({ ...t, startTime: e.target.value }));